@@ -0,0 +1,81 @@
+/*
+ * Copyright 2011 Vincent Behar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rundeck.api;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for the {@link ApiPathBuilder}, with many parameters
+ * 
+ * @author Vincent Behar
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class ApiPathBuilderBenchmark {
+
+    /** Number of parameters */
+    @Param({ "1", "10", "100" })
+    public int size;
+
+    private String[] keys;
+
+    private String[] values;
+
+    private Properties nodeFilters;
+
+    @Setup
+    public void setup() {
+        keys = new String[size];
+        values = new String[size];
+        nodeFilters = new Properties();
+        for (int i = 0; i < size; i++) {
+            keys[i] = "param" + i;
+            values[i] = "value " + i + " & more";
+            nodeFilters.setProperty("filter" + i, "value" + i);
+        }
+    }
+
+    @Benchmark
+    public String params() {
+        ApiPathBuilder builder = new ApiPathBuilder("/executions");
+        for (int i = 0; i < size; i++) {
+            builder.param(keys[i], values[i]);
+        }
+        return builder.toString();
+    }
+
+    @Benchmark
+    public String nodeFilters() {
+        return new ApiPathBuilder("/run/command").param("project", "test").nodeFilters(nodeFilters).toString();
+    }
+
+}
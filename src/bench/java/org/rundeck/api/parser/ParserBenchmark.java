@@ -0,0 +1,155 @@
+/*
+ * Copyright 2011 Vincent Behar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rundeck.api.parser;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.IOUtils;
+import org.dom4j.Document;
+import org.dom4j.Element;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.rundeck.api.domain.RundeckExecution;
+import org.rundeck.api.domain.RundeckHistory;
+import org.rundeck.api.domain.RundeckJob;
+import org.rundeck.api.domain.RundeckNode;
+
+/**
+ * Benchmarks for the parsers (DOM and streaming), over scaled-up versions of the test fixtures
+ * 
+ * @author Vincent Behar
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class ParserBenchmark {
+
+    /** Number of elements (nodes, events, executions, jobs) in each document */
+    @Param({ "10", "1000" })
+    public int size;
+
+    private final ListParser<RundeckNode> nodesParser = new ListParser<RundeckNode>(new NodeParser(), "project/node");
+
+    private final HistoryParser historyParser = new HistoryParser("result/events");
+
+    private final ListParser<RundeckExecution> executionsParser = new ListParser<RundeckExecution>(
+            new ExecutionParser(), "result/executions/execution");
+
+    private final ListParser<RundeckJob> jobsParser = new ListParser<RundeckJob>(new JobParser(), "result/jobs/job");
+
+    private byte[] nodes;
+
+    private byte[] history;
+
+    private byte[] executions;
+
+    private byte[] jobs;
+
+    @Setup
+    public void setup() throws Exception {
+        nodes = scale("resources.xml", "project/node", size);
+        history = scale("history.xml", "result/events/event", size);
+        executions = scale("executions.xml", "result/executions/execution", size);
+        jobs = scale("jobs.xml", "result/jobs/job", size);
+    }
+
+    @Benchmark
+    public Document loadDocument() {
+        return ParserHelper.loadDocument(new ByteArrayInputStream(history));
+    }
+
+    @Benchmark
+    public List<RundeckNode> parseNodes() {
+        return nodesParser.parseXmlNode(ParserHelper.loadDocument(new ByteArrayInputStream(nodes)));
+    }
+
+    @Benchmark
+    public List<RundeckNode> parseNodesStream() {
+        return ParserHelper.parseStream(new ByteArrayInputStream(nodes), nodesParser);
+    }
+
+    @Benchmark
+    public RundeckHistory parseHistory() {
+        return historyParser.parseXmlNode(ParserHelper.loadDocument(new ByteArrayInputStream(history)));
+    }
+
+    @Benchmark
+    public RundeckHistory parseHistoryStream() {
+        return ParserHelper.parseStream(new ByteArrayInputStream(history), historyParser);
+    }
+
+    @Benchmark
+    public List<RundeckExecution> parseExecutions() {
+        return executionsParser.parseXmlNode(ParserHelper.loadDocument(new ByteArrayInputStream(executions)));
+    }
+
+    @Benchmark
+    public List<RundeckExecution> parseExecutionsStream() {
+        return ParserHelper.parseStream(new ByteArrayInputStream(executions), executionsParser);
+    }
+
+    @Benchmark
+    public List<RundeckJob> parseJobs() {
+        return jobsParser.parseXmlNode(ParserHelper.loadDocument(new ByteArrayInputStream(jobs)));
+    }
+
+    @Benchmark
+    public List<RundeckJob> parseJobsStream() {
+        return ParserHelper.parseStream(new ByteArrayInputStream(jobs), jobsParser);
+    }
+
+    /**
+     * Build a bigger version of a test fixture, by copying its elements
+     * 
+     * @param fixture name of the XML file (in the same package)
+     * @param xpath of the elements to copy
+     * @param size number of elements in the resulting document
+     * @return the resulting document, as UTF-8 bytes
+     */
+    static byte[] scale(String fixture, String xpath, int size) throws Exception {
+        InputStream input = ParserBenchmark.class.getResourceAsStream(fixture);
+        Document document;
+        try {
+            document = ParserHelper.loadDocument(input);
+        } finally {
+            IOUtils.closeQuietly(input);
+        }
+
+        @SuppressWarnings("unchecked")
+        List<Element> elements = document.selectNodes(xpath);
+        Element parent = elements.get(0).getParent();
+        int count = elements.size();
+        for (int i = count; i < size; i++) {
+            parent.add(elements.get(i % count).createCopy());
+        }
+        return document.asXML().getBytes("UTF-8");
+    }
+
+}
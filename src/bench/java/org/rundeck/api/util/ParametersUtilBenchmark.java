@@ -0,0 +1,73 @@
+/*
+ * Copyright 2011 Vincent Behar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rundeck.api.util;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for the generation of the "argString" and node-filters parameters
+ * 
+ * @author Vincent Behar
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class ParametersUtilBenchmark {
+
+    /** Number of options / node-filters */
+    @Param({ "1", "10", "100" })
+    public int size;
+
+    private Properties options;
+
+    private Properties nodeFilters;
+
+    @Setup
+    public void setup() {
+        options = new Properties();
+        nodeFilters = new Properties();
+        for (int i = 0; i < size; i++) {
+            options.setProperty("option" + i, i % 2 == 0 ? "value" + i : "value " + i + " with spaces");
+            nodeFilters.setProperty("filter" + i, "tag" + i + ",web&db " + i);
+        }
+    }
+
+    @Benchmark
+    public String generateArgString() {
+        return ParametersUtil.generateArgString(options);
+    }
+
+    @Benchmark
+    public String generateNodeFiltersString() {
+        return ParametersUtil.generateNodeFiltersString(nodeFilters);
+    }
+
+}
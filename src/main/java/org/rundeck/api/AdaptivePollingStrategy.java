@@ -0,0 +1,187 @@
+/*
+ * Copyright 2011 Vincent Behar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rundeck.api;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.rundeck.api.domain.RundeckExecution;
+import org.rundeck.api.domain.RundeckExecution.ExecutionStatus;
+import org.rundeck.api.util.AssertUtil;
+
+/**
+ * {@link PollingStrategy} that checks the execution often right after it has been triggered, and then backs off
+ * exponentially (the delay grows with the time elapsed) up to a maximum delay. A random jitter is applied to each
+ * delay, so that executions triggered at the same time are not all checked at the same time. <br>
+ * If we know how long the execution is expected to take (for example from the recent executions of the job, see
+ * {@link #forJob(RundeckClient, String)}), the checks will be clustered around the expected end of the execution.
+ * 
+ * @author Vincent Behar
+ */
+public class AdaptivePollingStrategy implements PollingStrategy {
+
+    /** Default delay before the first check : 1 second */
+    public static final transient long DEFAULT_INITIAL_DELAY = TimeUnit.SECONDS.toMillis(1);
+
+    /** Default maximum delay between 2 checks : 1 minute */
+    public static final transient long DEFAULT_MAX_DELAY = TimeUnit.MINUTES.toMillis(1);
+
+    /** Default multiplier of the delay : each delay is 50% longer than the previous one */
+    public static final transient double DEFAULT_MULTIPLIER = 1.5;
+
+    /** Default jitter : +/- 10% of the delay */
+    public static final transient double DEFAULT_JITTER = 0.1;
+
+    /** Number of recent executions used to estimate the duration of a job */
+    private static final transient long RECENT_EXECUTIONS = 10;
+
+    private static final transient Random RANDOM = new Random();
+
+    private final long initialDelay;
+
+    private final long maxDelay;
+
+    private final double multiplier;
+
+    private final double jitter;
+
+    /** Expected duration of the execution (in milli-seconds) - 0 if unknown */
+    private final long expectedDuration;
+
+    /**
+     * Instantiate a new {@link AdaptivePollingStrategy} with the default values : starts at 1 second, up to 1 minute,
+     * each delay being 50% longer than the previous one (+/- 10% of jitter)
+     */
+    public AdaptivePollingStrategy() {
+        this(DEFAULT_INITIAL_DELAY, DEFAULT_MAX_DELAY, DEFAULT_MULTIPLIER, DEFAULT_JITTER, 0);
+    }
+
+    /**
+     * Instantiate a new {@link AdaptivePollingStrategy}
+     * 
+     * @param initialDelay delay (in milli-seconds) before the first check. Must be > 0.
+     * @param maxDelay maximum delay (in milli-seconds) between 2 checks. Must be >= initialDelay.
+     * @param multiplier of the delay between 2 checks. Must be > 1.
+     * @param jitter random variation of each delay, as a ratio of the delay (0.1 for +/- 10%). Must be between 0 and 1
+     *            (excluded).
+     * @param expectedDuration expected duration (in milli-seconds) of the execution - 0 if unknown
+     * @throws IllegalArgumentException if a parameter is out of its bounds
+     */
+    public AdaptivePollingStrategy(long initialDelay, long maxDelay, double multiplier, double jitter,
+            long expectedDuration) throws IllegalArgumentException {
+        super();
+        AssertUtil.isTrue(initialDelay > 0, "initialDelay must be > 0 !");
+        AssertUtil.isTrue(maxDelay >= initialDelay, "maxDelay must be >= initialDelay !");
+        AssertUtil.isTrue(multiplier > 1, "multiplier must be > 1 !");
+        AssertUtil.isTrue(jitter >= 0 && jitter < 1, "jitter must be >= 0 and < 1 !");
+        AssertUtil.isTrue(expectedDuration >= 0, "expectedDuration must be >= 0 !");
+        this.initialDelay = initialDelay;
+        this.maxDelay = maxDelay;
+        this.multiplier = multiplier;
+        this.jitter = jitter;
+        this.expectedDuration = expectedDuration;
+    }
+
+    /**
+     * @param duration expected duration of the execution
+     * @param unit unit (seconds, milli-seconds, ...) of the duration - mandatory
+     * @return a new {@link AdaptivePollingStrategy} with the same settings, and the given expected duration
+     * @throws IllegalArgumentException if the duration is negative, or the unit is null
+     */
+    public AdaptivePollingStrategy withExpectedDuration(long duration, TimeUnit unit) throws IllegalArgumentException {
+        AssertUtil.notNull(unit, "unit of the duration is mandatory !");
+        return new AdaptivePollingStrategy(initialDelay, maxDelay, multiplier, jitter, unit.toMillis(duration));
+    }
+
+    /**
+     * Build an {@link AdaptivePollingStrategy} (with the default values) for the given job, with an expected duration
+     * estimated from its recent successful executions (the median of their durations). If the job has never succeeded
+     * (or if we fail to get its executions), the expected duration will be unknown.
+     * 
+     * @param client used to get the recent executions of the job - mandatory
+     * @param jobId identifier of the job - mandatory
+     * @return a new {@link AdaptivePollingStrategy} instance - won't be null
+     * @throws IllegalArgumentException if the client is null or the jobId is blank (null, empty or whitespace)
+     */
+    public static AdaptivePollingStrategy forJob(RundeckClient client, String jobId) throws IllegalArgumentException {
+        AssertUtil.notNull(client, "The RunDeck client is mandatory !");
+        AssertUtil.notBlank(jobId, "jobId is mandatory to estimate the duration of a job !");
+        AdaptivePollingStrategy strategy = new AdaptivePollingStrategy();
+
+        List<RundeckExecution> executions;
+        try {
+            executions = client.getJobExecutions(jobId, ExecutionStatus.SUCCEEDED, RECENT_EXECUTIONS, null);
+        } catch (RundeckApiException e) {
+            return strategy;
+        }
+        List<Long> durations = new ArrayList<Long>();
+        for (RundeckExecution execution : executions) {
+            if (execution.getDurationInMillis() != null) {
+                durations.add(execution.getDurationInMillis());
+            }
+        }
+        if (durations.isEmpty()) {
+            return strategy;
+        }
+        Collections.sort(durations);
+        return strategy.withExpectedDuration(durations.get(durations.size() / 2), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public long getNextDelay(long elapsedInMillis) {
+        long delay;
+        if (expectedDuration > 0 && elapsedInMillis < expectedDuration) {
+            // back off, but don't go past the expected end of the execution
+            delay = Math.min(backoff(elapsedInMillis), expectedDuration - elapsedInMillis);
+        } else if (expectedDuration > 0) {
+            // the execution should be finished by now : back off again, from the expected end
+            delay = backoff(elapsedInMillis - expectedDuration);
+        } else {
+            delay = backoff(elapsedInMillis);
+        }
+        delay = Math.max(initialDelay, delay);
+
+        if (jitter > 0) {
+            delay = Math.round(delay * (1 + jitter * (2 * RANDOM.nextDouble() - 1)));
+        }
+        return Math.max(1, delay);
+    }
+
+    /**
+     * @param elapsed time (in milli-seconds) elapsed since the start of the backoff
+     * @return the delay (in milli-seconds), without jitter
+     */
+    private long backoff(long elapsed) {
+        long delay = (long) (elapsed * (multiplier - 1));
+        return Math.min(maxDelay, Math.max(initialDelay, delay));
+    }
+
+    /**
+     * @return the expected duration (in milli-seconds) of the execution - 0 if unknown
+     */
+    public long getExpectedDuration() {
+        return expectedDuration;
+    }
+
+    @Override
+    public String toString() {
+        return "AdaptivePollingStrategy [initialDelay=" + initialDelay + ", maxDelay=" + maxDelay + ", multiplier="
+               + multiplier + ", jitter=" + jitter + ", expectedDuration=" + expectedDuration + "]";
+    }
+
+}
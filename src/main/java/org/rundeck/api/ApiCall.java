@@ -16,9 +16,16 @@
 package org.rundeck.api;
 
 import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.SequenceInputStream;
 import java.net.ProxySelector;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.security.KeyManagementException;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
@@ -28,7 +35,15 @@ import java.security.cert.X509Certificate;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.locks.Lock;
+import javax.xml.stream.XMLStreamReader;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
 import org.apache.http.HttpException;
 import org.apache.http.HttpRequest;
 import org.apache.http.HttpRequestInterceptor;
@@ -41,25 +56,33 @@ import org.apache.http.client.methods.HttpDelete;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.conn.ConnectionReleaseTrigger;
 import org.apache.http.conn.scheme.Scheme;
 import org.apache.http.conn.ssl.SSLSocketFactory;
 import org.apache.http.conn.ssl.TrustStrategy;
 import org.apache.http.entity.mime.HttpMultipartMode;
 import org.apache.http.entity.mime.MultipartEntity;
+import org.apache.http.entity.mime.content.FileBody;
 import org.apache.http.entity.mime.content.InputStreamBody;
 import org.apache.http.impl.client.DefaultHttpClient;
 import org.apache.http.impl.conn.ProxySelectorRoutePlanner;
+import org.apache.http.impl.conn.tsccm.ThreadSafeClientConnManager;
 import org.apache.http.message.BasicNameValuePair;
+import org.apache.http.params.HttpConnectionParams;
 import org.apache.http.params.HttpProtocolParams;
 import org.apache.http.protocol.HTTP;
 import org.apache.http.protocol.HttpContext;
 import org.apache.http.util.EntityUtils;
 import org.dom4j.Document;
+import org.rundeck.api.ResponseCache.Resource;
 import org.rundeck.api.RundeckApiException.RundeckApiLoginException;
 import org.rundeck.api.RundeckApiException.RundeckApiTokenException;
 import org.rundeck.api.parser.ParserHelper;
 import org.rundeck.api.parser.XmlNodeParser;
+import org.rundeck.api.parser.XmlStreamIterator;
+import org.rundeck.api.parser.XmlStreamParser;
 import org.rundeck.api.util.AssertUtil;
+import org.rundeck.api.util.CloseableIterator;
 
 /**
  * Class responsible for making the HTTP API calls
@@ -71,9 +94,18 @@ class ApiCall {
     /** RunDeck HTTP header for the auth-token (in case of token-based authentication) */
     private static final transient String AUTH_TOKEN_HEADER = "X-RunDeck-Auth-Token";
 
+    /** Number of bytes read at the beginning of a response, to detect an error response */
+    private static final transient int ERROR_PREFIX_SIZE = 4096;
+
+    /** Maximum number of bytes copied from the network to a file in a single transfer */
+    private static final transient long TRANSFER_SIZE = 1024 * 1024;
+
     /** {@link RundeckClient} instance holding the RunDeck url and the credentials */
     private final RundeckClient client;
 
+    /** Whether the responses are parsed with a streaming parser, whatever the configuration of the client */
+    private final boolean streamingParsers;
+
     /**
      * Build a new instance, linked to the given RunDeck client
      * 
@@ -81,8 +113,21 @@ class ApiCall {
      * @throws IllegalArgumentException if client is null
      */
     public ApiCall(RundeckClient client) throws IllegalArgumentException {
+        this(client, false);
+    }
+
+    /**
+     * Build a new instance, linked to the given RunDeck client
+     * 
+     * @param client holding the RunDeck url and the credentials
+     * @param streamingParsers true to parse the responses with a streaming parser (if the parser supports it) even if
+     *            the client is not configured to do so (see {@link RundeckClient#setStreamingParsers(boolean)})
+     * @throws IllegalArgumentException if client is null
+     */
+    public ApiCall(RundeckClient client, boolean streamingParsers) throws IllegalArgumentException {
         super();
         this.client = client;
+        this.streamingParsers = streamingParsers;
         AssertUtil.notNull(client, "The RunDeck Client must not be null !");
     }
 
@@ -92,17 +137,21 @@ class ApiCall {
      * @throws RundeckApiException if the ping fails
      */
     public void ping() throws RundeckApiException {
-        HttpClient httpClient = instantiateHttpClient();
+        HttpClient httpClient = client.getHttpClient();
+        HttpResponse response = null;
         try {
-            HttpResponse response = httpClient.execute(new HttpGet(client.getUrl()));
-            if (response.getStatusLine().getStatusCode() / 100 != 2) {
-                throw new RundeckApiException("Invalid HTTP response '" + response.getStatusLine() + "' when pinging "
-                                              + client.getUrl());
-            }
+            response = httpClient.execute(new HttpGet(client.getUrl()));
         } catch (IOException e) {
             throw new RundeckApiException("Failed to ping RunDeck instance at " + client.getUrl(), e);
         } finally {
-            httpClient.getConnectionManager().shutdown();
+            // release the connection, so that it can be re-used
+            if (response != null) {
+                consumeQuietly(response);
+            }
+        }
+        if (response.getStatusLine().getStatusCode() / 100 != 2) {
+            throw new RundeckApiException("Invalid HTTP response '" + response.getStatusLine() + "' when pinging "
+                                          + client.getUrl());
         }
     }
 
@@ -130,12 +179,8 @@ class ApiCall {
      * @see #testAuth()
      */
     public void testLoginAuth() throws RundeckApiLoginException {
-        HttpClient httpClient = instantiateHttpClient();
-        try {
-            login(httpClient);
-        } finally {
-            httpClient.getConnectionManager().shutdown();
-        }
+        // always post the login form, even if we already have a session
+        openSession(client.getHttpClient(), client.getLoginSession());
     }
 
     /**
@@ -154,6 +199,23 @@ class ApiCall {
         }
     }
 
+    /**
+     * Execute an HTTP GET request that triggers an action on the RunDeck instance (run a job or a command, abort an
+     * execution, ...), on the given path. Unlike {@link #get(ApiPathBuilder, XmlNodeParser)}, the request is never
+     * coalesced with identical concurrent requests : each call triggers its own action.
+     * 
+     * @param apiPath on which we will make the HTTP request - see {@link ApiPathBuilder}
+     * @param parser used to parse the response
+     * @return the result of the call, as formatted by the parser
+     * @throws RundeckApiException in case of error when calling the API
+     * @throws RundeckApiLoginException if the login fails (in case of login-based authentication)
+     * @throws RundeckApiTokenException if the token is invalid (in case of token-based authentication)
+     */
+    public <T> T trigger(ApiPathBuilder apiPath, XmlNodeParser<T> parser) throws RundeckApiException,
+            RundeckApiLoginException, RundeckApiTokenException {
+        return execute(new HttpGet(client.getUrl() + RundeckClient.API_ENDPOINT + apiPath), parser);
+    }
+
     /**
      * Execute an HTTP GET request to the RunDeck instance, on the given path. We will login first, and then execute the
      * API call. At the end, the given parser will be used to convert the response to a more useful result object.
@@ -167,28 +229,218 @@ class ApiCall {
      */
     public <T> T get(ApiPathBuilder apiPath, XmlNodeParser<T> parser) throws RundeckApiException,
             RundeckApiLoginException, RundeckApiTokenException {
-        return execute(new HttpGet(client.getUrl() + RundeckClient.API_ENDPOINT + apiPath), parser);
+        String url = client.getUrl() + RundeckClient.API_ENDPOINT + apiPath;
+        if (!client.isRequestCoalescing()) {
+            return execute(new HttpGet(url), parser);
+        }
+        return parse(new ByteArrayInputStream(fetch(url)), parser);
+    }
+
+    /**
+     * Execute an HTTP GET request to the RunDeck instance, on the given path, unless the response is in the
+     * {@link ResponseCache} of the client. A successful response will be cached, for the time-to-live of the given
+     * kind of resource (see {@link RundeckClient#setCacheTtl(Resource, long, java.util.concurrent.TimeUnit)}).
+     * 
+     * @param apiPath on which we will make the HTTP request - see {@link ApiPathBuilder}
+     * @param parser used to parse the response
+     * @param resource kind of resource returned by the API call
+     * @return the result of the call, as formatted by the parser
+     * @throws RundeckApiException in case of error when calling the API
+     * @throws RundeckApiLoginException if the login fails (in case of login-based authentication)
+     * @throws RundeckApiTokenException if the token is invalid (in case of token-based authentication)
+     */
+    public <T> T get(ApiPathBuilder apiPath, XmlNodeParser<T> parser, Resource resource) throws RundeckApiException,
+            RundeckApiLoginException, RundeckApiTokenException {
+        ResponseCache cache = client.getResponseCache();
+        long ttl = client.getCacheTtl(resource);
+        if (cache == null || ttl <= 0) {
+            return get(apiPath, parser);
+        }
+
+        String url = client.getUrl() + RundeckClient.API_ENDPOINT + apiPath;
+        // captured before the fetch, so that an invalidation during the call is not undone by a stale response
+        long generation = client.getCacheGeneration(resource);
+        byte[] response = cache.get(url);
+        if (response != null) {
+            return parse(new ByteArrayInputStream(response), parser);
+        }
+        response = fetch(url);
+        // the response is parsed before being cached, so that we won't cache an error
+        T result = parse(new ByteArrayInputStream(response), parser);
+        client.cacheResponse(cache, url, resource, response, ttl, generation);
+        return result;
     }
 
     /**
      * Execute an HTTP GET request to the RunDeck instance, on the given path. We will login first, and then execute the
-     * API call.
+     * API call. An error response is detected from the beginning of the response. <br>
+     * If the client is configured for streaming responses (see {@link RundeckClient#setStreamingResponses(boolean)}),
+     * the response is not buffered : the returned {@link InputStream} reads it from the network, and you have to close
+     * it to release the HTTP connection.
      * 
      * @param apiPath on which we will make the HTTP request - see {@link ApiPathBuilder}
-     * @return a new {@link InputStream} instance, not linked with network resources
+     * @return a new {@link InputStream} instance, not linked with network resources (unless the client is configured
+     *         for streaming responses)
      * @throws RundeckApiException in case of error when calling the API
      * @throws RundeckApiLoginException if the login fails (in case of login-based authentication)
      * @throws RundeckApiTokenException if the token is invalid (in case of token-based authentication)
      */
     public InputStream get(ApiPathBuilder apiPath) throws RundeckApiException, RundeckApiLoginException,
             RundeckApiTokenException {
-        ByteArrayInputStream response = execute(new HttpGet(client.getUrl() + RundeckClient.API_ENDPOINT + apiPath));
+        String url = client.getUrl() + RundeckClient.API_ENDPOINT + apiPath;
+        if (client.isStreamingResponses()) {
+            return stream(new HttpGet(url));
+        }
 
-        // try to load the document, to throw an exception in case of error
-        ParserHelper.loadDocument(response);
-        response.reset();
+        byte[] response = fetch(url);
+        if (ParserHelper.isErrorPrefix(response, Math.min(response.length, ERROR_PREFIX_SIZE))) {
+            // load the document, to throw an exception with the error message
+            ParserHelper.loadDocument(new ByteArrayInputStream(response));
+        }
+        return new ByteArrayInputStream(response);
+    }
 
-        return response;
+    /**
+     * Execute an HTTP GET request to the RunDeck instance, on the given path, and save the response to the given file.
+     * The response is never buffered in memory : it is copied from the network to a temporary file (in the same
+     * directory), which is then renamed to the given file. So the file is either replaced by the complete response, or
+     * left untouched. An error response is detected from the beginning of the response.
+     * 
+     * @param apiPath on which we will make the HTTP request - see {@link ApiPathBuilder}
+     * @param file where the response should be saved
+     * @throws RundeckApiException in case of error when calling the API
+     * @throws RundeckApiLoginException if the login fails (in case of login-based authentication)
+     * @throws RundeckApiTokenException if the token is invalid (in case of token-based authentication)
+     * @throws IOException if we failed to write to the file
+     */
+    public void download(ApiPathBuilder apiPath, File file) throws RundeckApiException, RundeckApiLoginException,
+            RundeckApiTokenException, IOException {
+        File directory = file.getAbsoluteFile().getParentFile();
+        FileUtils.forceMkdir(directory);
+
+        InputStream response = stream(new HttpGet(client.getUrl() + RundeckClient.API_ENDPOINT + apiPath));
+        File tmpFile = null;
+        try {
+            tmpFile = File.createTempFile("." + file.getName() + "-", ".tmp", directory);
+            FileOutputStream output = new FileOutputStream(tmpFile);
+            try {
+                FileChannel channel = output.getChannel();
+                ReadableByteChannel source = Channels.newChannel(response);
+                long position = 0;
+                for (long count; (count = channel.transferFrom(source, position, TRANSFER_SIZE)) > 0;) {
+                    position += count;
+                }
+                channel.force(false);
+            } finally {
+                IOUtils.closeQuietly(output);
+            }
+            // the rename is atomic if the target does not exist (or on POSIX systems)
+            if (!tmpFile.renameTo(file) && !(file.delete() && tmpFile.renameTo(file))) {
+                throw new IOException("Failed to rename " + tmpFile + " to " + file);
+            }
+            tmpFile = null;
+        } finally {
+            IOUtils.closeQuietly(response);
+            FileUtils.deleteQuietly(tmpFile);
+        }
+    }
+
+    /**
+     * Execute an HTTP request to the RunDeck instance, and return the response as it is read from the network. An
+     * error response is detected from the beginning of the response.
+     * 
+     * @param request to execute. see {@link HttpGet}, {@link HttpDelete}, and so on...
+     * @return an {@link InputStream} linked to the HTTP connection - you have to close it to release the connection
+     * @throws RundeckApiException in case of error when calling the API
+     * @throws RundeckApiLoginException if the login fails (in case of login-based authentication)
+     * @throws RundeckApiTokenException if the token is invalid (in case of token-based authentication)
+     */
+    private InputStream stream(HttpRequestBase request) throws RundeckApiException, RundeckApiLoginException,
+            RundeckApiTokenException {
+        final InputStream content = getContent(executeRequest(request));
+
+        byte[] prefix = new byte[ERROR_PREFIX_SIZE];
+        int length = 0;
+        try {
+            for (int read = 0; read >= 0 && length < prefix.length; length += Math.max(read, 0)) {
+                read = content.read(prefix, length, prefix.length - length);
+            }
+        } catch (IOException e) {
+            release(content, false);
+            throw new RundeckApiException("Failed to read RunDeck reponse", e);
+        }
+        InputStream response = new SequenceInputStream(new ByteArrayInputStream(prefix, 0, length), content);
+        if (ParserHelper.isErrorPrefix(prefix, length)) {
+            // the error response is small : load the whole document, to throw an exception with the error message
+            try {
+                ParserHelper.loadDocument(response);
+            } finally {
+                release(content, false);
+            }
+        }
+
+        return new FilterInputStream(response) {
+
+            private boolean complete = false;
+
+            @Override
+            public int read() throws IOException {
+                return checkComplete(super.read());
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return checkComplete(super.read(b, off, len));
+            }
+
+            private int checkComplete(int read) {
+                if (read < 0) {
+                    complete = true;
+                }
+                return read;
+            }
+
+            @Override
+            public void close() {
+                release(content, complete);
+            }
+        };
+    }
+
+    /**
+     * Execute an HTTP GET request to the RunDeck instance, on the given path, and iterate over the elements of the
+     * response while they are read from the network : the response is not buffered, and the elements are parsed one at
+     * a time, so that very large responses can be processed in constant memory.
+     * 
+     * @param apiPath on which we will make the HTTP request - see {@link ApiPathBuilder}
+     * @param parser used to parse an individual element
+     * @param xpath of the elements
+     * @return a {@link CloseableIterator} over the elements - you have to close it to release the HTTP connection (it
+     *         will be automatically closed once all the elements have been read)
+     * @throws RundeckApiException in case of error when calling the API
+     * @throws RundeckApiLoginException if the login fails (in case of login-based authentication)
+     * @throws RundeckApiTokenException if the token is invalid (in case of token-based authentication)
+     */
+    public <T> CloseableIterator<T> iterate(ApiPathBuilder apiPath, XmlStreamParser<T> parser, String xpath)
+            throws RundeckApiException, RundeckApiLoginException, RundeckApiTokenException {
+        final InputStream content = getContent(executeRequest(new HttpGet(client.getUrl()
+                                                                          + RundeckClient.API_ENDPOINT + apiPath)));
+
+        XMLStreamReader reader;
+        try {
+            reader = ParserHelper.loadStream(content);
+        } catch (RundeckApiException e) {
+            IOUtils.closeQuietly(content);
+            throw e;
+        }
+
+        return new XmlStreamIterator<T>(reader, parser, xpath) {
+
+            @Override
+            protected void release(boolean complete) {
+                ApiCall.release(content, complete);
+            }
+        };
     }
 
     /**
@@ -211,6 +463,11 @@ class ApiCall {
         for (Entry<String, InputStream> attachment : apiPath.getAttachments().entrySet()) {
             entity.addPart(attachment.getKey(), new InputStreamBody(attachment.getValue(), attachment.getKey()));
         }
+        // the files have a known length : the request will be sent with a Content-Length, and can be replayed
+        for (Entry<String, File> attachment : apiPath.getFileAttachments().entrySet()) {
+            entity.addPart(attachment.getKey(), new FileBody(attachment.getValue(), attachment.getKey(),
+                                                             "application/octet-stream", null));
+        }
         httpPost.setEntity(entity);
 
         return execute(httpPost, parser);
@@ -232,6 +489,30 @@ class ApiCall {
         return execute(new HttpDelete(client.getUrl() + RundeckClient.API_ENDPOINT + apiPath), parser);
     }
 
+    /**
+     * Execute an HTTP GET request to the RunDeck instance, and read the whole response in memory. If the client
+     * coalesces the requests, identical concurrent requests will share a single HTTP request (and its response).
+     * 
+     * @param url of the request
+     * @return the content of the response - should not be modified, as it might be shared with other callers
+     * @throws RundeckApiException in case of error when calling the API
+     * @throws RundeckApiLoginException if the login fails (in case of login-based authentication)
+     * @throws RundeckApiTokenException if the token is invalid (in case of token-based authentication)
+     */
+    private byte[] fetch(final String url) throws RundeckApiException, RundeckApiLoginException,
+            RundeckApiTokenException {
+        if (!client.isRequestCoalescing()) {
+            return read(executeRequest(new HttpGet(url)));
+        }
+        return client.getRequestCoalescer().execute(url, new Callable<byte[]>() {
+
+            @Override
+            public byte[] call() {
+                return read(executeRequest(new HttpGet(url)));
+            }
+        });
+    }
+
     /**
      * Execute an HTTP request to the RunDeck instance. We will login first, and then execute the API call. At the end,
      * the given parser will be used to convert the response to a more useful result object.
@@ -245,16 +526,43 @@ class ApiCall {
      */
     private <T> T execute(HttpRequestBase request, XmlNodeParser<T> parser) throws RundeckApiException,
             RundeckApiLoginException, RundeckApiTokenException {
-        // execute the request
-        InputStream response = execute(request);
+        if (!client.isStreamingResponses()) {
+            return parse(execute(request), parser);
+        }
 
-        // read and parse the response
+        // parse the response while it is read from the network
+        InputStream content = getContent(executeRequest(request));
+        boolean complete = false;
+        try {
+            T result = parse(content, parser);
+            complete = true;
+            return result;
+        } finally {
+            release(content, complete);
+        }
+    }
+
+    /**
+     * Parse the given response, with a streaming parser if this call or the client is configured to do so
+     * 
+     * @param response to parse
+     * @param parser used to parse the response
+     * @return the result of the call, as formatted by the parser
+     * @throws RundeckApiException if the response is an error, or is not a valid XML document
+     */
+    private <T> T parse(InputStream response, XmlNodeParser<T> parser) throws RundeckApiException {
+        if ((streamingParsers || client.isStreamingParsers()) && parser instanceof XmlStreamParser) {
+            @SuppressWarnings("unchecked")
+            XmlStreamParser<T> streamParser = (XmlStreamParser<T>) parser;
+            return ParserHelper.parseStream(response, streamParser);
+        }
         Document xmlDocument = ParserHelper.loadDocument(response);
         return parser.parseXmlNode(xmlDocument);
     }
 
     /**
-     * Execute an HTTP request to the RunDeck instance. We will login first, and then execute the API call.
+     * Execute an HTTP request to the RunDeck instance, and read the whole response in memory. See
+     * {@link #executeRequest(HttpRequestBase)}.
      * 
      * @param request to execute. see {@link HttpGet}, {@link HttpDelete}, and so on...
      * @return a new {@link InputStream} instance, not linked with network resources
@@ -264,64 +572,206 @@ class ApiCall {
      */
     private ByteArrayInputStream execute(HttpRequestBase request) throws RundeckApiException, RundeckApiLoginException,
             RundeckApiTokenException {
-        HttpClient httpClient = instantiateHttpClient();
+        // return a new inputStream, so that the connection is released and can be re-used by other calls
+        return new ByteArrayInputStream(read(executeRequest(request)));
+    }
+
+    /**
+     * Read the whole entity of the given response in memory, so that the connection is released
+     * 
+     * @param response with an entity
+     * @return the content of the entity
+     * @throws RundeckApiException if we fail to read the entity
+     */
+    private byte[] read(HttpResponse response) throws RundeckApiException {
         try {
-            // we only need to manually login in case of login-based authentication
-            // note that in case of token-based auth, the auth (via an HTTP header) is managed by an interceptor.
-            if (client.getToken() == null) {
-                login(httpClient);
-            }
+            return EntityUtils.toByteArray(response.getEntity());
+        } catch (IOException e) {
+            throw new RundeckApiException("Failed to consume entity and convert the inputStream", e);
+        }
+    }
 
-            // execute the HTTP request
-            HttpResponse response = null;
+    /**
+     * @param response with an entity
+     * @return the content of the entity, linked to the HTTP connection
+     * @throws RundeckApiException if we fail to get the content
+     */
+    private InputStream getContent(HttpResponse response) throws RundeckApiException {
+        try {
+            return response.getEntity().getContent();
+        } catch (IOException e) {
+            consumeQuietly(response);
+            throw new RundeckApiException("Failed to read RunDeck reponse", e);
+        }
+    }
+
+    /**
+     * Release the HTTP connection linked to the given content of a response
+     * 
+     * @param content of a response
+     * @param complete true if the whole content has been read, false otherwise
+     */
+    private static void release(InputStream content, boolean complete) {
+        // no need to read the rest of the response if the caller is not interested : just drop the connection
+        if (!complete && content instanceof ConnectionReleaseTrigger) {
             try {
-                response = httpClient.execute(request);
+                ((ConnectionReleaseTrigger) content).abortConnection();
             } catch (IOException e) {
-                throw new RundeckApiException("Failed to execute an HTTP " + request.getMethod() + " on url : "
-                                              + request.getURI(), e);
+                // ignore
             }
+        } else {
+            IOUtils.closeQuietly(content);
+        }
+    }
 
-            // in case of error, we get a redirect to /api/error
-            // that we need to follow manually for POST and DELETE requests (as GET)
-            if (response.getStatusLine().getStatusCode() / 100 == 3) {
-                String newLocation = response.getFirstHeader("Location").getValue();
-                try {
-                    EntityUtils.consume(response.getEntity());
-                } catch (IOException e) {
-                    throw new RundeckApiException("Failed to consume entity (release connection)", e);
-                }
-                request = new HttpGet(newLocation);
-                try {
-                    response = httpClient.execute(request);
-                } catch (IOException e) {
-                    throw new RundeckApiException("Failed to execute an HTTP GET on url : " + request.getURI(), e);
-                }
-            }
+    /**
+     * Execute an HTTP request to the RunDeck instance, and check the response. We will login first, and then execute
+     * the API call. In case of login-based authentication, the session is re-used across API calls : we will only login
+     * again if the server tells us that the session has expired.
+     * 
+     * @param request to execute. see {@link HttpGet}, {@link HttpDelete}, and so on...
+     * @return a successful {@link HttpResponse}, with an entity - you need to consume it, so that the connection is
+     *         released
+     * @throws RundeckApiException in case of error when calling the API
+     * @throws RundeckApiLoginException if the login fails (in case of login-based authentication)
+     * @throws RundeckApiTokenException if the token is invalid (in case of token-based authentication)
+     */
+    private HttpResponse executeRequest(HttpRequestBase request) throws RundeckApiException,
+            RundeckApiLoginException, RundeckApiTokenException {
+        HttpClient httpClient = client.getHttpClient();
+
+        // we only need to manually login in case of login-based authentication
+        // note that in case of token-based auth, the auth (via an HTTP header) is managed by an interceptor.
+        int session = 0;
+        if (client.getToken() == null) {
+            // re-use the current session, unless we won't be able to replay the request if the session has expired
+            session = openSession(httpClient, isRepeatable(request) ? 0 : client.getLoginSession());
+        }
 
-            // check the response code (should be 2xx, even in case of error : error message is in the XML result)
-            if (response.getStatusLine().getStatusCode() / 100 != 2) {
-                if (response.getStatusLine().getStatusCode() == 403 && client.getToken() != null) {
-                    throw new RundeckApiTokenException("Invalid Token ! Got HTTP response '" + response.getStatusLine()
-                                                       + "' for " + request.getURI());
-                } else {
-                    throw new RundeckApiException("Invalid HTTP response '" + response.getStatusLine() + "' for "
-                                                  + request.getURI());
-                }
-            }
-            if (response.getEntity() == null) {
-                throw new RundeckApiException("Empty RunDeck response ! HTTP status line is : "
-                                              + response.getStatusLine());
+        // execute the HTTP request
+        HttpResponse response = send(httpClient, request);
+
+        // our session has expired (or has been invalidated by the server) : login again, and replay the request
+        if (session != 0 && isLoginRequired(response) && isRepeatable(request)) {
+            consumeQuietly(response);
+            session = openSession(httpClient, session);
+            response = send(httpClient, request);
+        }
+
+        // check the response code (should be 2xx, even in case of error : error message is in the XML result)
+        if (response.getStatusLine().getStatusCode() / 100 != 2) {
+            consumeQuietly(response);
+            if (response.getStatusLine().getStatusCode() == 403 && client.getToken() != null) {
+                throw new RundeckApiTokenException("Invalid Token ! Got HTTP response '" + response.getStatusLine()
+                                                   + "' for " + request.getURI());
+            } else {
+                throw new RundeckApiException("Invalid HTTP response '" + response.getStatusLine() + "' for "
+                                              + request.getURI());
             }
+        }
+        if (response.getEntity() == null) {
+            throw new RundeckApiException("Empty RunDeck response ! HTTP status line is : "
+                                          + response.getStatusLine());
+        }
+        return response;
+    }
 
-            // return a new inputStream, so that we can close all network resources
+    /**
+     * Send the given HTTP request to the RunDeck instance, and follow the redirect (if any). Note that you'll need to
+     * consume the entity of the response, so that the connection is released.
+     * 
+     * @param httpClient pre-instantiated
+     * @param request to execute. see {@link HttpGet}, {@link HttpDelete}, and so on...
+     * @return the {@link HttpResponse} - won't be null
+     * @throws RundeckApiException in case of error when sending the request
+     */
+    private HttpResponse send(HttpClient httpClient, HttpRequestBase request) throws RundeckApiException {
+        HttpResponse response = null;
+        try {
+            response = httpClient.execute(request);
+        } catch (IOException e) {
+            throw new RundeckApiException("Failed to execute an HTTP " + request.getMethod() + " on url : "
+                                          + request.getURI(), e);
+        }
+
+        // in case of error, we get a redirect to /api/error
+        // that we need to follow manually for POST and DELETE requests (as GET)
+        if (response.getStatusLine().getStatusCode() / 100 == 3) {
+            String newLocation = response.getFirstHeader("Location").getValue();
             try {
-                return new ByteArrayInputStream(EntityUtils.toByteArray(response.getEntity()));
+                EntityUtils.consume(response.getEntity());
             } catch (IOException e) {
-                throw new RundeckApiException("Failed to consume entity and convert the inputStream", e);
+                throw new RundeckApiException("Failed to consume entity (release connection)", e);
             }
+            HttpGet redirect = new HttpGet(newLocation);
+            try {
+                response = httpClient.execute(redirect);
+            } catch (IOException e) {
+                throw new RundeckApiException("Failed to execute an HTTP GET on url : " + redirect.getURI(), e);
+            }
+        }
+        return response;
+    }
+
+    /**
+     * Make sure we have a valid session (in case of login-based authentication), and return its identifier. We will
+     * only login if we don't have a session yet, or if the current session is the expired one. Concurrent threads
+     * will wait for a single login, instead of all posting the login form at the same time.
+     * 
+     * @param httpClient pre-instantiated
+     * @param expiredSession identifier of the session that is known to be expired - 0 if none
+     * @return the identifier of a valid session - always > 0
+     * @throws RundeckApiLoginException if the login failed
+     */
+    private int openSession(HttpClient httpClient, int expiredSession) throws RundeckApiLoginException {
+        int session = client.getLoginSession();
+        if (session != 0 && session != expiredSession) {
+            return session;
+        }
+        Lock loginLock = client.getLoginLock();
+        loginLock.lock();
+        try {
+            // another thread might have logged in while we were waiting for the lock
+            session = client.getLoginSession();
+            if (session != 0 && session != expiredSession) {
+                return session;
+            }
+            login(httpClient);
+            return client.newLoginSession();
         } finally {
-            httpClient.getConnectionManager().shutdown();
+            loginLock.unlock();
+        }
+    }
+
+    /**
+     * Test if the given response means that we are not (or no longer) logged in : either an HTTP 401/403 status code,
+     * or an HTML page (the login form) instead of an XML API result.
+     * 
+     * @param response to test
+     * @return true if we need to login, false otherwise
+     */
+    private boolean isLoginRequired(HttpResponse response) {
+        int statusCode = response.getStatusLine().getStatusCode();
+        if (statusCode == 401 || statusCode == 403) {
+            return true;
+        }
+        Header contentType = response.getFirstHeader("Content-Type");
+        return statusCode / 100 == 2 && contentType != null
+               && StringUtils.containsIgnoreCase(contentType.getValue(), "html");
+    }
+
+    /**
+     * Test if the given request can be sent again (if its content, if any, can be read more than once)
+     * 
+     * @param request to test
+     * @return true if it can be replayed, false otherwise
+     */
+    private boolean isRepeatable(HttpRequestBase request) {
+        if (request instanceof HttpEntityEnclosingRequest) {
+            HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+            return entity == null || entity.isRepeatable();
         }
+        return true;
     }
 
     /**
@@ -360,6 +810,7 @@ class ApiCall {
                 continue;
             }
             if (response.getStatusLine().getStatusCode() / 100 != 2) {
+                consumeQuietly(response);
                 throw new RundeckApiLoginException("Invalid HTTP response '" + response.getStatusLine() + "' for "
                                                    + location);
             }
@@ -383,12 +834,36 @@ class ApiCall {
     }
 
     /**
-     * Instantiate a new {@link HttpClient} instance, configured to accept all SSL certificates
+     * Consume the entity of the given response (if any), so that the underlying connection is released back to the
+     * pool. Any error is ignored : use this only when the content of the response is not needed.
      * 
+     * @param response whose entity should be consumed
+     */
+    private void consumeQuietly(HttpResponse response) {
+        try {
+            EntityUtils.consume(response.getEntity());
+        } catch (IOException e) {
+            // the connection won't be re-used, nothing more we can do
+        }
+    }
+
+    /**
+     * Instantiate a new {@link HttpClient} instance, configured to accept all SSL certificates, and backed by a
+     * thread-safe pool of connections. The instance is meant to be shared by all API calls of the given client : see
+     * {@link RundeckClient#getHttpClient()}.
+     * 
+     * @param client holding the RunDeck url, the credentials and the configuration of the connections pool
      * @return an {@link HttpClient} instance - won't be null
      */
-    private HttpClient instantiateHttpClient() {
-        DefaultHttpClient httpClient = new DefaultHttpClient();
+    static HttpClient instantiateHttpClient(final RundeckClient client) {
+        ThreadSafeClientConnManager connectionManager = new ThreadSafeClientConnManager();
+        connectionManager.setMaxTotal(client.getMaxConnections());
+        connectionManager.setDefaultMaxPerRoute(client.getMaxConnectionsPerRoute());
+
+        DefaultHttpClient httpClient = new DefaultHttpClient(connectionManager);
+
+        // check that a pooled connection is still valid before re-using it
+        HttpConnectionParams.setStaleCheckingEnabled(httpClient.getParams(), client.isStaleConnectionCheck());
 
         // configure user-agent
         HttpProtocolParams.setUserAgent(httpClient.getParams(), "RunDeck API Java Client " + RundeckClient.API_VERSION);
@@ -15,6 +15,7 @@
  */
 package org.rundeck.api;
 
+import java.io.File;
 import java.io.InputStream;
 import java.util.Date;
 import java.util.HashMap;
@@ -36,6 +37,9 @@ class ApiPathBuilder {
     /** When POSTing, we can add attachments */
     private final Map<String, InputStream> attachments;
 
+    /** When POSTing, we can add files as attachments */
+    private final Map<String, File> fileAttachments;
+
     /** Marker for using the right separator between parameters ("?" or "&") */
     private boolean firstParamDone = false;
 
@@ -48,6 +52,7 @@ class ApiPathBuilder {
     public ApiPathBuilder(String... paths) {
         apiPath = new StringBuilder();
         attachments = new HashMap<String, InputStream>();
+        fileAttachments = new HashMap<String, File>();
         if (paths != null) {
             for (String path : paths) {
                 if (StringUtils.isNotBlank(path)) {
@@ -183,6 +188,22 @@ class ApiPathBuilder {
         return this;
     }
 
+    /**
+     * When POSTing a request, add the given {@link File} as an attachment to the content of the request. Unlike an
+     * {@link InputStream} attachment, the content of a file has a known length and can be sent again (if the request
+     * needs to be replayed). This will only add the file if it is not null.
+     * 
+     * @param name of the attachment. Must not be null or empty
+     * @param file. May be null
+     * @return this, for method chaining
+     */
+    public ApiPathBuilder attach(String name, File file) {
+        if (file != null) {
+            fileAttachments.put(name, file);
+        }
+        return this;
+    }
+
     /**
      * @return all attachments to be POSTed, with their names
      */
@@ -190,6 +211,13 @@ class ApiPathBuilder {
         return attachments;
     }
 
+    /**
+     * @return all files to be POSTed as attachments, with their names
+     */
+    public Map<String, File> getFileAttachments() {
+        return fileAttachments;
+    }
+
     @Override
     public String toString() {
         return apiPath.toString();
@@ -0,0 +1,597 @@
+/*
+ * Copyright 2011 Vincent Behar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rundeck.api;
+
+import java.io.Closeable;
+import java.io.InputStream;
+import java.util.Date;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.rundeck.api.domain.RundeckAbort;
+import org.rundeck.api.domain.RundeckExecution;
+import org.rundeck.api.domain.RundeckExecution.ExecutionStatus;
+import org.rundeck.api.domain.RundeckHistory;
+import org.rundeck.api.domain.RundeckJob;
+import org.rundeck.api.domain.RundeckJobsImportMethod;
+import org.rundeck.api.domain.RundeckJobsImportResult;
+import org.rundeck.api.domain.RundeckNode;
+import org.rundeck.api.domain.RundeckProject;
+import org.rundeck.api.domain.RundeckSystemInfo;
+import org.rundeck.api.util.AssertUtil;
+
+/**
+ * Asynchronous facade for a {@link RundeckClient} : each operation returns immediately with a {@link Future}, and
+ * optionally notifies a {@link RundeckCallback} when it is done. <br>
+ * The API calls are executed on an {@link Executor} (by default, a pool with as many threads as the maximum number of
+ * HTTP connections of the client, as more threads would only wait for a connection). The "run" operations do not hold
+ * a thread while the execution is running : the end of the execution is detected by the {@link ExecutionWatcher} of
+ * the client. So you can have thousands of operations in flight with a small number of threads. <br>
+ * Usage : <br>
+ * <code>
+ * <pre>
+ * AsyncRundeckClient async = new AsyncRundeckClient(rundeck);
+ * Future&lt;RundeckExecution&gt; execution = async.runJob("job-id", null, null, null);
+ * // ... do something else ...
+ * execution.get();
+ * 
+ * async.close();
+ * </pre>
+ * </code>
+ * 
+ * @author Vincent Behar
+ */
+public class AsyncRundeckClient implements Closeable {
+
+    /** {@link RundeckClient} used to make the API calls */
+    private final RundeckClient client;
+
+    /** {@link Executor} running the API calls */
+    private final Executor executor;
+
+    /** {@link ExecutorService} owned by this facade (if the executor was not provided) - will be shut down on close */
+    private final ExecutorService ownedExecutor;
+
+    /**
+     * Instantiate a new {@link AsyncRundeckClient}, running the API calls on its own pool of threads (with as many
+     * threads as the maximum number of HTTP connections of the client)
+     * 
+     * @param client used to make the API calls - mandatory
+     * @throws IllegalArgumentException if the client is null
+     */
+    public AsyncRundeckClient(RundeckClient client) throws IllegalArgumentException {
+        super();
+        AssertUtil.notNull(client, "The RunDeck client is mandatory !");
+        this.client = client;
+        this.ownedExecutor = Executors.newFixedThreadPool(client.getMaxConnections(),
+                                                          new DaemonThreadFactory("rundeck-async-"));
+        this.executor = ownedExecutor;
+    }
+
+    /**
+     * Instantiate a new {@link AsyncRundeckClient}, running the API calls on the given executor
+     * 
+     * @param client used to make the API calls - mandatory
+     * @param executor used to run the API calls - mandatory
+     * @throws IllegalArgumentException if the client or executor is null
+     */
+    public AsyncRundeckClient(RundeckClient client, Executor executor) throws IllegalArgumentException {
+        super();
+        AssertUtil.notNull(client, "The RunDeck client is mandatory !");
+        AssertUtil.notNull(executor, "The executor is mandatory !");
+        this.client = client;
+        this.executor = executor;
+        this.ownedExecutor = null;
+    }
+
+    /**
+     * @return the {@link RundeckClient} used to make the API calls
+     */
+    public RundeckClient getClient() {
+        return client;
+    }
+
+    /**
+     * Shut down the pool of threads of this facade (if it was not provided by the caller). The pending operations will
+     * still be executed. Note that the {@link RundeckClient} is not closed.
+     */
+    @Override
+    public void close() {
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdown();
+        }
+    }
+
+    /*
+     * Projects
+     */
+
+    /**
+     * @param callback notified when the operation is done - optional
+     * @return a {@link Future} for the result of {@link RundeckClient#getProjects()}
+     */
+    public Future<List<RundeckProject>> getProjects(RundeckCallback<List<RundeckProject>> callback) {
+        return submit(new Callable<List<RundeckProject>>() {
+
+            @Override
+            public List<RundeckProject> call() {
+                return client.getProjects();
+            }
+        }, callback);
+    }
+
+    /*
+     * Jobs
+     */
+
+    /**
+     * @param project name of the project - mandatory
+     * @param callback notified when the operation is done - optional
+     * @return a {@link Future} for the result of {@link RundeckClient#getJobs(String)}
+     */
+    public Future<List<RundeckJob>> getJobs(final String project, RundeckCallback<List<RundeckJob>> callback) {
+        return submit(new Callable<List<RundeckJob>>() {
+
+            @Override
+            public List<RundeckJob> call() {
+                return client.getJobs(project);
+            }
+        }, callback);
+    }
+
+    /**
+     * @param jobId identifier of the job - mandatory
+     * @param callback notified when the operation is done - optional
+     * @return a {@link Future} for the result of {@link RundeckClient#getJob(String)}
+     */
+    public Future<RundeckJob> getJob(final String jobId, RundeckCallback<RundeckJob> callback) {
+        return submit(new Callable<RundeckJob>() {
+
+            @Override
+            public RundeckJob call() {
+                return client.getJob(jobId);
+            }
+        }, callback);
+    }
+
+    /**
+     * @param jobId identifier of the job - mandatory
+     * @param callback notified when the operation is done - optional
+     * @return a {@link Future} for the result of {@link RundeckClient#deleteJob(String)}
+     */
+    public Future<String> deleteJob(final String jobId, RundeckCallback<String> callback) {
+        return submit(new Callable<String>() {
+
+            @Override
+            public String call() {
+                return client.deleteJob(jobId);
+            }
+        }, callback);
+    }
+
+    /**
+     * @param stream inputStream for reading the definitions - mandatory. It will be read from another thread.
+     * @param fileType type of the file. See {@link FileType} - mandatory
+     * @param importBehavior see {@link RundeckJobsImportMethod} - optional
+     * @param callback notified when the operation is done - optional
+     * @return a {@link Future} for the result of
+     *         {@link RundeckClient#importJobs(InputStream, FileType, RundeckJobsImportMethod)}
+     */
+    public Future<RundeckJobsImportResult> importJobs(final InputStream stream, final FileType fileType,
+            final RundeckJobsImportMethod importBehavior, RundeckCallback<RundeckJobsImportResult> callback) {
+        return submit(new Callable<RundeckJobsImportResult>() {
+
+            @Override
+            public RundeckJobsImportResult call() {
+                return client.importJobs(stream, fileType, importBehavior);
+            }
+        }, callback);
+    }
+
+    /**
+     * @param jobId identifier of the job - mandatory
+     * @param options of the job - optional. See {@link OptionsBuilder}.
+     * @param nodeFilters for overriding the nodes on which the job will be executed - optional. See
+     *            {@link NodeFiltersBuilder}
+     * @param callback notified when the operation is done - optional
+     * @return a {@link Future} for the result of {@link RundeckClient#triggerJob(String, Properties, Properties)}
+     */
+    public Future<RundeckExecution> triggerJob(final String jobId, final Properties options,
+            final Properties nodeFilters, RundeckCallback<RundeckExecution> callback) {
+        return submit(new Callable<RundeckExecution>() {
+
+            @Override
+            public RundeckExecution call() {
+                return client.triggerJob(jobId, options, nodeFilters);
+            }
+        }, callback);
+    }
+
+    /**
+     * Run a job, and complete the {@link Future} when its execution is finished (or aborted). The RunDeck server will
+     * be polled every 5 seconds, by the {@link ExecutionWatcher} of the client.
+     * 
+     * @param jobId identifier of the job - mandatory
+     * @param options of the job - optional. See {@link OptionsBuilder}.
+     * @param nodeFilters for overriding the nodes on which the job will be executed - optional. See
+     *            {@link NodeFiltersBuilder}
+     * @param callback notified when the execution is finished (or aborted) - optional
+     * @return a {@link Future} for the finished (or aborted) execution
+     * @see RundeckClient#runJob(String, Properties, Properties)
+     */
+    public Future<RundeckExecution> runJob(String jobId, Properties options, Properties nodeFilters,
+            RundeckCallback<RundeckExecution> callback) {
+        return runJob(jobId,
+                      options,
+                      nodeFilters,
+                      RundeckClient.DEFAULT_POOLING_INTERVAL,
+                      RundeckClient.DEFAULT_POOLING_UNIT,
+                      callback);
+    }
+
+    /**
+     * Run a job, and complete the {@link Future} when its execution is finished (or aborted). The RunDeck server will
+     * be polled at regular interval (configured by the poolingInterval/poolingUnit couple), by the
+     * {@link ExecutionWatcher} of the client.
+     * 
+     * @param jobId identifier of the job - mandatory
+     * @param options of the job - optional. See {@link OptionsBuilder}.
+     * @param nodeFilters for overriding the nodes on which the job will be executed - optional. See
+     *            {@link NodeFiltersBuilder}
+     * @param poolingInterval for checking the status of the execution. Must be > 0.
+     * @param poolingUnit unit (seconds, milli-seconds, ...) of the interval. Default to seconds.
+     * @param callback notified when the execution is finished (or aborted) - optional
+     * @return a {@link Future} for the finished (or aborted) execution
+     * @see RundeckClient#runJob(String, Properties, Properties, long, TimeUnit)
+     */
+    public Future<RundeckExecution> runJob(final String jobId, final Properties options,
+            final Properties nodeFilters, long poolingInterval, TimeUnit poolingUnit,
+            RundeckCallback<RundeckExecution> callback) {
+        return run(null, new Callable<RundeckExecution>() {
+
+            @Override
+            public RundeckExecution call() {
+                return client.triggerJob(jobId, options, nodeFilters);
+            }
+        }, null, ExecutionWatcher.fixedPollingStrategy(poolingInterval, poolingUnit), callback);
+    }
+
+    /**
+     * Run a job, and complete the {@link Future} when its execution is finished (or aborted). The delay between 2
+     * checks of the status of the execution is given by the pollingStrategy.
+     * 
+     * @param jobId identifier of the job - mandatory
+     * @param options of the job - optional. See {@link OptionsBuilder}.
+     * @param nodeFilters for overriding the nodes on which the job will be executed - optional. See
+     *            {@link NodeFiltersBuilder}
+     * @param pollingStrategy for checking the status of the execution - optional (default to
+     *            {@link AdaptivePollingStrategy#forJob(RundeckClient, String)})
+     * @param callback notified when the execution is finished (or aborted) - optional
+     * @return a {@link Future} for the finished (or aborted) execution
+     * @see RundeckClient#runJob(String, Properties, Properties, PollingStrategy)
+     */
+    public Future<RundeckExecution> runJob(final String jobId, final Properties options,
+            final Properties nodeFilters, PollingStrategy pollingStrategy, RundeckCallback<RundeckExecution> callback) {
+        return run(null, new Callable<RundeckExecution>() {
+
+            @Override
+            public RundeckExecution call() {
+                return client.triggerJob(jobId, options, nodeFilters);
+            }
+        }, jobId, pollingStrategy, callback);
+    }
+
+    /*
+     * Ad-hoc commands
+     */
+
+    /**
+     * @param project name of the project - mandatory
+     * @param command to be executed - mandatory
+     * @param nodeFilters for selecting nodes on which the command will be executed. See {@link NodeFiltersBuilder}
+     * @param nodeThreadcount thread count to use (for parallelizing when running on multiple nodes) - optional
+     * @param nodeKeepgoing if true, continue executing on other nodes even if some fail - optional
+     * @param callback notified when the operation is done - optional
+     * @return a {@link Future} for the result of
+     *         {@link RundeckClient#triggerAdhocCommand(String, String, Properties, Integer, Boolean)}
+     */
+    public Future<RundeckExecution> triggerAdhocCommand(final String project, final String command,
+            final Properties nodeFilters, final Integer nodeThreadcount, final Boolean nodeKeepgoing,
+            RundeckCallback<RundeckExecution> callback) {
+        return submit(new Callable<RundeckExecution>() {
+
+            @Override
+            public RundeckExecution call() {
+                return client.triggerAdhocCommand(project, command, nodeFilters, nodeThreadcount, nodeKeepgoing);
+            }
+        }, callback);
+    }
+
+    /**
+     * Run an ad-hoc command, and complete the {@link Future} when its execution is finished (or aborted). The RunDeck
+     * server will be polled at regular interval (configured by the poolingInterval/poolingUnit couple), by the
+     * {@link ExecutionWatcher} of the client.
+     * 
+     * @param project name of the project - mandatory
+     * @param command to be executed - mandatory
+     * @param nodeFilters for selecting nodes on which the command will be executed. See {@link NodeFiltersBuilder}
+     * @param nodeThreadcount thread count to use (for parallelizing when running on multiple nodes) - optional
+     * @param nodeKeepgoing if true, continue executing on other nodes even if some fail - optional
+     * @param poolingInterval for checking the status of the execution. Must be > 0.
+     * @param poolingUnit unit (seconds, milli-seconds, ...) of the interval. Default to seconds.
+     * @param callback notified when the execution is finished (or aborted) - optional
+     * @return a {@link Future} for the finished (or aborted) execution
+     * @see RundeckClient#runAdhocCommand(String, String, Properties, Integer, Boolean, long, TimeUnit)
+     */
+    public Future<RundeckExecution> runAdhocCommand(final String project, final String command,
+            final Properties nodeFilters, final Integer nodeThreadcount, final Boolean nodeKeepgoing,
+            long poolingInterval, TimeUnit poolingUnit, RundeckCallback<RundeckExecution> callback) {
+        return run(project, new Callable<RundeckExecution>() {
+
+            @Override
+            public RundeckExecution call() {
+                return client.triggerAdhocCommand(project, command, nodeFilters, nodeThreadcount, nodeKeepgoing);
+            }
+        }, null, ExecutionWatcher.fixedPollingStrategy(poolingInterval, poolingUnit), callback);
+    }
+
+    /*
+     * Executions
+     */
+
+    /**
+     * @param executionId identifier of the execution - mandatory
+     * @param callback notified when the operation is done - optional
+     * @return a {@link Future} for the result of {@link RundeckClient#getExecution(Long)}
+     */
+    public Future<RundeckExecution> getExecution(final Long executionId, RundeckCallback<RundeckExecution> callback) {
+        return submit(new Callable<RundeckExecution>() {
+
+            @Override
+            public RundeckExecution call() {
+                return client.getExecution(executionId);
+            }
+        }, callback);
+    }
+
+    /**
+     * @param executionId identifier of the execution - mandatory
+     * @param callback notified when the operation is done - optional
+     * @return a {@link Future} for the result of {@link RundeckClient#abortExecution(Long)}
+     */
+    public Future<RundeckAbort> abortExecution(final Long executionId, RundeckCallback<RundeckAbort> callback) {
+        return submit(new Callable<RundeckAbort>() {
+
+            @Override
+            public RundeckAbort call() {
+                return client.abortExecution(executionId);
+            }
+        }, callback);
+    }
+
+    /**
+     * @param project name of the project - mandatory
+     * @param callback notified when the operation is done - optional
+     * @return a {@link Future} for the result of {@link RundeckClient#getRunningExecutions(String)}
+     */
+    public Future<List<RundeckExecution>> getRunningExecutions(final String project,
+            RundeckCallback<List<RundeckExecution>> callback) {
+        return submit(new Callable<List<RundeckExecution>>() {
+
+            @Override
+            public List<RundeckExecution> call() {
+                return client.getRunningExecutions(project);
+            }
+        }, callback);
+    }
+
+    /**
+     * @param jobId identifier of the job - mandatory
+     * @param status of the executions - optional (null for all)
+     * @param max number of results to return - optional (null for all)
+     * @param offset the 0-indexed offset for the first result to return - optional
+     * @param callback notified when the operation is done - optional
+     * @return a {@link Future} for the result of
+     *         {@link RundeckClient#getJobExecutions(String, ExecutionStatus, Long, Long)}
+     */
+    public Future<List<RundeckExecution>> getJobExecutions(final String jobId, final ExecutionStatus status,
+            final Long max, final Long offset, RundeckCallback<List<RundeckExecution>> callback) {
+        return submit(new Callable<List<RundeckExecution>>() {
+
+            @Override
+            public List<RundeckExecution> call() {
+                return client.getJobExecutions(jobId, status, max, offset);
+            }
+        }, callback);
+    }
+
+    /*
+     * History
+     */
+
+    /**
+     * @param project name of the project - mandatory
+     * @param jobId include only events matching the given job ID - optional
+     * @param reportId include only events matching the given report ID - optional
+     * @param user include only events created by the given user - optional
+     * @param recent include only events more recent than the given period - optional
+     * @param begin date for the earlier events to retrieve - optional
+     * @param end date for the latest events to retrieve - optional
+     * @param max number of results to return - optional (default to 20)
+     * @param offset the 0-indexed offset for the first result to return - optional (default to O)
+     * @param callback notified when the operation is done - optional
+     * @return a {@link Future} for the result of
+     *         {@link RundeckClient#getHistory(String, String, String, String, String, Date, Date, Long, Long)}
+     */
+    public Future<RundeckHistory> getHistory(final String project, final String jobId, final String reportId,
+            final String user, final String recent, final Date begin, final Date end, final Long max,
+            final Long offset, RundeckCallback<RundeckHistory> callback) {
+        return submit(new Callable<RundeckHistory>() {
+
+            @Override
+            public RundeckHistory call() {
+                return client.getHistory(project, jobId, reportId, user, recent, begin, end, max, offset);
+            }
+        }, callback);
+    }
+
+    /*
+     * Nodes
+     */
+
+    /**
+     * @param project name of the project - mandatory
+     * @param nodeFilters for filtering the nodes - optional. See {@link NodeFiltersBuilder}
+     * @param callback notified when the operation is done - optional
+     * @return a {@link Future} for the result of {@link RundeckClient#getNodes(String, Properties)}
+     */
+    public Future<List<RundeckNode>> getNodes(final String project, final Properties nodeFilters,
+            RundeckCallback<List<RundeckNode>> callback) {
+        return submit(new Callable<List<RundeckNode>>() {
+
+            @Override
+            public List<RundeckNode> call() {
+                return client.getNodes(project, nodeFilters);
+            }
+        }, callback);
+    }
+
+    /*
+     * System Info
+     */
+
+    /**
+     * @param callback notified when the operation is done - optional
+     * @return a {@link Future} for the result of {@link RundeckClient#getSystemInfo()}
+     */
+    public Future<RundeckSystemInfo> getSystemInfo(RundeckCallback<RundeckSystemInfo> callback) {
+        return submit(new Callable<RundeckSystemInfo>() {
+
+            @Override
+            public RundeckSystemInfo call() {
+                return client.getSystemInfo();
+            }
+        }, callback);
+    }
+
+    /**
+     * Run the given API call on the executor
+     * 
+     * @param call to run
+     * @param callback notified when the call is done - optional
+     * @return a {@link Future} for the result of the call
+     */
+    private <T> Future<T> submit(final Callable<T> call, RundeckCallback<T> callback) {
+        final CallbackFuture<T> future = new CallbackFuture<T>(callback);
+        executor.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                if (future.isDone()) {
+                    return;
+                }
+                try {
+                    future.complete(call.call());
+                } catch (Exception e) {
+                    future.fail(CallbackFuture.toRundeckApiException(e));
+                }
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Trigger an execution on the executor, and then let the {@link ExecutionWatcher} of the client wait for its end
+     * 
+     * @param project name of the project of the execution - optional
+     * @param trigger API call that triggers the execution
+     * @param jobId identifier of the job - optional, used to build the default polling strategy
+     * @param pollingStrategy for checking the status of the execution - optional (default to
+     *            {@link AdaptivePollingStrategy#forJob(RundeckClient, String)} for a job)
+     * @param callback notified when the execution is finished (or aborted) - optional
+     * @return a {@link Future} for the finished (or aborted) execution
+     */
+    private Future<RundeckExecution> run(final String project, final Callable<RundeckExecution> trigger,
+            final String jobId, final PollingStrategy pollingStrategy, RundeckCallback<RundeckExecution> callback) {
+        final RunFuture future = new RunFuture(callback);
+        executor.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                if (future.isDone()) {
+                    return;
+                }
+                try {
+                    PollingStrategy strategy = pollingStrategy;
+                    if (strategy == null && jobId != null) {
+                        strategy = AdaptivePollingStrategy.forJob(client, jobId);
+                    }
+                    RundeckExecution execution = trigger.call();
+                    future.watch(client.getExecutionWatcher().watch(project, execution, strategy, future));
+                } catch (Exception e) {
+                    future.fail(CallbackFuture.toRundeckApiException(e));
+                }
+            }
+        });
+        return future;
+    }
+
+    /**
+     * {@link Future} of a "run" operation : completed by the {@link ExecutionWatcher}, and stops the watch if it is
+     * cancelled
+     */
+    private static class RunFuture extends CallbackFuture<RundeckExecution> implements
+            RundeckCallback<RundeckExecution> {
+
+        private volatile Future<RundeckExecution> watch;
+
+        public RunFuture(RundeckCallback<RundeckExecution> callback) {
+            super(callback);
+        }
+
+        public void watch(Future<RundeckExecution> watch) {
+            this.watch = watch;
+            if (isCancelled()) {
+                watch.cancel(false);
+            }
+        }
+
+        @Override
+        public void onSuccess(RundeckExecution execution) {
+            complete(execution);
+        }
+
+        @Override
+        public void onFailure(RundeckApiException error) {
+            fail(error);
+        }
+
+        @Override
+        protected void done() {
+            Future<RundeckExecution> currentWatch = watch;
+            if (isCancelled() && currentWatch != null) {
+                currentWatch.cancel(false);
+            }
+            super.done();
+        }
+    }
+
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2011 Vincent Behar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rundeck.api;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.rundeck.api.RundeckApiException.RundeckApiPartialFailureException;
+
+/**
+ * Makes an API call for each item of a list (trigger a job, abort an execution, ...). The calls are made concurrently
+ * (with a bounded parallelism, and an optional maximum rate), and the results are returned in the order of the items.
+ * A failed call does not abort the others : all the failures are reported at the end, with a
+ * {@link RundeckApiPartialFailureException}.
+ * 
+ * @author Vincent Behar
+ */
+abstract class BulkCalls<T, R> {
+
+    /** Description of the calls, for the error messages - "job triggers", "aborts", ... */
+    private final String description;
+
+    /** Minimum delay between the start of 2 calls, in nanoseconds - 0 for no rate limit */
+    private final long interval;
+
+    /** Time (see {@link System#nanoTime()}) at which the next call is allowed to start */
+    private long nextSlot = 0;
+
+    /**
+     * @param description of the calls, for the error messages - "job triggers", "aborts", ...
+     * @param maxCallsPerSecond maximum rate of the calls - 0 (or less) for no rate limit
+     */
+    public BulkCalls(String description, double maxCallsPerSecond) {
+        super();
+        this.description = description;
+        this.interval = maxCallsPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / maxCallsPerSecond) : 0;
+    }
+
+    /**
+     * Make the API call for a single item
+     * 
+     * @param item for which we should make the call
+     * @return the result of the call
+     * @throws RundeckApiException in case of error when calling the API
+     */
+    protected abstract R call(T item) throws RundeckApiException;
+
+    /**
+     * @param index of the item, starting at 0
+     * @param item for which the call failed
+     * @return a key identifying the call, for the failures
+     */
+    protected abstract String describe(int index, T item);
+
+    /**
+     * Make the API call for each of the given items. At most "parallelism" calls will be running at the same time :
+     * (parallelism - 1) on the given executor, and 1 in the current thread.
+     * 
+     * @param items for which we should make the API call
+     * @param executor used to run the concurrent calls
+     * @param parallelism maximum number of concurrent calls
+     * @return the results, in the order of the items
+     * @throws RundeckApiPartialFailureException if at least one call failed - its results hold the results in the
+     *             order of the items, with null for the failed calls
+     * @throws RundeckApiException if we are interrupted while waiting for the calls
+     */
+    public List<R> callAll(final List<T> items, Executor executor, int parallelism)
+            throws RundeckApiPartialFailureException, RundeckApiException {
+        final AtomicReferenceArray<R> results = new AtomicReferenceArray<R>(items.size());
+        final AtomicReferenceArray<RundeckApiException> failures;
+        failures = new AtomicReferenceArray<RundeckApiException>(items.size());
+
+        new ParallelTasks<Integer>() {
+
+            private int nextItem = 0;
+
+            @Override
+            protected Integer next() {
+                return nextItem < items.size() ? nextItem++ : null;
+            }
+
+            @Override
+            protected void process(Integer index) {
+                T item = items.get(index);
+                try {
+                    acquireSlot();
+                    results.set(index, call(item));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    failures.set(index, new RundeckApiException("Interrupted before the " + describe(index, item), e));
+                } catch (RundeckApiException e) {
+                    failures.set(index, e);
+                } catch (RuntimeException e) {
+                    failures.set(index, new RundeckApiException("Failed to make the " + describe(index, item), e));
+                }
+            }
+        }.runAll(executor, Math.min(parallelism, items.size()), "making the " + description);
+
+        List<R> ordered = new ArrayList<R>(items.size());
+        Map<String, RundeckApiException> errors = new LinkedHashMap<String, RundeckApiException>();
+        for (int i = 0; i < items.size(); i++) {
+            ordered.add(results.get(i));
+            if (failures.get(i) != null) {
+                errors.put(describe(i, items.get(i)), failures.get(i));
+            }
+        }
+        if (!errors.isEmpty()) {
+            throw new RundeckApiPartialFailureException("Failed " + errors.size() + " of the " + items.size() + " "
+                                                        + description + " : " + errors.keySet(), ordered, errors);
+        }
+        return ordered;
+    }
+
+    /**
+     * Wait until the next call is allowed to start, according to the maximum rate
+     * 
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     */
+    private void acquireSlot() throws InterruptedException {
+        if (interval <= 0) {
+            return;
+        }
+        long delay;
+        synchronized (this) {
+            long now = System.nanoTime();
+            long slot = nextSlot == 0 ? now : Math.max(now, nextSlot);
+            nextSlot = slot + interval;
+            delay = slot - now;
+        }
+        TimeUnit.NANOSECONDS.sleep(delay);
+    }
+
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2011 Vincent Behar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rundeck.api;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+import org.rundeck.api.JobsSplitter.Chunk;
+import org.rundeck.api.RundeckApiException.RundeckApiPartialFailureException;
+import org.rundeck.api.domain.RundeckJobsImportResult;
+
+/**
+ * Imports a large number of jobs definitions, split in chunks (see {@link JobsSplitter}). The chunks are imported
+ * concurrently (with a bounded parallelism), and the results are merged in the order of the chunks. A failed chunk
+ * does not abort the others : all the failures are reported at the end, with a
+ * {@link RundeckApiPartialFailureException}.
+ * 
+ * @author Vincent Behar
+ */
+abstract class BulkJobsImporter {
+
+    /**
+     * Import a single chunk of jobs definitions
+     * 
+     * @param definitions of the jobs, as a document of the same type as the whole stream
+     * @return the result of the import of this chunk
+     * @throws RundeckApiException in case of error when calling the API
+     */
+    protected abstract RundeckJobsImportResult importChunk(byte[] definitions) throws RundeckApiException;
+
+    /**
+     * Import all the chunks of the given splitter, and merge the results. At most "parallelism" chunks will be imported
+     * at the same time : (parallelism - 1) on the given executor, and 1 in the current thread. The chunks are read from
+     * the splitter only when a worker is ready to import them, so at most "parallelism" chunks are held in memory.
+     * 
+     * @param splitter from which the chunks are read
+     * @param executor used to import the chunks concurrently
+     * @param parallelism maximum number of concurrent imports
+     * @return the merged results, in the order of the chunks
+     * @throws RundeckApiPartialFailureException if we failed to import (or read) at least one chunk - its
+     *             {@link RundeckApiPartialFailureException#getResult() result} is the merged result of the other chunks
+     * @throws RundeckApiException if we are interrupted while waiting for the imports
+     */
+    public RundeckJobsImportResult importAll(final JobsSplitter splitter, Executor executor, int parallelism)
+            throws RundeckApiPartialFailureException, RundeckApiException {
+        final SortedMap<Integer, RundeckJobsImportResult> results;
+        results = Collections.synchronizedSortedMap(new TreeMap<Integer, RundeckJobsImportResult>());
+        final SortedMap<Chunk, RundeckApiException> failures;
+        failures = Collections.synchronizedSortedMap(new TreeMap<Chunk, RundeckApiException>());
+        final AtomicReference<IOException> readFailure = new AtomicReference<IOException>();
+
+        new ParallelTasks<Chunk>() {
+
+            @Override
+            protected Chunk next() {
+                try {
+                    return splitter.next();
+                } catch (IOException e) {
+                    // the splitter won't return any more chunks
+                    readFailure.set(e);
+                    return null;
+                }
+            }
+
+            @Override
+            protected void process(Chunk chunk) {
+                try {
+                    results.put(chunk.getIndex(), importChunk(chunk.getDefinitions()));
+                } catch (RundeckApiException e) {
+                    failures.put(chunk, e);
+                } catch (RuntimeException e) {
+                    failures.put(chunk, new RundeckApiException("Failed to import the " + chunk, e));
+                }
+            }
+        }.runAll(executor, parallelism, "importing the jobs");
+
+        RundeckJobsImportResult merged = new RundeckJobsImportResult();
+        for (RundeckJobsImportResult result : results.values()) {
+            merged.getSucceededJobs().addAll(result.getSucceededJobs());
+            merged.getSkippedJobs().addAll(result.getSkippedJobs());
+            merged.getFailedJobs().putAll(result.getFailedJobs());
+        }
+        Map<String, RundeckApiException> errors = new LinkedHashMap<String, RundeckApiException>();
+        for (Entry<Chunk, RundeckApiException> failure : failures.entrySet()) {
+            errors.put(failure.getKey().toString(), failure.getValue());
+        }
+        if (readFailure.get() != null) {
+            errors.put("jobs definitions", new RundeckApiException(readFailure.get().getMessage(), readFailure.get()));
+        }
+        if (!errors.isEmpty()) {
+            throw new RundeckApiPartialFailureException("Failed to import " + errors.size() + " chunk(s) of jobs : "
+                                                        + errors.keySet(), merged, errors);
+        }
+        return merged;
+    }
+
+}
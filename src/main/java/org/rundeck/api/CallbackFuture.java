@@ -0,0 +1,194 @@
+/*
+ * Copyright 2011 Vincent Behar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rundeck.api;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.AbstractQueuedSynchronizer;
+
+/**
+ * A {@link Future} completed by another component (see {@link #complete(Object)} and {@link #fail(RuntimeException)}),
+ * that notifies an (optional) {@link RundeckCallback} when it is done. Only the first completion (or cancellation) is
+ * taken into account.
+ * 
+ * @author Vincent Behar
+ */
+class CallbackFuture<T> implements Future<T> {
+
+    private static final transient int RUNNING = 0;
+
+    private static final transient int COMPLETING = 1;
+
+    private static final transient int COMPLETED = 2;
+
+    private static final transient int FAILED = 3;
+
+    private static final transient int CANCELLED = 4;
+
+    private final Sync sync = new Sync();
+
+    private final RundeckCallback<T> callback;
+
+    /** Written before the final state is released, so visible to the threads that have acquired it */
+    private T result;
+
+    /** Written before the final state is released, so visible to the threads that have acquired it */
+    private RuntimeException error;
+
+    /**
+     * @param callback notified when the future is done - optional
+     */
+    public CallbackFuture(RundeckCallback<T> callback) {
+        super();
+        this.callback = callback;
+    }
+
+    /**
+     * @param result of the operation
+     */
+    public void complete(T result) {
+        finish(COMPLETED, result, null);
+    }
+
+    /**
+     * @param error cause of the failure
+     */
+    public void fail(RuntimeException error) {
+        finish(FAILED, null, error);
+    }
+
+    /**
+     * Cancel this future. As the API calls can't be interrupted, "mayInterruptIfRunning" is ignored : the operation
+     * keeps running, but its result is discarded.
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        return finish(CANCELLED, null, null);
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return sync.state() == CANCELLED;
+    }
+
+    @Override
+    public boolean isDone() {
+        return sync.state() > COMPLETING;
+    }
+
+    @Override
+    public T get() throws InterruptedException, ExecutionException {
+        sync.acquireSharedInterruptibly(0);
+        return report();
+    }
+
+    @Override
+    public T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        if (!sync.tryAcquireSharedNanos(0, unit.toNanos(timeout))) {
+            throw new TimeoutException();
+        }
+        return report();
+    }
+
+    /**
+     * Called (once) when the future is done : notifies the callback, unless the future has been cancelled
+     */
+    protected void done() {
+        if (callback == null) {
+            return;
+        }
+        int state = sync.state();
+        if (state == COMPLETED) {
+            callback.onSuccess(result);
+        } else if (state == FAILED) {
+            callback.onFailure(toRundeckApiException(error));
+        }
+    }
+
+    /**
+     * Move this future to its final state, if it is not done yet
+     * 
+     * @return true if it is done with the given state, false if it was already done
+     */
+    private boolean finish(int state, T result, RuntimeException error) {
+        if (!sync.start()) {
+            return false;
+        }
+        this.result = result;
+        this.error = error;
+        sync.releaseShared(state);
+        done();
+        return true;
+    }
+
+    /**
+     * @return the result of the operation (the future is done)
+     */
+    private T report() throws ExecutionException {
+        int state = sync.state();
+        if (state == CANCELLED) {
+            throw new CancellationException();
+        } else if (state == FAILED) {
+            throw new ExecutionException(error);
+        }
+        return result;
+    }
+
+    /**
+     * @param error cause of a failure
+     * @return the error, as a {@link RundeckApiException}
+     */
+    static RundeckApiException toRundeckApiException(Throwable error) {
+        if (error instanceof RundeckApiException) {
+            return (RundeckApiException) error;
+        }
+        return new RundeckApiException(String.valueOf(error.getMessage()), error);
+    }
+
+    /**
+     * Synchronizer on the state of the future : acquired once the future is done
+     */
+    private static final class Sync extends AbstractQueuedSynchronizer {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected int tryAcquireShared(int ignored) {
+            return getState() > COMPLETING ? 1 : -1;
+        }
+
+        @Override
+        protected boolean tryReleaseShared(int finalState) {
+            setState(finalState);
+            return true;
+        }
+
+        /**
+         * @return true if the future was running, and is now completing - false if it was already done
+         */
+        private boolean start() {
+            return compareAndSetState(RUNNING, COMPLETING);
+        }
+
+        private int state() {
+            return getState();
+        }
+    }
+
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2011 Vincent Behar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rundeck.api;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.rundeck.api.util.AssertUtil;
+
+/**
+ * Default (in-memory) implementation of {@link ResponseCache} : the responses expire after their time-to-live, and
+ * the least recently used responses are evicted when the cache holds too many responses (or bytes).
+ * 
+ * @author Vincent Behar
+ */
+public class DefaultResponseCache implements ResponseCache {
+
+    /** Default maximum number of responses in the cache */
+    public static final transient int DEFAULT_MAX_ENTRIES = 1000;
+
+    /** Default maximum size (in bytes) of all the responses in the cache : 16 MB */
+    public static final transient long DEFAULT_MAX_BYTES = 16 * 1024 * 1024;
+
+    private final int maxEntries;
+
+    private final long maxBytes;
+
+    /** Responses, in access order (least recently used first) - guarded by this */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+
+    /** Size (in bytes) of all the responses in the cache - guarded by this */
+    private long bytes = 0;
+
+    private long hits = 0;
+
+    private long misses = 0;
+
+    private long evictions = 0;
+
+    /**
+     * Instantiate a new cache with the default limits : 1000 responses, 16 MB
+     */
+    public DefaultResponseCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * @param maxEntries maximum number of responses in the cache. Must be > 0.
+     * @param maxBytes maximum size (in bytes) of all the responses in the cache. Must be > 0.
+     * @throws IllegalArgumentException if maxEntries or maxBytes is not > 0
+     */
+    public DefaultResponseCache(int maxEntries, long maxBytes) throws IllegalArgumentException {
+        super();
+        AssertUtil.isTrue(maxEntries > 0, "maxEntries must be > 0 !");
+        AssertUtil.isTrue(maxBytes > 0, "maxBytes must be > 0 !");
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public synchronized byte[] get(String key) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.expiresAt <= System.currentTimeMillis()) {
+            remove(key);
+            entry = null;
+        }
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.response;
+    }
+
+    @Override
+    public synchronized void put(String key, Resource resource, byte[] response, long ttlInMillis) {
+        remove(key);
+        if (response.length > maxBytes || ttlInMillis <= 0) {
+            return;
+        }
+        entries.put(key, new Entry(resource, response, System.currentTimeMillis() + ttlInMillis));
+        bytes += response.length;
+
+        // evict the least recently used responses
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (entries.size() > maxEntries || bytes > maxBytes) {
+            bytes -= it.next().getValue().response.length;
+            it.remove();
+            evictions++;
+        }
+    }
+
+    @Override
+    public synchronized void invalidate(Resource resource) {
+        for (Iterator<Entry> it = entries.values().iterator(); it.hasNext();) {
+            Entry entry = it.next();
+            if (entry.resource == resource) {
+                bytes -= entry.response.length;
+                it.remove();
+            }
+        }
+    }
+
+    @Override
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    private void remove(String key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            bytes -= entry.response.length;
+        }
+    }
+
+    /**
+     * @return the number of responses in the cache (including the expired responses that have not been removed yet)
+     */
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    /**
+     * @return the size (in bytes) of all the responses in the cache
+     */
+    public synchronized long getSizeInBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return the number of requests served from the cache
+     */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /**
+     * @return the number of requests not found in the cache (or expired)
+     */
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * @return the number of responses evicted because the cache was full
+     */
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "DefaultResponseCache [size=" + entries.size() + ", bytes=" + bytes + ", hits=" + hits + ", misses="
+               + misses + ", evictions=" + evictions + "]";
+    }
+
+    /**
+     * A cached response
+     */
+    private static class Entry {
+
+        private final Resource resource;
+
+        private final byte[] response;
+
+        private final long expiresAt;
+
+        public Entry(Resource resource, byte[] response, long expiresAt) {
+            this.resource = resource;
+            this.response = response;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2011 Vincent Behar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rundeck.api;
+
+import java.io.Serializable;
+import java.util.Date;
+import org.apache.commons.lang.StringUtils;
+import org.rundeck.api.domain.RundeckExecution;
+
+/**
+ * Selects running executions, by project, job, user and/or start date. Used to abort many executions at once, see
+ * {@link RundeckClient#abortExecutions(ExecutionSelector)}. An empty selector matches all the running executions.
+ * 
+ * @author Vincent Behar
+ */
+public class ExecutionSelector implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private String project;
+
+    private String jobId;
+
+    private String user;
+
+    private Date startedBefore;
+
+    /**
+     * Only select the executions of the given project
+     * 
+     * @param project name of the project
+     * @return this, for method chaining
+     */
+    public ExecutionSelector project(String project) {
+        this.project = StringUtils.trimToNull(project);
+        return this;
+    }
+
+    /**
+     * Only select the executions of the given job
+     * 
+     * @param jobId identifier of the job
+     * @return this, for method chaining
+     */
+    public ExecutionSelector jobId(String jobId) {
+        this.jobId = StringUtils.trimToNull(jobId);
+        return this;
+    }
+
+    /**
+     * Only select the executions started by the given user
+     * 
+     * @param user login of the user
+     * @return this, for method chaining
+     */
+    public ExecutionSelector user(String user) {
+        this.user = StringUtils.trimToNull(user);
+        return this;
+    }
+
+    /**
+     * Only select the executions started before the given date
+     * 
+     * @param startedBefore date
+     * @return this, for method chaining
+     */
+    public ExecutionSelector startedBefore(Date startedBefore) {
+        this.startedBefore = startedBefore;
+        return this;
+    }
+
+    /**
+     * @param execution to check
+     * @return true if the given execution matches the job, user and start date criteria of this selector (the project
+     *         is used to list the running executions, as an execution does not always know its project)
+     */
+    public boolean matches(RundeckExecution execution) {
+        if (jobId != null && (execution.getJob() == null || !jobId.equals(execution.getJob().getId()))) {
+            return false;
+        }
+        if (user != null && !user.equals(execution.getStartedBy())) {
+            return false;
+        }
+        if (startedBefore != null
+            && (execution.getStartedAt() == null || !execution.getStartedAt().before(startedBefore))) {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return the name of the project - null to select the executions of all projects
+     */
+    public String getProject() {
+        return project;
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public String getUser() {
+        return user;
+    }
+
+    public Date getStartedBefore() {
+        return startedBefore;
+    }
+
+    @Override
+    public String toString() {
+        return "ExecutionSelector [project=" + project + ", jobId=" + jobId + ", user=" + user + ", startedBefore="
+               + startedBefore + "]";
+    }
+
+}
@@ -0,0 +1,379 @@
+/*
+ * Copyright 2011 Vincent Behar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rundeck.api;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.lang.StringUtils;
+import org.rundeck.api.domain.RundeckExecution;
+import org.rundeck.api.domain.RundeckExecution.ExecutionStatus;
+import org.rundeck.api.util.AssertUtil;
+
+/**
+ * Watches running executions until they are finished (or aborted), on behalf of all the callers of a
+ * {@link RundeckClient}. Instead of having a thread polling the RunDeck server for each execution, a single background
+ * thread polls for all the watched executions : for each project, a single API call lists the running executions, and
+ * we only get the details of the watched executions that are no longer running.
+ * <p>
+ * Use {@link RundeckClient#getExecutionWatcher()} to get the watcher of a client. You will be notified of the end of an
+ * execution through a {@link Future} and/or a {@link RundeckCallback}.
+ * 
+ * @author Vincent Behar
+ */
+public class ExecutionWatcher {
+
+    /** {@link RundeckClient} instance used to poll the RunDeck server */
+    private final RundeckClient client;
+
+    /** Executions being watched - guarded by this */
+    private final List<WatchedExecution> watched = new ArrayList<WatchedExecution>();
+
+    /** Thread polling the RunDeck server - only running while there are some executions to watch */
+    private Thread thread;
+
+    private boolean closed = false;
+
+    /**
+     * Build a new watcher for the given client. Use {@link RundeckClient#getExecutionWatcher()} instead.
+     * 
+     * @param client used to poll the RunDeck server
+     */
+    ExecutionWatcher(RundeckClient client) {
+        super();
+        this.client = client;
+    }
+
+    /**
+     * Watch the given execution until it is finished (or aborted). The RunDeck server will be polled every 5 seconds.
+     * 
+     * @param execution to watch - mandatory
+     * @return a {@link Future} for the finished (or aborted) execution
+     * @throws IllegalArgumentException if the execution (or its ID) is null
+     * @see #watch(String, RundeckExecution, long, TimeUnit, RundeckCallback)
+     */
+    public Future<RundeckExecution> watch(RundeckExecution execution) throws IllegalArgumentException {
+        return watch(execution, null);
+    }
+
+    /**
+     * Watch the given execution until it is finished (or aborted). The RunDeck server will be polled every 5 seconds.
+     * 
+     * @param execution to watch - mandatory
+     * @param callback notified when the execution is finished (or aborted) - optional
+     * @return a {@link Future} for the finished (or aborted) execution
+     * @throws IllegalArgumentException if the execution (or its ID) is null
+     * @see #watch(String, RundeckExecution, long, TimeUnit, RundeckCallback)
+     */
+    public Future<RundeckExecution> watch(RundeckExecution execution, RundeckCallback<RundeckExecution> callback)
+            throws IllegalArgumentException {
+        return watch(null,
+                     execution,
+                     RundeckClient.DEFAULT_POOLING_INTERVAL,
+                     RundeckClient.DEFAULT_POOLING_UNIT,
+                     callback);
+    }
+
+    /**
+     * Watch the given execution until it is finished (or aborted). The RunDeck server will be polled at regular
+     * interval (configured by the poolingInterval/poolingUnit couple).
+     * 
+     * @param project name of the project of the execution - optional (if null, we will use the project of the job). If
+     *            we know the project, the execution will be checked along with the other running executions of the
+     *            project, otherwise its status will be checked individually.
+     * @param execution to watch - mandatory
+     * @param poolingInterval for checking the status of the execution. Must be > 0.
+     * @param poolingUnit unit (seconds, milli-seconds, ...) of the interval. Default to seconds.
+     * @param callback notified when the execution is finished (or aborted) - optional
+     * @return a {@link Future} for the finished (or aborted) execution. If we fail to get the status of the execution,
+     *         the {@link Future} will throw an {@link ExecutionException} caused by a {@link RundeckApiException}.
+     * @throws IllegalArgumentException if the execution (or its ID) is null
+     */
+    public Future<RundeckExecution> watch(String project, RundeckExecution execution, long poolingInterval,
+            TimeUnit poolingUnit, RundeckCallback<RundeckExecution> callback) throws IllegalArgumentException {
+        return watch(project, execution, fixedPollingStrategy(poolingInterval, poolingUnit), callback);
+    }
+
+    /**
+     * Watch the given execution until it is finished (or aborted). The delay between 2 checks of the execution is
+     * given by the pollingStrategy (see {@link AdaptivePollingStrategy}).
+     * 
+     * @param project name of the project of the execution - optional (if null, we will use the project of the job). If
+     *            we know the project, the execution will be checked along with the other running executions of the
+     *            project, otherwise its status will be checked individually.
+     * @param execution to watch - mandatory
+     * @param pollingStrategy for checking the status of the execution - optional (default to a check every 5 seconds)
+     * @param callback notified when the execution is finished (or aborted) - optional
+     * @return a {@link Future} for the finished (or aborted) execution. If we fail to get the status of the execution,
+     *         the {@link Future} will throw an {@link ExecutionException} caused by a {@link RundeckApiException}.
+     * @throws IllegalArgumentException if the execution (or its ID) is null
+     */
+    public Future<RundeckExecution> watch(String project, RundeckExecution execution, PollingStrategy pollingStrategy,
+            RundeckCallback<RundeckExecution> callback) throws IllegalArgumentException {
+        AssertUtil.notNull(execution, "execution is mandatory to watch an execution !");
+        AssertUtil.notNull(execution.getId(), "the ID of the execution is mandatory to watch an execution !");
+        if (pollingStrategy == null) {
+            pollingStrategy = fixedPollingStrategy(RundeckClient.DEFAULT_POOLING_INTERVAL,
+                                                   RundeckClient.DEFAULT_POOLING_UNIT);
+        }
+        if (project == null && execution.getJob() != null) {
+            project = StringUtils.trimToNull(execution.getJob().getProject());
+        }
+
+        WatchedExecution watchedExecution = new WatchedExecution(project,
+                                                                 execution.getId(),
+                                                                 pollingStrategy,
+                                                                 callback);
+        if (!ExecutionStatus.RUNNING.equals(execution.getStatus())) {
+            watchedExecution.complete(execution);
+            return watchedExecution;
+        }
+
+        synchronized (this) {
+            if (closed) {
+                watchedExecution.fail(new RundeckApiException("The execution watcher has been closed"));
+                return watchedExecution;
+            }
+            watched.add(watchedExecution);
+            if (thread == null) {
+                thread = new Thread(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        pollUntilDone();
+                    }
+                }, "rundeck-execution-watcher");
+                thread.setDaemon(true);
+                thread.start();
+            } else {
+                notifyAll();
+            }
+        }
+        return watchedExecution;
+    }
+
+    /**
+     * @param poolingInterval for checking the status of the execution - default to 5 if not > 0
+     * @param poolingUnit unit (seconds, milli-seconds, ...) of the interval - default to seconds
+     * @return a {@link FixedPollingStrategy} for the given interval
+     */
+    static PollingStrategy fixedPollingStrategy(long poolingInterval, TimeUnit poolingUnit) {
+        if (poolingInterval <= 0) {
+            poolingInterval = RundeckClient.DEFAULT_POOLING_INTERVAL;
+            poolingUnit = RundeckClient.DEFAULT_POOLING_UNIT;
+        }
+        if (poolingUnit == null) {
+            poolingUnit = RundeckClient.DEFAULT_POOLING_UNIT;
+        }
+        return new FixedPollingStrategy(poolingInterval, poolingUnit);
+    }
+
+    /**
+     * @return the number of executions currently being watched
+     */
+    public synchronized int getWatchedCount() {
+        int count = 0;
+        for (WatchedExecution watchedExecution : watched) {
+            if (!watchedExecution.isDone()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Stop watching the executions : the pending {@link Future}s will fail with a {@link RundeckApiException}
+     */
+    void close() {
+        List<WatchedExecution> remaining;
+        synchronized (this) {
+            closed = true;
+            remaining = new ArrayList<WatchedExecution>(watched);
+            watched.clear();
+            notifyAll();
+        }
+        for (WatchedExecution watchedExecution : remaining) {
+            watchedExecution.fail(new RundeckApiException("The execution watcher has been closed"));
+        }
+    }
+
+    /**
+     * Main loop of the polling thread : wait until some executions need to be checked, and check them. Returns when
+     * there are no more executions to watch.
+     */
+    private void pollUntilDone() {
+        while (true) {
+            List<WatchedExecution> due = new ArrayList<WatchedExecution>();
+            synchronized (this) {
+                while (due.isEmpty()) {
+                    // forget about the executions that are done (cancelled by the caller)
+                    for (Iterator<WatchedExecution> it = watched.iterator(); it.hasNext();) {
+                        if (it.next().isDone()) {
+                            it.remove();
+                        }
+                    }
+                    if (closed || watched.isEmpty()) {
+                        thread = null;
+                        return;
+                    }
+
+                    long now = System.currentTimeMillis();
+                    long nextCheck = Long.MAX_VALUE;
+                    for (WatchedExecution watchedExecution : watched) {
+                        if (watchedExecution.getNextCheck() <= now) {
+                            due.add(watchedExecution);
+                        } else {
+                            nextCheck = Math.min(nextCheck, watchedExecution.getNextCheck());
+                        }
+                    }
+                    if (due.isEmpty()) {
+                        try {
+                            wait(nextCheck - now);
+                        } catch (InterruptedException e) {
+                            // only close() can stop the watcher
+                        }
+                    }
+                }
+            }
+            check(due);
+        }
+    }
+
+    /**
+     * Check the status of the given executions : executions of the same project are checked with a single API call
+     * 
+     * @param executions to check
+     */
+    private void check(List<WatchedExecution> executions) {
+        Map<String, List<WatchedExecution>> byProject = new LinkedHashMap<String, List<WatchedExecution>>();
+        for (WatchedExecution watchedExecution : executions) {
+            List<WatchedExecution> projectExecutions = byProject.get(watchedExecution.getProject());
+            if (projectExecutions == null) {
+                projectExecutions = new ArrayList<WatchedExecution>();
+                byProject.put(watchedExecution.getProject(), projectExecutions);
+            }
+            projectExecutions.add(watchedExecution);
+        }
+
+        for (Entry<String, List<WatchedExecution>> entry : byProject.entrySet()) {
+            // no need to list the running executions for a single execution, or if we don't know the project
+            Set<Long> running = null;
+            if (entry.getKey() != null && entry.getValue().size() > 1) {
+                running = getRunningExecutionIds(entry.getKey());
+            }
+            for (WatchedExecution watchedExecution : entry.getValue()) {
+                if (running != null && running.contains(watchedExecution.getExecutionId())) {
+                    watchedExecution.scheduleNextCheck();
+                } else {
+                    refresh(watchedExecution);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param project name of the project
+     * @return the IDs of the running executions of the given project, or null if we failed to get them
+     */
+    private Set<Long> getRunningExecutionIds(String project) {
+        try {
+            Set<Long> ids = new HashSet<Long>();
+            for (RundeckExecution execution : client.getRunningExecutions(project)) {
+                ids.add(execution.getId());
+            }
+            return ids;
+        } catch (RuntimeException e) {
+            // we will get the status of each execution
+            return null;
+        }
+    }
+
+    /**
+     * Get the status of the given execution, and complete it if it is no longer running
+     * 
+     * @param watchedExecution to refresh
+     */
+    private void refresh(WatchedExecution watchedExecution) {
+        if (watchedExecution.isDone()) {
+            return;
+        }
+        try {
+            RundeckExecution execution = client.getExecution(watchedExecution.getExecutionId());
+            if (ExecutionStatus.RUNNING.equals(execution.getStatus())) {
+                watchedExecution.scheduleNextCheck();
+            } else {
+                watchedExecution.complete(execution);
+            }
+        } catch (RundeckApiException e) {
+            watchedExecution.fail(e);
+        } catch (RuntimeException e) {
+            watchedExecution.fail(new RundeckApiException("Failed to get the execution "
+                                                          + watchedExecution.getExecutionId(), e));
+        }
+    }
+
+    /**
+     * An execution being watched, and the {@link Future} for its end
+     */
+    private static class WatchedExecution extends CallbackFuture<RundeckExecution> {
+
+        private final String project;
+
+        private final Long executionId;
+
+        private final PollingStrategy pollingStrategy;
+
+        private final long startedAt;
+
+        private volatile long nextCheck;
+
+        public WatchedExecution(String project, Long executionId, PollingStrategy pollingStrategy,
+                RundeckCallback<RundeckExecution> callback) {
+            super(callback);
+            this.project = project;
+            this.executionId = executionId;
+            this.pollingStrategy = pollingStrategy;
+            this.startedAt = System.currentTimeMillis();
+            scheduleNextCheck();
+        }
+
+        public void scheduleNextCheck() {
+            long now = System.currentTimeMillis();
+            nextCheck = now + Math.max(1, pollingStrategy.getNextDelay(now - startedAt));
+        }
+
+        public String getProject() {
+            return project;
+        }
+
+        public Long getExecutionId() {
+            return executionId;
+        }
+
+        public long getNextCheck() {
+            return nextCheck;
+        }
+    }
+
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2011 Vincent Behar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rundeck.api;
+
+import java.util.concurrent.TimeUnit;
+import org.rundeck.api.util.AssertUtil;
+
+/**
+ * {@link PollingStrategy} checking the execution at a fixed interval
+ * 
+ * @author Vincent Behar
+ */
+public class FixedPollingStrategy implements PollingStrategy {
+
+    private final long intervalInMillis;
+
+    /**
+     * @param interval between 2 checks. Must be > 0.
+     * @param unit unit (seconds, milli-seconds, ...) of the interval - mandatory
+     * @throws IllegalArgumentException if the interval is not > 0, or the unit is null
+     */
+    public FixedPollingStrategy(long interval, TimeUnit unit) throws IllegalArgumentException {
+        super();
+        AssertUtil.isTrue(interval > 0, "interval must be > 0 !");
+        AssertUtil.notNull(unit, "unit of the interval is mandatory !");
+        this.intervalInMillis = Math.max(1, unit.toMillis(interval));
+    }
+
+    @Override
+    public long getNextDelay(long elapsedInMillis) {
+        return intervalInMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "FixedPollingStrategy [intervalInMillis=" + intervalInMillis + "]";
+    }
+
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright 2011 Vincent Behar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rundeck.api;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.rundeck.api.domain.EventGroup;
+import org.rundeck.api.domain.EventStats;
+import org.rundeck.api.domain.EventTable;
+import org.rundeck.api.domain.RundeckEvent;
+import org.rundeck.api.domain.RundeckEvent.EventStatus;
+import org.rundeck.api.util.AssertUtil;
+
+/**
+ * Computes aggregated statistics ({@link EventStats} : success/failure rates, durations percentiles, nodes counts) of
+ * (history) events, grouped by project, job, user, status and/or period of time. Each event is read only once. <br>
+ * The events can be aggregated while they are read (from {@link RundeckClient#historyIterator(HistoryQuery)}, a
+ * {@link HistoryStore}, ...), or from an {@link EventTable} : in this case, the table can be split in chunks that are
+ * aggregated concurrently, and then merged. <br>
+ * Usage :
+ * 
+ * <pre>
+ * EventTable table = client.getHistoryTable(new HistoryQuery(&quot;project&quot;).recent(&quot;1y&quot;));
+ * Map&lt;EventGroup, EventStats&gt; stats = new HistoryAggregator(Dimension.JOB).timeBuckets(1, TimeUnit.DAYS)
+ *                                                                       .aggregate(table, executor, 4);
+ * </pre>
+ * 
+ * @author Vincent Behar
+ */
+public class HistoryAggregator {
+
+    /** Minimum number of events in a chunk of a table, when aggregating it concurrently */
+    private static final transient int MIN_CHUNK_SIZE = 4096;
+
+    /**
+     * Dimensions for the grouping of the events
+     */
+    public static enum Dimension {
+        PROJECT, JOB, USER, STATUS;
+    }
+
+    private final EnumSet<Dimension> dimensions = EnumSet.noneOf(Dimension.class);
+
+    /** Duration (in milli-seconds) of a period of time - 0 if not grouped by period of time */
+    private long bucketSize = 0;
+
+    /**
+     * Build a new aggregator, that will group the events by the given dimensions - without dimension, all the events
+     * are in a single group
+     * 
+     * @param dimensions for the grouping of the events
+     */
+    public HistoryAggregator(Dimension... dimensions) {
+        super();
+        this.dimensions.addAll(Arrays.asList(dimensions));
+    }
+
+    /**
+     * Also group the events by periods of time (based on their start date). The periods are aligned on the epoch
+     * (UTC) : for example, with 1 day, a period starts every day at midnight UTC.
+     * 
+     * @param duration of a period of time - must be > 0
+     * @param unit of the duration - mandatory
+     * @return this, for method chaining
+     * @throws IllegalArgumentException if the duration is not positive, or the unit is null
+     */
+    public HistoryAggregator timeBuckets(long duration, TimeUnit unit) throws IllegalArgumentException {
+        AssertUtil.isTrue(duration > 0, "duration must be > 0 !");
+        AssertUtil.notNull(unit, "unit is mandatory to group the events by periods of time !");
+        this.bucketSize = unit.toMillis(duration);
+        return this;
+    }
+
+    /**
+     * Aggregate the given events, while they are read
+     * 
+     * @param events to aggregate - mandatory
+     * @return the statistics of each group, in the order in which the groups were found - won't be null
+     * @throws IllegalArgumentException if the events are null
+     */
+    public Map<EventGroup, EventStats> aggregate(Iterator<RundeckEvent> events) throws IllegalArgumentException {
+        AssertUtil.notNull(events, "events are mandatory to aggregate them !");
+        Map<EventGroup, EventStats> groups = new LinkedHashMap<EventGroup, EventStats>();
+        while (events.hasNext()) {
+            RundeckEvent event = events.next();
+            Date time = event.getStartedAt() != null ? event.getStartedAt() : event.getEndedAt();
+            stats(groups,
+                  event.getProject(),
+                  event.getJobId(),
+                  event.getUser(),
+                  event.getStatus(),
+                  time != null ? time.getTime() : EventTable.NO_VALUE).add(event);
+        }
+        return groups;
+    }
+
+    /**
+     * Aggregate the events of the given table, in the current thread
+     * 
+     * @param table of events - mandatory
+     * @return the statistics of each group, in the order in which the groups were found - won't be null
+     * @throws IllegalArgumentException if the table is null
+     */
+    public Map<EventGroup, EventStats> aggregate(EventTable table) throws IllegalArgumentException {
+        AssertUtil.notNull(table, "table is mandatory to aggregate its events !");
+        return aggregateRows(table, 0, table.size());
+    }
+
+    /**
+     * Aggregate the events of the given table concurrently : the table is split in chunks, aggregated by at most
+     * "parallelism" threads ((parallelism - 1) on the given executor, and the current thread), and the results of the
+     * chunks are merged. The results are the same as with {@link #aggregate(EventTable)}. The table should not be
+     * modified during the aggregation.
+     * 
+     * @param table of events - mandatory
+     * @param executor used to aggregate the chunks concurrently - mandatory
+     * @param parallelism maximum number of threads aggregating the chunks
+     * @return the statistics of each group, in the order in which the groups were found - won't be null
+     * @throws RundeckApiException if we are interrupted while waiting for the other threads
+     * @throws IllegalArgumentException if the table or executor is null
+     */
+    public Map<EventGroup, EventStats> aggregate(final EventTable table, Executor executor, int parallelism)
+            throws RundeckApiException, IllegalArgumentException {
+        AssertUtil.notNull(table, "table is mandatory to aggregate its events !");
+        AssertUtil.notNull(executor, "executor is mandatory to aggregate the events concurrently !");
+        final int size = table.size();
+        int workers = Math.max(1, parallelism);
+        // a few chunks per thread, so that the threads finish at the same time
+        final int chunkSize = Math.max(MIN_CHUNK_SIZE, (size + workers * 4 - 1) / (workers * 4));
+        final int chunks = (size + chunkSize - 1) / chunkSize;
+        final AtomicReferenceArray<Map<EventGroup, EventStats>> results;
+        results = new AtomicReferenceArray<Map<EventGroup, EventStats>>(chunks);
+        final AtomicReferenceArray<RuntimeException> failures = new AtomicReferenceArray<RuntimeException>(chunks);
+
+        new ParallelTasks<Integer>() {
+
+            private int nextChunk = 0;
+
+            @Override
+            protected Integer next() {
+                return nextChunk < chunks ? nextChunk++ : null;
+            }
+
+            @Override
+            protected void process(Integer chunk) {
+                try {
+                    int first = chunk * chunkSize;
+                    results.set(chunk, aggregateRows(table, first, Math.min(size, first + chunkSize)));
+                } catch (RuntimeException e) {
+                    failures.set(chunk, e);
+                }
+            }
+        }.runAll(executor, Math.min(workers, chunks), "aggregating the events");
+
+        Map<EventGroup, EventStats> groups = new LinkedHashMap<EventGroup, EventStats>();
+        for (int i = 0; i < chunks; i++) {
+            if (failures.get(i) != null) {
+                throw failures.get(i);
+            }
+            for (Entry<EventGroup, EventStats> entry : results.get(i).entrySet()) {
+                EventStats stats = groups.get(entry.getKey());
+                if (stats == null) {
+                    groups.put(entry.getKey(), entry.getValue());
+                } else {
+                    stats.merge(entry.getValue());
+                }
+            }
+        }
+        return groups;
+    }
+
+    /**
+     * Aggregate the events of the given rows of a table
+     * 
+     * @param table of events
+     * @param first row (included)
+     * @param last row (excluded)
+     * @return the statistics of each group
+     */
+    private Map<EventGroup, EventStats> aggregateRows(EventTable table, int first, int last) {
+        Map<EventGroup, EventStats> groups = new LinkedHashMap<EventGroup, EventStats>();
+        for (int row = first; row < last; row++) {
+            long time = table.getStartedAt(row);
+            if (time == EventTable.NO_VALUE) {
+                time = table.getEndedAt(row);
+            }
+            long duration = table.getDurationInMillis(row);
+            EventStatus status = table.getStatus(row);
+            EventStats stats = stats(groups,
+                                     table.getProject(row),
+                                     table.getJobId(row),
+                                     table.getUser(row),
+                                     status,
+                                     time);
+            stats.add(status,
+                      duration != EventTable.NO_VALUE ? duration : -1,
+                      table.getNodesSucceeded(row),
+                      table.getNodesFailed(row),
+                      table.getNodesTotal(row));
+        }
+        return groups;
+    }
+
+    /**
+     * @return the statistics of the group of an event, created if needed
+     */
+    private EventStats stats(Map<EventGroup, EventStats> groups, String project, String jobId, String user,
+            EventStatus status, long time) {
+        Date timeBucket = null;
+        if (bucketSize > 0 && time != EventTable.NO_VALUE) {
+            // floor, also for the dates before the epoch
+            timeBucket = new Date(time - ((time % bucketSize) + bucketSize) % bucketSize);
+        }
+        EventGroup group = new EventGroup(dimensions.contains(Dimension.PROJECT) ? project : null,
+                                          dimensions.contains(Dimension.JOB) ? jobId : null,
+                                          dimensions.contains(Dimension.USER) ? user : null,
+                                          dimensions.contains(Dimension.STATUS) ? status : null,
+                                          timeBucket);
+        EventStats stats = groups.get(group);
+        if (stats == null) {
+            stats = new EventStats();
+            groups.put(group, stats);
+        }
+        return stats;
+    }
+
+}
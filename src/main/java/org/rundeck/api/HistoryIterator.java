@@ -0,0 +1,210 @@
+/*
+ * Copyright 2011 Vincent Behar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rundeck.api;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import org.rundeck.api.domain.RundeckEvent;
+import org.rundeck.api.domain.RundeckHistory;
+import org.rundeck.api.util.CloseableIterator;
+
+/**
+ * Iterates over all the events of a paginated history. While the events of a page are consumed, the next pages are
+ * fetched in the background (on the given executor), so that the latency of the API calls is hidden from the consumer.
+ * At most "prefetch" pages are fetched ahead of the current one. <br>
+ * The total number of events is read from each page : we stop when the end of the history is reached (or on the first
+ * empty page). If the server returns less events than requested (capped page size), the pages fetched in advance are
+ * discarded, and fetched again at the right offsets. <br>
+ * Not thread-safe : a single thread should consume the events.
+ * 
+ * @author Vincent Behar
+ */
+abstract class HistoryIterator implements CloseableIterator<RundeckEvent> {
+
+    private final Executor executor;
+
+    private final long pageSize;
+
+    private final int prefetch;
+
+    /** Pages being fetched, in the order of their offsets */
+    private final LinkedList<Page> pages = new LinkedList<Page>();
+
+    private Iterator<RundeckEvent> events = Collections.<RundeckEvent> emptyList().iterator();
+
+    /** Offset of the next page to fetch */
+    private long nextOffset = 0;
+
+    /** Total number of events, as reported by the last page - or -1 if unknown */
+    private long total = -1;
+
+    private boolean closed = false;
+
+    /**
+     * @param executor used to fetch the pages in the background
+     * @param pageSize number of events to request per page
+     * @param prefetch maximum number of pages to fetch ahead of the current one - 0 to fetch them on demand
+     */
+    public HistoryIterator(Executor executor, long pageSize, int prefetch) {
+        super();
+        this.executor = executor;
+        this.pageSize = pageSize;
+        this.prefetch = prefetch;
+    }
+
+    /**
+     * Make the API call for a single page
+     * 
+     * @param offset the 0-indexed offset of the first event of the page
+     * @param max number of events to return
+     * @return the page - won't be null
+     * @throws RundeckApiException in case of error when calling the API
+     */
+    protected abstract RundeckHistory fetch(long offset, long max) throws RundeckApiException;
+
+    @Override
+    public boolean hasNext() throws RundeckApiException {
+        while (!events.hasNext()) {
+            if (closed) {
+                return false;
+            }
+            if (pages.isEmpty()) {
+                if (total >= 0 && nextOffset >= total) {
+                    close();
+                    return false;
+                }
+                schedule();
+            }
+            Page page = pages.removeFirst();
+            RundeckHistory history = await(page);
+            total = history.getTotal();
+            if (history.getEvents() == null || history.getEvents().isEmpty()) {
+                close();
+                return false;
+            }
+            long end = page.offset + history.getEvents().size();
+            if (end != nextOffset - pageSize * pages.size() && end < total) {
+                // short page : the pages fetched in advance don't start at the right offsets
+                discard();
+                nextOffset = end;
+            }
+            events = history.getEvents().iterator();
+            while (pages.size() < prefetch && nextOffset < total) {
+                schedule();
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public RundeckEvent next() throws RundeckApiException {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return events.next();
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("remove is not supported on the history");
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        events = Collections.<RundeckEvent> emptyList().iterator();
+        discard();
+    }
+
+    /**
+     * Start fetching the next page
+     */
+    private void schedule() {
+        final long offset = nextOffset;
+        FutureTask<RundeckHistory> task = new FutureTask<RundeckHistory>(new Callable<RundeckHistory>() {
+
+            @Override
+            public RundeckHistory call() throws RundeckApiException {
+                return fetch(offset, pageSize);
+            }
+        });
+        pages.add(new Page(offset, task));
+        nextOffset += pageSize;
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            // fetch it when we will need it
+        }
+    }
+
+    /**
+     * Wait for the given page to be fetched (or fetch it in the current thread, if it has not started yet)
+     * 
+     * @param page to wait for
+     * @return the history page
+     * @throws RundeckApiException if the page could not be fetched, or if we are interrupted
+     */
+    private RundeckHistory await(Page page) throws RundeckApiException {
+        page.task.run();
+        try {
+            return page.task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            close();
+            throw new RundeckApiException("Interrupted while fetching the history at offset " + page.offset, e);
+        } catch (ExecutionException e) {
+            close();
+            if (e.getCause() instanceof RundeckApiException) {
+                throw (RundeckApiException) e.getCause();
+            }
+            throw new RundeckApiException("Failed to fetch the history at offset " + page.offset, e.getCause());
+        }
+    }
+
+    /**
+     * Cancel the pages fetched in advance
+     */
+    private void discard() {
+        for (Page page : pages) {
+            page.task.cancel(false);
+        }
+        pages.clear();
+    }
+
+    /**
+     * A page being fetched
+     */
+    private static class Page {
+
+        private final long offset;
+
+        private final FutureTask<RundeckHistory> task;
+
+        public Page(long offset, FutureTask<RundeckHistory> task) {
+            super();
+            this.offset = offset;
+            this.task = task;
+        }
+    }
+
+}
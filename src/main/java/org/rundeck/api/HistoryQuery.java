@@ -0,0 +1,159 @@
+/*
+ * Copyright 2011 Vincent Behar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rundeck.api;
+
+import java.io.Serializable;
+import java.util.Date;
+import org.apache.commons.lang.StringUtils;
+import org.rundeck.api.util.AssertUtil;
+
+/**
+ * Filters of the (events) history of a project, see {@link RundeckClient#historyIterator(HistoryQuery)}.
+ * 
+ * @author Vincent Behar
+ */
+public class HistoryQuery implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String project;
+
+    private String jobId;
+
+    private String reportId;
+
+    private String user;
+
+    private String recent;
+
+    private Date begin;
+
+    private Date end;
+
+    /**
+     * @param project name of the project - mandatory
+     * @throws IllegalArgumentException if the project is blank (null, empty or whitespace)
+     */
+    public HistoryQuery(String project) throws IllegalArgumentException {
+        super();
+        AssertUtil.notBlank(project, "project is mandatory to get the history !");
+        this.project = project;
+    }
+
+    /**
+     * Include only events matching the given job ID
+     * 
+     * @param jobId identifier of the job
+     * @return this, for method chaining
+     */
+    public HistoryQuery jobId(String jobId) {
+        this.jobId = StringUtils.trimToNull(jobId);
+        return this;
+    }
+
+    /**
+     * Include only events matching the given report ID
+     * 
+     * @param reportId identifier of the report
+     * @return this, for method chaining
+     */
+    public HistoryQuery reportId(String reportId) {
+        this.reportId = StringUtils.trimToNull(reportId);
+        return this;
+    }
+
+    /**
+     * Include only events created by the given user
+     * 
+     * @param user login of the user
+     * @return this, for method chaining
+     */
+    public HistoryQuery user(String user) {
+        this.user = StringUtils.trimToNull(user);
+        return this;
+    }
+
+    /**
+     * Include only events matching the given period of time
+     * 
+     * @param recent format : "XY", where X is an integer, and Y is one of : "h" (hour), "d" (day), "w" (week), "m"
+     *            (month), "y" (year). Example : "2w" (= last 2 weeks), "5d" (= last 5 days), etc.
+     * @return this, for method chaining
+     */
+    public HistoryQuery recent(String recent) {
+        this.recent = StringUtils.trimToNull(recent);
+        return this;
+    }
+
+    /**
+     * Include only events after the given date
+     * 
+     * @param begin date for the earlier events to retrieve
+     * @return this, for method chaining
+     */
+    public HistoryQuery begin(Date begin) {
+        this.begin = begin;
+        return this;
+    }
+
+    /**
+     * Include only events before the given date. Setting an end date is recommended when iterating over a large
+     * history : otherwise the events created during the iteration shift the pages, and some events could be returned
+     * twice.
+     * 
+     * @param end date for the latest events to retrieve
+     * @return this, for method chaining
+     */
+    public HistoryQuery end(Date end) {
+        this.end = end;
+        return this;
+    }
+
+    public String getProject() {
+        return project;
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public String getReportId() {
+        return reportId;
+    }
+
+    public String getUser() {
+        return user;
+    }
+
+    public String getRecent() {
+        return recent;
+    }
+
+    public Date getBegin() {
+        return begin;
+    }
+
+    public Date getEnd() {
+        return end;
+    }
+
+    @Override
+    public String toString() {
+        return "HistoryQuery [project=" + project + ", jobId=" + jobId + ", reportId=" + reportId + ", user=" + user
+               + ", recent=" + recent + ", begin=" + begin + ", end=" + end + "]";
+    }
+
+}
@@ -0,0 +1,691 @@
+/*
+ * Copyright 2011 Vincent Behar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rundeck.api;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.zip.CRC32;
+import org.rundeck.api.domain.RundeckEvent;
+import org.rundeck.api.domain.RundeckEvent.EventStatus;
+import org.rundeck.api.domain.RundeckEvent.NodeSummary;
+import org.rundeck.api.util.AssertUtil;
+
+/**
+ * Local store of the (events) history, so that the reporting queries are answered from the local disk instead of the
+ * RunDeck server. Use {@link #sync(RundeckClient, String)} to pull the new events of a project (only the delta is
+ * fetched, see {@link HistoryTailer}), and {@link #select(String, String, String, Date, Date)} to query the stored
+ * events.
+ * <p>
+ * The events are appended to a compact binary log, which is memory-mapped by regions : the writes and the reads are
+ * plain memory accesses, and the OS takes care of the caching and of the writes to the disk. A write survives a crash
+ * of the JVM, and is forced to the disk at the end of each sync (or with {@link #flush()}). The log starts with a
+ * header holding the end of the data, updated after each record, and each record holds a checksum : when the store is
+ * opened, the log is truncated before the first partially written (or lost) record. <br>
+ * The indexes (by project, job, user and start date) are held in memory, with a few bytes per event : they are rebuilt
+ * from the log when the store is opened. The queries only decode the matching events. <br>
+ * The position of a sync is not stored apart from the events : it is the newest stored event of the project (and the
+ * other events at the same date), so a sync interrupted by a crash resumes after the last stored event.
+ * 
+ * @author Vincent Behar
+ */
+public class HistoryStore implements Closeable {
+
+    /** Name of the log file, in the directory of the store */
+    private static final transient String LOG_FILE = "events.log";
+
+    /** Default size of a mapped region of the log : a record never spans 2 regions */
+    private static final transient int DEFAULT_REGION_SIZE = 32 * 1024 * 1024;
+
+    /** First bytes of the log : "RDKH" */
+    private static final transient int MAGIC = 0x52444B48;
+
+    private static final transient int VERSION = 2;
+
+    /** Magic number, version, and end of the data */
+    private static final transient int HEADER_SIZE = 16;
+
+    /** Length and checksum of a record */
+    private static final transient int RECORD_HEADER_SIZE = 8;
+
+    /** Marks the end of the records of a region */
+    private static final transient int SKIP = -1;
+
+    /** Stored in place of a null date or number */
+    private static final transient long NULL_LONG = Long.MIN_VALUE;
+
+    private final File directory;
+
+    private final int regionSize;
+
+    private final RandomAccessFile file;
+
+    private final FileChannel channel;
+
+    /** Mapped regions of the log - guarded by this */
+    private final List<MappedByteBuffer> regions = new ArrayList<MappedByteBuffer>();
+
+    /** Position of the end of the data - guarded by this */
+    private long end;
+
+    /** Position of each record - guarded by this */
+    private final LongList positions = new LongList();
+
+    /** Start date of each record - guarded by this */
+    private final LongList startTimes = new LongList();
+
+    /** Records sorted by start date - guarded by this */
+    private final IntList byStartTime = new IntList();
+
+    /** Identifiers (in the dictionary) of the project, job and user of each record - guarded by this */
+    private final IntList projects = new IntList(), jobs = new IntList(), users = new IntList();
+
+    /** Identifiers of the projects, jobs and users - guarded by this */
+    private final Map<String, Integer> dictionary = new HashMap<String, Integer>();
+
+    /** Records of each project, job and user (indexed by their identifier) - guarded by this */
+    private final Map<Integer, IntList> byProject = new HashMap<Integer, IntList>(),
+            byJob = new HashMap<Integer, IntList>(), byUser = new HashMap<Integer, IntList>();
+
+    /** Newest records of each project (indexed by its identifier) - guarded by this */
+    private final Map<Integer, Newest> newest = new HashMap<Integer, Newest>();
+
+    /** Only one sync at a time, so that the same events are not appended twice */
+    private final Object syncLock = new Object();
+
+    private boolean closed = false;
+
+    /**
+     * Open the store in the given directory - it will be created if it does not exist yet
+     * 
+     * @param directory of the store - mandatory
+     * @throws RundeckApiException if the store could not be opened (invalid log file, I/O error, ...)
+     * @throws IllegalArgumentException if the directory is null
+     */
+    public HistoryStore(File directory) throws RundeckApiException, IllegalArgumentException {
+        this(directory, DEFAULT_REGION_SIZE);
+    }
+
+    /**
+     * Open the store in the given directory - it will be created if it does not exist yet
+     * 
+     * @param directory of the store - mandatory
+     * @param regionSize size of a mapped region of the log - should not change once the log has been created
+     * @throws RundeckApiException if the store could not be opened (invalid log file, I/O error, ...)
+     * @throws IllegalArgumentException if the directory is null
+     */
+    HistoryStore(File directory, int regionSize) throws RundeckApiException, IllegalArgumentException {
+        super();
+        AssertUtil.notNull(directory, "directory is mandatory to open the history store !");
+        this.directory = directory;
+        this.regionSize = regionSize;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new RundeckApiException("Failed to create the directory of the history store : " + directory);
+        }
+        File logFile = new File(directory, LOG_FILE);
+        try {
+            file = new RandomAccessFile(logFile, "rw");
+            channel = file.getChannel();
+        } catch (IOException e) {
+            throw new RundeckApiException("Failed to open the history store " + logFile, e);
+        }
+        try {
+            if (channel.size() == 0) {
+                region(0).putInt(0, MAGIC).putInt(4, VERSION).putLong(8, HEADER_SIZE);
+            } else if (region(0).getInt(0) != MAGIC || region(0).getInt(4) != VERSION) {
+                throw new RundeckApiException("Not a history store (or unsupported version) : " + logFile);
+            }
+            end = region(0).getLong(8);
+            load();
+        } catch (IOException e) {
+            close();
+            throw new RundeckApiException("Failed to open the history store " + logFile, e);
+        } catch (RundeckApiException e) {
+            close();
+            throw e;
+        } catch (RuntimeException e) {
+            close();
+            throw new RundeckApiException("Corrupted history store " + logFile, e);
+        }
+    }
+
+    /**
+     * Pull the new events of the given project from the RunDeck server, and append them to the store. Only the events
+     * that are newer than the newest stored event of the project are fetched, see {@link HistoryTailer}.
+     * 
+     * @param client used to get the history - mandatory
+     * @param project name of the project - mandatory
+     * @return the number of new events
+     * @throws RundeckApiException in case of error when calling the API (non-existent project with this name), or when
+     *             writing to the store
+     * @throws RundeckApiLoginException if the login fails (in case of login-based authentication)
+     * @throws RundeckApiTokenException if the token is invalid (in case of token-based authentication)
+     * @throws IllegalArgumentException if the client is null, or the project is blank (null, empty or whitespace)
+     */
+    public int sync(RundeckClient client, final String project) throws RundeckApiException, IllegalArgumentException {
+        synchronized (syncLock) {
+            HistoryTailer tailer = new HistoryTailer(client, new RundeckCallback<RundeckEvent>() {
+
+                @Override
+                public void onSuccess(RundeckEvent event) {
+                    // so that the event is found by the next sync
+                    if (event.getProject() == null) {
+                        event.setProject(project);
+                    }
+                    append(event);
+                }
+
+                @Override
+                public void onFailure(RundeckApiException error) {
+                    // only when tailing in the background
+                }
+            });
+            tailer.markDelivered(project, newest(project));
+            try {
+                return tailer.poll(project);
+            } finally {
+                flush();
+            }
+        }
+    }
+
+    /**
+     * Append the given event to the store. Note that the events are not deduplicated : use
+     * {@link #sync(RundeckClient, String)} to only append the new events of a project.
+     * 
+     * @param event to append - mandatory
+     * @throws RundeckApiException if the event could not be written
+     * @throws IllegalArgumentException if the event is null
+     */
+    public synchronized void append(RundeckEvent event) throws RundeckApiException, IllegalArgumentException {
+        AssertUtil.notNull(event, "event is mandatory to append it to the history store !");
+        checkOpen();
+        byte[] record = encode(event);
+        if (record.length + RECORD_HEADER_SIZE > regionSize - HEADER_SIZE) {
+            throw new RundeckApiException("Event too large (" + record.length + " bytes) for the history store : "
+                                          + event);
+        }
+        int region = (int) (end / regionSize);
+        int offset = (int) (end % regionSize);
+        if (offset + RECORD_HEADER_SIZE + record.length > regionSize) {
+            if (regionSize - offset >= 4) {
+                region(region).putInt(offset, SKIP);
+            }
+            region++;
+            offset = 0;
+        }
+        ByteBuffer buffer = region(region).duplicate();
+        buffer.position(offset);
+        buffer.putInt(record.length).putInt(checksum(record)).put(record);
+
+        long position = (long) region * regionSize + offset;
+        end = position + RECORD_HEADER_SIZE + record.length;
+        region(0).putLong(8, end);
+        index(event, position);
+    }
+
+    /**
+     * Find the stored events matching the given criteria (all optional). The events are returned in the order in which
+     * they were stored, and only decoded while iterating.
+     * 
+     * @param project name of the project - optional
+     * @param jobId identifier of the job - optional
+     * @param user login of the user - optional
+     * @param begin earliest start date (included) - optional
+     * @param end latest start date (included) - optional
+     * @return an {@link Iterator} of {@link RundeckEvent} : might be empty, but won't be null
+     */
+    public Iterator<RundeckEvent> select(String project, String jobId, String user, Date begin, Date end) {
+        final int[] records = find(project, jobId, user, begin, end);
+        return new Iterator<RundeckEvent>() {
+
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < records.length;
+            }
+
+            @Override
+            public RundeckEvent next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return read(records[next++]);
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException("The history store is append-only");
+            }
+        };
+    }
+
+    /**
+     * Find the stored events matching the given criteria (all optional), using the indexes
+     * 
+     * @param project name of the project - optional
+     * @param jobId identifier of the job - optional
+     * @param user login of the user - optional
+     * @param begin earliest start date (included) - optional
+     * @param end latest start date (included) - optional
+     * @return the numbers of the matching records, in ascending order
+     */
+    synchronized int[] find(String project, String jobId, String user, Date begin, Date end) {
+        checkOpen();
+        int projectRef = id(project), jobRef = id(jobId), userRef = id(user);
+        if ((project != null && projectRef < 0) || (jobId != null && jobRef < 0) || (user != null && userRef < 0)) {
+            return new int[0];
+        }
+
+        // start from the smallest index
+        int[] candidates = null;
+        for (IntList postings : Arrays.asList(byProject.get(projectRef), byJob.get(jobRef), byUser.get(userRef))) {
+            if (postings != null && (candidates == null || postings.size < candidates.length)) {
+                candidates = postings.toArray();
+            }
+        }
+        boolean timeRange = begin != null || end != null;
+        long from = begin != null ? begin.getTime() : NULL_LONG;
+        long to = end != null ? end.getTime() : Long.MAX_VALUE;
+        if (candidates == null) {
+            int first = 0, last = byStartTime.size;
+            if (timeRange) {
+                first = lowerBound(Math.max(from, NULL_LONG + 1));
+                last = lowerBound(to == Long.MAX_VALUE ? to : to + 1);
+            }
+            candidates = Arrays.copyOfRange(byStartTime.values, first, Math.max(first, last));
+            Arrays.sort(candidates);
+        }
+
+        int count = 0;
+        for (int record : candidates) {
+            long startTime = startTimes.get(record);
+            if ((projectRef < 0 || projects.get(record) == projectRef) && (jobRef < 0 || jobs.get(record) == jobRef)
+                && (userRef < 0 || users.get(record) == userRef)
+                && (!timeRange || (startTime != NULL_LONG && startTime >= from && startTime <= to))) {
+                candidates[count++] = record;
+            }
+        }
+        return Arrays.copyOf(candidates, count);
+    }
+
+    /**
+     * @param record number of the record
+     * @return the event stored in this record
+     */
+    synchronized RundeckEvent read(int record) {
+        checkOpen();
+        long position = positions.get(record);
+        ByteBuffer buffer = region((int) (position / regionSize)).duplicate();
+        buffer.position((int) (position % regionSize) + RECORD_HEADER_SIZE);
+        return decode(buffer);
+    }
+
+    /**
+     * @param project name of the project - mandatory
+     * @return the newest stored events of the project (all at the same date, see {@link #time(RundeckEvent)}) : might
+     *         be empty, but won't be null
+     */
+    synchronized List<RundeckEvent> newest(String project) {
+        checkOpen();
+        List<RundeckEvent> events = new ArrayList<RundeckEvent>();
+        Newest records = newest.get(id(project));
+        if (records != null) {
+            for (int i = 0; i < records.records.size; i++) {
+                events.add(read(records.records.get(i)));
+            }
+        }
+        return events;
+    }
+
+    /**
+     * @return the number of stored events
+     */
+    public synchronized int size() {
+        return positions.size;
+    }
+
+    /**
+     * Force the writes to the disk
+     * 
+     * @throws RundeckApiException if the store is closed
+     */
+    public synchronized void flush() throws RundeckApiException {
+        checkOpen();
+        for (MappedByteBuffer region : regions) {
+            region.force();
+        }
+    }
+
+    /**
+     * Flush and close the store. Calling it more than once has no effect. Note that the regions are unmapped by the
+     * garbage collector.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        try {
+            for (MappedByteBuffer region : regions) {
+                region.force();
+            }
+        } finally {
+            closed = true;
+            regions.clear();
+            try {
+                file.close();
+            } catch (IOException e) {
+                // nothing to do
+            }
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("The history store is closed !");
+        }
+    }
+
+    /**
+     * @param index of the region
+     * @return the region, mapped if needed (the log file grows)
+     */
+    private MappedByteBuffer region(int index) {
+        try {
+            while (regions.size() <= index) {
+                regions.add(channel.map(MapMode.READ_WRITE, (long) regions.size() * regionSize, regionSize));
+            }
+        } catch (IOException e) {
+            throw new RundeckApiException("Failed to map the history store " + new File(directory, LOG_FILE), e);
+        }
+        return regions.get(index);
+    }
+
+    /**
+     * Rebuild the indexes from the log, and truncate it before the first invalid record (not completely written to the
+     * disk before a crash)
+     */
+    private void load() {
+        long position = HEADER_SIZE;
+        while (position < end) {
+            int offset = (int) (position % regionSize);
+            ByteBuffer buffer = region((int) (position / regionSize)).duplicate();
+            if (regionSize - offset < 4 || buffer.getInt(offset) == SKIP) {
+                position += regionSize - offset;
+                continue;
+            }
+            int length = buffer.getInt(offset);
+            if (length <= 0 || offset + RECORD_HEADER_SIZE + length > regionSize) {
+                break;
+            }
+            byte[] record = new byte[length];
+            buffer.position(offset + RECORD_HEADER_SIZE);
+            buffer.get(record);
+            if (checksum(record) != buffer.getInt(offset + 4)) {
+                break;
+            }
+            index(decode(ByteBuffer.wrap(record)), position);
+            position += RECORD_HEADER_SIZE + length;
+        }
+        if (position < end) {
+            end = position;
+            region(0).putLong(8, end);
+        }
+    }
+
+    private void index(RundeckEvent event, long position) {
+        int record = positions.size;
+        positions.add(position);
+        long startTime = event.getStartedAt() != null ? event.getStartedAt().getTime() : NULL_LONG;
+        startTimes.add(startTime);
+        // the events are mostly appended in chronological order
+        if (byStartTime.size == 0 || startTimes.get(byStartTime.get(byStartTime.size - 1)) <= startTime) {
+            byStartTime.add(record);
+        } else {
+            byStartTime.insert(lowerBound(startTime + 1), record);
+        }
+        int project = index(event.getProject(), record, byProject);
+        projects.add(project);
+        jobs.add(index(event.getJobId(), record, byJob));
+        users.add(index(event.getUser(), record, byUser));
+        if (project >= 0) {
+            long time = time(event);
+            Newest records = newest.get(project);
+            if (records == null || time > records.time) {
+                records = new Newest(time);
+                newest.put(project, records);
+            }
+            if (time == records.time) {
+                records.records.add(record);
+            }
+        }
+    }
+
+    private int index(String value, int record, Map<Integer, IntList> postings) {
+        if (value == null) {
+            return -1;
+        }
+        Integer id = dictionary.get(value);
+        if (id == null) {
+            id = dictionary.size();
+            dictionary.put(value, id);
+        }
+        IntList records = postings.get(id);
+        if (records == null) {
+            records = new IntList();
+            postings.put(id, records);
+        }
+        records.add(record);
+        return id;
+    }
+
+    /**
+     * @param value project, job or user
+     * @return its identifier in the dictionary, or -1 if unknown (or null)
+     */
+    private int id(String value) {
+        Integer id = value != null ? dictionary.get(value) : null;
+        return id != null ? id : -1;
+    }
+
+    /**
+     * @param startTime a start date
+     * @return the index (in {@link #byStartTime}) of the first record started at (or after) the given date
+     */
+    private int lowerBound(long startTime) {
+        int low = 0, high = byStartTime.size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (startTimes.get(byStartTime.get(middle)) < startTime) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @param event from the history
+     * @return the date (in milli-seconds) of the event, as seen by the {@link HistoryTailer} : its end date, or its
+     *         start date if it has no end date
+     */
+    private static long time(RundeckEvent event) {
+        Date date = event.getEndedAt() != null ? event.getEndedAt() : event.getStartedAt();
+        return date != null ? date.getTime() : 0;
+    }
+
+    private static int checksum(byte[] record) {
+        CRC32 crc = new CRC32();
+        crc.update(record);
+        return (int) crc.getValue();
+    }
+
+    private static byte[] encode(RundeckEvent event) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        DataOutputStream output = new DataOutputStream(bytes);
+        try {
+            output.writeLong(event.getStartedAt() != null ? event.getStartedAt().getTime() : NULL_LONG);
+            output.writeLong(event.getEndedAt() != null ? event.getEndedAt().getTime() : NULL_LONG);
+            output.writeLong(event.getExecutionId() != null ? event.getExecutionId() : NULL_LONG);
+            output.writeByte(event.getStatus() != null ? event.getStatus().ordinal() : -1);
+            NodeSummary nodeSummary = event.getNodeSummary();
+            output.writeBoolean(nodeSummary != null);
+            if (nodeSummary != null) {
+                output.writeInt(nodeSummary.getSucceeded());
+                output.writeInt(nodeSummary.getFailed());
+                output.writeInt(nodeSummary.getTotal());
+            }
+            for (String value : new String[] { event.getTitle(), event.getSummary(), event.getUser(),
+                                              event.getProject(), event.getJobId(), event.getAbortedBy() }) {
+                if (value == null) {
+                    output.writeInt(-1);
+                } else {
+                    byte[] utf8 = value.getBytes("UTF-8");
+                    output.writeInt(utf8.length);
+                    output.write(utf8);
+                }
+            }
+        } catch (IOException e) {
+            throw new RundeckApiException("Failed to encode the event " + event, e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static RundeckEvent decode(ByteBuffer buffer) {
+        RundeckEvent event = new RundeckEvent();
+        long startedAt = buffer.getLong(), endedAt = buffer.getLong(), executionId = buffer.getLong();
+        event.setStartedAt(startedAt != NULL_LONG ? new Date(startedAt) : null);
+        event.setEndedAt(endedAt != NULL_LONG ? new Date(endedAt) : null);
+        event.setExecutionId(executionId != NULL_LONG ? executionId : null);
+        byte status = buffer.get();
+        event.setStatus(status >= 0 ? EventStatus.values()[status] : null);
+        if (buffer.get() != 0) {
+            NodeSummary nodeSummary = new NodeSummary();
+            nodeSummary.setSucceeded(buffer.getInt());
+            nodeSummary.setFailed(buffer.getInt());
+            nodeSummary.setTotal(buffer.getInt());
+            event.setNodeSummary(nodeSummary);
+        }
+        event.setTitle(decodeString(buffer));
+        event.setSummary(decodeString(buffer));
+        event.setUser(decodeString(buffer));
+        event.setProject(decodeString(buffer));
+        event.setJobId(decodeString(buffer));
+        event.setAbortedBy(decodeString(buffer));
+        return event;
+    }
+
+    private static String decodeString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] utf8 = new byte[length];
+        buffer.get(utf8);
+        try {
+            return new String(utf8, "UTF-8");
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Newest records of a project
+     */
+    private static class Newest {
+
+        /** Date (in milli-seconds) of the newest records */
+        private final long time;
+
+        private final IntList records = new IntList();
+
+        public Newest(long time) {
+            super();
+            this.time = time;
+        }
+    }
+
+    /**
+     * Growable array of ints
+     */
+    private static class IntList {
+
+        private int[] values = new int[16];
+
+        private int size = 0;
+
+        public int get(int index) {
+            return values[index];
+        }
+
+        public void add(int value) {
+            insert(size, value);
+        }
+
+        public void insert(int index, int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            System.arraycopy(values, index, values, index + 1, size - index);
+            values[index] = value;
+            size++;
+        }
+
+        public int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    /**
+     * Growable array of longs
+     */
+    private static class LongList {
+
+        private long[] values = new long[16];
+
+        private int size = 0;
+
+        public long get(int index) {
+            return values[index];
+        }
+
+        public void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+
+}
@@ -0,0 +1,350 @@
+/*
+ * Copyright 2011 Vincent Behar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rundeck.api;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+import org.rundeck.api.domain.RundeckEvent;
+import org.rundeck.api.util.AssertUtil;
+import org.rundeck.api.util.CloseableIterator;
+
+/**
+ * Tails the (events) history of some projects : each poll only fetches the events that are newer than the last
+ * delivered event of the project, and delivers them (oldest first) to a {@link RundeckCallback}. <br>
+ * For each project, a cursor holds the date of the newest delivered event, and the keys of the events delivered at this
+ * exact date : the history is queried from this date (included), and the events at the boundary are deduplicated. The
+ * events are dated by their end date, as they are added to the history when they complete. <br>
+ * If a file is given, the cursors are loaded from it, and saved to it after each poll - so that a restart does not read
+ * the whole history again.
+ * 
+ * @author Vincent Behar
+ */
+public class HistoryTailer {
+
+    /** {@link RundeckClient} instance used to get the history */
+    private final RundeckClient client;
+
+    /** Notified of the new events - and of the failed polls, when polling in the background */
+    private final RundeckCallback<RundeckEvent> listener;
+
+    /** File in which the cursors are saved - may be null */
+    private final File cursorsFile;
+
+    /** Cursor of each project - guarded by this */
+    private final Map<String, Cursor> cursors = new HashMap<String, Cursor>();
+
+    /** Polls in the background, see {@link #start(long, TimeUnit, String...)} - guarded by this */
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Build a new tailer, that does not save its cursors : it will start from the beginning of the history.
+     * 
+     * @param client used to get the history - mandatory
+     * @param listener notified of the new events - mandatory
+     * @throws IllegalArgumentException if the client or listener is null
+     */
+    public HistoryTailer(RundeckClient client, RundeckCallback<RundeckEvent> listener) throws IllegalArgumentException {
+        this(client, listener, null);
+    }
+
+    /**
+     * Build a new tailer, that saves its cursors in the given file. If the file exists, the cursors are loaded from it.
+     * 
+     * @param client used to get the history - mandatory
+     * @param listener notified of the new events - mandatory
+     * @param cursorsFile in which the cursors are saved - optional
+     * @throws RundeckApiException if the file exists but could not be read
+     * @throws IllegalArgumentException if the client or listener is null
+     */
+    public HistoryTailer(RundeckClient client, RundeckCallback<RundeckEvent> listener, File cursorsFile)
+            throws RundeckApiException, IllegalArgumentException {
+        super();
+        AssertUtil.notNull(client, "client is mandatory to tail the history !");
+        AssertUtil.notNull(listener, "listener is mandatory to tail the history !");
+        this.client = client;
+        this.listener = listener;
+        this.cursorsFile = cursorsFile;
+        if (cursorsFile != null && cursorsFile.exists()) {
+            loadCursors();
+        }
+    }
+
+    /**
+     * Get the new events of the given project, and deliver them (oldest first) to the listener. If the listener throws
+     * an exception, the poll is stopped : the cursor stays on the last delivered event.
+     * 
+     * @param project name of the project - mandatory
+     * @return the number of delivered events
+     * @throws RundeckApiException in case of error when calling the API (non-existent project with this name), or when
+     *             saving the cursors
+     * @throws IllegalArgumentException if the project is blank (null, empty or whitespace)
+     */
+    public synchronized int poll(String project) throws RundeckApiException, IllegalArgumentException {
+        AssertUtil.notBlank(project, "project is mandatory to tail the history !");
+        Cursor cursor = cursors.get(project);
+
+        // pin the end date, so that the events completed during the poll don't shift the pages
+        HistoryQuery query = new HistoryQuery(project).end(new Date());
+        if (cursor != null) {
+            query.begin(new Date(cursor.time));
+        }
+        List<RundeckEvent> events = new ArrayList<RundeckEvent>();
+        CloseableIterator<RundeckEvent> history = client.historyIterator(query);
+        try {
+            while (history.hasNext()) {
+                RundeckEvent event = history.next();
+                if (cursor == null || !cursor.isDelivered(event)) {
+                    events.add(event);
+                }
+            }
+        } finally {
+            history.close();
+        }
+        Collections.sort(events, new Comparator<RundeckEvent>() {
+
+            @Override
+            public int compare(RundeckEvent e1, RundeckEvent e2) {
+                long t1 = time(e1);
+                long t2 = time(e2);
+                return t1 < t2 ? -1 : (t1 == t2 ? 0 : 1);
+            }
+        });
+
+        int delivered = 0;
+        try {
+            for (RundeckEvent event : events) {
+                listener.onSuccess(event);
+                delivered++;
+                advance(project, event);
+            }
+        } finally {
+            if (delivered > 0 && cursorsFile != null) {
+                saveCursors();
+            }
+        }
+        return delivered;
+    }
+
+    /**
+     * Mark the given events of a project as delivered, as if they had been delivered by a poll : the cursor of the
+     * project moves to the newest of them. Used to resume tailing from events stored elsewhere (see
+     * {@link HistoryStore}) : the newest stored events are enough.
+     * 
+     * @param project name of the project - mandatory
+     * @param events already delivered - mandatory
+     * @throws IllegalArgumentException if the project is blank (null, empty or whitespace), or the events are null
+     */
+    public synchronized void markDelivered(String project, Collection<RundeckEvent> events)
+            throws IllegalArgumentException {
+        AssertUtil.notBlank(project, "project is mandatory to tail the history !");
+        AssertUtil.notNull(events, "events are mandatory to mark them as delivered !");
+        for (RundeckEvent event : events) {
+            advance(project, event);
+        }
+    }
+
+    /**
+     * Poll the given projects in a background thread, with the given delay between the polls. The failures are
+     * reported to the listener. Use {@link #stop()} to stop polling.
+     * 
+     * @param delay between the end of a poll and the start of the next one
+     * @param unit of the delay - mandatory
+     * @param projects names of the projects - mandatory
+     * @throws IllegalStateException if the tailer is already polling in the background
+     * @throws IllegalArgumentException if the unit is null, or if there is no project
+     */
+    public synchronized void start(long delay, TimeUnit unit, final String... projects) throws IllegalStateException,
+            IllegalArgumentException {
+        AssertUtil.notNull(unit, "unit is mandatory to tail the history !");
+        AssertUtil.isTrue(projects != null && projects.length > 0, "projects are mandatory to tail the history !");
+        if (scheduler != null) {
+            throw new IllegalStateException("The history is already tailed in the background !");
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("rundeck-history-"));
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+
+            @Override
+            public void run() {
+                for (String project : projects) {
+                    try {
+                        poll(project);
+                    } catch (RundeckApiException e) {
+                        listener.onFailure(e);
+                    } catch (RuntimeException e) {
+                        listener.onFailure(new RundeckApiException("Failed to tail the history of " + project, e));
+                    }
+                }
+            }
+        }, 0, delay, unit);
+    }
+
+    /**
+     * Stop polling in the background. Calling it more than once has no effect.
+     */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * @param project name of the project
+     * @return the date of the newest delivered event of the project - or null if none
+     */
+    public synchronized Date getLastEventDate(String project) {
+        Cursor cursor = cursors.get(project);
+        return cursor != null ? new Date(cursor.time) : null;
+    }
+
+    private void loadCursors() throws RundeckApiException {
+        Properties properties = new Properties();
+        InputStream input = null;
+        try {
+            input = new FileInputStream(cursorsFile);
+            properties.load(input);
+        } catch (IOException e) {
+            throw new RundeckApiException("Failed to load the history cursors from " + cursorsFile, e);
+        } finally {
+            IOUtils.closeQuietly(input);
+        }
+        for (String project : properties.stringPropertyNames()) {
+            // "time;key1,key2,..."
+            String[] value = StringUtils.split(properties.getProperty(project), ';');
+            try {
+                Cursor cursor = new Cursor(Long.parseLong(value[0]));
+                if (value.length > 1) {
+                    Collections.addAll(cursor.keys, StringUtils.split(value[1], ','));
+                }
+                cursors.put(project, cursor);
+            } catch (RuntimeException e) {
+                throw new RundeckApiException("Invalid history cursor for project " + project + " in " + cursorsFile,
+                                              e);
+            }
+        }
+    }
+
+    private void saveCursors() throws RundeckApiException {
+        Properties properties = new Properties();
+        for (Entry<String, Cursor> entry : cursors.entrySet()) {
+            properties.setProperty(entry.getKey(),
+                                   entry.getValue().time + ";" + StringUtils.join(entry.getValue().keys, ','));
+        }
+        File tmpFile = new File(cursorsFile.getPath() + ".tmp");
+        FileOutputStream output = null;
+        try {
+            output = new FileOutputStream(tmpFile);
+            properties.store(output, "RunDeck history cursors");
+            output.getFD().sync();
+            output.close();
+            if (!tmpFile.renameTo(cursorsFile) && !(cursorsFile.delete() && tmpFile.renameTo(cursorsFile))) {
+                throw new IOException("Failed to rename " + tmpFile + " to " + cursorsFile);
+            }
+        } catch (IOException e) {
+            throw new RundeckApiException("Failed to save the history cursors to " + cursorsFile, e);
+        } finally {
+            IOUtils.closeQuietly(output);
+            FileUtils.deleteQuietly(tmpFile);
+        }
+    }
+
+    /**
+     * Move the cursor of the given project after the given (delivered) event, if it is not older than the cursor
+     * 
+     * @param project name of the project
+     * @param event delivered
+     */
+    private void advance(String project, RundeckEvent event) {
+        Cursor cursor = cursors.get(project);
+        if (cursor != null && time(event) < cursor.time) {
+            return;
+        }
+        if (cursor == null || time(event) > cursor.time) {
+            cursor = new Cursor(time(event));
+            cursors.put(project, cursor);
+        }
+        cursor.keys.add(key(event));
+    }
+
+    /**
+     * @param event from the history
+     * @return the date (in milli-seconds) of the event : its end date, or its start date if it has no end date
+     */
+    private static long time(RundeckEvent event) {
+        Date date = event.getEndedAt() != null ? event.getEndedAt() : event.getStartedAt();
+        return date != null ? date.getTime() : 0;
+    }
+
+    /**
+     * @param event from the history
+     * @return a key identifying the event : the ID of its execution, or a hash of its content
+     */
+    private static String key(RundeckEvent event) {
+        if (event.getExecutionId() != null) {
+            return event.getExecutionId().toString();
+        }
+        return Integer.toHexString((event.getTitle() + "|" + event.getUser() + "|" + event.getSummary() + "|"
+                                    + event.getStartedAt()).hashCode());
+    }
+
+    /**
+     * Position in the history of a project
+     */
+    private static class Cursor {
+
+        /** Date (in milli-seconds) of the newest delivered event */
+        private final long time;
+
+        /** Keys of the delivered events at this exact date */
+        private final Set<String> keys = new HashSet<String>();
+
+        public Cursor(long time) {
+            super();
+            this.time = time;
+        }
+
+        /**
+         * @param event from the history
+         * @return true if the event is older than the cursor, or if it has already been delivered
+         */
+        public boolean isDelivered(RundeckEvent event) {
+            long eventTime = time(event);
+            return eventTime < time || (eventTime == time && keys.contains(key(event)));
+        }
+    }
+
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2011 Vincent Behar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rundeck.api;
+
+import java.io.Serializable;
+import java.util.Properties;
+import org.rundeck.api.util.AssertUtil;
+
+/**
+ * The trigger of a RunDeck job : the job to run, with its options and node filters. Used to trigger many jobs at once,
+ * see {@link RundeckClient#triggerJobs(java.util.Collection)}.
+ * 
+ * @author Vincent Behar
+ */
+public class JobTrigger implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String jobId;
+
+    private final Properties options;
+
+    private final Properties nodeFilters;
+
+    /**
+     * @param jobId identifier of the job - mandatory
+     * @throws IllegalArgumentException if the jobId is blank (null, empty or whitespace)
+     */
+    public JobTrigger(String jobId) throws IllegalArgumentException {
+        this(jobId, null, null);
+    }
+
+    /**
+     * @param jobId identifier of the job - mandatory
+     * @param options of the job - optional. See {@link OptionsBuilder}.
+     * @throws IllegalArgumentException if the jobId is blank (null, empty or whitespace)
+     */
+    public JobTrigger(String jobId, Properties options) throws IllegalArgumentException {
+        this(jobId, options, null);
+    }
+
+    /**
+     * @param jobId identifier of the job - mandatory
+     * @param options of the job - optional. See {@link OptionsBuilder}.
+     * @param nodeFilters for overriding the nodes on which the job will be executed - optional. See
+     *            {@link NodeFiltersBuilder}
+     * @throws IllegalArgumentException if the jobId is blank (null, empty or whitespace)
+     */
+    public JobTrigger(String jobId, Properties options, Properties nodeFilters) throws IllegalArgumentException {
+        super();
+        AssertUtil.notBlank(jobId, "jobId is mandatory to trigger a job !");
+        this.jobId = jobId;
+        this.options = options;
+        this.nodeFilters = nodeFilters;
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public Properties getOptions() {
+        return options;
+    }
+
+    public Properties getNodeFilters() {
+        return nodeFilters;
+    }
+
+    @Override
+    public String toString() {
+        return "JobTrigger [jobId=" + jobId + ", options=" + options + ", nodeFilters=" + nodeFilters + "]";
+    }
+
+}
@@ -0,0 +1,306 @@
+/*
+ * Copyright 2011 Vincent Behar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rundeck.api;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.XMLEvent;
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Splits a stream of jobs definitions (as exported by RunDeck) into chunks of a fixed number of jobs, each chunk being
+ * a valid definition document on its own. The stream is read on the fly : only the current chunk is held in memory.
+ * The stream is not closed.
+ * 
+ * @author Vincent Behar
+ */
+abstract class JobsSplitter {
+
+    /** Factory for the {@link XMLEventReader}s - synchronize on it when creating a new reader */
+    private static final transient XMLInputFactory XML_INPUT_FACTORY = XMLInputFactory.newInstance();
+
+    /** Factory for the {@link XMLEventWriter}s - synchronize on it when creating a new writer */
+    private static final transient XMLOutputFactory XML_OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+    static {
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+    }
+
+    /** Stream of jobs definitions */
+    protected final InputStream stream;
+
+    /** Maximum number of jobs in a chunk */
+    private final int chunkSize;
+
+    /** Number of chunks read so far */
+    private int chunksCount = 0;
+
+    /** Number of jobs read so far */
+    private int jobsCount = 0;
+
+    /** True once the end of the stream has been reached (or if we failed to read it) */
+    private boolean finished = false;
+
+    /**
+     * @param stream of jobs definitions
+     * @param chunkSize maximum number of jobs in a chunk
+     */
+    protected JobsSplitter(InputStream stream, int chunkSize) {
+        super();
+        this.stream = stream;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * @param stream of jobs definitions - mandatory
+     * @param fileType of the definitions - mandatory
+     * @param chunkSize maximum number of jobs in a chunk - must be > 0
+     * @return a new {@link JobsSplitter} for the given type of definitions
+     */
+    public static JobsSplitter create(InputStream stream, FileType fileType, int chunkSize) {
+        switch (fileType) {
+            case YAML:
+                return new YamlJobsSplitter(stream, chunkSize);
+            case XML:
+            default:
+                return new XmlJobsSplitter(stream, chunkSize);
+        }
+    }
+
+    /**
+     * Read the next chunk of jobs from the stream. Can be called concurrently.
+     * 
+     * @return the next {@link Chunk} - null if there are no more jobs
+     * @throws IOException if we failed to read the stream - the following calls will return null
+     */
+    public synchronized Chunk next() throws IOException {
+        if (finished) {
+            return null;
+        }
+        int jobs;
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try {
+            jobs = readChunk(output, chunkSize);
+        } catch (IOException e) {
+            finished = true;
+            throw e;
+        }
+        if (jobs < chunkSize) {
+            finished = true;
+        }
+        if (jobs == 0) {
+            return null;
+        }
+        Chunk chunk = new Chunk(++chunksCount, jobsCount + 1, jobs, output.toByteArray());
+        jobsCount += jobs;
+        return chunk;
+    }
+
+    /**
+     * Read at most maxJobs jobs from the stream, and write them as a definition document
+     * 
+     * @param output where the definition document should be written
+     * @param maxJobs maximum number of jobs to read
+     * @return the number of jobs read (and written) - less than maxJobs if the end of the stream has been reached
+     * @throws IOException if we failed to read the stream
+     */
+    protected abstract int readChunk(ByteArrayOutputStream output, int maxJobs) throws IOException;
+
+    /**
+     * A chunk of jobs definitions
+     */
+    public static class Chunk implements Comparable<Chunk> {
+
+        private final int index;
+
+        private final int firstJob;
+
+        private final int jobsCount;
+
+        private final byte[] definitions;
+
+        /**
+         * @param index of the chunk, starting at 1
+         * @param firstJob index of the first job of the chunk in the stream, starting at 1
+         * @param jobsCount number of jobs in the chunk
+         * @param definitions of the jobs, as a document of the same type as the stream
+         */
+        public Chunk(int index, int firstJob, int jobsCount, byte[] definitions) {
+            super();
+            this.index = index;
+            this.firstJob = firstJob;
+            this.jobsCount = jobsCount;
+            this.definitions = definitions;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public int getFirstJob() {
+            return firstJob;
+        }
+
+        public int getJobsCount() {
+            return jobsCount;
+        }
+
+        public byte[] getDefinitions() {
+            return definitions;
+        }
+
+        @Override
+        public int compareTo(Chunk other) {
+            return index < other.index ? -1 : (index == other.index ? 0 : 1);
+        }
+
+        @Override
+        public String toString() {
+            return "chunk " + index + " (jobs " + firstJob + " to " + (firstJob + jobsCount - 1) + ")";
+        }
+    }
+
+    /**
+     * Splits an XML "joblist" document : each "job" element (under the root element) is copied to the current chunk.
+     */
+    private static class XmlJobsSplitter extends JobsSplitter {
+
+        private final XMLEventFactory eventFactory = XMLEventFactory.newInstance();
+
+        private XMLEventReader reader;
+
+        /** Root element of the stream, to be repeated in each chunk */
+        private XMLEvent root;
+
+        public XmlJobsSplitter(InputStream stream, int chunkSize) {
+            super(stream, chunkSize);
+        }
+
+        @Override
+        protected int readChunk(ByteArrayOutputStream output, int maxJobs) throws IOException {
+            try {
+                if (reader == null) {
+                    synchronized (XML_INPUT_FACTORY) {
+                        reader = XML_INPUT_FACTORY.createXMLEventReader(stream, "UTF-8");
+                    }
+                    root = reader.nextTag();
+                }
+
+                XMLEventWriter writer = null;
+                int jobs = 0;
+                while (jobs < maxJobs && reader.hasNext()) {
+                    XMLEvent event = reader.nextEvent();
+                    if (!event.isStartElement()) {
+                        // whitespaces and comments between jobs, or the end of the root element
+                        continue;
+                    }
+                    if (writer == null) {
+                        synchronized (XML_OUTPUT_FACTORY) {
+                            writer = XML_OUTPUT_FACTORY.createXMLEventWriter(output, "UTF-8");
+                        }
+                        writer.add(eventFactory.createStartDocument("UTF-8"));
+                        writer.add(root);
+                    }
+                    copyElement(event, writer);
+                    jobs++;
+                }
+                if (writer != null) {
+                    writer.add(eventFactory.createEndElement(root.asStartElement().getName(), null));
+                    writer.add(eventFactory.createEndDocument());
+                    writer.flush();
+                    writer.close();
+                }
+                return jobs;
+            } catch (XMLStreamException e) {
+                throw new IOException("Failed to read the jobs definitions : " + e.getMessage(), e);
+            }
+        }
+
+        /**
+         * Copy the element starting with the given event (and all its content) from the reader to the writer
+         */
+        private void copyElement(XMLEvent start, XMLEventWriter writer) throws XMLStreamException {
+            writer.add(start);
+            for (int depth = 1; depth > 0;) {
+                XMLEvent event = reader.nextEvent();
+                if (event.isStartElement()) {
+                    depth++;
+                } else if (event.isEndElement()) {
+                    depth--;
+                }
+                writer.add(event);
+            }
+        }
+    }
+
+    /**
+     * Splits a YAML document : the jobs are the items of the top-level sequence, each of them starting with a "- " at
+     * the beginning of a line. The lines before the first item (document marker, comments) are ignored.
+     */
+    private static class YamlJobsSplitter extends JobsSplitter {
+
+        private BufferedReader reader;
+
+        /** First line of the next job, already read from the stream */
+        private String nextJob;
+
+        public YamlJobsSplitter(InputStream stream, int chunkSize) {
+            super(stream, chunkSize);
+        }
+
+        @Override
+        protected int readChunk(ByteArrayOutputStream output, int maxJobs) throws IOException {
+            if (reader == null) {
+                reader = new BufferedReader(new InputStreamReader(stream, "UTF-8"));
+                do {
+                    nextJob = reader.readLine();
+                } while (nextJob != null && !isJobStart(nextJob));
+            }
+
+            Writer writer = new OutputStreamWriter(output, "UTF-8");
+            int jobs = 0;
+            while (jobs < maxJobs && nextJob != null) {
+                writer.write(nextJob);
+                writer.write('\n');
+                jobs++;
+                String line;
+                while ((line = reader.readLine()) != null && !isJobStart(line)) {
+                    writer.write(line);
+                    writer.write('\n');
+                }
+                nextJob = line;
+            }
+            writer.flush();
+            return jobs;
+        }
+
+        private static boolean isJobStart(String line) {
+            return line.startsWith("- ") || StringUtils.equals(StringUtils.stripEnd(line, null), "-");
+        }
+    }
+
+}
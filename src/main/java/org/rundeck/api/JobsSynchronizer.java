@@ -0,0 +1,287 @@
+/*
+ * Copyright 2011 Vincent Behar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rundeck.api;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+import org.apache.commons.lang.StringEscapeUtils;
+import org.apache.commons.lang.StringUtils;
+import org.dom4j.Attribute;
+import org.dom4j.Document;
+import org.dom4j.DocumentHelper;
+import org.dom4j.Element;
+import org.dom4j.Node;
+import org.rundeck.api.JobsSplitter.Chunk;
+import org.rundeck.api.domain.RundeckJob;
+import org.rundeck.api.domain.RundeckJobsImportResult;
+import org.rundeck.api.domain.RundeckJobsSyncResult;
+import org.rundeck.api.parser.JobParser;
+import org.rundeck.api.parser.ParserHelper;
+
+/**
+ * Synchronizes the jobs of a project with a set of XML jobs definitions. Each job is identified by its ID (if the
+ * definition has one, and if it exists) or by its group and name, and compared to the current definition (exported
+ * from RunDeck) using a fingerprint of its canonical form : only the new and modified jobs are imported, and the jobs
+ * that are not in the definitions can be deleted.
+ * 
+ * @author Vincent Behar
+ */
+abstract class JobsSynchronizer {
+
+    /**
+     * @return the current definitions of the jobs, in XML - will be closed
+     * @throws RundeckApiException in case of error when calling the API
+     */
+    protected abstract InputStream exportJobs() throws RundeckApiException;
+
+    /**
+     * @param definitions of the new and modified jobs, as an XML "joblist" document
+     * @return the result of the import
+     * @throws RundeckApiException in case of error when calling the API
+     */
+    protected abstract RundeckJobsImportResult importJobs(byte[] definitions) throws RundeckApiException;
+
+    /**
+     * @param jobId of a job that is not in the definitions
+     * @throws RundeckApiException in case of error when calling the API
+     */
+    protected abstract void deleteJob(String jobId) throws RundeckApiException;
+
+    /**
+     * Synchronize the jobs with the given definitions
+     * 
+     * @param definitions XML definitions of the jobs - will not be closed
+     * @param deleteRemovedJobs if true, the jobs that are not in the definitions will be deleted
+     * @return the result of the synchronization - won't be null
+     * @throws RundeckApiException in case of error when calling the API, or if we failed to read the definitions
+     */
+    public RundeckJobsSyncResult sync(InputStream definitions, boolean deleteRemovedJobs) throws RundeckApiException {
+        Map<String, ExistingJob> existingById = new HashMap<String, ExistingJob>();
+        Map<String, ExistingJob> existingByName = new HashMap<String, ExistingJob>();
+        List<ExistingJob> existingJobs = new ArrayList<ExistingJob>();
+        InputStream export = exportJobs();
+        try {
+            for (Element element : new JobElements(export)) {
+                ExistingJob existing = new ExistingJob(new JobParser().parseXmlNode(element), fingerprint(element));
+                existingJobs.add(existing);
+                existingById.put(existing.job.getId(), existing);
+                existingByName.put(existing.job.getFullName(), existing);
+            }
+        } finally {
+            try {
+                export.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+
+        RundeckJobsSyncResult result = new RundeckJobsSyncResult();
+        Element changes = DocumentHelper.createDocument().addElement("joblist");
+        for (Element element : new JobElements(definitions)) {
+            RundeckJob job = new JobParser().parseXmlNode(element);
+            ExistingJob existing = StringUtils.isNotBlank(job.getId()) ? existingById.get(job.getId()) : null;
+            if (existing == null) {
+                // no ID, or an ID from another instance : RunDeck will update the job with the same group and name
+                existing = existingByName.get(job.getFullName());
+            }
+            if (existing != null && existing.matched) {
+                // already matched by another definition
+                existing = null;
+            }
+            if (existing == null) {
+                result.addCreatedJob(job);
+                changes.add(element.createCopy());
+            } else if (!existing.fingerprint.equals(fingerprint(element))) {
+                existing.matched = true;
+                result.addUpdatedJob(job);
+                changes.add(element.createCopy());
+            } else {
+                existing.matched = true;
+                result.addUnchangedJob(job);
+            }
+        }
+
+        if (!changes.elements().isEmpty()) {
+            result.setImportResult(importJobs(toBytes(changes.getDocument())));
+        }
+
+        for (ExistingJob existing : existingJobs) {
+            if (existing.matched) {
+                continue;
+            }
+            result.addRemovedJob(existing.job);
+            if (deleteRemovedJobs) {
+                try {
+                    deleteJob(existing.job.getId());
+                } catch (RundeckApiException e) {
+                    result.addFailedDeletion(existing.job, e.getMessage());
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Compute the fingerprint of a job definition, from its canonical form : the attributes are sorted, the texts are
+     * trimmed, the comments are ignored, and so are the "id" and "uuid" elements of the job (assigned by RunDeck).
+     * 
+     * @param job element of a definition
+     * @return an hexadecimal SHA-1 fingerprint
+     */
+    static String fingerprint(Element job) {
+        StringBuilder canonical = new StringBuilder();
+        canonicalize(job, true, canonical);
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(canonical.toString().getBytes("UTF-8"));
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void canonicalize(Element element, boolean isJob, StringBuilder canonical) {
+        canonical.append('<').append(element.getQualifiedName());
+        Map<String, String> attributes = new TreeMap<String, String>();
+        for (Object attribute : element.attributes()) {
+            attributes.put(((Attribute) attribute).getQualifiedName(), ((Attribute) attribute).getValue());
+        }
+        for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+            canonical.append(' ').append(attribute.getKey()).append("=\"");
+            canonical.append(StringEscapeUtils.escapeXml(attribute.getValue())).append('"');
+        }
+        canonical.append('>');
+
+        StringBuilder text = new StringBuilder();
+        for (Object content : element.content()) {
+            Node node = (Node) content;
+            if (node.getNodeType() == Node.TEXT_NODE || node.getNodeType() == Node.CDATA_SECTION_NODE) {
+                text.append(node.getText());
+            } else if (node.getNodeType() == Node.ELEMENT_NODE) {
+                appendText(text, canonical);
+                if (!isJob || !("id".equals(node.getName()) || "uuid".equals(node.getName()))) {
+                    canonicalize((Element) node, false, canonical);
+                }
+            }
+        }
+        appendText(text, canonical);
+        canonical.append("</").append(element.getQualifiedName()).append('>');
+    }
+
+    private static void appendText(StringBuilder text, StringBuilder canonical) {
+        canonical.append(StringEscapeUtils.escapeXml(StringUtils.trim(text.toString())));
+        text.setLength(0);
+    }
+
+    private static byte[] toBytes(Document document) {
+        try {
+            return document.asXML().getBytes("UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * A job of the project, as exported from RunDeck
+     */
+    private static class ExistingJob {
+
+        private final RundeckJob job;
+
+        private final String fingerprint;
+
+        /** True if the job is in the definitions */
+        private boolean matched = false;
+
+        public ExistingJob(RundeckJob job, String fingerprint) {
+            super();
+            this.job = job;
+            this.fingerprint = fingerprint;
+        }
+    }
+
+    /**
+     * The "job" elements of an XML definitions stream, read one at a time (see {@link JobsSplitter})
+     */
+    private static class JobElements implements Iterable<Element> {
+
+        private final JobsSplitter splitter;
+
+        public JobElements(InputStream stream) {
+            super();
+            this.splitter = JobsSplitter.create(stream, FileType.XML, 1);
+        }
+
+        @Override
+        public Iterator<Element> iterator() {
+            return new Iterator<Element>() {
+
+                private Element next = read();
+
+                @Override
+                public boolean hasNext() {
+                    return next != null;
+                }
+
+                @Override
+                public Element next() {
+                    if (next == null) {
+                        throw new NoSuchElementException();
+                    }
+                    Element current = next;
+                    next = read();
+                    return current;
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        private Element read() throws RundeckApiException {
+            Chunk chunk;
+            try {
+                chunk = splitter.next();
+            } catch (IOException e) {
+                throw new RundeckApiException("Failed to read the jobs definitions", e);
+            }
+            if (chunk == null) {
+                return null;
+            }
+            Document document = ParserHelper.loadDocument(new ByteArrayInputStream(chunk.getDefinitions()));
+            return (Element) document.getRootElement().elements().get(0);
+        }
+    }
+
+}
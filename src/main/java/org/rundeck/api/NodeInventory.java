@@ -0,0 +1,391 @@
+/*
+ * Copyright 2011 Vincent Behar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rundeck.api;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import org.apache.commons.lang.StringUtils;
+import org.rundeck.api.RundeckApiException.RundeckApiLoginException;
+import org.rundeck.api.RundeckApiException.RundeckApiTokenException;
+import org.rundeck.api.domain.RundeckNode;
+import org.rundeck.api.util.AssertUtil;
+
+/**
+ * In-memory inventory of the nodes of a project, that evaluates the node filters (see {@link NodeFiltersBuilder})
+ * locally, instead of calling the RunDeck API for each lookup. The nodes are indexed by name, hostname, type, tags and
+ * OS (name, family, arch and version) : a filter value is looked up in the index, and a regular expression is only
+ * matched against the distinct values of the attribute, not against each node.
+ * <p>
+ * The filters follow the semantics of the RunDeck server :
+ * <ul>
+ * <li>a filter is a comma-separated list of values, each one matched by equality or as a regular expression
+ * (optionally surrounded by "/"). For the tags, "a+b" matches the nodes having both tags.</li>
+ * <li>a node is included if it matches all the include filters (or if there is no include filter), and excluded if it
+ * matches any of the exclude filters.</li>
+ * <li>a node is selected if it is included and not excluded. If "exclude-precedence" is false and there are both
+ * include and exclude filters, the includes dominate : a node is selected if it is included or not excluded (so is a
+ * node matching neither the include nor the exclude filters).</li>
+ * </ul>
+ * The nodes are loaded with {@link #refresh()} (on the first lookup, or on a schedule, see
+ * {@link #start(long, TimeUnit)}), or given with {@link #update(Collection)}. A lookup always works on a consistent
+ * snapshot of the nodes, even while they are refreshed.
+ * 
+ * @author Vincent Behar
+ */
+public class NodeInventory {
+
+    /** Names of the include filters (the exclude filters are prefixed with "exclude-") */
+    private static final transient List<String> FILTERS = Arrays.asList("name",
+                                                                        "hostname",
+                                                                        "type",
+                                                                        "tags",
+                                                                        "os-name",
+                                                                        "os-family",
+                                                                        "os-arch",
+                                                                        "os-version");
+
+    private static final transient String EXCLUDE_PREFIX = "exclude-";
+
+    private static final transient String EXCLUDE_PRECEDENCE = "exclude-precedence";
+
+    /** Characters that make a filter value a regular expression instead of a plain value */
+    private static final transient String REGEX_CHARS = "\\^$.|?*+()[]{}";
+
+    private final RundeckClient client;
+
+    private final String project;
+
+    /** Current snapshot of the nodes - null until the first refresh/update */
+    private volatile Snapshot snapshot;
+
+    /** Failure of the last scheduled refresh - null if it succeeded */
+    private volatile RundeckApiException lastFailure;
+
+    /** Refreshes in the background, see {@link #start(long, TimeUnit)} - guarded by this */
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Build a new (empty) inventory of the nodes of the given project. The nodes will be loaded on the first lookup.
+     * 
+     * @param client used to load the nodes - mandatory
+     * @param project name of the project - mandatory
+     * @throws IllegalArgumentException if the client is null or the project is blank (null, empty or whitespace)
+     */
+    public NodeInventory(RundeckClient client, String project) throws IllegalArgumentException {
+        super();
+        AssertUtil.notNull(client, "client is mandatory to build a node inventory !");
+        AssertUtil.notBlank(project, "project is mandatory to build a node inventory !");
+        this.client = client;
+        this.project = project;
+    }
+
+    /**
+     * Load all the nodes of the project from the RunDeck API, and replace the current nodes with them.
+     * 
+     * @throws RundeckApiException in case of error when calling the API (non-existent project with this name)
+     * @throws RundeckApiLoginException if the login fails (in case of login-based authentication)
+     * @throws RundeckApiTokenException if the token is invalid (in case of token-based authentication)
+     * @see RundeckClient#getNodes(String)
+     */
+    public void refresh() throws RundeckApiException, RundeckApiLoginException, RundeckApiTokenException {
+        update(client.getNodes(project));
+    }
+
+    /**
+     * Replace the current nodes with the given ones - for example if they have already been loaded from the API.
+     * 
+     * @param nodes all the nodes of the project - mandatory
+     * @throws IllegalArgumentException if the nodes are null
+     */
+    public void update(Collection<RundeckNode> nodes) throws IllegalArgumentException {
+        AssertUtil.notNull(nodes, "nodes are mandatory to update a node inventory !");
+        snapshot = new Snapshot(nodes);
+    }
+
+    /**
+     * @return all the nodes of the project : might be empty, but won't be null. They are loaded if needed.
+     * @throws RundeckApiException in case of error when loading the nodes
+     * @throws RundeckApiLoginException if the login fails (in case of login-based authentication)
+     * @throws RundeckApiTokenException if the token is invalid (in case of token-based authentication)
+     */
+    public List<RundeckNode> getNodes() throws RundeckApiException, RundeckApiLoginException,
+            RundeckApiTokenException {
+        return getSnapshot().nodes;
+    }
+
+    /**
+     * Select the nodes matching the given filters, in the same order as {@link #getNodes()}, without calling the API.
+     * The filters follow the semantics of the RunDeck server (see the class documentation), but are evaluated locally :
+     * the result might differ from {@link RundeckClient#getNodes(String, Properties)} for the corner cases of a given
+     * version of the server.
+     * 
+     * @param nodeFilters for filtering the nodes - optional. See {@link NodeFiltersBuilder}
+     * @return a {@link List} of {@link RundeckNode} : might be empty, but won't be null
+     * @throws RundeckApiException in case of error when loading the nodes
+     * @throws RundeckApiLoginException if the login fails (in case of login-based authentication)
+     * @throws RundeckApiTokenException if the token is invalid (in case of token-based authentication)
+     * @throws IllegalArgumentException if a filter is not supported
+     */
+    public List<RundeckNode> getNodes(Properties nodeFilters) throws RundeckApiException, RundeckApiLoginException,
+            RundeckApiTokenException, IllegalArgumentException {
+        Snapshot current = getSnapshot();
+        if (nodeFilters == null || nodeFilters.isEmpty()) {
+            return current.nodes;
+        }
+        BitSet included = null;
+        BitSet excluded = null;
+        boolean excludePrecedence = true;
+        for (Entry<Object, Object> filter : nodeFilters.entrySet()) {
+            String name = String.valueOf(filter.getKey());
+            String value = StringUtils.trimToNull(String.valueOf(filter.getValue()));
+            if (EXCLUDE_PRECEDENCE.equals(name)) {
+                excludePrecedence = !"false".equalsIgnoreCase(value);
+            } else if (FILTERS.contains(name)) {
+                BitSet matches = current.match(name, value);
+                if (included == null) {
+                    included = matches;
+                } else {
+                    included.and(matches);
+                }
+            } else if (name.startsWith(EXCLUDE_PREFIX) && FILTERS.contains(name.substring(EXCLUDE_PREFIX.length()))) {
+                if (excluded == null) {
+                    excluded = new BitSet();
+                }
+                excluded.or(current.match(name.substring(EXCLUDE_PREFIX.length()), value));
+            } else {
+                throw new IllegalArgumentException("Unsupported node filter : " + name);
+            }
+        }
+        BitSet selected = new BitSet();
+        selected.set(0, current.nodes.size());
+        if (excluded != null) {
+            selected.andNot(excluded);
+        }
+        if (included != null && excluded != null && !excludePrecedence) {
+            // the includes dominate : the nodes not excluded are selected too
+            selected.or(included);
+        } else if (included != null) {
+            selected.and(included);
+        }
+        List<RundeckNode> nodes = new ArrayList<RundeckNode>(selected.cardinality());
+        for (int i = selected.nextSetBit(0); i >= 0; i = selected.nextSetBit(i + 1)) {
+            nodes.add(current.nodes.get(i));
+        }
+        return nodes;
+    }
+
+    /**
+     * @return the date of the last refresh/update of the nodes - or null if they have not been loaded yet
+     */
+    public Date getLastUpdate() {
+        Snapshot current = snapshot;
+        return current != null ? new Date(current.date) : null;
+    }
+
+    /**
+     * @return the failure of the last refresh in the background - or null if it succeeded (or if there was none). The
+     *         previous nodes are kept when a refresh fails.
+     */
+    public RundeckApiException getLastFailure() {
+        return lastFailure;
+    }
+
+    /**
+     * Refresh the nodes in a background thread, with the given delay between the refreshes. Use {@link #stop()} to
+     * stop refreshing.
+     * 
+     * @param delay between the end of a refresh and the start of the next one
+     * @param unit of the delay - mandatory
+     * @throws IllegalStateException if the inventory is already refreshed in the background
+     * @throws IllegalArgumentException if the unit is null
+     * @see #getLastFailure()
+     */
+    public synchronized void start(long delay, TimeUnit unit) throws IllegalStateException,
+            IllegalArgumentException {
+        AssertUtil.notNull(unit, "unit is mandatory to refresh the nodes !");
+        if (scheduler != null) {
+            throw new IllegalStateException("The nodes are already refreshed in the background !");
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("rundeck-nodes-"));
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    refresh();
+                    lastFailure = null;
+                } catch (RundeckApiException e) {
+                    lastFailure = e;
+                } catch (RuntimeException e) {
+                    lastFailure = new RundeckApiException("Failed to refresh the nodes of " + project, e);
+                }
+            }
+        }, 0, delay, unit);
+    }
+
+    /**
+     * Stop refreshing in the background. Calling it more than once has no effect.
+     */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            scheduler = null;
+        }
+    }
+
+    private Snapshot getSnapshot() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    refresh();
+                }
+                current = snapshot;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * @param token a filter value
+     * @return a pattern if the value is a regular expression - or null if it should only be matched by equality
+     */
+    private static Pattern toPattern(String token) {
+        String regex = token;
+        if (token.length() >= 2 && token.startsWith("/") && token.endsWith("/")) {
+            regex = token.substring(1, token.length() - 1).trim();
+        } else if (StringUtils.containsNone(token, REGEX_CHARS)) {
+            return null;
+        }
+        try {
+            return Pattern.compile(regex);
+        } catch (PatternSyntaxException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Immutable nodes of a project, with an index (value to nodes positions) for each filter
+     */
+    private static final class Snapshot {
+
+        private final List<RundeckNode> nodes;
+
+        private final long date = System.currentTimeMillis();
+
+        private final Map<String, Map<String, BitSet>> indexes = new HashMap<String, Map<String, BitSet>>();
+
+        private Snapshot(Collection<RundeckNode> nodes) {
+            this.nodes = Collections.unmodifiableList(new ArrayList<RundeckNode>(nodes));
+            for (String filter : FILTERS) {
+                indexes.put(filter, new HashMap<String, BitSet>());
+            }
+            for (int i = 0; i < this.nodes.size(); i++) {
+                RundeckNode node = this.nodes.get(i);
+                index("name", node.getName(), i);
+                index("hostname", node.getHostname(), i);
+                index("type", node.getType(), i);
+                index("os-name", node.getOsName(), i);
+                index("os-family", node.getOsFamily(), i);
+                index("os-arch", node.getOsArch(), i);
+                index("os-version", node.getOsVersion(), i);
+                if (node.getTags() != null) {
+                    for (String tag : node.getTags()) {
+                        index("tags", StringUtils.trimToNull(tag), i);
+                    }
+                }
+            }
+        }
+
+        private void index(String filter, String value, int position) {
+            if (value != null) {
+                Map<String, BitSet> index = indexes.get(filter);
+                BitSet positions = index.get(value);
+                if (positions == null) {
+                    positions = new BitSet();
+                    index.put(value, positions);
+                }
+                positions.set(position);
+            }
+        }
+
+        /**
+         * @param filter name of the filter (without the exclude prefix)
+         * @param value of the filter - a comma-separated list, "+" separated for the tags
+         * @return a new {@link BitSet} with the positions of the matching nodes
+         */
+        private BitSet match(String filter, String value) {
+            BitSet matches = new BitSet();
+            if (value == null) {
+                return matches;
+            }
+            for (String token : StringUtils.split(value, ',')) {
+                if ("tags".equals(filter)) {
+                    BitSet all = null;
+                    for (String tag : StringUtils.split(token, '+')) {
+                        if (StringUtils.isNotBlank(tag)) {
+                            BitSet tagged = matchToken(filter, tag.trim());
+                            if (all == null) {
+                                all = tagged;
+                            } else {
+                                all.and(tagged);
+                            }
+                        }
+                    }
+                    if (all != null) {
+                        matches.or(all);
+                    }
+                } else if (StringUtils.isNotBlank(token)) {
+                    matches.or(matchToken(filter, token.trim()));
+                }
+            }
+            return matches;
+        }
+
+        private BitSet matchToken(String filter, String token) {
+            Map<String, BitSet> index = indexes.get(filter);
+            BitSet matches = new BitSet();
+            BitSet exact = index.get(token);
+            if (exact != null) {
+                matches.or(exact);
+            }
+            Pattern pattern = toPattern(token);
+            if (pattern != null) {
+                for (Entry<String, BitSet> entry : index.entrySet()) {
+                    if (pattern.matcher(entry.getKey()).matches()) {
+                        matches.or(entry.getValue());
+                    }
+                }
+            }
+            return matches;
+        }
+    }
+
+}
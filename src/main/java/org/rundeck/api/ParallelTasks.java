@@ -0,0 +1,132 @@
+/*
+ * Copyright 2011 Vincent Behar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rundeck.api;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs a task for each item of a source, concurrently (with a bounded parallelism) : (parallelism - 1) workers on an
+ * executor, and 1 in the current thread. The current thread takes items until the source is exhausted, and then only
+ * waits for the items being processed by the other workers - so it never waits for a worker that has not started yet
+ * (for example on a bounded executor which is busy running the current thread).
+ * 
+ * @author Vincent Behar
+ */
+abstract class ParallelTasks<T> {
+
+    /** Guards the source and the counters */
+    private final Object lock = new Object();
+
+    /** Number of items being processed */
+    private int pending = 0;
+
+    /** True once the source is exhausted (or if we stopped because the current thread was interrupted) */
+    private boolean exhausted = false;
+
+    /**
+     * Take the next item of the source. Called by a single thread at a time.
+     * 
+     * @return the next item - or null if the source is exhausted
+     */
+    protected abstract T next();
+
+    /**
+     * Process a single item. Exceptions should be caught and recorded by the implementation.
+     * 
+     * @param item to process
+     */
+    protected abstract void process(T item);
+
+    /**
+     * Process all the items of the source, and wait until they are all processed. If the current thread is
+     * interrupted while waiting, no more items are taken from the source, and an exception is thrown (the items being
+     * processed by the other workers are not waited for).
+     * 
+     * @param executor used to run the other workers
+     * @param parallelism maximum number of items processed at the same time
+     * @param description of the processing, for the error message - "getting the jobs of all projects", ...
+     * @throws RundeckApiException if we are interrupted while waiting for the other workers
+     */
+    public void runAll(Executor executor, int parallelism, String description) throws RundeckApiException {
+        Runnable worker = new Runnable() {
+
+            @Override
+            public void run() {
+                T item;
+                while ((item = take()) != null) {
+                    try {
+                        process(item);
+                    } finally {
+                        release();
+                    }
+                }
+            }
+        };
+        for (int i = 1; i < parallelism; i++) {
+            try {
+                executor.execute(worker);
+            } catch (RejectedExecutionException e) {
+                // the current thread will process the remaining items
+                break;
+            }
+        }
+        worker.run();
+
+        synchronized (lock) {
+            try {
+                while (pending > 0) {
+                    lock.wait();
+                }
+            } catch (InterruptedException e) {
+                exhausted = true;
+                Thread.currentThread().interrupt();
+                throw new RundeckApiException("Interrupted while " + description, e);
+            }
+        }
+    }
+
+    /**
+     * @return the next item to process - or null if there is none
+     */
+    private T take() {
+        synchronized (lock) {
+            if (exhausted) {
+                return null;
+            }
+            T item = next();
+            if (item == null) {
+                exhausted = true;
+            } else {
+                pending++;
+            }
+            return item;
+        }
+    }
+
+    /**
+     * Mark an item as processed
+     */
+    private void release() {
+        synchronized (lock) {
+            pending--;
+            if (pending == 0) {
+                lock.notifyAll();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2011 Vincent Behar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rundeck.api;
+
+/**
+ * Strategy for polling the RunDeck server while waiting for the end of an execution : how long should we wait before
+ * the next check ? See {@link FixedPollingStrategy} and {@link AdaptivePollingStrategy}.
+ * 
+ * @author Vincent Behar
+ * @see ExecutionWatcher
+ */
+public interface PollingStrategy {
+
+    /**
+     * @param elapsedInMillis time (in milli-seconds) elapsed since we started waiting for the execution
+     * @return the delay (in milli-seconds) before the next check of the execution - should be > 0
+     */
+    long getNextDelay(long elapsedInMillis);
+
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2011 Vincent Behar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rundeck.api;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.rundeck.api.RundeckApiException.RundeckApiPartialFailureException;
+import org.rundeck.api.domain.RundeckProject;
+
+/**
+ * Aggregates the results of an API call made for each project. The calls are made concurrently (with a bounded
+ * parallelism), and the results are merged in the order of the projects. A failed call does not abort the others :
+ * all the failures are reported at the end, with a {@link RundeckApiPartialFailureException}.
+ * 
+ * @author Vincent Behar
+ */
+abstract class ProjectsAggregator<T> {
+
+    /** Description of the results, for the error messages - "jobs", "nodes", ... */
+    private final String description;
+
+    /**
+     * @param description of the results, for the error messages - "jobs", "nodes", ...
+     */
+    public ProjectsAggregator(String description) {
+        super();
+        this.description = description;
+    }
+
+    /**
+     * Make the API call for a single project
+     * 
+     * @param project name of the project
+     * @return the results for this project
+     * @throws RundeckApiException in case of error when calling the API
+     */
+    protected abstract List<T> get(String project) throws RundeckApiException;
+
+    /**
+     * Make the API call for each of the given projects, and merge the results. At most "parallelism" calls will be
+     * running at the same time : (parallelism - 1) calls on the given executor, and 1 in the current thread.
+     * 
+     * @param projects for which we should make the API call
+     * @param executor used to run the concurrent calls
+     * @param parallelism maximum number of concurrent calls
+     * @return the merged results, in the order of the projects
+     * @throws RundeckApiPartialFailureException if the call failed for at least one project
+     * @throws RundeckApiException if we are interrupted while waiting for the calls
+     */
+    public List<T> aggregate(List<RundeckProject> projects, Executor executor, int parallelism)
+            throws RundeckApiPartialFailureException, RundeckApiException {
+        final List<String> names = new ArrayList<String>(projects.size());
+        for (RundeckProject project : projects) {
+            names.add(project.getName());
+        }
+        final AtomicReferenceArray<List<T>> results = new AtomicReferenceArray<List<T>>(names.size());
+        final AtomicReferenceArray<RundeckApiException> failures;
+        failures = new AtomicReferenceArray<RundeckApiException>(names.size());
+
+        new ParallelTasks<Integer>() {
+
+            private int nextProject = 0;
+
+            @Override
+            protected Integer next() {
+                return nextProject < names.size() ? nextProject++ : null;
+            }
+
+            @Override
+            protected void process(Integer index) {
+                String project = names.get(index);
+                try {
+                    results.set(index, get(project));
+                } catch (RundeckApiException e) {
+                    failures.set(index, e);
+                } catch (RuntimeException e) {
+                    failures.set(index, new RundeckApiException("Failed to get the " + description + " of project "
+                                                                + project, e));
+                }
+            }
+        }.runAll(executor, Math.min(parallelism, names.size()), "getting the " + description + " of all projects");
+
+        List<T> merged = new ArrayList<T>();
+        Map<String, RundeckApiException> errors = new LinkedHashMap<String, RundeckApiException>();
+        for (int i = 0; i < names.size(); i++) {
+            if (failures.get(i) != null) {
+                errors.put(names.get(i), failures.get(i));
+            } else {
+                merged.addAll(results.get(i));
+            }
+        }
+        if (!errors.isEmpty()) {
+            throw new RundeckApiPartialFailureException("Failed to get the " + description + " of " + errors.size()
+                                                        + " project(s) : " + errors.keySet(), merged, errors);
+        }
+        return merged;
+    }
+
+}
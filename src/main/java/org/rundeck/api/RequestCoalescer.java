@@ -0,0 +1,99 @@
+/*
+ * Copyright 2011 Vincent Behar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rundeck.api;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesce the identical concurrent requests ("single-flight") : while a request is in flight, the callers asking for
+ * the same key wait for its response instead of making their own request. See
+ * {@link RundeckClient#setRequestCoalescing(boolean)}.
+ * 
+ * @author Vincent Behar
+ */
+class RequestCoalescer {
+
+    /** Requests in flight, by key */
+    private final ConcurrentMap<String, FutureTask<byte[]>> inFlight;
+
+    /** Number of calls */
+    private final AtomicLong calls = new AtomicLong();
+
+    /** Number of calls that were served by the request of another caller */
+    private final AtomicLong coalesced = new AtomicLong();
+
+    public RequestCoalescer() {
+        super();
+        this.inFlight = new ConcurrentHashMap<String, FutureTask<byte[]>>();
+    }
+
+    /**
+     * Execute the given request, unless an identical request is already in flight : in this case, wait for its
+     * response.
+     * 
+     * @param key of the request (its URL)
+     * @param request to execute - in the current thread
+     * @return the response of the request - might be shared with other callers, so it should not be modified
+     * @throws RundeckApiException if the request failed (or if we are interrupted while waiting for the response)
+     */
+    public byte[] execute(String key, Callable<byte[]> request) throws RundeckApiException {
+        calls.incrementAndGet();
+        FutureTask<byte[]> task = new FutureTask<byte[]>(request);
+        FutureTask<byte[]> existing = inFlight.putIfAbsent(key, task);
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            task = existing;
+        } else {
+            try {
+                task.run();
+            } finally {
+                inFlight.remove(key, task);
+            }
+        }
+
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RundeckApiException("Interrupted while waiting for the response of " + key, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RundeckApiException("Failed to execute the request " + key, e.getCause());
+        }
+    }
+
+    /**
+     * @return the number of calls
+     */
+    public long getCallsCount() {
+        return calls.get();
+    }
+
+    /**
+     * @return the number of calls that were served by the request of another caller
+     */
+    public long getCoalescedCallsCount() {
+        return coalesced.get();
+    }
+
+}
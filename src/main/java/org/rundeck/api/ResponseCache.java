@@ -0,0 +1,86 @@
+/*
+ * Copyright 2011 Vincent Behar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rundeck.api;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache for the responses of the read-mostly API calls (projects, jobs, nodes, system info), so that repeated reads
+ * are served locally, without an HTTP round trip. The raw responses are cached (not the parsed objects, which are
+ * mutable), keyed on the URL of the API call. See {@link RundeckClient#setResponseCache(ResponseCache)} and
+ * {@link DefaultResponseCache}. <br>
+ * Implementations must be thread-safe. Note that a cache should not be shared between clients using different
+ * credentials for the same RunDeck instance.
+ * 
+ * @author Vincent Behar
+ */
+public interface ResponseCache {
+
+    /**
+     * Kind of resources that may be cached, each one with its own time-to-live (see
+     * {@link RundeckClient#setCacheTtl(Resource, long, TimeUnit)})
+     */
+    public static enum Resource {
+        /** Projects (getProjects, getProject) - cached 5 minutes by default */
+        PROJECTS(TimeUnit.MINUTES.toMillis(5)),
+        /** Jobs (getJobs, getJob) - cached 1 minute by default */
+        JOBS(TimeUnit.MINUTES.toMillis(1)),
+        /** Nodes (getNodes, getNode) - cached 1 minute by default */
+        NODES(TimeUnit.MINUTES.toMillis(1)),
+        /** System information (getSystemInfo) - cached 10 seconds by default */
+        SYSTEM_INFO(TimeUnit.SECONDS.toMillis(10));
+
+        private final long defaultTtl;
+
+        private Resource(long defaultTtl) {
+            this.defaultTtl = defaultTtl;
+        }
+
+        /**
+         * @return the default time-to-live (in milli-seconds) of this kind of resources
+         */
+        public long getDefaultTtl() {
+            return defaultTtl;
+        }
+    }
+
+    /**
+     * @param key of the response (URL of the API call)
+     * @return the cached response, or null if there is no (valid) response for this key
+     */
+    byte[] get(String key);
+
+    /**
+     * @param key of the response (URL of the API call)
+     * @param resource kind of resource of the response
+     * @param response to cache - should not be modified
+     * @param ttlInMillis time-to-live (in milli-seconds) of the response
+     */
+    void put(String key, Resource resource, byte[] response, long ttlInMillis);
+
+    /**
+     * Remove all the responses of the given kind of resource
+     * 
+     * @param resource kind of resource
+     */
+    void invalidate(Resource resource);
+
+    /**
+     * Remove all the responses
+     */
+    void clear();
+
+}
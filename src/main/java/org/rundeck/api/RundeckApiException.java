@@ -15,6 +15,10 @@
  */
 package org.rundeck.api;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
 /**
  * A generic (unchecked) exception when using the RunDeck API
  * 
@@ -83,4 +87,56 @@ public class RundeckApiException extends RuntimeException {
         }
     }
 
+    /**
+     * Error when an operation made of several API calls (for example on all projects) partially failed : holds the
+     * results of the successful calls, and the error of each failed call.
+     */
+    public static class RundeckApiPartialFailureException extends RundeckApiException {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Object results;
+
+        private final Map<String, RundeckApiException> failures;
+
+        /**
+         * @param message of the error
+         * @param results of the successful calls, in the type returned by the operation : a {@link List}, a
+         *            {@link Map}, a merged result...
+         * @param failures error of each failed call, indexed by a key identifying the call (for example the name of the
+         *            project)
+         */
+        public RundeckApiPartialFailureException(String message, Object results,
+                Map<String, RundeckApiException> failures) {
+            super(message, failures.isEmpty() ? null : failures.values().iterator().next());
+            this.results = results;
+            this.failures = failures;
+        }
+
+        /**
+         * @return the results of the successful calls, for the operations returning a {@link List} - empty otherwise
+         * @see #getResult()
+         */
+        public List<?> getResults() {
+            return results instanceof List ? (List<?>) results : Collections.emptyList();
+        }
+
+        /**
+         * @return the results of the successful calls, in the type returned by the operation (for example a {@link Map}
+         *         for {@link RundeckClient#abortExecutions(ExecutionSelector)}, or a merged
+         *         {@link org.rundeck.api.domain.RundeckJobsImportResult} for the bulk imports of jobs) - won't be null
+         */
+        public Object getResult() {
+            return results;
+        }
+
+        /**
+         * @return the error of each failed call, indexed by a key identifying the call (for example the name of the
+         *         project) - won't be null
+         */
+        public Map<String, RundeckApiException> getFailures() {
+            return failures;
+        }
+    }
+
 }
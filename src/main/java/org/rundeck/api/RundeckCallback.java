@@ -0,0 +1,40 @@
+/*
+ * Copyright 2011 Vincent Behar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rundeck.api;
+
+/**
+ * Callback notified of the result of an asynchronous operation (see {@link ExecutionWatcher}). The methods are called
+ * from a background thread of the {@link RundeckClient}, so they should return quickly.
+ * 
+ * @author Vincent Behar
+ */
+public interface RundeckCallback<T> {
+
+    /**
+     * Called when the operation succeeded
+     * 
+     * @param result of the operation
+     */
+    void onSuccess(T result);
+
+    /**
+     * Called when the operation failed
+     * 
+     * @param error the cause of the failure
+     */
+    void onFailure(RundeckApiException error);
+
+}
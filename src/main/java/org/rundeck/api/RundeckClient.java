@@ -15,27 +15,49 @@
  */
 package org.rundeck.api;
 
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
 import java.io.File;
-import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
-import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.IOUtils;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import org.apache.commons.lang.StringUtils;
+import org.apache.http.client.HttpClient;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.impl.conn.tsccm.ThreadSafeClientConnManager;
+import org.apache.http.params.HttpConnectionParams;
+import org.rundeck.api.ResponseCache.Resource;
 import org.rundeck.api.RundeckApiException.RundeckApiLoginException;
+import org.rundeck.api.RundeckApiException.RundeckApiPartialFailureException;
 import org.rundeck.api.RundeckApiException.RundeckApiTokenException;
+import org.rundeck.api.domain.EventTable;
 import org.rundeck.api.domain.RundeckAbort;
+import org.rundeck.api.domain.RundeckAbort.AbortStatus;
+import org.rundeck.api.domain.RundeckEvent;
 import org.rundeck.api.domain.RundeckExecution;
 import org.rundeck.api.domain.RundeckHistory;
 import org.rundeck.api.domain.RundeckJob;
 import org.rundeck.api.domain.RundeckJobsImportMethod;
 import org.rundeck.api.domain.RundeckJobsImportResult;
+import org.rundeck.api.domain.RundeckJobsSyncResult;
 import org.rundeck.api.domain.RundeckNode;
 import org.rundeck.api.domain.RundeckProject;
 import org.rundeck.api.domain.RundeckSystemInfo;
@@ -51,6 +73,7 @@ import org.rundeck.api.parser.ProjectParser;
 import org.rundeck.api.parser.StringParser;
 import org.rundeck.api.parser.SystemInfoParser;
 import org.rundeck.api.util.AssertUtil;
+import org.rundeck.api.util.CloseableIterator;
 import org.rundeck.api.util.ParametersUtil;
 
 /**
@@ -77,12 +100,18 @@ import org.rundeck.api.util.ParametersUtil;
  * 
  * rundeck.exportJobsToFile("/tmp/jobs.xml", FileType.XML, "my-project");
  * rundeck.importJobs("/tmp/jobs.xml", FileType.XML);
+ * 
+ * // release the HTTP connections when you are done
+ * rundeck.close();
  * </pre>
- * </code>
+ * </code> <br>
+ * A {@link RundeckClient} instance is thread-safe, and all its API calls share a pool of HTTP connections : you should
+ * re-use the same instance instead of creating a new one for each call, and {@link #close()} it when it is no longer
+ * needed.
  * 
  * @author Vincent Behar
  */
-public class RundeckClient implements Serializable {
+public class RundeckClient implements Serializable, Closeable {
 
     private static final long serialVersionUID = 1L;
 
@@ -93,10 +122,25 @@ public class RundeckClient implements Serializable {
     public static final transient String API_ENDPOINT = "/api/" + API_VERSION;
 
     /** Default value for the "pooling interval" used when running jobs/commands/scripts */
-    private static final transient long DEFAULT_POOLING_INTERVAL = 5;
+    static final transient long DEFAULT_POOLING_INTERVAL = 5;
 
     /** Default unit of the "pooling interval" used when running jobs/commands/scripts */
-    private static final transient TimeUnit DEFAULT_POOLING_UNIT = TimeUnit.SECONDS;
+    static final transient TimeUnit DEFAULT_POOLING_UNIT = TimeUnit.SECONDS;
+
+    /** Default maximum number of HTTP connections in the pool (in total, and per route) */
+    private static final transient int DEFAULT_MAX_CONNECTIONS = 20;
+
+    /** Default time (in milli-seconds) after which an idle HTTP connection will be evicted from the pool */
+    private static final transient long DEFAULT_CONNECTION_IDLE_TIMEOUT = TimeUnit.SECONDS.toMillis(30);
+
+    /** Default maximum number of concurrent API calls, when aggregating the results of all projects */
+    private static final transient int DEFAULT_MAX_PARALLEL_CALLS = 8;
+
+    /** Default number of events per page, when iterating over the history */
+    private static final transient long DEFAULT_HISTORY_PAGE_SIZE = 100;
+
+    /** Default number of history pages fetched in advance, when iterating over the history */
+    private static final transient int DEFAULT_HISTORY_PREFETCH = 2;
 
     /** URL of the RunDeck instance ("http://localhost:4440", "http://rundeck.your-compagny.com/", etc) */
     private final String url;
@@ -110,6 +154,66 @@ public class RundeckClient implements Serializable {
     /** Password to use for authentication on the RunDeck instance (if not using token-based auth) */
     private final String password;
 
+    /** Maximum number of HTTP connections in the pool */
+    private int maxConnections = DEFAULT_MAX_CONNECTIONS;
+
+    /** Maximum number of HTTP connections in the pool, per route */
+    private int maxConnectionsPerRoute = DEFAULT_MAX_CONNECTIONS;
+
+    /** Time (in milli-seconds) after which an idle HTTP connection will be evicted from the pool */
+    private long connectionIdleTimeout = DEFAULT_CONNECTION_IDLE_TIMEOUT;
+
+    /** Whether a pooled HTTP connection should be checked (is it still valid ?) before being re-used */
+    private boolean staleConnectionCheck = true;
+
+    /** Whether the responses should be parsed with a streaming (StAX) parser, instead of loading a DOM document */
+    private volatile boolean streamingParsers = false;
+
+    /** {@link HttpClient} shared by all API calls - lazily instantiated, see {@link #getHttpClient()} */
+    private transient HttpClient httpClient;
+
+    /** Last time (in milli-seconds) we evicted the idle connections from the pool */
+    private transient long lastConnectionsEviction;
+
+    /** Lock used so that only 1 thread at a time will login (in case of login-based auth) */
+    private final ReentrantLock loginLock = new ReentrantLock();
+
+    /** Identifier of the current session (in case of login-based auth) - 0 if we are not logged in */
+    private transient volatile int loginSession;
+
+    /** Counter used to generate the sessions identifiers */
+    private transient int loginSessionsCount;
+
+    /** Maximum number of concurrent API calls, when aggregating the results of all projects */
+    private int maxParallelCalls = DEFAULT_MAX_PARALLEL_CALLS;
+
+    /** {@link ExecutorService} for the background tasks - lazily instantiated, see {@link #getExecutor()} */
+    private transient ExecutorService executor;
+
+    /** {@link ExecutionWatcher} for the running executions - lazily instantiated, see {@link #getExecutionWatcher()} */
+    private transient ExecutionWatcher executionWatcher;
+
+    /** Whether the identical concurrent GET requests should share a single HTTP request */
+    private volatile boolean requestCoalescing = false;
+
+    /** Whether the responses should be read from the network while they are parsed, instead of being buffered */
+    private volatile boolean streamingResponses = false;
+
+    /** {@link RequestCoalescer} for the GET requests - lazily instantiated, see {@link #getRequestCoalescer()} */
+    private transient RequestCoalescer requestCoalescer;
+
+    /** Cache for the responses of the read-mostly API calls - null if disabled */
+    private transient volatile ResponseCache responseCache;
+
+    /** Time-to-live (in milli-seconds) of the cached responses, for each kind of resource - guarded by itself */
+    private final Map<Resource, Long> cacheTtls = new EnumMap<Resource, Long>(Resource.class);
+
+    /**
+     * Generation of the cached responses, for each kind of resource : incremented when they are invalidated, so that a
+     * response fetched before an invalidation is not cached after it - guarded by itself
+     */
+    private final Map<Resource, Long> cacheGenerations = new EnumMap<Resource, Long>(Resource.class);
+
     /**
      * Instantiate a new {@link RundeckClient} for the RunDeck instance at the given url, using login-based
      * authentication.
@@ -191,7 +295,8 @@ public class RundeckClient implements Serializable {
     public List<RundeckProject> getProjects() throws RundeckApiException, RundeckApiLoginException,
             RundeckApiTokenException {
         return new ApiCall(this).get(new ApiPathBuilder("/projects"),
-                                     new ListParser<RundeckProject>(new ProjectParser(), "result/projects/project"));
+                                     new ListParser<RundeckProject>(new ProjectParser(), "result/projects/project"),
+                                     Resource.PROJECTS);
     }
 
     /**
@@ -208,7 +313,8 @@ public class RundeckClient implements Serializable {
             RundeckApiTokenException, IllegalArgumentException {
         AssertUtil.notBlank(projectName, "projectName is mandatory to get the details of a project !");
         return new ApiCall(this).get(new ApiPathBuilder("/project/", projectName),
-                                     new ProjectParser("result/projects/project"));
+                                     new ProjectParser("result/projects/project"),
+                                     Resource.PROJECTS);
     }
 
     /*
@@ -216,19 +322,44 @@ public class RundeckClient implements Serializable {
      */
 
     /**
-     * List all jobs (for all projects)
+     * List all jobs (for all projects). The projects are queried concurrently, see {@link #setMaxParallelCalls(int)}.
      * 
      * @return a {@link List} of {@link RundeckJob} : might be empty, but won't be null
+     * @throws RundeckApiPartialFailureException if we failed to get the jobs of some projects - holds the jobs of the
+     *             other projects
      * @throws RundeckApiException in case of error when calling the API
      * @throws RundeckApiLoginException if the login fails (in case of login-based authentication)
      * @throws RundeckApiTokenException if the token is invalid (in case of token-based authentication)
+     * @see #getJobs(Executor)
      */
-    public List<RundeckJob> getJobs() throws RundeckApiException, RundeckApiLoginException, RundeckApiTokenException {
-        List<RundeckJob> jobs = new ArrayList<RundeckJob>();
-        for (RundeckProject project : getProjects()) {
-            jobs.addAll(getJobs(project.getName()));
-        }
-        return jobs;
+    public List<RundeckJob> getJobs() throws RundeckApiPartialFailureException, RundeckApiException,
+            RundeckApiLoginException, RundeckApiTokenException {
+        return getJobs(getExecutor());
+    }
+
+    /**
+     * List all jobs (for all projects). The projects are queried concurrently on the given executor, see
+     * {@link #setMaxParallelCalls(int)}.
+     * 
+     * @param executor used to query the projects concurrently - mandatory
+     * @return a {@link List} of {@link RundeckJob} : might be empty, but won't be null
+     * @throws RundeckApiPartialFailureException if we failed to get the jobs of some projects - holds the jobs of the
+     *             other projects
+     * @throws RundeckApiException in case of error when calling the API
+     * @throws RundeckApiLoginException if the login fails (in case of login-based authentication)
+     * @throws RundeckApiTokenException if the token is invalid (in case of token-based authentication)
+     * @throws IllegalArgumentException if the executor is null
+     */
+    public List<RundeckJob> getJobs(Executor executor) throws RundeckApiPartialFailureException, RundeckApiException,
+            RundeckApiLoginException, RundeckApiTokenException, IllegalArgumentException {
+        AssertUtil.notNull(executor, "executor is mandatory to get all jobs !");
+        return new ProjectsAggregator<RundeckJob>("jobs") {
+
+            @Override
+            protected List<RundeckJob> get(String project) {
+                return getJobs(project);
+            }
+        }.aggregate(getProjects(), executor, maxParallelCalls);
     }
 
     /**
@@ -268,7 +399,8 @@ public class RundeckClient implements Serializable {
                                                                 .param("jobFilter", jobFilter)
                                                                 .param("groupPath", groupPath)
                                                                 .param("idlist", StringUtils.join(jobIds, ",")),
-                                     new ListParser<RundeckJob>(new JobParser(), "result/jobs/job"));
+                                     new ListParser<RundeckJob>(new JobParser(), "result/jobs/job"),
+                                     Resource.JOBS);
     }
 
     /**
@@ -344,7 +476,8 @@ public class RundeckClient implements Serializable {
 
     /**
      * Export the definitions of the jobs that belongs to the given project, and matches the given criteria (jobFilter,
-     * groupPath and jobIds)
+     * groupPath and jobIds). The export is copied from the network to the file without being buffered in memory, and
+     * the file is only replaced once the export is complete.
      * 
      * @param filename path of the file where the content should be saved - mandatory
      * @param format of the export. See {@link FileType} - mandatory
@@ -364,8 +497,14 @@ public class RundeckClient implements Serializable {
             String... jobIds) throws RundeckApiException, RundeckApiLoginException, RundeckApiTokenException,
             IllegalArgumentException, IOException {
         AssertUtil.notBlank(filename, "filename is mandatory to export a job !");
-        InputStream inputStream = exportJobs(format, project, jobFilter, groupPath, jobIds);
-        FileUtils.writeByteArrayToFile(new File(filename), IOUtils.toByteArray(inputStream));
+        AssertUtil.notNull(format, "format is mandatory to export jobs !");
+        AssertUtil.notBlank(project, "project is mandatory to export jobs !");
+        new ApiCall(this).download(new ApiPathBuilder("/jobs/export").param("format", format)
+                                                                      .param("project", project)
+                                                                      .param("jobFilter", jobFilter)
+                                                                      .param("groupPath", groupPath)
+                                                                      .param("idlist", StringUtils.join(jobIds, ",")),
+                                   new File(filename));
     }
 
     /**
@@ -373,7 +512,9 @@ public class RundeckClient implements Serializable {
      * 
      * @param format of the export. See {@link FileType} - mandatory
      * @param project name of the project - mandatory
-     * @return an {@link InputStream} instance, not linked to any network resources - won't be null
+     * @return an {@link InputStream} instance, not linked to any network resources unless the client is configured for
+     *         streaming responses (see {@link #setStreamingResponses(boolean)}) : then it reads the response from the
+     *         HTTP connection, and you have to close it to release the connection - won't be null
      * @throws RundeckApiException in case of error when calling the API (non-existent project with this name)
      * @throws RundeckApiLoginException if the login fails (in case of login-based authentication)
      * @throws RundeckApiTokenException if the token is invalid (in case of token-based authentication)
@@ -393,7 +534,9 @@ public class RundeckClient implements Serializable {
      * 
      * @param format of the export. See {@link FileType} - mandatory
      * @param project name of the project - mandatory
-     * @return an {@link InputStream} instance, not linked to any network resources - won't be null
+     * @return an {@link InputStream} instance, not linked to any network resources unless the client is configured for
+     *         streaming responses (see {@link #setStreamingResponses(boolean)}) : then it reads the response from the
+     *         HTTP connection, and you have to close it to release the connection - won't be null
      * @throws RundeckApiException in case of error when calling the API (non-existent project with this name)
      * @throws RundeckApiLoginException if the login fails (in case of login-based authentication)
      * @throws RundeckApiTokenException if the token is invalid (in case of token-based authentication)
@@ -415,7 +558,9 @@ public class RundeckClient implements Serializable {
      * @param jobFilter a filter for the job Name - optional
      * @param groupPath a group or partial group path to include all jobs within that group path - optional
      * @param jobIds a list of Job IDs to include - optional
-     * @return an {@link InputStream} instance, not linked to any network resources - won't be null
+     * @return an {@link InputStream} instance, not linked to any network resources unless the client is configured for
+     *         streaming responses (see {@link #setStreamingResponses(boolean)}) : then it reads the response from the
+     *         HTTP connection, and you have to close it to release the connection - won't be null
      * @throws RundeckApiException in case of error when calling the API (non-existent project with this name)
      * @throws RundeckApiLoginException if the login fails (in case of login-based authentication)
      * @throws RundeckApiTokenException if the token is invalid (in case of token-based authentication)
@@ -439,7 +584,9 @@ public class RundeckClient implements Serializable {
      * @param jobFilter a filter for the job Name - optional
      * @param groupPath a group or partial group path to include all jobs within that group path - optional
      * @param jobIds a list of Job IDs to include - optional
-     * @return an {@link InputStream} instance, not linked to any network resources - won't be null
+     * @return an {@link InputStream} instance, not linked to any network resources unless the client is configured for
+     *         streaming responses (see {@link #setStreamingResponses(boolean)}) : then it reads the response from the
+     *         HTTP connection, and you have to close it to release the connection - won't be null
      * @throws RundeckApiException in case of error when calling the API (non-existent project with this name)
      * @throws RundeckApiLoginException if the login fails (in case of login-based authentication)
      * @throws RundeckApiTokenException if the token is invalid (in case of token-based authentication)
@@ -480,7 +627,8 @@ public class RundeckClient implements Serializable {
     }
 
     /**
-     * Export the definition of a single job (identified by the given ID)
+     * Export the definition of a single job (identified by the given ID). The export is copied from the network to the
+     * file without being buffered in memory, and the file is only replaced once the export is complete.
      * 
      * @param filename path of the file where the content should be saved - mandatory
      * @param format of the export. See {@link FileType} - mandatory
@@ -497,8 +645,9 @@ public class RundeckClient implements Serializable {
     public void exportJobToFile(String filename, FileType format, String jobId) throws RundeckApiException,
             RundeckApiLoginException, RundeckApiTokenException, IllegalArgumentException, IOException {
         AssertUtil.notBlank(filename, "filename is mandatory to export a job !");
-        InputStream inputStream = exportJob(format, jobId);
-        FileUtils.writeByteArrayToFile(new File(filename), IOUtils.toByteArray(inputStream));
+        AssertUtil.notNull(format, "format is mandatory to export a job !");
+        AssertUtil.notBlank(jobId, "jobId is mandatory to export a job !");
+        new ApiCall(this).download(new ApiPathBuilder("/job/", jobId).param("format", format), new File(filename));
     }
 
     /**
@@ -506,7 +655,9 @@ public class RundeckClient implements Serializable {
      * 
      * @param format of the export. See {@link FileType} - mandatory
      * @param jobId identifier of the job - mandatory
-     * @return an {@link InputStream} instance, not linked to any network resources - won't be null
+     * @return an {@link InputStream} instance, not linked to any network resources unless the client is configured for
+     *         streaming responses (see {@link #setStreamingResponses(boolean)}) : then it reads the response from the
+     *         HTTP connection, and you have to close it to release the connection - won't be null
      * @throws RundeckApiException in case of error when calling the API (non-existent job with this ID)
      * @throws RundeckApiLoginException if the login fails (in case of login-based authentication)
      * @throws RundeckApiTokenException if the token is invalid (in case of token-based authentication)
@@ -526,7 +677,9 @@ public class RundeckClient implements Serializable {
      * 
      * @param format of the export. See {@link FileType} - mandatory
      * @param jobId identifier of the job - mandatory
-     * @return an {@link InputStream} instance, not linked to any network resources - won't be null
+     * @return an {@link InputStream} instance, not linked to any network resources unless the client is configured for
+     *         streaming responses (see {@link #setStreamingResponses(boolean)}) : then it reads the response from the
+     *         HTTP connection, and you have to close it to release the connection - won't be null
      * @throws RundeckApiException in case of error when calling the API (non-existent job with this ID)
      * @throws RundeckApiLoginException if the login fails (in case of login-based authentication)
      * @throws RundeckApiTokenException if the token is invalid (in case of token-based authentication)
@@ -624,13 +777,10 @@ public class RundeckClient implements Serializable {
             throws RundeckApiException, RundeckApiLoginException, RundeckApiTokenException, IllegalArgumentException,
             IOException {
         AssertUtil.notBlank(filename, "filename (of jobs file) is mandatory to import jobs !");
-        FileInputStream stream = null;
-        try {
-            stream = FileUtils.openInputStream(new File(filename));
-            return importJobs(stream, fileType, importBehavior);
-        } finally {
-            IOUtils.closeQuietly(stream);
-        }
+        AssertUtil.notNull(fileType, "fileType is mandatory to import jobs !");
+        return importJobs(new ApiPathBuilder("/jobs/import").param("format", fileType)
+                                                            .param("dupeOption", importBehavior)
+                                                            .attach("xmlBatch", readableFile(filename)));
     }
 
     /**
@@ -712,10 +862,130 @@ public class RundeckClient implements Serializable {
             RundeckApiTokenException, IllegalArgumentException {
         AssertUtil.notNull(stream, "inputStream of jobs is mandatory to import jobs !");
         AssertUtil.notNull(fileType, "fileType is mandatory to import jobs !");
-        return new ApiCall(this).post(new ApiPathBuilder("/jobs/import").param("format", fileType)
-                                                                        .param("dupeOption", importBehavior)
-                                                                        .attach("xmlBatch", stream),
-                                      new JobsImportResultParser("result"));
+        return importJobs(new ApiPathBuilder("/jobs/import").param("format", fileType)
+                                                            .param("dupeOption", importBehavior)
+                                                            .attach("xmlBatch", stream));
+    }
+
+    /**
+     * Import a large number of jobs definitions, from the given input stream, using the given behavior. The definitions
+     * are split in chunks of (at most) chunkSize jobs while they are read, and the chunks are imported concurrently -
+     * see {@link #setMaxParallelCalls(int)}. So each API call stays small, and a bad definition only fails its own
+     * chunk. The results of all chunks are merged.
+     * 
+     * @param stream inputStream for reading the definitions - mandatory
+     * @param fileType type of the file. See {@link FileType} - mandatory
+     * @param importBehavior see {@link RundeckJobsImportMethod}
+     * @param chunkSize maximum number of jobs imported in a single API call - must be > 0
+     * @return a {@link RundeckJobsImportResult} instance, merging the results of all chunks - won't be null
+     * @throws RundeckApiPartialFailureException if we failed to import (or read) some chunks - its result is the
+     *             merged {@link RundeckJobsImportResult} of the other chunks
+     * @throws RundeckApiException in case of error when calling the API
+     * @throws RundeckApiLoginException if the login fails (in case of login-based authentication)
+     * @throws RundeckApiTokenException if the token is invalid (in case of token-based authentication)
+     * @throws IllegalArgumentException if the stream or fileType is null, or the chunkSize is not positive
+     * @see #importJobs(InputStream, FileType, RundeckJobsImportMethod, int, Executor)
+     */
+    public RundeckJobsImportResult importJobs(InputStream stream, FileType fileType,
+            RundeckJobsImportMethod importBehavior, int chunkSize) throws RundeckApiPartialFailureException,
+            RundeckApiException, RundeckApiLoginException, RundeckApiTokenException, IllegalArgumentException {
+        return importJobs(stream, fileType, importBehavior, chunkSize, getExecutor());
+    }
+
+    /**
+     * Import a large number of jobs definitions, from the given input stream, using the given behavior. The definitions
+     * are split in chunks of (at most) chunkSize jobs while they are read, and the chunks are imported concurrently on
+     * the given executor - see {@link #setMaxParallelCalls(int)}. The results of all chunks are merged.
+     * 
+     * @param stream inputStream for reading the definitions - mandatory
+     * @param fileType type of the file. See {@link FileType} - mandatory
+     * @param importBehavior see {@link RundeckJobsImportMethod}
+     * @param chunkSize maximum number of jobs imported in a single API call - must be > 0
+     * @param executor used to import the chunks concurrently - mandatory
+     * @return a {@link RundeckJobsImportResult} instance, merging the results of all chunks - won't be null
+     * @throws RundeckApiPartialFailureException if we failed to import (or read) some chunks - its result is the
+     *             merged {@link RundeckJobsImportResult} of the other chunks
+     * @throws RundeckApiException in case of error when calling the API
+     * @throws RundeckApiLoginException if the login fails (in case of login-based authentication)
+     * @throws RundeckApiTokenException if the token is invalid (in case of token-based authentication)
+     * @throws IllegalArgumentException if the stream, fileType or executor is null, or the chunkSize is not positive
+     */
+    public RundeckJobsImportResult importJobs(InputStream stream, final FileType fileType,
+            final RundeckJobsImportMethod importBehavior, int chunkSize, Executor executor)
+            throws RundeckApiPartialFailureException, RundeckApiException, RundeckApiLoginException,
+            RundeckApiTokenException, IllegalArgumentException {
+        AssertUtil.notNull(stream, "inputStream of jobs is mandatory to import jobs !");
+        AssertUtil.notNull(fileType, "fileType is mandatory to import jobs !");
+        AssertUtil.isTrue(chunkSize > 0, "chunkSize must be > 0 !");
+        AssertUtil.notNull(executor, "executor is mandatory to import jobs !");
+        return new BulkJobsImporter() {
+
+            @Override
+            protected RundeckJobsImportResult importChunk(byte[] definitions) {
+                return importJobs(new ByteArrayInputStream(definitions), fileType, importBehavior);
+            }
+        }.importAll(JobsSplitter.create(stream, fileType, chunkSize), executor, maxParallelCalls);
+    }
+
+    /**
+     * Synchronize the jobs of the given project with the given XML definitions : only the new jobs, and the jobs whose
+     * definition is different from the current one, are imported (in "update" mode). A job of the definitions is
+     * matched with a job of the project by its ID (if it has one), or by its group and name. The definitions are
+     * compared using a fingerprint of their canonical form (see {@link #exportJobs(FileType, String)}), ignoring the
+     * formatting, the comments, and the IDs.
+     * 
+     * @param project name of the project - mandatory
+     * @param definitions inputStream for reading the XML definitions of all the jobs of the project - mandatory
+     * @param deleteRemovedJobs if true, the jobs of the project that are not in the definitions will be deleted
+     * @return a {@link RundeckJobsSyncResult} instance, with the jobs created, updated, unchanged and removed - won't be
+     *         null
+     * @throws RundeckApiException in case of error when calling the API (non-existent project with this name), or if
+     *             we failed to read the definitions
+     * @throws RundeckApiLoginException if the login fails (in case of login-based authentication)
+     * @throws RundeckApiTokenException if the token is invalid (in case of token-based authentication)
+     * @throws IllegalArgumentException if the project is blank (null, empty or whitespace) or the definitions is null
+     */
+    public RundeckJobsSyncResult syncJobs(final String project, InputStream definitions, boolean deleteRemovedJobs)
+            throws RundeckApiException, RundeckApiLoginException, RundeckApiTokenException, IllegalArgumentException {
+        AssertUtil.notBlank(project, "project is mandatory to synchronize jobs !");
+        AssertUtil.notNull(definitions, "inputStream of jobs is mandatory to synchronize jobs !");
+        return new JobsSynchronizer() {
+
+            @Override
+            protected InputStream exportJobs() {
+                return RundeckClient.this.exportJobs(FileType.XML, project);
+            }
+
+            @Override
+            protected RundeckJobsImportResult importJobs(byte[] definitions) {
+                return RundeckClient.this.importJobs(new ByteArrayInputStream(definitions),
+                                                     FileType.XML,
+                                                     RundeckJobsImportMethod.UPDATE);
+            }
+
+            @Override
+            protected void deleteJob(String jobId) {
+                RundeckClient.this.deleteJob(jobId);
+            }
+        }.sync(definitions, deleteRemovedJobs);
+    }
+
+    /**
+     * Import the definitions of jobs, attached to the given path
+     * 
+     * @param apiPath for the import, with the definitions as an attachment
+     * @return a {@link RundeckJobsImportResult} instance - won't be null
+     * @throws RundeckApiException in case of error when calling the API
+     * @throws RundeckApiLoginException if the login fails (in case of login-based authentication)
+     * @throws RundeckApiTokenException if the token is invalid (in case of token-based authentication)
+     */
+    private RundeckJobsImportResult importJobs(ApiPathBuilder apiPath) throws RundeckApiException,
+            RundeckApiLoginException, RundeckApiTokenException {
+        try {
+            return new ApiCall(this).post(apiPath, new JobsImportResultParser("result"));
+        } finally {
+            invalidateCache(Resource.JOBS);
+        }
     }
 
     /**
@@ -755,7 +1025,7 @@ public class RundeckClient implements Serializable {
     public RundeckJob getJob(String jobId) throws RundeckApiException, RundeckApiLoginException,
             RundeckApiTokenException, IllegalArgumentException {
         AssertUtil.notBlank(jobId, "jobId is mandatory to get the details of a job !");
-        return new ApiCall(this).get(new ApiPathBuilder("/job/", jobId), new JobParser("joblist/job"));
+        return new ApiCall(this).get(new ApiPathBuilder("/job/", jobId), new JobParser("joblist/job"), Resource.JOBS);
     }
 
     /**
@@ -771,7 +1041,12 @@ public class RundeckClient implements Serializable {
     public String deleteJob(String jobId) throws RundeckApiException, RundeckApiLoginException,
             RundeckApiTokenException, IllegalArgumentException {
         AssertUtil.notBlank(jobId, "jobId is mandatory to delete a job !");
-        return new ApiCall(this).delete(new ApiPathBuilder("/job/", jobId), new StringParser("result/success/message"));
+        try {
+            return new ApiCall(this).delete(new ApiPathBuilder("/job/", jobId),
+                                            new StringParser("result/success/message"));
+        } finally {
+            invalidateCache(Resource.JOBS);
+        }
     }
 
     /**
@@ -830,10 +1105,65 @@ public class RundeckClient implements Serializable {
     public RundeckExecution triggerJob(String jobId, Properties options, Properties nodeFilters)
             throws RundeckApiException, RundeckApiLoginException, RundeckApiTokenException, IllegalArgumentException {
         AssertUtil.notBlank(jobId, "jobId is mandatory to trigger a job !");
-        return new ApiCall(this).get(new ApiPathBuilder("/job/", jobId, "/run").param("argString",
-                                                                                      ParametersUtil.generateArgString(options))
-                                                                               .nodeFilters(nodeFilters),
-                                     new ExecutionParser("result/executions/execution"));
+        ApiPathBuilder apiPath = new ApiPathBuilder("/job/", jobId, "/run");
+        apiPath.param("argString", ParametersUtil.generateArgString(options)).nodeFilters(nodeFilters);
+        return new ApiCall(this).trigger(apiPath, new ExecutionParser("result/executions/execution"));
+    }
+
+    /**
+     * Trigger the execution of many RunDeck jobs, and return immediately (without waiting the end of the executions).
+     * The jobs are triggered concurrently, with at most {@link #getMaxParallelCalls()} triggers at the same time. A
+     * failed trigger does not prevent the other jobs from being triggered.
+     * 
+     * @param triggers of the jobs (ID, options and node filters) - mandatory
+     * @return a {@link List} of {@link RundeckExecution} for the newly created (and running) executions, in the order
+     *         of the triggers - won't be null
+     * @throws RundeckApiPartialFailureException if we failed to trigger some jobs - its results hold the executions in
+     *             the order of the triggers, with null for the failed triggers
+     * @throws IllegalArgumentException if the triggers collection is null, or contains null
+     * @see #triggerJobs(Collection, int, double)
+     */
+    public List<RundeckExecution> triggerJobs(Collection<JobTrigger> triggers)
+            throws RundeckApiPartialFailureException, IllegalArgumentException {
+        return triggerJobs(triggers, maxParallelCalls, 0);
+    }
+
+    /**
+     * Trigger the execution of many RunDeck jobs, and return immediately (without waiting the end of the executions).
+     * The jobs are triggered concurrently, with at most "parallelism" triggers at the same time (it should not be
+     * greater than {@link #getMaxConnectionsPerRoute()}, or the triggers will wait for a free connection), and at most
+     * "maxTriggersPerSecond" triggers per second. A failed trigger does not prevent the other jobs from being
+     * triggered.
+     * 
+     * @param triggers of the jobs (ID, options and node filters) - mandatory
+     * @param parallelism maximum number of concurrent triggers - must be > 0
+     * @param maxTriggersPerSecond maximum rate of the triggers - 0 (or less) for no rate limit
+     * @return a {@link List} of {@link RundeckExecution} for the newly created (and running) executions, in the order
+     *         of the triggers - won't be null
+     * @throws RundeckApiPartialFailureException if we failed to trigger some jobs - its results hold the executions in
+     *             the order of the triggers, with null for the failed triggers
+     * @throws IllegalArgumentException if the triggers collection is null or contains null, or the parallelism is not
+     *             positive
+     */
+    public List<RundeckExecution> triggerJobs(Collection<JobTrigger> triggers, int parallelism,
+            double maxTriggersPerSecond) throws RundeckApiPartialFailureException, IllegalArgumentException {
+        AssertUtil.notNull(triggers, "triggers are mandatory to trigger jobs !");
+        for (JobTrigger trigger : triggers) {
+            AssertUtil.notNull(trigger, "triggers must not contain null !");
+        }
+        AssertUtil.isTrue(parallelism > 0, "parallelism must be > 0 !");
+        return new BulkCalls<JobTrigger, RundeckExecution>("job triggers", maxTriggersPerSecond) {
+
+            @Override
+            protected RundeckExecution call(JobTrigger trigger) {
+                return triggerJob(trigger.getJobId(), trigger.getOptions(), trigger.getNodeFilters());
+            }
+
+            @Override
+            protected String describe(int index, JobTrigger trigger) {
+                return "trigger " + (index + 1) + " (job " + trigger.getJobId() + ")";
+            }
+        }.callAll(new ArrayList<JobTrigger>(triggers), getExecutor(), parallelism);
     }
 
     /**
@@ -941,24 +1271,41 @@ public class RundeckClient implements Serializable {
     public RundeckExecution runJob(String jobId, Properties options, Properties nodeFilters, long poolingInterval,
             TimeUnit poolingUnit) throws RundeckApiException, RundeckApiLoginException, RundeckApiTokenException,
             IllegalArgumentException {
-        if (poolingInterval <= 0) {
-            poolingInterval = DEFAULT_POOLING_INTERVAL;
-            poolingUnit = DEFAULT_POOLING_UNIT;
-        }
-        if (poolingUnit == null) {
-            poolingUnit = DEFAULT_POOLING_UNIT;
+        RundeckExecution execution = triggerJob(jobId, options, nodeFilters);
+        return waitForExecution(null,
+                                execution,
+                                ExecutionWatcher.fixedPollingStrategy(poolingInterval, poolingUnit));
+    }
+
+    /**
+     * Run a RunDeck job (identified by the given ID), and wait until its execution is finished (or aborted) to return.
+     * The delay between 2 checks of the status of the execution is given by the pollingStrategy : by default, we will
+     * check often right after the trigger, and then back off up to the expected end of the execution (estimated from
+     * the recent executions of the job).
+     * 
+     * @param jobId identifier of the job - mandatory
+     * @param options of the job - optional. See {@link OptionsBuilder}.
+     * @param nodeFilters for overriding the nodes on which the job will be executed - optional. See
+     *            {@link NodeFiltersBuilder}
+     * @param pollingStrategy for checking the status of the execution - optional (default to
+     *            {@link AdaptivePollingStrategy#forJob(RundeckClient, String)})
+     * @return a {@link RundeckExecution} instance for the (finished/aborted) execution - won't be null
+     * @throws RundeckApiException in case of error when calling the API (non-existent job with this ID)
+     * @throws RundeckApiLoginException if the login fails (in case of login-based authentication)
+     * @throws RundeckApiTokenException if the token is invalid (in case of token-based authentication)
+     * @throws IllegalArgumentException if the jobId is blank (null, empty or whitespace)
+     * @see #triggerJob(String, Properties, Properties)
+     * @see #runJob(String, Properties, Properties, long, TimeUnit)
+     */
+    public RundeckExecution runJob(String jobId, Properties options, Properties nodeFilters,
+            PollingStrategy pollingStrategy) throws RundeckApiException, RundeckApiLoginException,
+            RundeckApiTokenException, IllegalArgumentException {
+        if (pollingStrategy == null) {
+            pollingStrategy = AdaptivePollingStrategy.forJob(this, jobId);
         }
 
         RundeckExecution execution = triggerJob(jobId, options, nodeFilters);
-        while (ExecutionStatus.RUNNING.equals(execution.getStatus())) {
-            try {
-                Thread.sleep(poolingUnit.toMillis(poolingInterval));
-            } catch (InterruptedException e) {
-                break;
-            }
-            execution = getExecution(execution.getId());
-        }
-        return execution;
+        return waitForExecution(null, execution, pollingStrategy);
     }
 
     /*
@@ -1026,14 +1373,12 @@ public class RundeckClient implements Serializable {
             RundeckApiTokenException, IllegalArgumentException {
         AssertUtil.notBlank(project, "project is mandatory to trigger an ad-hoc command !");
         AssertUtil.notBlank(command, "command is mandatory to trigger an ad-hoc command !");
-        RundeckExecution execution = new ApiCall(this).get(new ApiPathBuilder("/run/command").param("project", project)
-                                                                                             .param("exec", command)
-                                                                                             .param("nodeThreadcount",
-                                                                                                    nodeThreadcount)
-                                                                                             .param("nodeKeepgoing",
-                                                                                                    nodeKeepgoing)
-                                                                                             .nodeFilters(nodeFilters),
-                                                           new ExecutionParser("result/execution"));
+        ApiPathBuilder apiPath = new ApiPathBuilder("/run/command").param("project", project)
+                                                                   .param("exec", command)
+                                                                   .param("nodeThreadcount", nodeThreadcount)
+                                                                   .param("nodeKeepgoing", nodeKeepgoing)
+                                                                   .nodeFilters(nodeFilters);
+        RundeckExecution execution = new ApiCall(this).trigger(apiPath, new ExecutionParser("result/execution"));
         // the first call just returns the ID of the execution, so we need another call to get a "real" execution
         return getExecution(execution.getId());
     }
@@ -1180,24 +1525,10 @@ public class RundeckClient implements Serializable {
     public RundeckExecution runAdhocCommand(String project, String command, Properties nodeFilters,
             Integer nodeThreadcount, Boolean nodeKeepgoing, long poolingInterval, TimeUnit poolingUnit)
             throws RundeckApiException, RundeckApiLoginException, RundeckApiTokenException, IllegalArgumentException {
-        if (poolingInterval <= 0) {
-            poolingInterval = DEFAULT_POOLING_INTERVAL;
-            poolingUnit = DEFAULT_POOLING_UNIT;
-        }
-        if (poolingUnit == null) {
-            poolingUnit = DEFAULT_POOLING_UNIT;
-        }
-
         RundeckExecution execution = triggerAdhocCommand(project, command, nodeFilters, nodeThreadcount, nodeKeepgoing);
-        while (ExecutionStatus.RUNNING.equals(execution.getStatus())) {
-            try {
-                Thread.sleep(poolingUnit.toMillis(poolingInterval));
-            } catch (InterruptedException e) {
-                break;
-            }
-            execution = getExecution(execution.getId());
-        }
-        return execution;
+        return waitForExecution(project,
+                                execution,
+                                ExecutionWatcher.fixedPollingStrategy(poolingInterval, poolingUnit));
     }
 
     /*
@@ -1291,14 +1622,10 @@ public class RundeckClient implements Serializable {
     public RundeckExecution triggerAdhocScript(String project, String scriptFilename, Properties options,
             Properties nodeFilters, Integer nodeThreadcount, Boolean nodeKeepgoing) throws RundeckApiException,
             RundeckApiLoginException, RundeckApiTokenException, IllegalArgumentException, IOException {
+        AssertUtil.notBlank(project, "project is mandatory to trigger an ad-hoc script !");
         AssertUtil.notBlank(scriptFilename, "scriptFilename is mandatory to trigger an ad-hoc script !");
-        FileInputStream stream = null;
-        try {
-            stream = FileUtils.openInputStream(new File(scriptFilename));
-            return triggerAdhocScript(project, stream, options, nodeFilters, nodeThreadcount, nodeKeepgoing);
-        } finally {
-            IOUtils.closeQuietly(stream);
-        }
+        return triggerAdhocScript(adhocScriptPath(project, options, nodeFilters, nodeThreadcount, nodeKeepgoing)
+                                  .attach("scriptFile", readableFile(scriptFilename)));
     }
 
     /**
@@ -1385,17 +1712,39 @@ public class RundeckClient implements Serializable {
             RundeckApiLoginException, RundeckApiTokenException, IllegalArgumentException {
         AssertUtil.notBlank(project, "project is mandatory to trigger an ad-hoc script !");
         AssertUtil.notNull(script, "script is mandatory to trigger an ad-hoc script !");
-        RundeckExecution execution = new ApiCall(this).post(new ApiPathBuilder("/run/script").param("project", project)
-                                                                                             .attach("scriptFile",
-                                                                                                     script)
-                                                                                             .param("argString",
-                                                                                                    ParametersUtil.generateArgString(options))
-                                                                                             .param("nodeThreadcount",
-                                                                                                    nodeThreadcount)
-                                                                                             .param("nodeKeepgoing",
-                                                                                                    nodeKeepgoing)
-                                                                                             .nodeFilters(nodeFilters),
-                                                            new ExecutionParser("result/execution"));
+        return triggerAdhocScript(adhocScriptPath(project, options, nodeFilters, nodeThreadcount, nodeKeepgoing)
+                                  .attach("scriptFile", script));
+    }
+
+    /**
+     * @param project name of the project - mandatory
+     * @param options of the script - optional. See {@link OptionsBuilder}.
+     * @param nodeFilters for selecting nodes on which the command will be executed. See {@link NodeFiltersBuilder}
+     * @param nodeThreadcount thread count to use (for parallelizing when running on multiple nodes) - optional
+     * @param nodeKeepgoing if true, continue executing on other nodes even if some fail - optional
+     * @return the path for triggering an ad-hoc script, without the script attachment
+     */
+    private ApiPathBuilder adhocScriptPath(String project, Properties options, Properties nodeFilters,
+            Integer nodeThreadcount, Boolean nodeKeepgoing) {
+        return new ApiPathBuilder("/run/script").param("project", project)
+                                                .param("argString", ParametersUtil.generateArgString(options))
+                                                .param("nodeThreadcount", nodeThreadcount)
+                                                .param("nodeKeepgoing", nodeKeepgoing)
+                                                .nodeFilters(nodeFilters);
+    }
+
+    /**
+     * Trigger the execution of an ad-hoc script, attached to the given path
+     * 
+     * @param apiPath for triggering the script, with the script as an attachment
+     * @return a {@link RundeckExecution} instance for the newly created (and running) execution - won't be null
+     * @throws RundeckApiException in case of error when calling the API (non-existent project with this name)
+     * @throws RundeckApiLoginException if the login fails (in case of login-based authentication)
+     * @throws RundeckApiTokenException if the token is invalid (in case of token-based authentication)
+     */
+    private RundeckExecution triggerAdhocScript(ApiPathBuilder apiPath) throws RundeckApiException,
+            RundeckApiLoginException, RundeckApiTokenException {
+        RundeckExecution execution = new ApiCall(this).post(apiPath, new ExecutionParser("result/execution"));
         // the first call just returns the ID of the execution, so we need another call to get a "real" execution
         return getExecution(execution.getId());
     }
@@ -1607,20 +1956,15 @@ public class RundeckClient implements Serializable {
             TimeUnit poolingUnit) throws RundeckApiException, RundeckApiLoginException, RundeckApiTokenException,
             IllegalArgumentException, IOException {
         AssertUtil.notBlank(scriptFilename, "scriptFilename is mandatory to run an ad-hoc script !");
-        FileInputStream stream = null;
-        try {
-            stream = FileUtils.openInputStream(new File(scriptFilename));
-            return runAdhocScript(project,
-                                  stream,
-                                  options,
-                                  nodeFilters,
-                                  nodeThreadcount,
-                                  nodeKeepgoing,
-                                  poolingInterval,
-                                  poolingUnit);
-        } finally {
-            IOUtils.closeQuietly(stream);
-        }
+        RundeckExecution execution = triggerAdhocScript(project,
+                                                        scriptFilename,
+                                                        options,
+                                                        nodeFilters,
+                                                        nodeThreadcount,
+                                                        nodeKeepgoing);
+        return waitForExecution(project,
+                                execution,
+                                ExecutionWatcher.fixedPollingStrategy(poolingInterval, poolingUnit));
     }
 
     /**
@@ -1829,29 +2173,55 @@ public class RundeckClient implements Serializable {
             Properties nodeFilters, Integer nodeThreadcount, Boolean nodeKeepgoing, long poolingInterval,
             TimeUnit poolingUnit) throws RundeckApiException, RundeckApiLoginException, RundeckApiTokenException,
             IllegalArgumentException {
-        if (poolingInterval <= 0) {
-            poolingInterval = DEFAULT_POOLING_INTERVAL;
-            poolingUnit = DEFAULT_POOLING_UNIT;
-        }
-        if (poolingUnit == null) {
-            poolingUnit = DEFAULT_POOLING_UNIT;
-        }
-
         RundeckExecution execution = triggerAdhocScript(project,
                                                         script,
                                                         options,
                                                         nodeFilters,
                                                         nodeThreadcount,
                                                         nodeKeepgoing);
-        while (ExecutionStatus.RUNNING.equals(execution.getStatus())) {
-            try {
-                Thread.sleep(poolingUnit.toMillis(poolingInterval));
-            } catch (InterruptedException e) {
-                break;
+        return waitForExecution(project,
+                                execution,
+                                ExecutionWatcher.fixedPollingStrategy(poolingInterval, poolingUnit));
+    }
+
+    /**
+     * @param filename of an existing file
+     * @return the file - won't be null
+     * @throws IOException if the file does not exist, is a directory, or can not be read
+     */
+    private static File readableFile(String filename) throws IOException {
+        File file = new File(filename);
+        if (!file.isFile() || !file.canRead()) {
+            throw new FileNotFoundException("File '" + file + "' does not exist or can not be read");
+        }
+        return file;
+    }
+
+    /**
+     * Wait until the given execution is finished (or aborted), using the {@link ExecutionWatcher} of this client. If
+     * the current thread is interrupted, we stop waiting and return the last known state of the execution.
+     * 
+     * @param project name of the project of the execution - optional
+     * @param execution to wait for - mandatory
+     * @param pollingStrategy for checking the status of the execution - mandatory
+     * @return a {@link RundeckExecution} instance for the (finished/aborted) execution - won't be null
+     * @throws RundeckApiException in case of error when calling the API
+     */
+    private RundeckExecution waitForExecution(String project, RundeckExecution execution,
+            PollingStrategy pollingStrategy) throws RundeckApiException {
+        Future<RundeckExecution> future = getExecutionWatcher().watch(project, execution, pollingStrategy, null);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+            return execution;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RundeckApiException) {
+                throw (RundeckApiException) e.getCause();
             }
-            execution = getExecution(execution.getId());
+            throw new RundeckApiException("Failed to wait for the execution " + execution.getId(), e.getCause());
         }
-        return execution;
     }
 
     /*
@@ -1859,21 +2229,46 @@ public class RundeckClient implements Serializable {
      */
 
     /**
-     * Get all running executions (for all projects)
+     * Get all running executions (for all projects). The projects are queried concurrently, see
+     * {@link #setMaxParallelCalls(int)}.
      * 
      * @return a {@link List} of {@link RundeckExecution} : might be empty, but won't be null
+     * @throws RundeckApiPartialFailureException if we failed to get the running executions of some projects - holds
+     *             the running executions of the other projects
      * @throws RundeckApiException in case of error when calling the API
      * @throws RundeckApiLoginException if the login fails (in case of login-based authentication)
      * @throws RundeckApiTokenException if the token is invalid (in case of token-based authentication)
      * @see #getRunningExecutions(String)
+     * @see #getRunningExecutions(Executor)
      */
-    public List<RundeckExecution> getRunningExecutions() throws RundeckApiException, RundeckApiLoginException,
-            RundeckApiTokenException {
-        List<RundeckExecution> executions = new ArrayList<RundeckExecution>();
-        for (RundeckProject project : getProjects()) {
-            executions.addAll(getRunningExecutions(project.getName()));
-        }
-        return executions;
+    public List<RundeckExecution> getRunningExecutions() throws RundeckApiPartialFailureException,
+            RundeckApiException, RundeckApiLoginException, RundeckApiTokenException {
+        return getRunningExecutions(getExecutor());
+    }
+
+    /**
+     * Get all running executions (for all projects). The projects are queried concurrently on the given executor, see
+     * {@link #setMaxParallelCalls(int)}.
+     * 
+     * @param executor used to query the projects concurrently - mandatory
+     * @return a {@link List} of {@link RundeckExecution} : might be empty, but won't be null
+     * @throws RundeckApiPartialFailureException if we failed to get the running executions of some projects - holds
+     *             the running executions of the other projects
+     * @throws RundeckApiException in case of error when calling the API
+     * @throws RundeckApiLoginException if the login fails (in case of login-based authentication)
+     * @throws RundeckApiTokenException if the token is invalid (in case of token-based authentication)
+     * @throws IllegalArgumentException if the executor is null
+     */
+    public List<RundeckExecution> getRunningExecutions(Executor executor) throws RundeckApiPartialFailureException,
+            RundeckApiException, RundeckApiLoginException, RundeckApiTokenException, IllegalArgumentException {
+        AssertUtil.notNull(executor, "executor is mandatory to get all running executions !");
+        return new ProjectsAggregator<RundeckExecution>("running executions") {
+
+            @Override
+            protected List<RundeckExecution> get(String project) {
+                return getRunningExecutions(project);
+            }
+        }.aggregate(getProjects(), executor, maxParallelCalls);
     }
 
     /**
@@ -2023,8 +2418,135 @@ public class RundeckClient implements Serializable {
     public RundeckAbort abortExecution(Long executionId) throws RundeckApiException, RundeckApiLoginException,
             RundeckApiTokenException, IllegalArgumentException {
         AssertUtil.notNull(executionId, "executionId is mandatory to abort an execution !");
-        return new ApiCall(this).get(new ApiPathBuilder("/execution/", executionId.toString(), "/abort"),
-                                     new AbortParser("result/abort"));
+        return new ApiCall(this).trigger(new ApiPathBuilder("/execution/", executionId.toString(), "/abort"),
+                                         new AbortParser("result/abort"));
+    }
+
+    /**
+     * Abort all the running executions matching the given selector, and return immediately (without waiting the end of
+     * the executions). The executions are aborted concurrently - see {@link #setMaxParallelCalls(int)}.
+     * 
+     * @param selector of the running executions - mandatory
+     * @return the {@link RundeckAbort} of each aborted execution, indexed by the ID of the execution - won't be null
+     * @throws RundeckApiPartialFailureException if we failed to abort some executions (or to list the running
+     *             executions of some projects) - its result is the {@link Map} of the {@link RundeckAbort} of the
+     *             other executions, indexed by their ID
+     * @throws RundeckApiException in case of error when calling the API (non-existent project with this name)
+     * @throws RundeckApiLoginException if the login fails (in case of login-based authentication)
+     * @throws RundeckApiTokenException if the token is invalid (in case of token-based authentication)
+     * @throws IllegalArgumentException if the selector is null
+     * @see #abortExecutions(ExecutionSelector, boolean)
+     */
+    public Map<Long, RundeckAbort> abortExecutions(ExecutionSelector selector)
+            throws RundeckApiPartialFailureException, RundeckApiException, RundeckApiLoginException,
+            RundeckApiTokenException, IllegalArgumentException {
+        return abortExecutions(selector, false);
+    }
+
+    /**
+     * Abort all the running executions matching the given selector. The executions are aborted concurrently - see
+     * {@link #setMaxParallelCalls(int)}. If requested, we will then wait until all the aborted executions are no longer
+     * running : they are watched by the {@link ExecutionWatcher} of this client, which polls the RunDeck server every
+     * second, with a single API call per project. If the current thread is interrupted while waiting, we stop waiting
+     * and throw a {@link RundeckApiPartialFailureException} holding the state that we know.
+     * 
+     * @param selector of the running executions - mandatory
+     * @param waitForAbortion if true, wait until the aborted executions are no longer running - their
+     *            {@link RundeckAbort} will then hold their final state
+     * @return the {@link RundeckAbort} of each aborted execution, indexed by the ID of the execution - won't be null
+     * @throws RundeckApiPartialFailureException if we failed to abort some executions (or to list the running
+     *             executions of some projects) - its result is the {@link Map} of the {@link RundeckAbort} of the
+     *             other executions, indexed by their ID
+     * @throws RundeckApiException in case of error when calling the API (non-existent project with this name)
+     * @throws RundeckApiLoginException if the login fails (in case of login-based authentication)
+     * @throws RundeckApiTokenException if the token is invalid (in case of token-based authentication)
+     * @throws IllegalArgumentException if the selector is null
+     */
+    @SuppressWarnings("unchecked")
+    public Map<Long, RundeckAbort> abortExecutions(final ExecutionSelector selector, boolean waitForAbortion)
+            throws RundeckApiPartialFailureException, RundeckApiException, RundeckApiLoginException,
+            RundeckApiTokenException, IllegalArgumentException {
+        AssertUtil.notNull(selector, "selector is mandatory to abort executions !");
+        Map<String, RundeckApiException> errors = new LinkedHashMap<String, RundeckApiException>();
+
+        List<RundeckExecution> running;
+        if (selector.getProject() != null) {
+            running = getRunningExecutions(selector.getProject());
+        } else {
+            try {
+                running = getRunningExecutions();
+            } catch (RundeckApiPartialFailureException e) {
+                // abort the executions of the other projects
+                running = (List<RundeckExecution>) e.getResults();
+                errors.putAll(e.getFailures());
+            }
+        }
+        List<RundeckExecution> executions = new ArrayList<RundeckExecution>();
+        for (RundeckExecution execution : running) {
+            if (selector.matches(execution)) {
+                executions.add(execution);
+            }
+        }
+
+        List<RundeckAbort> aborts;
+        try {
+            aborts = new BulkCalls<RundeckExecution, RundeckAbort>("aborts", 0) {
+
+                @Override
+                protected RundeckAbort call(RundeckExecution execution) {
+                    return abortExecution(execution.getId());
+                }
+
+                @Override
+                protected String describe(int index, RundeckExecution execution) {
+                    return "execution " + execution.getId();
+                }
+            }.callAll(executions, getExecutor(), maxParallelCalls);
+        } catch (RundeckApiPartialFailureException e) {
+            aborts = (List<RundeckAbort>) e.getResults();
+            errors.putAll(e.getFailures());
+        }
+
+        Map<Long, RundeckAbort> results = new LinkedHashMap<Long, RundeckAbort>();
+        Map<Long, Future<RundeckExecution>> watched = new LinkedHashMap<Long, Future<RundeckExecution>>();
+        for (int i = 0; i < executions.size(); i++) {
+            RundeckAbort abort = aborts.get(i);
+            if (abort == null) {
+                continue;
+            }
+            results.put(executions.get(i).getId(), abort);
+            if (waitForAbortion && !AbortStatus.FAILED.equals(abort.getStatus())) {
+                watched.put(executions.get(i).getId(),
+                            getExecutionWatcher().watch(selector.getProject(),
+                                                        executions.get(i),
+                                                        new FixedPollingStrategy(1, TimeUnit.SECONDS),
+                                                        null));
+            }
+        }
+        for (Entry<Long, Future<RundeckExecution>> entry : watched.entrySet()) {
+            try {
+                results.get(entry.getKey()).setExecution(entry.getValue().get());
+            } catch (InterruptedException e) {
+                // stop waiting (and watching) : the results hold the state that we know
+                Thread.currentThread().interrupt();
+                for (Future<RundeckExecution> future : watched.values()) {
+                    future.cancel(false);
+                }
+                errors.put("wait for abortion", new RundeckApiException("Interrupted while waiting for the end of "
+                                                                        + "the aborted executions", e));
+                break;
+            } catch (ExecutionException e) {
+                errors.put("execution " + entry.getKey(), CallbackFuture.toRundeckApiException(e.getCause()));
+            }
+        }
+
+        if (!errors.isEmpty()) {
+            throw new RundeckApiPartialFailureException("Failed to abort the executions of " + errors.size()
+                                                        + " project(s) or execution(s) : " + errors.keySet(),
+                                                        results,
+                                                        errors);
+        }
+        return results;
     }
 
     /*
@@ -2219,24 +2741,159 @@ public class RundeckClient implements Serializable {
                                      new HistoryParser("result/events"));
     }
 
+    /**
+     * Get all the events of the history matching the given query, in a compact {@link EventTable} : the events are
+     * added to the table while the responses are parsed, without building a {@link RundeckEvent} instance for each
+     * event. The responses are always parsed with a streaming parser, even if the client is not configured to do so
+     * (see {@link #setStreamingParsers(boolean)}). The pages of the history are fetched one after the other.
+     * 
+     * @param query filters of the history - mandatory
+     * @return an {@link EventTable} holding all the events - won't be null
+     * @throws RundeckApiException in case of error when calling the API (non-existent project with this name)
+     * @throws RundeckApiLoginException if the login fails (in case of login-based authentication)
+     * @throws RundeckApiTokenException if the token is invalid (in case of token-based authentication)
+     * @throws IllegalArgumentException if the query is null
+     * @see #historyIterator(HistoryQuery)
+     */
+    public EventTable getHistoryTable(HistoryQuery query) throws RundeckApiException, RundeckApiLoginException,
+            RundeckApiTokenException, IllegalArgumentException {
+        AssertUtil.notNull(query, "query is mandatory to get the history !");
+        EventTable table = new EventTable();
+        long offset = 0;
+        while (true) {
+            int size = table.size();
+            RundeckHistory page = new ApiCall(this, true).get(historyPath(query, DEFAULT_HISTORY_PAGE_SIZE, offset),
+                                                              new HistoryParser("result/events", table));
+            offset += table.size() - size;
+            if (table.size() == size || offset >= page.getTotal()) {
+                break;
+            }
+        }
+        table.trimToSize();
+        return table;
+    }
+
+    /**
+     * @param query filters of the history
+     * @param max number of results to return
+     * @param offset the 0-indexed offset for the first result to return
+     * @return the API path to get a page of the history
+     */
+    private ApiPathBuilder historyPath(HistoryQuery query, long max, long offset) {
+        return new ApiPathBuilder("/history").param("project", query.getProject())
+                                             .param("jobIdFilter", query.getJobId())
+                                             .param("reportIdFilter", query.getReportId())
+                                             .param("userFilter", query.getUser())
+                                             .param("recentFilter", query.getRecent())
+                                             .param("begin", query.getBegin())
+                                             .param("end", query.getEnd())
+                                             .param("max", max)
+                                             .param("offset", offset);
+    }
+
+    /**
+     * Iterate over all the events of the history matching the given query. The pages of the history are fetched
+     * automatically, and the next pages are fetched in the background while you process the current one.
+     * 
+     * @param query filters of the history - mandatory
+     * @return a {@link CloseableIterator} of {@link RundeckEvent} : might be empty, but won't be null. You have to close
+     *         it if you don't iterate over all the events, so that the pages fetched in advance are discarded.
+     * @throws RundeckApiException in case of error when calling the API (non-existent project with this name) - might
+     *             also be thrown by the iterator, while fetching the next pages
+     * @throws RundeckApiLoginException if the login fails (in case of login-based authentication)
+     * @throws RundeckApiTokenException if the token is invalid (in case of token-based authentication)
+     * @throws IllegalArgumentException if the query is null
+     * @see #historyIterator(HistoryQuery, long, int)
+     */
+    public CloseableIterator<RundeckEvent> historyIterator(HistoryQuery query) throws RundeckApiException,
+            RundeckApiLoginException, RundeckApiTokenException, IllegalArgumentException {
+        return historyIterator(query, DEFAULT_HISTORY_PAGE_SIZE, DEFAULT_HISTORY_PREFETCH);
+    }
+
+    /**
+     * Iterate over all the events of the history matching the given query. The pages of the history are fetched
+     * automatically, and up to "prefetch" pages are fetched in the background while you process the current one : at
+     * most (prefetch + 1) pages are held in memory.
+     * 
+     * @param query filters of the history - mandatory
+     * @param pageSize number of events per page - must be > 0
+     * @param prefetch number of pages fetched in advance - 0 to fetch each page only when it is needed
+     * @return a {@link CloseableIterator} of {@link RundeckEvent} : might be empty, but won't be null. You have to close
+     *         it if you don't iterate over all the events, so that the pages fetched in advance are discarded.
+     * @throws RundeckApiException in case of error when calling the API (non-existent project with this name) - might
+     *             also be thrown by the iterator, while fetching the next pages
+     * @throws RundeckApiLoginException if the login fails (in case of login-based authentication)
+     * @throws RundeckApiTokenException if the token is invalid (in case of token-based authentication)
+     * @throws IllegalArgumentException if the query is null, the page size is not positive or the prefetch is negative
+     */
+    public CloseableIterator<RundeckEvent> historyIterator(final HistoryQuery query, long pageSize, int prefetch)
+            throws RundeckApiException, RundeckApiLoginException, RundeckApiTokenException, IllegalArgumentException {
+        AssertUtil.notNull(query, "query is mandatory to iterate over the history !");
+        AssertUtil.isTrue(pageSize > 0, "pageSize must be > 0 !");
+        AssertUtil.isTrue(prefetch >= 0, "prefetch must be >= 0 !");
+        CloseableIterator<RundeckEvent> events = new HistoryIterator(getExecutor(), pageSize, prefetch) {
+
+            @Override
+            protected RundeckHistory fetch(long offset, long max) {
+                return getHistory(query.getProject(),
+                                  query.getJobId(),
+                                  query.getReportId(),
+                                  query.getUser(),
+                                  query.getRecent(),
+                                  query.getBegin(),
+                                  query.getEnd(),
+                                  max,
+                                  offset);
+            }
+        };
+        // fetch the first page now, so that a wrong query fails here
+        events.hasNext();
+        return events;
+    }
+
     /*
      * Nodes
      */
 
     /**
-     * List all nodes (for all projects)
+     * List all nodes (for all projects). The projects are queried concurrently, see {@link #setMaxParallelCalls(int)}.
      * 
      * @return a {@link List} of {@link RundeckNode} : might be empty, but won't be null
+     * @throws RundeckApiPartialFailureException if we failed to get the nodes of some projects - holds the nodes of the
+     *             other projects
      * @throws RundeckApiException in case of error when calling the API
      * @throws RundeckApiLoginException if the login fails (in case of login-based authentication)
      * @throws RundeckApiTokenException if the token is invalid (in case of token-based authentication)
+     * @see #getNodes(Executor)
      */
-    public List<RundeckNode> getNodes() throws RundeckApiException, RundeckApiLoginException, RundeckApiTokenException {
-        List<RundeckNode> nodes = new ArrayList<RundeckNode>();
-        for (RundeckProject project : getProjects()) {
-            nodes.addAll(getNodes(project.getName()));
-        }
-        return nodes;
+    public List<RundeckNode> getNodes() throws RundeckApiPartialFailureException, RundeckApiException,
+            RundeckApiLoginException, RundeckApiTokenException {
+        return getNodes(getExecutor());
+    }
+
+    /**
+     * List all nodes (for all projects). The projects are queried concurrently on the given executor, see
+     * {@link #setMaxParallelCalls(int)}.
+     * 
+     * @param executor used to query the projects concurrently - mandatory
+     * @return a {@link List} of {@link RundeckNode} : might be empty, but won't be null
+     * @throws RundeckApiPartialFailureException if we failed to get the nodes of some projects - holds the nodes of the
+     *             other projects
+     * @throws RundeckApiException in case of error when calling the API
+     * @throws RundeckApiLoginException if the login fails (in case of login-based authentication)
+     * @throws RundeckApiTokenException if the token is invalid (in case of token-based authentication)
+     * @throws IllegalArgumentException if the executor is null
+     */
+    public List<RundeckNode> getNodes(Executor executor) throws RundeckApiPartialFailureException,
+            RundeckApiException, RundeckApiLoginException, RundeckApiTokenException, IllegalArgumentException {
+        AssertUtil.notNull(executor, "executor is mandatory to get all nodes !");
+        return new ProjectsAggregator<RundeckNode>("nodes") {
+
+            @Override
+            protected List<RundeckNode> get(String project) {
+                return getNodes(project);
+            }
+        }.aggregate(getProjects(), executor, maxParallelCalls);
     }
 
     /**
@@ -2271,7 +2928,50 @@ public class RundeckClient implements Serializable {
         AssertUtil.notBlank(project, "project is mandatory to get all nodes !");
         return new ApiCall(this).get(new ApiPathBuilder("/resources").param("project", project)
                                                                      .nodeFilters(nodeFilters),
-                                     new ListParser<RundeckNode>(new NodeParser(), "project/node"));
+                                     new ListParser<RundeckNode>(new NodeParser(), "project/node"),
+                                     Resource.NODES);
+    }
+
+    /**
+     * Iterate over all the nodes that belongs to the given project. Contrary to {@link #getNodes(String)}, the nodes
+     * are parsed one at a time while the response is read from the network, so this should be used for projects with a
+     * very large number of nodes.
+     * 
+     * @param project name of the project - mandatory
+     * @return a {@link CloseableIterator} of {@link RundeckNode} : might be empty, but won't be null. You have to close
+     *         it if you don't iterate over all the nodes, so that the HTTP connection is released.
+     * @throws RundeckApiException in case of error when calling the API (non-existent project with this name)
+     * @throws RundeckApiLoginException if the login fails (in case of login-based authentication)
+     * @throws RundeckApiTokenException if the token is invalid (in case of token-based authentication)
+     * @throws IllegalArgumentException if the project is blank (null, empty or whitespace)
+     * @see #streamNodes(String, Properties)
+     */
+    public CloseableIterator<RundeckNode> streamNodes(String project) throws RundeckApiException,
+            RundeckApiLoginException, RundeckApiTokenException, IllegalArgumentException {
+        return streamNodes(project, null);
+    }
+
+    /**
+     * Iterate over the nodes that belongs to the given project. Contrary to {@link #getNodes(String, Properties)}, the
+     * nodes are parsed one at a time while the response is read from the network, so this should be used for projects
+     * with a very large number of nodes.
+     * 
+     * @param project name of the project - mandatory
+     * @param nodeFilters for filtering the nodes - optional. See {@link NodeFiltersBuilder}
+     * @return a {@link CloseableIterator} of {@link RundeckNode} : might be empty, but won't be null. You have to close
+     *         it if you don't iterate over all the nodes, so that the HTTP connection is released.
+     * @throws RundeckApiException in case of error when calling the API (non-existent project with this name)
+     * @throws RundeckApiLoginException if the login fails (in case of login-based authentication)
+     * @throws RundeckApiTokenException if the token is invalid (in case of token-based authentication)
+     * @throws IllegalArgumentException if the project is blank (null, empty or whitespace)
+     */
+    public CloseableIterator<RundeckNode> streamNodes(String project, Properties nodeFilters)
+            throws RundeckApiException, RundeckApiLoginException, RundeckApiTokenException, IllegalArgumentException {
+        AssertUtil.notBlank(project, "project is mandatory to get all nodes !");
+        return new ApiCall(this).iterate(new ApiPathBuilder("/resources").param("project", project)
+                                                                         .nodeFilters(nodeFilters),
+                                         new NodeParser(),
+                                         "project/node");
     }
 
     /**
@@ -2290,7 +2990,8 @@ public class RundeckClient implements Serializable {
         AssertUtil.notBlank(name, "the name of the node is mandatory to get a node !");
         AssertUtil.notBlank(project, "project is mandatory to get a node !");
         return new ApiCall(this).get(new ApiPathBuilder("/resource/", name).param("project", project),
-                                     new NodeParser("project/node"));
+                                     new NodeParser("project/node"),
+                                     Resource.NODES);
     }
 
     /*
@@ -2307,7 +3008,107 @@ public class RundeckClient implements Serializable {
      */
     public RundeckSystemInfo getSystemInfo() throws RundeckApiException, RundeckApiLoginException,
             RundeckApiTokenException {
-        return new ApiCall(this).get(new ApiPathBuilder("/system/info"), new SystemInfoParser("result/system"));
+        return new ApiCall(this).get(new ApiPathBuilder("/system/info"),
+                                     new SystemInfoParser("result/system"),
+                                     Resource.SYSTEM_INFO);
+    }
+
+    /**
+     * Release all the HTTP connections (and the background threads) held by this client. The executions still watched
+     * by the {@link ExecutionWatcher} will fail with a {@link RundeckApiException}. The client can still be used after
+     * being closed : a new pool of connections will be created on the next API call.
+     */
+    @Override
+    public synchronized void close() {
+        if (executionWatcher != null) {
+            executionWatcher.close();
+            executionWatcher = null;
+        }
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+        if (httpClient != null) {
+            httpClient.getConnectionManager().shutdown();
+            httpClient = null;
+        }
+        // the cookies of the session are gone with the HTTP client
+        loginSession = 0;
+    }
+
+    /**
+     * Get the {@link HttpClient} shared by all API calls, instantiating it (and its pool of connections) if needed.
+     * This will also evict the connections that have been idle for too long, so that they are not kept open forever.
+     * 
+     * @return an {@link HttpClient} instance - won't be null
+     */
+    synchronized HttpClient getHttpClient() {
+        long now = System.currentTimeMillis();
+        if (httpClient == null) {
+            httpClient = ApiCall.instantiateHttpClient(this);
+            lastConnectionsEviction = now;
+        } else if (now - lastConnectionsEviction >= connectionIdleTimeout) {
+            ClientConnectionManager connectionManager = httpClient.getConnectionManager();
+            connectionManager.closeExpiredConnections();
+            connectionManager.closeIdleConnections(connectionIdleTimeout, TimeUnit.MILLISECONDS);
+            lastConnectionsEviction = now;
+        }
+        return httpClient;
+    }
+
+    /**
+     * Get the {@link ExecutionWatcher} of this client, which polls the RunDeck server for all the executions you are
+     * waiting for (with a single background thread). This is what {@link #runJob(String)} and the other "run" methods
+     * use to wait for the end of the execution.
+     * 
+     * @return an {@link ExecutionWatcher} instance - won't be null
+     */
+    public synchronized ExecutionWatcher getExecutionWatcher() {
+        if (executionWatcher == null) {
+            executionWatcher = new ExecutionWatcher(this);
+        }
+        return executionWatcher;
+    }
+
+    /**
+     * Get the {@link ExecutorService} used to run the background tasks of this client (concurrent API calls, ...),
+     * instantiating it if needed. Its threads are daemon threads, so that they won't prevent the JVM from exiting.
+     * 
+     * @return an {@link ExecutorService} instance - won't be null
+     */
+    synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newCachedThreadPool(new DaemonThreadFactory("rundeck-client-"));
+        }
+        return executor;
+    }
+
+    /**
+     * @return the lock to acquire before login (in case of login-based auth)
+     */
+    Lock getLoginLock() {
+        return loginLock;
+    }
+
+    /**
+     * @return the identifier of the current session (in case of login-based auth) - 0 if we are not logged in
+     */
+    int getLoginSession() {
+        return loginSession;
+    }
+
+    /**
+     * Register a new session, after a successful login. You should hold the {@link #getLoginLock()}.
+     * 
+     * @return the identifier of the new session - always > 0
+     */
+    int newLoginSession() {
+        loginSessionsCount++;
+        if (loginSessionsCount <= 0) {
+            loginSessionsCount = 1;
+        }
+        loginSession = loginSessionsCount;
+        return loginSession;
     }
 
     /**
@@ -2338,6 +3139,295 @@ public class RundeckClient implements Serializable {
         return password;
     }
 
+    /**
+     * @return the maximum number of HTTP connections in the pool (default to 20)
+     */
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * @param maxConnections maximum number of HTTP connections in the pool. Must be > 0.
+     * @throws IllegalArgumentException if maxConnections is not > 0
+     */
+    public synchronized void setMaxConnections(int maxConnections) throws IllegalArgumentException {
+        AssertUtil.isTrue(maxConnections > 0, "maxConnections must be > 0 !");
+        this.maxConnections = maxConnections;
+        if (httpClient != null) {
+            ((ThreadSafeClientConnManager) httpClient.getConnectionManager()).setMaxTotal(maxConnections);
+        }
+    }
+
+    /**
+     * @return the maximum number of HTTP connections in the pool, per route (default to 20)
+     */
+    public int getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+
+    /**
+     * @param maxConnectionsPerRoute maximum number of HTTP connections in the pool, per route. Must be > 0.
+     * @throws IllegalArgumentException if maxConnectionsPerRoute is not > 0
+     */
+    public synchronized void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) throws IllegalArgumentException {
+        AssertUtil.isTrue(maxConnectionsPerRoute > 0, "maxConnectionsPerRoute must be > 0 !");
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+        if (httpClient != null) {
+            ThreadSafeClientConnManager connectionManager;
+            connectionManager = (ThreadSafeClientConnManager) httpClient.getConnectionManager();
+            connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+        }
+    }
+
+    /**
+     * @return the time (in milli-seconds) after which an idle HTTP connection will be evicted from the pool (default to
+     *         30 seconds)
+     */
+    public long getConnectionIdleTimeout() {
+        return connectionIdleTimeout;
+    }
+
+    /**
+     * @param connectionIdleTimeout time after which an idle HTTP connection will be evicted from the pool. Must be > 0.
+     * @param unit of the timeout (seconds, milli-seconds, ...) - mandatory
+     * @throws IllegalArgumentException if connectionIdleTimeout is not > 0, or unit is null
+     */
+    public synchronized void setConnectionIdleTimeout(long connectionIdleTimeout, TimeUnit unit)
+            throws IllegalArgumentException {
+        AssertUtil.isTrue(connectionIdleTimeout > 0, "connectionIdleTimeout must be > 0 !");
+        AssertUtil.notNull(unit, "unit of the connectionIdleTimeout is mandatory !");
+        this.connectionIdleTimeout = unit.toMillis(connectionIdleTimeout);
+    }
+
+    /**
+     * @return true if a pooled HTTP connection is checked (is it still valid ?) before being re-used (default to true)
+     */
+    public boolean isStaleConnectionCheck() {
+        return staleConnectionCheck;
+    }
+
+    /**
+     * @param staleConnectionCheck whether a pooled HTTP connection should be checked (is it still valid ?) before
+     *            being re-used. Disabling it saves a few milli-seconds per call, but you might get I/O errors when
+     *            re-using a connection closed by the server.
+     */
+    public synchronized void setStaleConnectionCheck(boolean staleConnectionCheck) {
+        this.staleConnectionCheck = staleConnectionCheck;
+        if (httpClient != null) {
+            HttpConnectionParams.setStaleCheckingEnabled(httpClient.getParams(), staleConnectionCheck);
+        }
+    }
+
+    /**
+     * @return true if the responses are parsed with a streaming (StAX) parser, false if they are loaded as a DOM
+     *         document first (default to false)
+     */
+    public boolean isStreamingParsers() {
+        return streamingParsers;
+    }
+
+    /**
+     * @param streamingParsers whether the responses should be parsed with a streaming (StAX) parser. This gives the
+     *            same results as the default DOM parsing, but without building the whole XML document in memory, which
+     *            is faster and cheaper for large responses (history, nodes, jobs, ...).
+     */
+    public void setStreamingParsers(boolean streamingParsers) {
+        this.streamingParsers = streamingParsers;
+    }
+
+    /**
+     * @return the maximum number of concurrent API calls, when aggregating the results of all projects (default to 8)
+     */
+    public int getMaxParallelCalls() {
+        return maxParallelCalls;
+    }
+
+    /**
+     * @param maxParallelCalls maximum number of concurrent API calls, when aggregating the results of all projects (see
+     *            {@link #getJobs()}, {@link #getNodes()}, ...). Should not be greater than
+     *            {@link #getMaxConnectionsPerRoute()}, or the calls will wait for a free connection. Use 1 to query the
+     *            projects sequentially.
+     * @throws IllegalArgumentException if maxParallelCalls is not positive
+     */
+    public void setMaxParallelCalls(int maxParallelCalls) throws IllegalArgumentException {
+        AssertUtil.isTrue(maxParallelCalls > 0, "maxParallelCalls must be > 0 !");
+        this.maxParallelCalls = maxParallelCalls;
+    }
+
+    /**
+     * @return true if the responses are read from the network while they are parsed, false if they are buffered in
+     *         memory (default)
+     */
+    public boolean isStreamingResponses() {
+        return streamingResponses;
+    }
+
+    /**
+     * If enabled, the responses will not be buffered in memory before being parsed : the parsers will read them from
+     * the network, and error responses will be detected from their first bytes. This reduces the memory used (and the
+     * latency) for big responses (jobs, nodes, history, ...). The methods returning an {@link InputStream} (see
+     * {@link #exportJobs(FileType, String)} and so on) will then return a stream linked to the HTTP connection : you
+     * will have to close it to release the connection. Note that the cached calls (see
+     * {@link #setResponseCache(ResponseCache)}) and the coalesced calls (see {@link #setRequestCoalescing(boolean)})
+     * are still buffered.
+     * 
+     * @param streamingResponses true to read the responses from the network while they are parsed, false to buffer
+     *            them in memory (default)
+     */
+    public void setStreamingResponses(boolean streamingResponses) {
+        this.streamingResponses = streamingResponses;
+    }
+
+    /**
+     * @return true if the identical concurrent GET requests share a single HTTP request, false otherwise (default)
+     */
+    public boolean isRequestCoalescing() {
+        return requestCoalescing;
+    }
+
+    /**
+     * If enabled, the identical concurrent GET requests (same path and parameters) will share a single HTTP request :
+     * while a request is in flight, the other callers asking for the same thing wait for its response instead of
+     * making their own request. Each caller still gets its own parsed result. This is useful when many threads poll
+     * the same resources (same execution, nodes of the same project, ...).
+     * 
+     * @param requestCoalescing true to coalesce the identical concurrent GET requests, false otherwise (default)
+     * @see #getCoalescedCallsCount()
+     */
+    public void setRequestCoalescing(boolean requestCoalescing) {
+        this.requestCoalescing = requestCoalescing;
+    }
+
+    /**
+     * @return the number of GET calls that could be coalesced : all the GET calls made while the requests coalescing
+     *         was enabled. Compare with {@link #getCoalescedCallsCount()}.
+     * @see #setRequestCoalescing(boolean)
+     */
+    public long getCoalescableCallsCount() {
+        return getRequestCoalescer().getCallsCount();
+    }
+
+    /**
+     * @return the number of GET calls that were served by the request of another caller, instead of making their own
+     *         HTTP request
+     * @see #setRequestCoalescing(boolean)
+     */
+    public long getCoalescedCallsCount() {
+        return getRequestCoalescer().getCoalescedCallsCount();
+    }
+
+    /**
+     * @return the {@link RequestCoalescer} for the GET requests - won't be null
+     */
+    synchronized RequestCoalescer getRequestCoalescer() {
+        if (requestCoalescer == null) {
+            requestCoalescer = new RequestCoalescer();
+        }
+        return requestCoalescer;
+    }
+
+    /**
+     * @return the cache for the responses of the read-mostly API calls (projects, jobs, nodes, system info) - null if
+     *         the responses are not cached (default)
+     */
+    public ResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    /**
+     * Use a cache for the responses of the read-mostly API calls (projects, jobs, nodes, system info), so that
+     * repeated reads are served locally, without an HTTP round trip. The cached jobs are invalidated when jobs are
+     * imported or deleted through this client. Note that the cache is not serialized with the client.
+     * 
+     * @param responseCache to use - null to disable the cache. See {@link DefaultResponseCache}.
+     * @see #setCacheTtl(Resource, long, TimeUnit)
+     */
+    public void setResponseCache(ResponseCache responseCache) {
+        this.responseCache = responseCache;
+    }
+
+    /**
+     * @param resource kind of resource - mandatory
+     * @return the time-to-live (in milli-seconds) of the cached responses for the given kind of resource (default to
+     *         {@link Resource#getDefaultTtl()}) - 0 if they are not cached
+     * @throws IllegalArgumentException if the resource is null
+     */
+    public long getCacheTtl(Resource resource) throws IllegalArgumentException {
+        AssertUtil.notNull(resource, "resource is mandatory to get its time-to-live !");
+        synchronized (cacheTtls) {
+            Long ttl = cacheTtls.get(resource);
+            return ttl != null ? ttl : resource.getDefaultTtl();
+        }
+    }
+
+    /**
+     * @param resource kind of resource - mandatory
+     * @param ttl time-to-live of the cached responses for the given kind of resource. Use 0 to disable the cache for
+     *            this kind of resource.
+     * @param unit unit (seconds, milli-seconds, ...) of the time-to-live - mandatory
+     * @throws IllegalArgumentException if the resource or the unit is null, or the ttl is negative
+     */
+    public void setCacheTtl(Resource resource, long ttl, TimeUnit unit) throws IllegalArgumentException {
+        AssertUtil.notNull(resource, "resource is mandatory to set its time-to-live !");
+        AssertUtil.notNull(unit, "unit of the time-to-live is mandatory !");
+        AssertUtil.isTrue(ttl >= 0, "ttl must be >= 0 !");
+        synchronized (cacheTtls) {
+            cacheTtls.put(resource, unit.toMillis(ttl));
+        }
+        invalidateCache(resource);
+    }
+
+    /**
+     * Remove the cached responses for the given kind of resource (if the responses are cached)
+     * 
+     * @param resource kind of resource
+     */
+    private void invalidateCache(Resource resource) {
+        ResponseCache cache = responseCache;
+        synchronized (cacheGenerations) {
+            cacheGenerations.put(resource, getCacheGeneration(resource) + 1);
+            if (cache != null) {
+                cache.invalidate(resource);
+            }
+        }
+    }
+
+    /**
+     * @param resource kind of resource
+     * @return the generation of the cached responses for the given kind of resource, incremented each time they are
+     *         invalidated
+     */
+    long getCacheGeneration(Resource resource) {
+        synchronized (cacheGenerations) {
+            Long generation = cacheGenerations.get(resource);
+            return generation != null ? generation : 0;
+        }
+    }
+
+    /**
+     * Put the given response in the given cache, unless the responses of its kind of resource have been invalidated
+     * since it was fetched
+     * 
+     * @param cache in which the response is put
+     * @param key of the response (URL of the API call)
+     * @param resource kind of resource of the response
+     * @param response to cache
+     * @param ttl time-to-live (in milli-seconds) of the response
+     * @param generation of the cached responses (see {@link #getCacheGeneration(Resource)}) before the response was
+     *            fetched
+     * @return true if the response has been cached, false if it is stale
+     */
+    boolean cacheResponse(ResponseCache cache, String key, Resource resource, byte[] response, long ttl,
+            long generation) {
+        synchronized (cacheGenerations) {
+            if (getCacheGeneration(resource) != generation) {
+                return false;
+            }
+            cache.put(key, resource, response, ttl);
+            return true;
+        }
+    }
+
     @Override
     public String toString() {
         StringBuilder str = new StringBuilder();
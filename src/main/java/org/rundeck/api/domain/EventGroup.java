@@ -0,0 +1,137 @@
+/*
+ * Copyright 2011 Vincent Behar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rundeck.api.domain;
+
+import java.io.Serializable;
+import java.util.Date;
+import org.rundeck.api.domain.RundeckEvent.EventStatus;
+
+/**
+ * Key of a group of (history) events, for the aggregated statistics : only the dimensions used for the grouping are
+ * set, the others are null.
+ * 
+ * @author Vincent Behar
+ */
+public class EventGroup implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String project;
+
+    private final String jobId;
+
+    private final String user;
+
+    private final EventStatus status;
+
+    private final Date timeBucket;
+
+    /**
+     * @param project name of the project
+     * @param jobId identifier of the job
+     * @param user login of the user
+     * @param status of the events
+     * @param timeBucket start of the period of time
+     */
+    public EventGroup(String project, String jobId, String user, EventStatus status, Date timeBucket) {
+        super();
+        this.project = project;
+        this.jobId = jobId;
+        this.user = user;
+        this.status = status;
+        this.timeBucket = timeBucket;
+    }
+
+    public String getProject() {
+        return project;
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public String getUser() {
+        return user;
+    }
+
+    public EventStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * @return the start of the period of time of the events (based on their start date) - or null if not grouped by
+     *         period of time
+     */
+    public Date getTimeBucket() {
+        return timeBucket;
+    }
+
+    @Override
+    public String toString() {
+        return "EventGroup [project=" + project + ", jobId=" + jobId + ", user=" + user + ", status=" + status
+               + ", timeBucket=" + timeBucket + "]";
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + ((jobId == null) ? 0 : jobId.hashCode());
+        result = prime * result + ((project == null) ? 0 : project.hashCode());
+        result = prime * result + ((status == null) ? 0 : status.hashCode());
+        result = prime * result + ((timeBucket == null) ? 0 : timeBucket.hashCode());
+        result = prime * result + ((user == null) ? 0 : user.hashCode());
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null)
+            return false;
+        if (getClass() != obj.getClass())
+            return false;
+        EventGroup other = (EventGroup) obj;
+        if (jobId == null) {
+            if (other.jobId != null)
+                return false;
+        } else if (!jobId.equals(other.jobId))
+            return false;
+        if (project == null) {
+            if (other.project != null)
+                return false;
+        } else if (!project.equals(other.project))
+            return false;
+        if (status == null) {
+            if (other.status != null)
+                return false;
+        } else if (!status.equals(other.status))
+            return false;
+        if (timeBucket == null) {
+            if (other.timeBucket != null)
+                return false;
+        } else if (!timeBucket.equals(other.timeBucket))
+            return false;
+        if (user == null) {
+            if (other.user != null)
+                return false;
+        } else if (!user.equals(other.user))
+            return false;
+        return true;
+    }
+
+}
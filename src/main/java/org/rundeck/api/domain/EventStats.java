@@ -0,0 +1,304 @@
+/*
+ * Copyright 2011 Vincent Behar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rundeck.api.domain;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import org.rundeck.api.domain.RundeckEvent.EventStatus;
+import org.rundeck.api.domain.RundeckEvent.NodeSummary;
+
+/**
+ * Aggregated statistics of a group of (history) events : counts by status, nodes counts, and durations. The statistics
+ * are computed in a single pass, and can be merged : the durations are recorded in a histogram with logarithmic
+ * buckets (4% wide), so that the percentiles are estimated within 2%, in constant memory.
+ * 
+ * @author Vincent Behar
+ */
+public class EventStats implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Ratio between the bounds of a bucket of the durations histogram */
+    private static final double BUCKET_RATIO = 1.04;
+
+    private static final double LOG_BUCKET_RATIO = Math.log(BUCKET_RATIO);
+
+    private long count = 0;
+
+    private long succeeded = 0;
+
+    private long failed = 0;
+
+    private long aborted = 0;
+
+    private long nodesSucceeded = 0;
+
+    private long nodesFailed = 0;
+
+    private long nodesTotal = 0;
+
+    /** Number of events with a known duration */
+    private long durationsCount = 0;
+
+    private long durationsSum = 0;
+
+    private long minDuration = Long.MAX_VALUE;
+
+    private long maxDuration = Long.MIN_VALUE;
+
+    /** Number of durations in each bucket : [0, 1[ for the first one, then [1.04^(i-1), 1.04^i[ (in milli-seconds) */
+    private int[] histogram = new int[0];
+
+    /**
+     * Add an event to the statistics
+     * 
+     * @param status of the event - may be null
+     * @param durationInMillis duration of the event, or a negative value if unknown
+     * @param nodesSucceeded number of succeeded nodes, or a negative value if unknown
+     * @param nodesFailed number of failed nodes, or a negative value if unknown
+     * @param nodesTotal total number of nodes, or a negative value if unknown
+     */
+    public void add(EventStatus status, long durationInMillis, int nodesSucceeded, int nodesFailed, int nodesTotal) {
+        count++;
+        if (status == EventStatus.SUCCEEDED) {
+            succeeded++;
+        } else if (status == EventStatus.FAILED) {
+            failed++;
+        } else if (status == EventStatus.ABORTED) {
+            aborted++;
+        }
+        this.nodesSucceeded += Math.max(0, nodesSucceeded);
+        this.nodesFailed += Math.max(0, nodesFailed);
+        this.nodesTotal += Math.max(0, nodesTotal);
+        if (durationInMillis >= 0) {
+            durationsCount++;
+            durationsSum += durationInMillis;
+            minDuration = Math.min(minDuration, durationInMillis);
+            maxDuration = Math.max(maxDuration, durationInMillis);
+            int bucket = durationInMillis < 1 ? 0 : 1 + (int) (Math.log(durationInMillis) / LOG_BUCKET_RATIO);
+            if (bucket >= histogram.length) {
+                histogram = Arrays.copyOf(histogram, bucket + 1);
+            }
+            histogram[bucket]++;
+        }
+    }
+
+    /**
+     * Add an event to the statistics
+     * 
+     * @param event to add
+     */
+    public void add(RundeckEvent event) {
+        Long duration = event.getDurationInMillis();
+        NodeSummary nodeSummary = event.getNodeSummary();
+        add(event.getStatus(),
+            duration != null ? duration : -1,
+            nodeSummary != null ? nodeSummary.getSucceeded() : -1,
+            nodeSummary != null ? nodeSummary.getFailed() : -1,
+            nodeSummary != null ? nodeSummary.getTotal() : -1);
+    }
+
+    /**
+     * Add the statistics of another group of events
+     * 
+     * @param other statistics to merge into these ones
+     */
+    public void merge(EventStats other) {
+        count += other.count;
+        succeeded += other.succeeded;
+        failed += other.failed;
+        aborted += other.aborted;
+        nodesSucceeded += other.nodesSucceeded;
+        nodesFailed += other.nodesFailed;
+        nodesTotal += other.nodesTotal;
+        durationsCount += other.durationsCount;
+        durationsSum += other.durationsSum;
+        minDuration = Math.min(minDuration, other.minDuration);
+        maxDuration = Math.max(maxDuration, other.maxDuration);
+        if (other.histogram.length > histogram.length) {
+            histogram = Arrays.copyOf(histogram, other.histogram.length);
+        }
+        for (int i = 0; i < other.histogram.length; i++) {
+            histogram[i] += other.histogram[i];
+        }
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getSucceeded() {
+        return succeeded;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public long getAborted() {
+        return aborted;
+    }
+
+    /**
+     * @return the ratio (between 0 and 1) of succeeded events - 0 if there is no event
+     */
+    public double getSuccessRate() {
+        return count > 0 ? (double) succeeded / count : 0;
+    }
+
+    /**
+     * @return the ratio (between 0 and 1) of failed events - 0 if there is no event
+     */
+    public double getFailureRate() {
+        return count > 0 ? (double) failed / count : 0;
+    }
+
+    public long getNodesSucceeded() {
+        return nodesSucceeded;
+    }
+
+    public long getNodesFailed() {
+        return nodesFailed;
+    }
+
+    public long getNodesTotal() {
+        return nodesTotal;
+    }
+
+    /**
+     * @return the ratio (between 0 and 1) of failed nodes - 0 if there is no node
+     */
+    public double getNodesFailureRate() {
+        return nodesTotal > 0 ? (double) nodesFailed / nodesTotal : 0;
+    }
+
+    /**
+     * @return the number of events with a known duration
+     */
+    public long getDurationsCount() {
+        return durationsCount;
+    }
+
+    /**
+     * @return the minimum duration (in milli-seconds) - or -1 if no duration is known
+     */
+    public long getMinDuration() {
+        return durationsCount > 0 ? minDuration : -1;
+    }
+
+    /**
+     * @return the maximum duration (in milli-seconds) - or -1 if no duration is known
+     */
+    public long getMaxDuration() {
+        return durationsCount > 0 ? maxDuration : -1;
+    }
+
+    /**
+     * @return the mean duration (in milli-seconds) - or -1 if no duration is known
+     */
+    public double getMeanDuration() {
+        return durationsCount > 0 ? (double) durationsSum / durationsCount : -1;
+    }
+
+    /**
+     * Estimate a percentile of the durations (within 2%)
+     * 
+     * @param percentile between 0 and 100 - for example 95 for the p95
+     * @return the estimated duration (in milli-seconds) - or -1 if no duration is known
+     * @throws IllegalArgumentException if the percentile is not between 0 and 100
+     */
+    public long getDurationPercentile(double percentile) throws IllegalArgumentException {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile must be between 0 and 100 : " + percentile);
+        }
+        if (durationsCount == 0) {
+            return -1;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * durationsCount));
+        long seen = 0;
+        int bucket = 0;
+        while ((seen += histogram[bucket]) < rank) {
+            bucket++;
+        }
+        // geometric middle of the bucket, within the known bounds
+        long estimate = bucket == 0 ? 0 : Math.round(Math.pow(BUCKET_RATIO, bucket - 0.5));
+        return Math.max(minDuration, Math.min(maxDuration, estimate));
+    }
+
+    @Override
+    public String toString() {
+        return "EventStats [count=" + count + ", succeeded=" + succeeded + ", failed=" + failed + ", aborted="
+               + aborted + ", nodesSucceeded=" + nodesSucceeded + ", nodesFailed=" + nodesFailed + ", nodesTotal="
+               + nodesTotal + ", minDuration=" + getMinDuration() + ", meanDuration=" + getMeanDuration()
+               + ", maxDuration=" + getMaxDuration() + "]";
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + (int) (aborted ^ (aborted >>> 32));
+        result = prime * result + (int) (count ^ (count >>> 32));
+        result = prime * result + (int) (durationsCount ^ (durationsCount >>> 32));
+        result = prime * result + (int) (durationsSum ^ (durationsSum >>> 32));
+        result = prime * result + (int) (failed ^ (failed >>> 32));
+        result = prime * result + Arrays.hashCode(histogram);
+        result = prime * result + (int) (maxDuration ^ (maxDuration >>> 32));
+        result = prime * result + (int) (minDuration ^ (minDuration >>> 32));
+        result = prime * result + (int) (nodesFailed ^ (nodesFailed >>> 32));
+        result = prime * result + (int) (nodesSucceeded ^ (nodesSucceeded >>> 32));
+        result = prime * result + (int) (nodesTotal ^ (nodesTotal >>> 32));
+        result = prime * result + (int) (succeeded ^ (succeeded >>> 32));
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null)
+            return false;
+        if (getClass() != obj.getClass())
+            return false;
+        EventStats other = (EventStats) obj;
+        if (aborted != other.aborted)
+            return false;
+        if (count != other.count)
+            return false;
+        if (durationsCount != other.durationsCount)
+            return false;
+        if (durationsSum != other.durationsSum)
+            return false;
+        if (failed != other.failed)
+            return false;
+        if (!Arrays.equals(histogram, other.histogram))
+            return false;
+        if (maxDuration != other.maxDuration)
+            return false;
+        if (minDuration != other.minDuration)
+            return false;
+        if (nodesFailed != other.nodesFailed)
+            return false;
+        if (nodesSucceeded != other.nodesSucceeded)
+            return false;
+        if (nodesTotal != other.nodesTotal)
+            return false;
+        if (succeeded != other.succeeded)
+            return false;
+        return true;
+    }
+
+}
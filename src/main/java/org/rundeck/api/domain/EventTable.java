@@ -0,0 +1,348 @@
+/*
+ * Copyright 2011 Vincent Behar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rundeck.api.domain;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import org.rundeck.api.domain.RundeckEvent.EventStatus;
+import org.rundeck.api.domain.RundeckEvent.NodeSummary;
+
+/**
+ * Columnar representation of a large number of (history) events : each field is stored in an array of primitives,
+ * instead of an object per event. The dates and execution IDs are stored as longs, the nodes counts as ints, and the
+ * strings (except the summary) are dictionary-encoded : each distinct project, user, title, job ID, ... is stored only
+ * once. <br>
+ * The events can still be read as {@link RundeckEvent} instances, which are built on demand, see {@link #asList()}.
+ * 
+ * @author Vincent Behar
+ */
+public class EventTable implements Iterable<RundeckEvent>, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Value of a missing date or execution ID */
+    public static final long NO_VALUE = Long.MIN_VALUE;
+
+    private int size = 0;
+
+    private long[] startedAt = new long[16];
+
+    private long[] endedAt = new long[16];
+
+    private long[] executionIds = new long[16];
+
+    /** Nodes counts, -1 if the event has no node summary */
+    private int[] nodesSucceeded = new int[16], nodesFailed = new int[16], nodesTotal = new int[16];
+
+    /** Ordinal of the status, -1 if unknown */
+    private byte[] statuses = new byte[16];
+
+    /** Codes (in the dictionary) of the strings, -1 if null */
+    private int[] titles = new int[16], users = new int[16], projects = new int[16], jobIds = new int[16],
+            abortedBy = new int[16];
+
+    private String[] summaries = new String[16];
+
+    /** Distinct strings, indexed by their code */
+    private final List<String> dictionary = new ArrayList<String>();
+
+    private final Map<String, Integer> codes = new HashMap<String, Integer>();
+
+    /**
+     * Add the given event
+     * 
+     * @param event to add
+     */
+    public void addEvent(RundeckEvent event) {
+        NodeSummary nodeSummary = event.getNodeSummary();
+        addEvent(event.getTitle(),
+                 event.getStatus(),
+                 event.getSummary(),
+                 nodeSummary != null ? nodeSummary.getSucceeded() : -1,
+                 nodeSummary != null ? nodeSummary.getFailed() : -1,
+                 nodeSummary != null ? nodeSummary.getTotal() : -1,
+                 event.getUser(),
+                 event.getProject(),
+                 event.getStartedAt() != null ? event.getStartedAt().getTime() : NO_VALUE,
+                 event.getEndedAt() != null ? event.getEndedAt().getTime() : NO_VALUE,
+                 event.getAbortedBy(),
+                 event.getExecutionId() != null ? event.getExecutionId() : NO_VALUE,
+                 event.getJobId());
+    }
+
+    /**
+     * Add an event, without building a {@link RundeckEvent} instance
+     * 
+     * @param title of the event
+     * @param status of the event - may be null
+     * @param summary of the event
+     * @param nodesSucceeded number of succeeded nodes, -1 if the event has no node summary
+     * @param nodesFailed number of failed nodes, -1 if the event has no node summary
+     * @param nodesTotal total number of nodes, -1 if the event has no node summary
+     * @param user who started the event
+     * @param project of the event
+     * @param startedAt start date (in milli-seconds), {@link #NO_VALUE} if unknown
+     * @param endedAt end date (in milli-seconds), {@link #NO_VALUE} if unknown
+     * @param abortedBy user who aborted the event
+     * @param executionId identifier of the execution, {@link #NO_VALUE} if unknown
+     * @param jobId identifier of the job, null for an ad-hoc execution
+     */
+    public void addEvent(String title, EventStatus status, String summary, int nodesSucceeded, int nodesFailed,
+            int nodesTotal, String user, String project, long startedAt, long endedAt, String abortedBy,
+            long executionId, String jobId) {
+        if (size == this.startedAt.length) {
+            grow(size * 2);
+        }
+        this.titles[size] = encode(title);
+        this.statuses[size] = (byte) (status != null ? status.ordinal() : -1);
+        this.summaries[size] = summary;
+        this.nodesSucceeded[size] = nodesSucceeded;
+        this.nodesFailed[size] = nodesFailed;
+        this.nodesTotal[size] = nodesTotal;
+        this.users[size] = encode(user);
+        this.projects[size] = encode(project);
+        this.startedAt[size] = startedAt;
+        this.endedAt[size] = endedAt;
+        this.abortedBy[size] = encode(abortedBy);
+        this.executionIds[size] = executionId;
+        this.jobIds[size] = encode(jobId);
+        size++;
+    }
+
+    /**
+     * @return the number of events
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Build a {@link RundeckEvent} instance for the given row
+     * 
+     * @param row index of the event
+     * @return a new {@link RundeckEvent} instance
+     * @throws IndexOutOfBoundsException if there is no such row
+     */
+    public RundeckEvent getEvent(int row) throws IndexOutOfBoundsException {
+        checkRow(row);
+        RundeckEvent event = new RundeckEvent();
+        event.setTitle(getTitle(row));
+        event.setStatus(getStatus(row));
+        event.setSummary(getSummary(row));
+        if (nodesTotal[row] >= 0) {
+            NodeSummary nodeSummary = new NodeSummary();
+            nodeSummary.setSucceeded(nodesSucceeded[row]);
+            nodeSummary.setFailed(nodesFailed[row]);
+            nodeSummary.setTotal(nodesTotal[row]);
+            event.setNodeSummary(nodeSummary);
+        }
+        event.setUser(getUser(row));
+        event.setProject(getProject(row));
+        event.setStartedAt(startedAt[row] != NO_VALUE ? new Date(startedAt[row]) : null);
+        event.setEndedAt(endedAt[row] != NO_VALUE ? new Date(endedAt[row]) : null);
+        event.setAbortedBy(getAbortedBy(row));
+        event.setExecutionId(executionIds[row] != NO_VALUE ? executionIds[row] : null);
+        event.setJobId(getJobId(row));
+        return event;
+    }
+
+    /**
+     * @return a read-only view of the events, as {@link RundeckEvent} instances built on demand
+     */
+    public List<RundeckEvent> asList() {
+        return new EventsView();
+    }
+
+    @Override
+    public Iterator<RundeckEvent> iterator() {
+        return asList().iterator();
+    }
+
+    /**
+     * Release the unused capacity of the columns
+     */
+    public void trimToSize() {
+        grow(size);
+    }
+
+    public String getTitle(int row) {
+        checkRow(row);
+        return decode(titles[row]);
+    }
+
+    public EventStatus getStatus(int row) {
+        checkRow(row);
+        return statuses[row] >= 0 ? EventStatus.values()[statuses[row]] : null;
+    }
+
+    public String getSummary(int row) {
+        checkRow(row);
+        return summaries[row];
+    }
+
+    /**
+     * @param row index of the event
+     * @return the number of succeeded nodes, -1 if the event has no node summary
+     */
+    public int getNodesSucceeded(int row) {
+        checkRow(row);
+        return nodesSucceeded[row];
+    }
+
+    /**
+     * @param row index of the event
+     * @return the number of failed nodes, -1 if the event has no node summary
+     */
+    public int getNodesFailed(int row) {
+        checkRow(row);
+        return nodesFailed[row];
+    }
+
+    /**
+     * @param row index of the event
+     * @return the total number of nodes, -1 if the event has no node summary
+     */
+    public int getNodesTotal(int row) {
+        checkRow(row);
+        return nodesTotal[row];
+    }
+
+    public String getUser(int row) {
+        checkRow(row);
+        return decode(users[row]);
+    }
+
+    public String getProject(int row) {
+        checkRow(row);
+        return decode(projects[row]);
+    }
+
+    /**
+     * @param row index of the event
+     * @return the start date (in milli-seconds), {@link #NO_VALUE} if unknown
+     */
+    public long getStartedAt(int row) {
+        checkRow(row);
+        return startedAt[row];
+    }
+
+    /**
+     * @param row index of the event
+     * @return the end date (in milli-seconds), {@link #NO_VALUE} if unknown
+     */
+    public long getEndedAt(int row) {
+        checkRow(row);
+        return endedAt[row];
+    }
+
+    /**
+     * @param row index of the event
+     * @return the duration of the event (in milli-seconds), {@link #NO_VALUE} if unknown
+     */
+    public long getDurationInMillis(int row) {
+        checkRow(row);
+        return startedAt[row] != NO_VALUE && endedAt[row] != NO_VALUE ? endedAt[row] - startedAt[row] : NO_VALUE;
+    }
+
+    public String getAbortedBy(int row) {
+        checkRow(row);
+        return decode(abortedBy[row]);
+    }
+
+    /**
+     * @param row index of the event
+     * @return the identifier of the execution, {@link #NO_VALUE} if unknown
+     */
+    public long getExecutionId(int row) {
+        checkRow(row);
+        return executionIds[row];
+    }
+
+    public String getJobId(int row) {
+        checkRow(row);
+        return decode(jobIds[row]);
+    }
+
+    private void checkRow(int row) throws IndexOutOfBoundsException {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row: " + row + ", Size: " + size);
+        }
+    }
+
+    private int encode(String value) {
+        if (value == null) {
+            return -1;
+        }
+        Integer code = codes.get(value);
+        if (code == null) {
+            code = dictionary.size();
+            dictionary.add(value);
+            codes.put(value, code);
+        }
+        return code;
+    }
+
+    private String decode(int code) {
+        return code >= 0 ? dictionary.get(code) : null;
+    }
+
+    private void grow(int capacity) {
+        capacity = Math.max(capacity, 1);
+        startedAt = Arrays.copyOf(startedAt, capacity);
+        endedAt = Arrays.copyOf(endedAt, capacity);
+        executionIds = Arrays.copyOf(executionIds, capacity);
+        nodesSucceeded = Arrays.copyOf(nodesSucceeded, capacity);
+        nodesFailed = Arrays.copyOf(nodesFailed, capacity);
+        nodesTotal = Arrays.copyOf(nodesTotal, capacity);
+        statuses = Arrays.copyOf(statuses, capacity);
+        titles = Arrays.copyOf(titles, capacity);
+        users = Arrays.copyOf(users, capacity);
+        projects = Arrays.copyOf(projects, capacity);
+        jobIds = Arrays.copyOf(jobIds, capacity);
+        abortedBy = Arrays.copyOf(abortedBy, capacity);
+        summaries = Arrays.copyOf(summaries, capacity);
+    }
+
+    @Override
+    public String toString() {
+        return "EventTable [size=" + size + ", distinct strings=" + dictionary.size() + "]";
+    }
+
+    /**
+     * Read-only view of the events
+     */
+    private class EventsView extends AbstractList<RundeckEvent> implements RandomAccess {
+
+        @Override
+        public RundeckEvent get(int index) {
+            return getEvent(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2011 Vincent Behar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rundeck.api.domain;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of synchronizing the jobs of a project with a set of jobs definitions : what has been created, updated or
+ * left untouched, and the jobs of the project that are not in the definitions.
+ * 
+ * @author Vincent Behar
+ */
+public class RundeckJobsSyncResult implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final List<RundeckJob> createdJobs = new ArrayList<RundeckJob>();
+
+    private final List<RundeckJob> updatedJobs = new ArrayList<RundeckJob>();
+
+    private final List<RundeckJob> unchangedJobs = new ArrayList<RundeckJob>();
+
+    private final List<RundeckJob> removedJobs = new ArrayList<RundeckJob>();
+
+    private final Map<RundeckJob, String> failedDeletions = new HashMap<RundeckJob, String>();
+
+    private RundeckJobsImportResult importResult;
+
+    public void addCreatedJob(RundeckJob job) {
+        createdJobs.add(job);
+    }
+
+    public void addUpdatedJob(RundeckJob job) {
+        updatedJobs.add(job);
+    }
+
+    public void addUnchangedJob(RundeckJob job) {
+        unchangedJobs.add(job);
+    }
+
+    public void addRemovedJob(RundeckJob job) {
+        removedJobs.add(job);
+    }
+
+    public void addFailedDeletion(RundeckJob job, String errorMessage) {
+        failedDeletions.put(job, errorMessage);
+    }
+
+    /**
+     * @return the jobs of the definitions that did not exist in the project
+     */
+    public List<RundeckJob> getCreatedJobs() {
+        return createdJobs;
+    }
+
+    /**
+     * @return the jobs of the definitions that were different in the project
+     */
+    public List<RundeckJob> getUpdatedJobs() {
+        return updatedJobs;
+    }
+
+    /**
+     * @return the jobs of the definitions that were identical in the project, and have not been imported
+     */
+    public List<RundeckJob> getUnchangedJobs() {
+        return unchangedJobs;
+    }
+
+    /**
+     * @return the jobs of the project that are not in the definitions - they have been deleted if requested (except
+     *         the failed deletions)
+     */
+    public List<RundeckJob> getRemovedJobs() {
+        return removedJobs;
+    }
+
+    /**
+     * @return the error message of each removed job that we failed to delete
+     */
+    public Map<RundeckJob, String> getFailedDeletions() {
+        return failedDeletions;
+    }
+
+    /**
+     * @return the result of the import of the created and updated jobs - null if there was nothing to import
+     */
+    public RundeckJobsImportResult getImportResult() {
+        return importResult;
+    }
+
+    public void setImportResult(RundeckJobsImportResult importResult) {
+        this.importResult = importResult;
+    }
+
+    @Override
+    public String toString() {
+        return "RundeckJobsSyncResult [createdJobs=" + createdJobs + ", updatedJobs=" + updatedJobs
+               + ", unchangedJobs=" + unchangedJobs + ", removedJobs=" + removedJobs + ", failedDeletions="
+               + failedDeletions + ", importResult=" + importResult + "]";
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + ((createdJobs == null) ? 0 : createdJobs.hashCode());
+        result = prime * result + ((failedDeletions == null) ? 0 : failedDeletions.hashCode());
+        result = prime * result + ((importResult == null) ? 0 : importResult.hashCode());
+        result = prime * result + ((removedJobs == null) ? 0 : removedJobs.hashCode());
+        result = prime * result + ((unchangedJobs == null) ? 0 : unchangedJobs.hashCode());
+        result = prime * result + ((updatedJobs == null) ? 0 : updatedJobs.hashCode());
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null)
+            return false;
+        if (getClass() != obj.getClass())
+            return false;
+        RundeckJobsSyncResult other = (RundeckJobsSyncResult) obj;
+        if (createdJobs == null) {
+            if (other.createdJobs != null)
+                return false;
+        } else if (!createdJobs.equals(other.createdJobs))
+            return false;
+        if (failedDeletions == null) {
+            if (other.failedDeletions != null)
+                return false;
+        } else if (!failedDeletions.equals(other.failedDeletions))
+            return false;
+        if (importResult == null) {
+            if (other.importResult != null)
+                return false;
+        } else if (!importResult.equals(other.importResult))
+            return false;
+        if (removedJobs == null) {
+            if (other.removedJobs != null)
+                return false;
+        } else if (!removedJobs.equals(other.removedJobs))
+            return false;
+        if (unchangedJobs == null) {
+            if (other.unchangedJobs != null)
+                return false;
+        } else if (!unchangedJobs.equals(other.unchangedJobs))
+            return false;
+        if (updatedJobs == null) {
+            if (other.updatedJobs != null)
+                return false;
+        } else if (!updatedJobs.equals(other.updatedJobs))
+            return false;
+        return true;
+    }
+
+}
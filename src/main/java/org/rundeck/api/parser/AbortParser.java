@@ -15,6 +15,8 @@
  */
 package org.rundeck.api.parser;
 
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import org.apache.commons.lang.StringUtils;
 import org.dom4j.Node;
 import org.rundeck.api.domain.RundeckAbort;
@@ -26,7 +28,7 @@ import org.rundeck.api.domain.RundeckAbort.AbortStatus;
  * 
  * @author Vincent Behar
  */
-public class AbortParser implements XmlNodeParser<RundeckAbort> {
+public class AbortParser implements XmlNodeParser<RundeckAbort>, XmlStreamParser<RundeckAbort> {
 
     private String xpath;
 
@@ -63,4 +65,29 @@ public class AbortParser implements XmlNodeParser<RundeckAbort> {
         return abort;
     }
 
+    @Override
+    public RundeckAbort parseXmlStream(XMLStreamReader reader) throws XMLStreamException {
+        ParserHelper.selectElement(reader, xpath);
+
+        RundeckAbort abort = new RundeckAbort();
+
+        try {
+            String status = ParserHelper.getAttributeValue(reader, "status");
+            abort.setStatus(AbortStatus.valueOf(StringUtils.upperCase(status)));
+        } catch (IllegalArgumentException e) {
+            abort.setStatus(null);
+        }
+
+        while (ParserHelper.nextChildElement(reader)) {
+            if ("execution".equals(reader.getLocalName()) && abort.getExecution() == null) {
+                RundeckExecution execution = new ExecutionParser().parseXmlStream(reader);
+                abort.setExecution(execution);
+            } else {
+                ParserHelper.skipElement(reader);
+            }
+        }
+
+        return abort;
+    }
+
 }
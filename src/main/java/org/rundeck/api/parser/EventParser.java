@@ -16,8 +16,12 @@
 package org.rundeck.api.parser;
 
 import java.util.Date;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.math.NumberUtils;
 import org.dom4j.Node;
+import org.rundeck.api.domain.EventTable;
 import org.rundeck.api.domain.RundeckEvent;
 import org.rundeck.api.domain.RundeckEvent.EventStatus;
 import org.rundeck.api.domain.RundeckEvent.NodeSummary;
@@ -27,7 +31,7 @@ import org.rundeck.api.domain.RundeckEvent.NodeSummary;
  * 
  * @author Vincent Behar
  */
-public class EventParser implements XmlNodeParser<RundeckEvent> {
+public class EventParser implements XmlNodeParser<RundeckEvent>, XmlStreamParser<RundeckEvent> {
 
     private String xpath;
 
@@ -84,4 +88,147 @@ public class EventParser implements XmlNodeParser<RundeckEvent> {
         return event;
     }
 
+    @Override
+    public RundeckEvent parseXmlStream(XMLStreamReader reader) throws XMLStreamException {
+        ParserHelper.selectElement(reader, xpath);
+        EventFields fields = new EventFields(reader);
+
+        RundeckEvent event = new RundeckEvent();
+
+        event.setTitle(StringUtils.trimToNull(fields.title));
+        event.setStatus(fields.getStatus());
+        event.setSummary(StringUtils.trimToNull(fields.summary));
+
+        NodeSummary nodeSummary = new NodeSummary();
+        nodeSummary.setSucceeded(Integer.valueOf(StringUtils.defaultString(fields.nodesSucceeded)));
+        nodeSummary.setFailed(Integer.valueOf(StringUtils.defaultString(fields.nodesFailed)));
+        nodeSummary.setTotal(Integer.valueOf(StringUtils.defaultString(fields.nodesTotal)));
+        event.setNodeSummary(nodeSummary);
+
+        event.setUser(StringUtils.trimToNull(fields.user));
+        event.setProject(StringUtils.trimToNull(fields.project));
+        if (fields.startedAt != null) {
+            event.setStartedAt(new Date(Long.valueOf(fields.startedAt)));
+        }
+        if (fields.endedAt != null) {
+            event.setEndedAt(new Date(Long.valueOf(fields.endedAt)));
+        }
+        event.setAbortedBy(StringUtils.trimToNull(fields.abortedBy));
+        try {
+            event.setExecutionId(Long.valueOf(StringUtils.defaultString(fields.executionId)));
+        } catch (NumberFormatException e) {
+            event.setExecutionId(null);
+        }
+        event.setJobId(StringUtils.trimToNull(fields.jobId));
+
+        return event;
+    }
+
+    /**
+     * Parse the current event element, and add it to the given table - without building a {@link RundeckEvent}
+     * 
+     * @param reader positioned on the event element (or on its parent, if an xpath was given)
+     * @param table to which the event is added
+     * @throws XMLStreamException if the XML is not valid
+     */
+    public void parseXmlStream(XMLStreamReader reader, EventTable table) throws XMLStreamException {
+        ParserHelper.selectElement(reader, xpath);
+        EventFields fields = new EventFields(reader);
+
+        boolean nodeSummary = fields.nodesTotal != null;
+        table.addEvent(StringUtils.trimToNull(fields.title),
+                       fields.getStatus(),
+                       StringUtils.trimToNull(fields.summary),
+                       nodeSummary ? NumberUtils.toInt(fields.nodesSucceeded, -1) : -1,
+                       nodeSummary ? NumberUtils.toInt(fields.nodesFailed, -1) : -1,
+                       nodeSummary ? NumberUtils.toInt(fields.nodesTotal, -1) : -1,
+                       StringUtils.trimToNull(fields.user),
+                       StringUtils.trimToNull(fields.project),
+                       fields.startedAt != null ? Long.parseLong(fields.startedAt) : EventTable.NO_VALUE,
+                       fields.endedAt != null ? Long.parseLong(fields.endedAt) : EventTable.NO_VALUE,
+                       StringUtils.trimToNull(fields.abortedBy),
+                       NumberUtils.toLong(fields.executionId, EventTable.NO_VALUE),
+                       StringUtils.trimToNull(fields.jobId));
+    }
+
+    /**
+     * Raw values of the fields of an event element, read from a stream
+     */
+    private static class EventFields {
+
+        private final String startedAt;
+
+        private final String endedAt;
+
+        private String title;
+
+        private String status;
+
+        private String summary;
+
+        private String user;
+
+        private String project;
+
+        private String abortedBy;
+
+        private String executionId;
+
+        private String jobId;
+
+        private String nodesSucceeded;
+
+        private String nodesFailed;
+
+        private String nodesTotal;
+
+        /**
+         * Read the fields of the current event element, until the end of the element
+         * 
+         * @param reader positioned on the event element
+         * @throws XMLStreamException if the XML is not valid
+         */
+        public EventFields(XMLStreamReader reader) throws XMLStreamException {
+            startedAt = StringUtils.trimToNull(ParserHelper.getAttributeValue(reader, "starttime"));
+            endedAt = StringUtils.trimToNull(ParserHelper.getAttributeValue(reader, "endtime"));
+            while (ParserHelper.nextChildElement(reader)) {
+                String element = reader.getLocalName();
+                if ("title".equals(element) && title == null) {
+                    title = ParserHelper.readElementText(reader);
+                } else if ("status".equals(element) && status == null) {
+                    status = ParserHelper.readElementText(reader);
+                } else if ("summary".equals(element) && summary == null) {
+                    summary = ParserHelper.readElementText(reader);
+                } else if ("node-summary".equals(element) && nodesTotal == null) {
+                    nodesSucceeded = ParserHelper.getAttributeValue(reader, "succeeded");
+                    nodesFailed = ParserHelper.getAttributeValue(reader, "failed");
+                    nodesTotal = ParserHelper.getAttributeValue(reader, "total");
+                    ParserHelper.skipElement(reader);
+                } else if ("user".equals(element) && user == null) {
+                    user = ParserHelper.readElementText(reader);
+                } else if ("project".equals(element) && project == null) {
+                    project = ParserHelper.readElementText(reader);
+                } else if ("abortedby".equals(element) && abortedBy == null) {
+                    abortedBy = ParserHelper.readElementText(reader);
+                } else if ("execution".equals(element) && executionId == null) {
+                    executionId = ParserHelper.getAttributeValue(reader, "id");
+                    ParserHelper.skipElement(reader);
+                } else if ("job".equals(element) && jobId == null) {
+                    jobId = ParserHelper.getAttributeValue(reader, "id");
+                    ParserHelper.skipElement(reader);
+                } else {
+                    ParserHelper.skipElement(reader);
+                }
+            }
+        }
+
+        public EventStatus getStatus() {
+            try {
+                return EventStatus.valueOf(StringUtils.upperCase(StringUtils.defaultString(status)));
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+    }
+
 }
@@ -16,6 +16,8 @@
 package org.rundeck.api.parser;
 
 import java.util.Date;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import org.apache.commons.lang.StringUtils;
 import org.dom4j.Node;
 import org.rundeck.api.domain.RundeckExecution;
@@ -27,7 +29,7 @@ import org.rundeck.api.domain.RundeckExecution.ExecutionStatus;
  * 
  * @author Vincent Behar
  */
-public class ExecutionParser implements XmlNodeParser<RundeckExecution> {
+public class ExecutionParser implements XmlNodeParser<RundeckExecution>, XmlStreamParser<RundeckExecution> {
 
     private String xpath;
 
@@ -77,4 +79,61 @@ public class ExecutionParser implements XmlNodeParser<RundeckExecution> {
         return execution;
     }
 
+    @Override
+    public RundeckExecution parseXmlStream(XMLStreamReader reader) throws XMLStreamException {
+        ParserHelper.selectElement(reader, xpath);
+
+        RundeckExecution execution = new RundeckExecution();
+
+        execution.setId(Long.valueOf(ParserHelper.getAttributeValue(reader, "id")));
+        execution.setUrl(StringUtils.trimToNull(ParserHelper.getAttributeValue(reader, "href")));
+        try {
+            String status = ParserHelper.getAttributeValue(reader, "status");
+            execution.setStatus(ExecutionStatus.valueOf(StringUtils.upperCase(status)));
+        } catch (IllegalArgumentException e) {
+            execution.setStatus(null);
+        }
+
+        String description = null;
+        String startedBy = null;
+        String abortedBy = null;
+        String startedAt = null;
+        String endedAt = null;
+        while (ParserHelper.nextChildElement(reader)) {
+            String element = reader.getLocalName();
+            if ("description".equals(element) && description == null) {
+                description = ParserHelper.readElementText(reader);
+            } else if ("user".equals(element) && startedBy == null) {
+                startedBy = ParserHelper.readElementText(reader);
+            } else if ("abortedby".equals(element) && abortedBy == null) {
+                abortedBy = ParserHelper.readElementText(reader);
+            } else if ("date-started".equals(element) && startedAt == null) {
+                startedAt = ParserHelper.getAttributeValue(reader, "unixtime");
+                ParserHelper.skipElement(reader);
+            } else if ("date-ended".equals(element) && endedAt == null) {
+                endedAt = ParserHelper.getAttributeValue(reader, "unixtime");
+                ParserHelper.skipElement(reader);
+            } else if ("job".equals(element) && execution.getJob() == null) {
+                RundeckJob job = new JobParser().parseXmlStream(reader);
+                execution.setJob(job);
+            } else {
+                ParserHelper.skipElement(reader);
+            }
+        }
+
+        execution.setDescription(StringUtils.trimToNull(description));
+        execution.setStartedBy(StringUtils.trimToNull(startedBy));
+        execution.setAbortedBy(StringUtils.trimToNull(abortedBy));
+        startedAt = StringUtils.trimToNull(startedAt);
+        if (startedAt != null) {
+            execution.setStartedAt(new Date(Long.valueOf(startedAt)));
+        }
+        endedAt = StringUtils.trimToNull(endedAt);
+        if (endedAt != null) {
+            execution.setEndedAt(new Date(Long.valueOf(endedAt)));
+        }
+
+        return execution;
+    }
+
 }
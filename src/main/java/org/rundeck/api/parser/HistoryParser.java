@@ -16,7 +16,10 @@
 package org.rundeck.api.parser;
 
 import java.util.List;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import org.dom4j.Node;
+import org.rundeck.api.domain.EventTable;
 import org.rundeck.api.domain.RundeckEvent;
 import org.rundeck.api.domain.RundeckHistory;
 
@@ -25,10 +28,12 @@ import org.rundeck.api.domain.RundeckHistory;
  * 
  * @author Vincent Behar
  */
-public class HistoryParser implements XmlNodeParser<RundeckHistory> {
+public class HistoryParser implements XmlNodeParser<RundeckHistory>, XmlStreamParser<RundeckHistory> {
 
     private String xpath;
 
+    private EventTable table;
+
     public HistoryParser() {
         super();
     }
@@ -41,6 +46,18 @@ public class HistoryParser implements XmlNodeParser<RundeckHistory> {
         this.xpath = xpath;
     }
 
+    /**
+     * @param xpath of the history element if it is not the root node
+     * @param table to which the events are added - instead of the events of the returned {@link RundeckHistory}. Only
+     *            {@link #parseXmlStream(XMLStreamReader)} adds them without building a {@link RundeckEvent} instance
+     *            for each event.
+     */
+    public HistoryParser(String xpath, EventTable table) {
+        super();
+        this.xpath = xpath;
+        this.table = table;
+    }
+
     @Override
     public RundeckHistory parseXmlNode(Node node) {
         Node eventsNode = xpath != null ? node.selectSingleNode(xpath) : node;
@@ -58,7 +75,37 @@ public class HistoryParser implements XmlNodeParser<RundeckHistory> {
 
         for (Node eventNode : eventNodes) {
             RundeckEvent event = eventParser.parseXmlNode(eventNode);
-            history.addEvent(event);
+            if (table != null) {
+                table.addEvent(event);
+            } else {
+                history.addEvent(event);
+            }
+        }
+
+        return history;
+    }
+
+    @Override
+    public RundeckHistory parseXmlStream(XMLStreamReader reader) throws XMLStreamException {
+        ParserHelper.selectElement(reader, xpath);
+
+        RundeckHistory history = new RundeckHistory();
+
+        history.setCount(Integer.valueOf(ParserHelper.getAttributeValue(reader, "count")));
+        history.setTotal(Integer.valueOf(ParserHelper.getAttributeValue(reader, "total")));
+        history.setMax(Integer.valueOf(ParserHelper.getAttributeValue(reader, "max")));
+        history.setOffset(Integer.valueOf(ParserHelper.getAttributeValue(reader, "offset")));
+
+        EventParser eventParser = new EventParser();
+        while (ParserHelper.nextChildElement(reader)) {
+            if ("event".equals(reader.getLocalName()) && table != null) {
+                eventParser.parseXmlStream(reader, table);
+            } else if ("event".equals(reader.getLocalName())) {
+                RundeckEvent event = eventParser.parseXmlStream(reader);
+                history.addEvent(event);
+            } else {
+                ParserHelper.skipElement(reader);
+            }
         }
 
         return history;
@@ -15,6 +15,9 @@
  */
 package org.rundeck.api.parser;
 
+import java.util.Map;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import org.apache.commons.lang.StringUtils;
 import org.dom4j.Node;
 import org.rundeck.api.domain.RundeckJob;
@@ -24,7 +27,7 @@ import org.rundeck.api.domain.RundeckJob;
  * 
  * @author Vincent Behar
  */
-public class JobParser implements XmlNodeParser<RundeckJob> {
+public class JobParser implements XmlNodeParser<RundeckJob>, XmlStreamParser<RundeckJob> {
 
     private String xpath;
 
@@ -69,4 +72,71 @@ public class JobParser implements XmlNodeParser<RundeckJob> {
         return job;
     }
 
+    @Override
+    public RundeckJob parseXmlStream(XMLStreamReader reader) throws XMLStreamException {
+        return parseXmlStream(reader, null);
+    }
+
+    /**
+     * Same as {@link #parseXmlStream(XMLStreamReader)}, but also collects the text of the other child elements of the
+     * job (those not mapped to a {@link RundeckJob} property), such as the "error" of a failed job import.
+     * 
+     * @param reader positioned on a start element
+     * @param otherElements the text of the other child elements will be put in this map, if not null
+     * @return the parsed {@link RundeckJob}
+     * @throws XMLStreamException if we failed to read the XML stream
+     */
+    RundeckJob parseXmlStream(XMLStreamReader reader, Map<String, String> otherElements) throws XMLStreamException {
+        ParserHelper.selectElement(reader, xpath);
+
+        RundeckJob job = new RundeckJob();
+
+        String idAttribute = ParserHelper.getAttributeValue(reader, "id");
+        String name = null;
+        String description = null;
+        String group = null;
+        String jobId = null;
+        String project = null;
+        Map<String, String> context = null;
+        while (ParserHelper.nextChildElement(reader)) {
+            String element = reader.getLocalName();
+            if ("name".equals(element) && name == null) {
+                name = ParserHelper.readElementText(reader);
+            } else if ("description".equals(element) && description == null) {
+                description = ParserHelper.readElementText(reader);
+            } else if ("group".equals(element) && group == null) {
+                group = ParserHelper.readElementText(reader);
+            } else if ("id".equals(element) && jobId == null) {
+                jobId = ParserHelper.readElementText(reader);
+            } else if ("project".equals(element) && project == null) {
+                project = ParserHelper.readElementText(reader);
+            } else if ("context".equals(element) && context == null) {
+                context = ParserHelper.readChildElementsText(reader);
+            } else if (otherElements != null && !otherElements.containsKey(element)) {
+                otherElements.put(element, ParserHelper.readElementText(reader));
+            } else {
+                ParserHelper.skipElement(reader);
+            }
+        }
+
+        job.setName(StringUtils.trimToNull(name));
+        job.setDescription(StringUtils.trimToNull(description));
+        job.setGroup(StringUtils.trimToNull(group));
+
+        // ID is either an attribute or an child element...
+        if (StringUtils.isBlank(jobId)) {
+            jobId = idAttribute;
+        }
+        job.setId(jobId);
+
+        // project is either a nested element of context, or just a child element
+        if (context != null) {
+            job.setProject(StringUtils.trimToNull(context.get("project")));
+        } else {
+            job.setProject(StringUtils.trimToNull(project));
+        }
+
+        return job;
+    }
+
 }
@@ -15,7 +15,12 @@
  */
 package org.rundeck.api.parser;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.apache.commons.lang.StringUtils;
 import org.dom4j.Node;
 import org.rundeck.api.domain.RundeckJob;
 import org.rundeck.api.domain.RundeckJobsImportResult;
@@ -25,7 +30,8 @@ import org.rundeck.api.domain.RundeckJobsImportResult;
  * 
  * @author Vincent Behar
  */
-public class JobsImportResultParser implements XmlNodeParser<RundeckJobsImportResult> {
+public class JobsImportResultParser implements XmlNodeParser<RundeckJobsImportResult>,
+        XmlStreamParser<RundeckJobsImportResult> {
 
     private String xpath;
 
@@ -77,4 +83,47 @@ public class JobsImportResultParser implements XmlNodeParser<RundeckJobsImportRe
         return result;
     }
 
+    @Override
+    public RundeckJobsImportResult parseXmlStream(XMLStreamReader reader) throws XMLStreamException {
+        ParserHelper.selectElement(reader, xpath);
+
+        RundeckJobsImportResult result = new RundeckJobsImportResult();
+
+        JobParser jobParser = new JobParser();
+        while (ParserHelper.nextChildElement(reader)) {
+            String element = reader.getLocalName();
+            if ("succeeded".equals(element)) {
+                while (ParserHelper.nextChildElement(reader)) {
+                    if ("job".equals(reader.getLocalName())) {
+                        result.addSucceededJob(jobParser.parseXmlStream(reader));
+                    } else {
+                        ParserHelper.skipElement(reader);
+                    }
+                }
+            } else if ("skipped".equals(element)) {
+                while (ParserHelper.nextChildElement(reader)) {
+                    if ("job".equals(reader.getLocalName())) {
+                        result.addSkippedJob(jobParser.parseXmlStream(reader));
+                    } else {
+                        ParserHelper.skipElement(reader);
+                    }
+                }
+            } else if ("failed".equals(element)) {
+                while (ParserHelper.nextChildElement(reader)) {
+                    if ("job".equals(reader.getLocalName())) {
+                        Map<String, String> otherElements = new HashMap<String, String>();
+                        RundeckJob job = jobParser.parseXmlStream(reader, otherElements);
+                        result.addFailedJob(job, StringUtils.defaultString(otherElements.get("error")));
+                    } else {
+                        ParserHelper.skipElement(reader);
+                    }
+                }
+            } else {
+                ParserHelper.skipElement(reader);
+            }
+        }
+
+        return result;
+    }
+
 }
@@ -17,6 +17,8 @@ package org.rundeck.api.parser;
 
 import java.util.ArrayList;
 import java.util.List;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import org.dom4j.Node;
 
 /**
@@ -24,7 +26,7 @@ import org.dom4j.Node;
  * 
  * @author Vincent Behar
  */
-public class ListParser<T> implements XmlNodeParser<List<T>> {
+public class ListParser<T> implements XmlNodeParser<List<T>>, XmlStreamParser<List<T>> {
 
     private final XmlNodeParser<T> parser;
 
@@ -55,4 +57,27 @@ public class ListParser<T> implements XmlNodeParser<List<T>> {
         return elements;
     }
 
+    /**
+     * The elements are streamed if the wrapped parser for an individual element is an {@link XmlStreamParser} too.
+     * Otherwise, each element is read as a DOM element and given to the wrapped parser.
+     */
+    @Override
+    public List<T> parseXmlStream(XMLStreamReader reader) throws XMLStreamException {
+        List<T> elements = new ArrayList<T>();
+
+        while (ParserHelper.nextElement(reader, xpath)) {
+            T element;
+            if (parser instanceof XmlStreamParser) {
+                @SuppressWarnings("unchecked")
+                XmlStreamParser<T> streamParser = (XmlStreamParser<T>) parser;
+                element = streamParser.parseXmlStream(reader);
+            } else {
+                element = parser.parseXmlNode(ParserHelper.readElement(reader));
+            }
+            elements.add(element);
+        }
+
+        return elements;
+    }
+
 }
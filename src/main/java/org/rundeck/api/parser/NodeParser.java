@@ -16,6 +16,8 @@
 package org.rundeck.api.parser;
 
 import java.util.Arrays;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import org.apache.commons.lang.StringUtils;
 import org.dom4j.Node;
 import org.rundeck.api.domain.RundeckNode;
@@ -25,7 +27,7 @@ import org.rundeck.api.domain.RundeckNode;
  * 
  * @author Vincent Behar
  */
-public class NodeParser implements XmlNodeParser<RundeckNode> {
+public class NodeParser implements XmlNodeParser<RundeckNode>, XmlStreamParser<RundeckNode> {
 
     private String xpath;
 
@@ -65,4 +67,30 @@ public class NodeParser implements XmlNodeParser<RundeckNode> {
         return rundeckNode;
     }
 
+    @Override
+    public RundeckNode parseXmlStream(XMLStreamReader reader) throws XMLStreamException {
+        ParserHelper.selectElement(reader, xpath);
+
+        RundeckNode rundeckNode = new RundeckNode();
+
+        rundeckNode.setName(StringUtils.trimToNull(ParserHelper.getAttributeValue(reader, "name")));
+        rundeckNode.setType(StringUtils.trimToNull(ParserHelper.getAttributeValue(reader, "type")));
+        rundeckNode.setDescription(StringUtils.trimToNull(ParserHelper.getAttributeValue(reader, "description")));
+        rundeckNode.setHostname(StringUtils.trimToNull(ParserHelper.getAttributeValue(reader, "hostname")));
+        rundeckNode.setOsArch(StringUtils.trimToNull(ParserHelper.getAttributeValue(reader, "osArch")));
+        rundeckNode.setOsFamily(StringUtils.trimToNull(ParserHelper.getAttributeValue(reader, "osFamily")));
+        rundeckNode.setOsName(StringUtils.trimToNull(ParserHelper.getAttributeValue(reader, "osName")));
+        rundeckNode.setOsVersion(StringUtils.trimToNull(ParserHelper.getAttributeValue(reader, "osVersion")));
+        rundeckNode.setUsername(StringUtils.trimToNull(ParserHelper.getAttributeValue(reader, "username")));
+        rundeckNode.setEditUrl(StringUtils.trimToNull(ParserHelper.getAttributeValue(reader, "editUrl")));
+        rundeckNode.setRemoteUrl(StringUtils.trimToNull(ParserHelper.getAttributeValue(reader, "remoteUrl")));
+
+        String tags = StringUtils.trimToEmpty(ParserHelper.getAttributeValue(reader, "tags"));
+        rundeckNode.setTags(Arrays.asList(StringUtils.split(tags, ",")));
+
+        ParserHelper.skipElement(reader);
+
+        return rundeckNode;
+    }
+
 }
@@ -15,9 +15,19 @@
  */
 package org.rundeck.api.parser;
 
+import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.apache.commons.lang.StringUtils;
 import org.dom4j.Document;
 import org.dom4j.DocumentException;
+import org.dom4j.DocumentHelper;
+import org.dom4j.Element;
 import org.dom4j.Node;
 import org.dom4j.io.SAXReader;
 import org.rundeck.api.RundeckApiException;
@@ -29,6 +39,14 @@ import org.rundeck.api.RundeckApiException;
  */
 public class ParserHelper {
 
+    /** Factory for the {@link XMLStreamReader}s - synchronize on it when creating a new reader */
+    private static final transient XMLInputFactory XML_INPUT_FACTORY = XMLInputFactory.newInstance();
+
+    static {
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+    }
+
     /**
      * Load an XML {@link Document} from the given {@link InputStream}
      * 
@@ -59,4 +77,291 @@ public class ParserHelper {
         return document;
     }
 
+    /**
+     * Check if the given prefix of a response (its first bytes) is the beginning of an error response : the root
+     * element is a "result" element, with an "error" attribute. This does not need the whole response, as long as the
+     * root element is complete. A prefix that is not XML (for example YAML) is not an error.
+     * 
+     * @param prefix first bytes of an API call to RunDeck
+     * @param length number of bytes in the prefix
+     * @return true if the response is an error, false otherwise
+     */
+    public static boolean isErrorPrefix(byte[] prefix, int length) {
+        XMLStreamReader reader = null;
+        try {
+            synchronized (XML_INPUT_FACTORY) {
+                reader = XML_INPUT_FACTORY.createXMLStreamReader(new ByteArrayInputStream(prefix, 0, length), "UTF-8");
+            }
+            reader.nextTag();
+            return "result".equals(reader.getLocalName()) && Boolean.valueOf(getAttributeValue(reader, "error"));
+        } catch (XMLStreamException e) {
+            return false;
+        } finally {
+            if (reader != null) {
+                closeQuietly(reader);
+            }
+        }
+    }
+
+    /**
+     * Load an {@link XMLStreamReader} from the given {@link InputStream}, positioned on the root element. As with
+     * {@link #loadDocument(InputStream)}, an error response will be detected from the root element.
+     * 
+     * @param inputStream from an API call to RunDeck
+     * @return an {@link XMLStreamReader} positioned on the root element - you have to close it
+     * @throws RundeckApiException if we failed to read the response, or if the response is an error
+     */
+    public static XMLStreamReader loadStream(InputStream inputStream) throws RundeckApiException {
+        XMLStreamReader reader;
+        try {
+            synchronized (XML_INPUT_FACTORY) {
+                reader = XML_INPUT_FACTORY.createXMLStreamReader(inputStream, "UTF-8");
+            }
+        } catch (XMLStreamException e) {
+            throw new RundeckApiException("Failed to read RunDeck reponse", e);
+        }
+
+        try {
+            reader.nextTag();
+            if ("result".equals(reader.getLocalName()) && Boolean.valueOf(getAttributeValue(reader, "error"))) {
+                String message = "";
+                if (nextElement(reader, "result/error/message")) {
+                    message = readElementText(reader);
+                }
+                throw new RundeckApiException(message);
+            }
+        } catch (XMLStreamException e) {
+            closeQuietly(reader);
+            throw new RundeckApiException("Failed to read RunDeck reponse", e);
+        } catch (RundeckApiException e) {
+            closeQuietly(reader);
+            throw e;
+        }
+
+        return reader;
+    }
+
+    /**
+     * Parse the given {@link InputStream} with the given {@link XmlStreamParser}, without loading the whole XML
+     * document in memory.
+     * 
+     * @param inputStream from an API call to RunDeck
+     * @param parser used to parse the response
+     * @return the result of the parser
+     * @throws RundeckApiException if we failed to read the response, or if the response is an error
+     */
+    public static <T> T parseStream(InputStream inputStream, XmlStreamParser<T> parser) throws RundeckApiException {
+        XMLStreamReader reader = loadStream(inputStream);
+        try {
+            return parser.parseXmlStream(reader);
+        } catch (XMLStreamException e) {
+            throw new RundeckApiException("Failed to read RunDeck reponse", e);
+        } finally {
+            closeQuietly(reader);
+        }
+    }
+
+    /**
+     * Move the given reader to the next element matching the given simple xpath ("a/b/c", starting with the name of
+     * the root element). The reader should either be positioned on the root element, or on the end of a previously
+     * matched element.
+     * 
+     * @param reader positioned on the root element, or on the end of a previously matched element
+     * @param xpath of the elements, relative to the document
+     * @return true if a matching element was found (and the reader is positioned on its start), false otherwise
+     * @throws XMLStreamException if we failed to read the XML stream
+     */
+    public static boolean nextElement(XMLStreamReader reader, String xpath) throws XMLStreamException {
+        String[] steps = StringUtils.split(xpath, "/");
+        int depth;
+        if (reader.isStartElement()) {
+            if (!steps[0].equals(reader.getLocalName())) {
+                return false;
+            }
+            if (steps.length == 1) {
+                return true;
+            }
+            depth = 1;
+        } else {
+            depth = steps.length - 1;
+        }
+
+        while (depth > 0 && reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                if (steps[depth].equals(reader.getLocalName())) {
+                    depth++;
+                    if (depth == steps.length) {
+                        return true;
+                    }
+                } else {
+                    skipElement(reader);
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Move the given reader to the element matching the given xpath, if any. Used by the {@link XmlStreamParser}s to
+     * resolve their xpath.
+     * 
+     * @param reader positioned on the root element
+     * @param xpath of the element, relative to the document - if null, the reader won't be moved
+     * @throws XMLStreamException if there is no element matching the xpath, or if we failed to read the XML stream
+     */
+    static void selectElement(XMLStreamReader reader, String xpath) throws XMLStreamException {
+        if (xpath != null && !nextElement(reader, xpath)) {
+            throw new XMLStreamException("No element matching '" + xpath + "'");
+        }
+    }
+
+    /**
+     * Move the given reader to the next child element of the current element.
+     * 
+     * @param reader positioned on the start of the parent element, or on the end of a previous child element
+     * @return true if the reader is positioned on the start of the next child element, false if it is positioned on
+     *         the end of the parent element
+     * @throws XMLStreamException if we failed to read the XML stream
+     */
+    static boolean nextChildElement(XMLStreamReader reader) throws XMLStreamException {
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                return true;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Skip the current element (and all its children)
+     * 
+     * @param reader positioned on the start of an element, will be positioned on its end
+     * @throws XMLStreamException if we failed to read the XML stream
+     */
+    static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0 && reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    /**
+     * Read the text of the current element, including the text of all its children (same as the "string-value" of a
+     * DOM node)
+     * 
+     * @param reader positioned on the start of an element, will be positioned on its end
+     * @return the text (may be empty, but never null)
+     * @throws XMLStreamException if we failed to read the XML stream
+     */
+    static String readElementText(XMLStreamReader reader) throws XMLStreamException {
+        StringBuilder text = new StringBuilder();
+        int depth = 1;
+        while (depth > 0 && reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            } else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+                       || event == XMLStreamConstants.SPACE) {
+                text.append(reader.getText());
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * Read the text of all the child elements of the current element. If multiple children have the same name, only
+     * the first one is kept (as with a DOM xpath selection).
+     * 
+     * @param reader positioned on the start of an element, will be positioned on its end
+     * @return a {@link Map} of the child element names to their text
+     * @throws XMLStreamException if we failed to read the XML stream
+     */
+    static Map<String, String> readChildElementsText(XMLStreamReader reader) throws XMLStreamException {
+        Map<String, String> texts = new HashMap<String, String>();
+        while (nextChildElement(reader)) {
+            String name = reader.getLocalName();
+            String text = readElementText(reader);
+            if (!texts.containsKey(name)) {
+                texts.put(name, text);
+            }
+        }
+        return texts;
+    }
+
+    /**
+     * Read the current element (and all its children) as a DOM element, for the {@link XmlNodeParser}s that don't
+     * support streaming. The element is the root of a new document.
+     * 
+     * @param reader positioned on the start of an element, will be positioned on its end
+     * @return a DOM {@link Element}
+     * @throws XMLStreamException if we failed to read the XML stream
+     */
+    static Element readElement(XMLStreamReader reader) throws XMLStreamException {
+        Element root = DocumentHelper.createDocument().addElement(reader.getLocalName());
+        copyAttributes(reader, root);
+        Element current = root;
+        while (current != null && reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                current = current.addElement(reader.getLocalName());
+                copyAttributes(reader, current);
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                current = current == root ? null : current.getParent();
+            } else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+                       || event == XMLStreamConstants.SPACE) {
+                current.addText(reader.getText());
+            }
+        }
+        return root;
+    }
+
+    /**
+     * Read the value of an attribute of the current element
+     * 
+     * @param reader positioned on the start of an element
+     * @param name of the attribute
+     * @return the value of the attribute, or an empty string if there is no such attribute (as with a DOM xpath)
+     */
+    static String getAttributeValue(XMLStreamReader reader, String name) {
+        return StringUtils.defaultString(reader.getAttributeValue(null, name));
+    }
+
+    /**
+     * Copy the attributes of the current element of the given reader to the given DOM element
+     * 
+     * @param reader positioned on the start of an element
+     * @param element to which the attributes are added
+     */
+    private static void copyAttributes(XMLStreamReader reader, Element element) {
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            element.addAttribute(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+        }
+    }
+
+    /**
+     * Close the given reader, ignoring any exception
+     * 
+     * @param reader to close
+     */
+    private static void closeQuietly(XMLStreamReader reader) {
+        try {
+            reader.close();
+        } catch (XMLStreamException e) {
+            // ignore
+        }
+    }
+
 }
@@ -15,6 +15,8 @@
  */
 package org.rundeck.api.parser;
 
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import org.apache.commons.lang.StringUtils;
 import org.dom4j.Node;
 import org.rundeck.api.domain.RundeckProject;
@@ -24,7 +26,7 @@ import org.rundeck.api.domain.RundeckProject;
  * 
  * @author Vincent Behar
  */
-public class ProjectParser implements XmlNodeParser<RundeckProject> {
+public class ProjectParser implements XmlNodeParser<RundeckProject>, XmlStreamParser<RundeckProject> {
 
     private String xpath;
 
@@ -53,4 +55,33 @@ public class ProjectParser implements XmlNodeParser<RundeckProject> {
         return project;
     }
 
+    @Override
+    public RundeckProject parseXmlStream(XMLStreamReader reader) throws XMLStreamException {
+        ParserHelper.selectElement(reader, xpath);
+
+        RundeckProject project = new RundeckProject();
+
+        String name = null;
+        String description = null;
+        String providerUrl = null;
+        while (ParserHelper.nextChildElement(reader)) {
+            String element = reader.getLocalName();
+            if ("name".equals(element) && name == null) {
+                name = ParserHelper.readElementText(reader);
+            } else if ("description".equals(element) && description == null) {
+                description = ParserHelper.readElementText(reader);
+            } else if ("resources".equals(element) && providerUrl == null) {
+                providerUrl = ParserHelper.readChildElementsText(reader).get("providerURL");
+            } else {
+                ParserHelper.skipElement(reader);
+            }
+        }
+
+        project.setName(StringUtils.trimToNull(name));
+        project.setDescription(StringUtils.trimToNull(description));
+        project.setResourceModelProviderUrl(StringUtils.trimToNull(providerUrl));
+
+        return project;
+    }
+
 }
@@ -15,6 +15,8 @@
  */
 package org.rundeck.api.parser;
 
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import org.apache.commons.lang.StringUtils;
 import org.dom4j.Node;
 
@@ -23,7 +25,7 @@ import org.dom4j.Node;
  * 
  * @author Vincent Behar
  */
-public class StringParser implements XmlNodeParser<String> {
+public class StringParser implements XmlNodeParser<String>, XmlStreamParser<String> {
 
     private String xpath;
 
@@ -46,4 +48,11 @@ public class StringParser implements XmlNodeParser<String> {
         return StringUtils.trimToNull(strNode.getStringValue());
     }
 
+    @Override
+    public String parseXmlStream(XMLStreamReader reader) throws XMLStreamException {
+        ParserHelper.selectElement(reader, xpath);
+
+        return StringUtils.trimToNull(ParserHelper.readElementText(reader));
+    }
+
 }
@@ -15,7 +15,13 @@
  */
 package org.rundeck.api.parser;
 
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.lang.StringUtils;
 import org.dom4j.Node;
 import org.rundeck.api.domain.RundeckSystemInfo;
@@ -25,7 +31,10 @@ import org.rundeck.api.domain.RundeckSystemInfo;
  * 
  * @author Vincent Behar
  */
-public class SystemInfoParser implements XmlNodeParser<RundeckSystemInfo> {
+public class SystemInfoParser implements XmlNodeParser<RundeckSystemInfo>, XmlStreamParser<RundeckSystemInfo> {
+
+    /** Elements of "stats" holding simple values */
+    private static final transient String[] STATS_GROUPS = { "cpu", "memory", "scheduler", "threads" };
 
     private String xpath;
 
@@ -78,4 +87,96 @@ public class SystemInfoParser implements XmlNodeParser<RundeckSystemInfo> {
 
         return info;
     }
+
+    @Override
+    public RundeckSystemInfo parseXmlStream(XMLStreamReader reader) throws XMLStreamException {
+        ParserHelper.selectElement(reader, xpath);
+
+        RundeckSystemInfo info = new RundeckSystemInfo();
+
+        String timestamp = null;
+        Map<String, String> rundeck = Collections.emptyMap();
+        Map<String, String> os = Collections.emptyMap();
+        Map<String, String> jvm = Collections.emptyMap();
+        Map<String, String> stats = new HashMap<String, String>();
+        while (ParserHelper.nextChildElement(reader)) {
+            String element = reader.getLocalName();
+            if ("timestamp".equals(element) && timestamp == null) {
+                timestamp = ParserHelper.getAttributeValue(reader, "epoch");
+                ParserHelper.skipElement(reader);
+            } else if ("rundeck".equals(element) && rundeck.isEmpty()) {
+                rundeck = ParserHelper.readChildElementsText(reader);
+            } else if ("os".equals(element) && os.isEmpty()) {
+                os = ParserHelper.readChildElementsText(reader);
+            } else if ("jvm".equals(element) && jvm.isEmpty()) {
+                jvm = ParserHelper.readChildElementsText(reader);
+            } else if ("stats".equals(element) && stats.isEmpty()) {
+                readStats(reader, stats);
+            } else {
+                ParserHelper.skipElement(reader);
+            }
+        }
+
+        timestamp = StringUtils.trimToNull(timestamp);
+        if (timestamp != null) {
+            info.setDate(new Date(Long.valueOf(timestamp)));
+        }
+        info.setVersion(StringUtils.trimToNull(rundeck.get("version")));
+        info.setBuild(StringUtils.trimToNull(rundeck.get("build")));
+        info.setNode(StringUtils.trimToNull(rundeck.get("node")));
+        info.setBaseDir(StringUtils.trimToNull(rundeck.get("base")));
+        info.setOsArch(StringUtils.trimToNull(os.get("arch")));
+        info.setOsName(StringUtils.trimToNull(os.get("name")));
+        info.setOsVersion(StringUtils.trimToNull(os.get("version")));
+        info.setJvmName(StringUtils.trimToNull(jvm.get("name")));
+        info.setJvmVendor(StringUtils.trimToNull(jvm.get("vendor")));
+        info.setJvmVersion(StringUtils.trimToNull(jvm.get("version")));
+        String startDate = StringUtils.trimToNull(stats.get("uptime/since/@epoch"));
+        if (startDate != null) {
+            info.setStartDate(new Date(Long.valueOf(startDate)));
+        }
+        info.setUptimeInMillis(Long.valueOf(StringUtils.defaultString(stats.get("uptime/@duration"))));
+        info.setCpuLoadAverage(StringUtils.trimToNull(stats.get("cpu/loadAverage")));
+        if (info.getCpuLoadAverage() != null) {
+            info.setCpuLoadAverage(info.getCpuLoadAverage() + " %");
+        }
+        info.setMaxMemoryInBytes(Long.valueOf(StringUtils.defaultString(stats.get("memory/max"))));
+        info.setFreeMemoryInBytes(Long.valueOf(StringUtils.defaultString(stats.get("memory/free"))));
+        info.setTotalMemoryInBytes(Long.valueOf(StringUtils.defaultString(stats.get("memory/total"))));
+        info.setRunningJobs(Integer.valueOf(StringUtils.defaultString(stats.get("scheduler/running"))));
+        info.setActiveThreads(Integer.valueOf(StringUtils.defaultString(stats.get("threads/active"))));
+
+        return info;
+    }
+
+    /**
+     * Read the "stats" element, and put the values we are interested in, keyed by their xpath relative to the "stats"
+     * element
+     * 
+     * @param reader positioned on the start of the "stats" element
+     * @param stats map to fill
+     * @throws XMLStreamException if we failed to read the XML stream
+     */
+    private void readStats(XMLStreamReader reader, Map<String, String> stats) throws XMLStreamException {
+        while (ParserHelper.nextChildElement(reader)) {
+            String element = reader.getLocalName();
+            if ("uptime".equals(element) && !stats.containsKey("uptime/@duration")) {
+                stats.put("uptime/@duration", ParserHelper.getAttributeValue(reader, "duration"));
+                while (ParserHelper.nextChildElement(reader)) {
+                    if ("since".equals(reader.getLocalName()) && !stats.containsKey("uptime/since/@epoch")) {
+                        stats.put("uptime/since/@epoch", ParserHelper.getAttributeValue(reader, "epoch"));
+                    }
+                    ParserHelper.skipElement(reader);
+                }
+            } else if (ArrayUtils.contains(STATS_GROUPS, element) && !stats.containsKey(element)) {
+                stats.put(element, "");
+                for (Map.Entry<String, String> child : ParserHelper.readChildElementsText(reader).entrySet()) {
+                    stats.put(element + "/" + child.getKey(), child.getValue());
+                }
+            } else {
+                ParserHelper.skipElement(reader);
+            }
+        }
+    }
+
 }
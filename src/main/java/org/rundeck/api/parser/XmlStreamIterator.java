@@ -0,0 +1,123 @@
+/*
+ * Copyright 2011 Vincent Behar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rundeck.api.parser;
+
+import java.util.NoSuchElementException;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.rundeck.api.RundeckApiException;
+import org.rundeck.api.util.CloseableIterator;
+
+/**
+ * A {@link CloseableIterator} over the elements matching an xpath, that are parsed one at a time (with an
+ * {@link XmlStreamParser}) while iterating. So only the current element is held in memory, whatever the size of the
+ * XML stream is.
+ * <p>
+ * The iterator is automatically closed once all the elements have been read.
+ * 
+ * @author Vincent Behar
+ */
+public class XmlStreamIterator<T> implements CloseableIterator<T> {
+
+    private final XMLStreamReader reader;
+
+    private final XmlStreamParser<T> parser;
+
+    private final String xpath;
+
+    /** The next element, if we already parsed it */
+    private T next;
+
+    /** Whether we reached the end of the XML stream */
+    private boolean finished = false;
+
+    private boolean closed = false;
+
+    /**
+     * @param reader positioned on the root element - see {@link ParserHelper#loadStream(java.io.InputStream)}
+     * @param parser for an individual element
+     * @param xpath of the elements
+     */
+    public XmlStreamIterator(XMLStreamReader reader, XmlStreamParser<T> parser, String xpath) {
+        super();
+        this.reader = reader;
+        this.parser = parser;
+        this.xpath = xpath;
+    }
+
+    /**
+     * @throws RundeckApiException if we failed to read the XML stream
+     */
+    @Override
+    public boolean hasNext() throws RundeckApiException {
+        if (next == null && !closed) {
+            try {
+                if (ParserHelper.nextElement(reader, xpath)) {
+                    next = parser.parseXmlStream(reader);
+                } else {
+                    finished = true;
+                    close();
+                }
+            } catch (XMLStreamException e) {
+                close();
+                throw new RundeckApiException("Failed to read RunDeck reponse", e);
+            }
+        }
+        return next != null;
+    }
+
+    /**
+     * @throws RundeckApiException if we failed to read the XML stream
+     */
+    @Override
+    public T next() throws RundeckApiException, NoSuchElementException {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        T element = next;
+        next = null;
+        return element;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("remove is not supported");
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            reader.close();
+        } catch (XMLStreamException e) {
+            // ignore
+        }
+        release(finished);
+    }
+
+    /**
+     * Called when the iterator is closed, to release the resources linked with the XML stream. Does nothing by
+     * default.
+     * 
+     * @param complete true if all the XML stream has been read, false if the iterator has been closed before
+     */
+    protected void release(boolean complete) {
+    }
+
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2011 Vincent Behar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rundeck.api.parser;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Interface to be implemented for parsers that can read their result directly from an {@link XMLStreamReader},
+ * without loading the whole XML document in memory first.
+ * <p>
+ * If the parser has been created with an xpath, the reader is expected to be positioned on the root element of the
+ * document (see {@link ParserHelper#loadStream(java.io.InputStream)}), and the (simple, "a/b/c") xpath will be resolved
+ * from there. Otherwise, the reader is expected to be positioned on the start of the element to parse. In both cases,
+ * the parser will leave the reader on the end of the parsed element.
+ * 
+ * @author Vincent Behar
+ */
+public interface XmlStreamParser<T> {
+
+    /**
+     * Parse the XML element at the current position of the given {@link XMLStreamReader}
+     * 
+     * @param reader positioned on a start element
+     * @return any object holding the converted value
+     * @throws XMLStreamException if we failed to read the XML stream
+     */
+    T parseXmlStream(XMLStreamReader reader) throws XMLStreamException;
+
+}
@@ -37,6 +37,19 @@ public class AssertUtil {
         }
     }
 
+    /**
+     * Test if the given condition is true
+     * 
+     * @param condition to test
+     * @param errorMessage to be used if the condition is false
+     * @throws IllegalArgumentException if the given condition is false
+     */
+    public static void isTrue(boolean condition, String errorMessage) throws IllegalArgumentException {
+        if (!condition) {
+            throw new IllegalArgumentException(errorMessage);
+        }
+    }
+
     /**
      * Test if the given {@link String} is blank (null, empty or only whitespace)
      * 
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2011 Vincent Behar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rundeck.api;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Test;
+import org.rundeck.api.domain.RundeckExecution;
+import org.rundeck.api.domain.RundeckExecution.ExecutionStatus;
+
+/**
+ * Test the {@link AdaptivePollingStrategy}
+ * 
+ * @author Vincent Behar
+ */
+public class AdaptivePollingStrategyTest {
+
+    @Test
+    public void backoffUpToMaxDelay() throws Exception {
+        PollingStrategy strategy = new AdaptivePollingStrategy(100, 1000, 2, 0, 0);
+
+        Assert.assertEquals(100, strategy.getNextDelay(0));
+        Assert.assertEquals(100, strategy.getNextDelay(50));
+        Assert.assertEquals(300, strategy.getNextDelay(300));
+        Assert.assertEquals(800, strategy.getNextDelay(800));
+        Assert.assertEquals(1000, strategy.getNextDelay(60000));
+    }
+
+    @Test
+    public void clusterAroundExpectedDuration() throws Exception {
+        AdaptivePollingStrategy strategy = new AdaptivePollingStrategy(100, 10000, 2, 0, 0);
+        strategy = strategy.withExpectedDuration(5, TimeUnit.SECONDS);
+
+        // don't check after the expected end of the execution
+        Assert.assertEquals(1000, strategy.getNextDelay(4000));
+        Assert.assertEquals(100, strategy.getNextDelay(4950));
+        // then check often again, and back off
+        Assert.assertEquals(100, strategy.getNextDelay(5000));
+        Assert.assertEquals(2000, strategy.getNextDelay(7000));
+    }
+
+    @Test
+    public void jitter() throws Exception {
+        PollingStrategy strategy = new AdaptivePollingStrategy(1000, 1000, 2, 0.5, 0);
+        for (int i = 0; i < 100; i++) {
+            long delay = strategy.getNextDelay(i * 1000);
+            Assert.assertTrue("delay out of bounds : " + delay, delay >= 500 && delay <= 1500);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidMultiplier() throws Exception {
+        new AdaptivePollingStrategy(100, 1000, 1, 0, 0);
+    }
+
+    @Test
+    public void forJob() throws Exception {
+        final List<RundeckExecution> executions = new ArrayList<RundeckExecution>();
+        executions.add(execution(10000));
+        executions.add(execution(30000));
+        executions.add(execution(20000));
+
+        RundeckClient client = new RundeckClient("http://localhost:4440", "token") {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public List<RundeckExecution> getJobExecutions(String jobId, ExecutionStatus status, Long max,
+                    Long offset) {
+                Assert.assertEquals(ExecutionStatus.SUCCEEDED, status);
+                return executions;
+            }
+        };
+
+        Assert.assertEquals(20000, AdaptivePollingStrategy.forJob(client, "job-id").getExpectedDuration());
+
+        executions.clear();
+        Assert.assertEquals(0, AdaptivePollingStrategy.forJob(client, "job-id").getExpectedDuration());
+    }
+
+    private RundeckExecution execution(long duration) {
+        RundeckExecution execution = new RundeckExecution();
+        execution.setStatus(ExecutionStatus.SUCCEEDED);
+        execution.setStartedAt(new Date(0));
+        execution.setEndedAt(new Date(duration));
+        return execution;
+    }
+
+}
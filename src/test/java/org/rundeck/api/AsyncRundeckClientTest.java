@@ -0,0 +1,183 @@
+/*
+ * Copyright 2011 Vincent Behar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rundeck.api;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.rundeck.api.domain.RundeckExecution;
+import org.rundeck.api.domain.RundeckExecution.ExecutionStatus;
+import org.rundeck.api.domain.RundeckProject;
+
+/**
+ * Test the {@link AsyncRundeckClient}, with a fake {@link RundeckClient} (no HTTP calls)
+ * 
+ * @author Vincent Behar
+ */
+public class AsyncRundeckClientTest {
+
+    private FakeClient client;
+
+    private AsyncRundeckClient async;
+
+    @Test
+    public void getProjects() throws Exception {
+        final AtomicReference<List<RundeckProject>> result = new AtomicReference<List<RundeckProject>>();
+        final CountDownLatch latch = new CountDownLatch(1);
+        Future<List<RundeckProject>> future = async.getProjects(new RundeckCallback<List<RundeckProject>>() {
+
+            @Override
+            public void onSuccess(List<RundeckProject> projects) {
+                result.set(projects);
+                latch.countDown();
+            }
+
+            @Override
+            public void onFailure(RundeckApiException error) {
+                latch.countDown();
+            }
+        });
+
+        Assert.assertEquals("test", future.get(5, TimeUnit.SECONDS).get(0).getName());
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals("test", result.get().get(0).getName());
+    }
+
+    @Test
+    public void failure() throws Exception {
+        final AtomicReference<RundeckApiException> result = new AtomicReference<RundeckApiException>();
+        final CountDownLatch latch = new CountDownLatch(1);
+        Future<RundeckExecution> future = async.getExecution(42L, new RundeckCallback<RundeckExecution>() {
+
+            @Override
+            public void onSuccess(RundeckExecution execution) {
+                latch.countDown();
+            }
+
+            @Override
+            public void onFailure(RundeckApiException error) {
+                result.set(error);
+                latch.countDown();
+            }
+        });
+
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            Assert.fail("should have thrown an exception !");
+        } catch (ExecutionException e) {
+            Assert.assertEquals("no execution 42", e.getCause().getMessage());
+        }
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals("no execution 42", result.get().getMessage());
+    }
+
+    @Test
+    public void runJobs() throws Exception {
+        List<Future<RundeckExecution>> futures = new ArrayList<Future<RundeckExecution>>();
+        for (int i = 0; i < 50; i++) {
+            futures.add(async.runJob("job-id", null, null, 10, TimeUnit.MILLISECONDS, null));
+        }
+        for (Future<RundeckExecution> future : futures) {
+            Assert.assertEquals(ExecutionStatus.SUCCEEDED, future.get(5, TimeUnit.SECONDS).getStatus());
+        }
+        Assert.assertEquals(50, client.triggered.get());
+    }
+
+    @Test
+    public void cancelRunJob() throws Exception {
+        client.checksBeforeEnd = Integer.MAX_VALUE;
+        Future<RundeckExecution> future = async.runJob("job-id", null, null, 10, TimeUnit.MILLISECONDS, null);
+        while (client.getExecutionWatcher().getWatchedCount() == 0) {
+            Thread.sleep(5);
+        }
+
+        Assert.assertTrue(future.cancel(false));
+        Assert.assertEquals(0, client.getExecutionWatcher().getWatchedCount());
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        client = new FakeClient();
+        async = new AsyncRundeckClient(client);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        async.close();
+        client.close();
+    }
+
+    /**
+     * Fake client : the executions are running until they have been checked a number of times
+     */
+    private static class FakeClient extends RundeckClient {
+
+        private static final long serialVersionUID = 1L;
+
+        private final AtomicInteger triggered = new AtomicInteger();
+
+        private final AtomicInteger checks = new AtomicInteger();
+
+        private volatile int checksBeforeEnd = 3;
+
+        public FakeClient() {
+            super("http://rundeck.local:4440", "token");
+        }
+
+        @Override
+        public List<RundeckProject> getProjects() {
+            RundeckProject project = new RundeckProject();
+            project.setName("test");
+            List<RundeckProject> projects = new ArrayList<RundeckProject>();
+            projects.add(project);
+            return projects;
+        }
+
+        @Override
+        public RundeckExecution triggerJob(String jobId, Properties options, Properties nodeFilters) {
+            RundeckExecution execution = new RundeckExecution();
+            execution.setId(Long.valueOf(triggered.incrementAndGet()));
+            execution.setStatus(ExecutionStatus.RUNNING);
+            return execution;
+        }
+
+        @Override
+        public RundeckExecution getExecution(Long executionId) {
+            if (executionId > triggered.get()) {
+                throw new RundeckApiException("no execution " + executionId);
+            }
+            RundeckExecution execution = new RundeckExecution();
+            execution.setId(executionId);
+            if (checks.incrementAndGet() % checksBeforeEnd == 0) {
+                execution.setStatus(ExecutionStatus.SUCCEEDED);
+            } else {
+                execution.setStatus(ExecutionStatus.RUNNING);
+            }
+            return execution;
+        }
+    }
+
+}
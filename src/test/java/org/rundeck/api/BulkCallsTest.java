@@ -0,0 +1,133 @@
+/*
+ * Copyright 2011 Vincent Behar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rundeck.api;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.rundeck.api.RundeckApiException.RundeckApiPartialFailureException;
+
+/**
+ * Test the {@link BulkCalls}
+ * 
+ * @author Vincent Behar
+ */
+public class BulkCallsTest {
+
+    private ExecutorService executor;
+
+    @Test
+    public void callInOrder() throws Exception {
+        List<String> results = new TestCalls(0).callAll(Arrays.asList("c", "bb", "a"), executor, 3);
+
+        Assert.assertEquals(Arrays.asList("C", "BB", "A"), results);
+    }
+
+    @Test
+    public void boundedParallelism() throws Exception {
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        List<String> results = new TestCalls(0) {
+
+            @Override
+            protected String call(String item) {
+                int current = running.incrementAndGet();
+                synchronized (maxRunning) {
+                    maxRunning.set(Math.max(maxRunning.get(), current));
+                }
+                sleep(20);
+                running.decrementAndGet();
+                return super.call(item);
+            }
+        }.callAll(Arrays.asList("a", "b", "c", "d", "e", "f", "g", "h"), executor, 3);
+
+        Assert.assertEquals(8, results.size());
+        Assert.assertTrue("max running : " + maxRunning.get(), maxRunning.get() <= 3);
+        Assert.assertTrue("max running : " + maxRunning.get(), maxRunning.get() > 1);
+    }
+
+    @Test
+    public void rateLimit() throws Exception {
+        long start = System.currentTimeMillis();
+        new TestCalls(100).callAll(Arrays.asList("a", "b", "c", "d", "e", "f"), executor, 6);
+
+        // the first call starts immediately, and the next ones every 10 ms
+        Assert.assertTrue(System.currentTimeMillis() - start >= 50);
+    }
+
+    @Test
+    public void partialFailure() throws Exception {
+        try {
+            new TestCalls(0).callAll(Arrays.asList("a", "fail", "b"), executor, 2);
+            Assert.fail("should have thrown an exception !");
+        } catch (RundeckApiPartialFailureException e) {
+            Assert.assertEquals(Arrays.asList("A", null, "B"), e.getResults());
+            Assert.assertEquals(Arrays.asList("call 2 (fail)"), new ArrayList<String>(e.getFailures().keySet()));
+            Assert.assertEquals("Failed 1 of the 3 test calls : [call 2 (fail)]", e.getMessage());
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Upper-cases the items, and fails the item "fail"
+     */
+    private static class TestCalls extends BulkCalls<String, String> {
+
+        public TestCalls(double maxCallsPerSecond) {
+            super("test calls", maxCallsPerSecond);
+        }
+
+        @Override
+        protected String call(String item) {
+            if ("fail".equals(item)) {
+                throw new RundeckApiException("no " + item);
+            }
+            // the first items are the slowest
+            sleep(Math.max(0, 30 - item.length() * 10));
+            return item.toUpperCase();
+        }
+
+        @Override
+        protected String describe(int index, String item) {
+            return "call " + (index + 1) + " (" + item + ")";
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2011 Vincent Behar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rundeck.api;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.dom4j.Document;
+import org.dom4j.Node;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.rundeck.api.JobsSplitter.Chunk;
+import org.rundeck.api.RundeckApiException.RundeckApiPartialFailureException;
+import org.rundeck.api.domain.RundeckJob;
+import org.rundeck.api.domain.RundeckJobsImportResult;
+import org.rundeck.api.parser.ParserHelper;
+
+/**
+ * Test the {@link BulkJobsImporter} and the {@link JobsSplitter}
+ * 
+ * @author Vincent Behar
+ */
+public class BulkJobsImporterTest {
+
+    private ExecutorService executor;
+
+    @Test
+    public void splitXml() throws Exception {
+        JobsSplitter splitter = JobsSplitter.create(xml("a", "b", "c", "d", "e"), FileType.XML, 2);
+
+        List<Chunk> chunks = new ArrayList<Chunk>();
+        for (Chunk chunk; (chunk = splitter.next()) != null;) {
+            chunks.add(chunk);
+        }
+        Assert.assertEquals(3, chunks.size());
+        Assert.assertEquals(Arrays.asList("a", "b"), names(chunks.get(0)));
+        Assert.assertEquals(Arrays.asList("c", "d"), names(chunks.get(1)));
+        Assert.assertEquals(Arrays.asList("e"), names(chunks.get(2)));
+        Assert.assertEquals("chunk 3 (jobs 5 to 5)", chunks.get(2).toString());
+    }
+
+    @Test
+    public void splitYaml() throws Exception {
+        String yaml = "---\n# some jobs\n- name: a\n  sequence:\n    commands:\n    - exec: echo a\n"
+                      + "- name: b\n  group: g\n-\n  name: c\n";
+        JobsSplitter splitter = JobsSplitter.create(new ByteArrayInputStream(yaml.getBytes("UTF-8")),
+                                                    FileType.YAML,
+                                                    2);
+
+        Chunk chunk = splitter.next();
+        Assert.assertEquals(2, chunk.getJobsCount());
+        Assert.assertEquals("- name: a\n  sequence:\n    commands:\n    - exec: echo a\n- name: b\n  group: g\n",
+                            new String(chunk.getDefinitions(), "UTF-8"));
+        chunk = splitter.next();
+        Assert.assertEquals(3, chunk.getFirstJob());
+        Assert.assertEquals("-\n  name: c\n", new String(chunk.getDefinitions(), "UTF-8"));
+        Assert.assertNull(splitter.next());
+    }
+
+    @Test(expected = IOException.class)
+    public void splitInvalidXml() throws Exception {
+        JobsSplitter.create(new ByteArrayInputStream("<joblist><job>".getBytes("UTF-8")), FileType.XML, 2).next();
+    }
+
+    @Test
+    public void importInChunksOrder() throws Exception {
+        JobsSplitter splitter = JobsSplitter.create(xml("a", "b", "c", "d", "e", "f", "g"), FileType.XML, 2);
+        RundeckJobsImportResult result = new TestImporter().importAll(splitter, executor, 3);
+
+        Assert.assertEquals(7, result.getSucceededJobs().size());
+        Assert.assertEquals("g", result.getSucceededJobs().get(6).getName());
+    }
+
+    @Test
+    public void partialFailure() throws Exception {
+        try {
+            new TestImporter().importAll(JobsSplitter.create(xml("a", "b", "fail", "c", "d"), FileType.XML, 2),
+                                         executor,
+                                         2);
+            Assert.fail("should have thrown an exception !");
+        } catch (RundeckApiPartialFailureException e) {
+            RundeckJobsImportResult result = (RundeckJobsImportResult) e.getResult();
+            Assert.assertEquals(3, result.getSucceededJobs().size());
+            Assert.assertEquals(Arrays.asList("chunk 2 (jobs 3 to 4)"),
+                                new ArrayList<String>(e.getFailures().keySet()));
+            Assert.assertEquals("invalid job", e.getFailures().get("chunk 2 (jobs 3 to 4)").getMessage());
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executor.shutdownNow();
+    }
+
+    /**
+     * "Imports" the jobs of the chunks, and fails the chunks with a job named "fail"
+     */
+    private static class TestImporter extends BulkJobsImporter {
+
+        @Override
+        protected RundeckJobsImportResult importChunk(byte[] definitions) {
+            RundeckJobsImportResult result = new RundeckJobsImportResult();
+            for (String name : names(definitions)) {
+                if ("fail".equals(name)) {
+                    throw new RundeckApiException("invalid job");
+                }
+                RundeckJob job = new RundeckJob();
+                job.setName(name);
+                result.addSucceededJob(job);
+            }
+            return result;
+        }
+    }
+
+    private static ByteArrayInputStream xml(String... names) throws Exception {
+        StringBuilder xml = new StringBuilder("<?xml version='1.0' encoding='UTF-8'?>\n<joblist>\n");
+        for (String name : names) {
+            xml.append("  <job>\n    <name>").append(name).append("</name>\n    <sequence><command><exec>echo ");
+            xml.append(name).append("</exec></command></sequence>\n  </job>\n");
+        }
+        return new ByteArrayInputStream(xml.append("</joblist>\n").toString().getBytes("UTF-8"));
+    }
+
+    private static List<String> names(Chunk chunk) {
+        return names(chunk.getDefinitions());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String> names(byte[] definitions) {
+        Document document = ParserHelper.loadDocument(new ByteArrayInputStream(definitions));
+        List<String> names = new ArrayList<String>();
+        for (Node name : (List<Node>) document.selectNodes("joblist/job/name")) {
+            names.add(name.getText());
+        }
+        return names;
+    }
+
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2011 Vincent Behar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rundeck.api;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test the {@link CallbackFuture}
+ * 
+ * @author Vincent Behar
+ */
+public class CallbackFutureTest {
+
+    @Test
+    public void completeNotifiesOnce() throws Exception {
+        Callback callback = new Callback();
+        final CallbackFuture<String> future = new CallbackFuture<String>(callback);
+        Assert.assertFalse(future.isDone());
+
+        Thread completer = new Thread() {
+
+            @Override
+            public void run() {
+                future.complete("done");
+            }
+        };
+        completer.start();
+        Assert.assertEquals("done", future.get(5, TimeUnit.SECONDS));
+        // the callback is notified after the waiting threads are released
+        completer.join();
+        future.fail(new RundeckApiException("too late"));
+        Assert.assertFalse(future.cancel(false));
+
+        Assert.assertTrue(future.isDone());
+        Assert.assertFalse(future.isCancelled());
+        Assert.assertEquals("done", future.get());
+        Assert.assertEquals(1, callback.results.size());
+        Assert.assertEquals("done", callback.results.get(0));
+    }
+
+    @Test
+    public void failNotifiesTheError() throws Exception {
+        Callback callback = new Callback();
+        CallbackFuture<String> future = new CallbackFuture<String>(callback);
+        future.fail(new IllegalStateException("failed"));
+        try {
+            future.get();
+            Assert.fail("should have thrown an exception !");
+        } catch (ExecutionException e) {
+            Assert.assertEquals("failed", e.getCause().getMessage());
+        }
+        Assert.assertEquals(1, callback.errors.size());
+        Assert.assertEquals(IllegalStateException.class, callback.errors.get(0).getCause().getClass());
+    }
+
+    @Test
+    public void cancelDoesNotNotify() throws Exception {
+        Callback callback = new Callback();
+        CallbackFuture<String> future = new CallbackFuture<String>(callback);
+        Assert.assertTrue(future.cancel(true));
+        future.complete("too late");
+
+        Assert.assertTrue(future.isCancelled());
+        Assert.assertTrue(future.isDone());
+        try {
+            future.get();
+            Assert.fail("should have thrown an exception !");
+        } catch (CancellationException e) {
+            Assert.assertTrue(callback.results.isEmpty());
+            Assert.assertTrue(callback.errors.isEmpty());
+        }
+    }
+
+    @Test(expected = TimeoutException.class)
+    public void getTimeout() throws Exception {
+        new CallbackFuture<String>(null).get(10, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Records the results and errors
+     */
+    private static class Callback implements RundeckCallback<String> {
+
+        private final List<String> results = new ArrayList<String>();
+
+        private final List<RundeckApiException> errors = new ArrayList<RundeckApiException>();
+
+        @Override
+        public void onSuccess(String result) {
+            results.add(result);
+        }
+
+        @Override
+        public void onFailure(RundeckApiException error) {
+            errors.add(error);
+        }
+    }
+
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2011 Vincent Behar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rundeck.api;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.rundeck.api.ResponseCache.Resource;
+
+/**
+ * Test the {@link DefaultResponseCache}
+ * 
+ * @author Vincent Behar
+ */
+public class DefaultResponseCacheTest {
+
+    @Test
+    public void hitsAndMisses() throws Exception {
+        DefaultResponseCache cache = new DefaultResponseCache();
+        Assert.assertNull(cache.get("/projects"));
+
+        cache.put("/projects", Resource.PROJECTS, new byte[] { 1, 2, 3 }, 60000);
+        Assert.assertArrayEquals(new byte[] { 1, 2, 3 }, cache.get("/projects"));
+        Assert.assertEquals(1, cache.getHitCount());
+        Assert.assertEquals(1, cache.getMissCount());
+        Assert.assertEquals(3, cache.getSizeInBytes());
+    }
+
+    @Test
+    public void expiration() throws Exception {
+        DefaultResponseCache cache = new DefaultResponseCache();
+        cache.put("/projects", Resource.PROJECTS, new byte[] { 1 }, 10);
+        Thread.sleep(50);
+        Assert.assertNull(cache.get("/projects"));
+        Assert.assertEquals(0, cache.getSize());
+        Assert.assertEquals(0, cache.getSizeInBytes());
+    }
+
+    @Test
+    public void evictLeastRecentlyUsed() throws Exception {
+        DefaultResponseCache cache = new DefaultResponseCache(2, 1000);
+        cache.put("/one", Resource.JOBS, new byte[] { 1 }, 60000);
+        cache.put("/two", Resource.JOBS, new byte[] { 2 }, 60000);
+        cache.get("/one");
+        cache.put("/three", Resource.JOBS, new byte[] { 3 }, 60000);
+
+        Assert.assertNotNull(cache.get("/one"));
+        Assert.assertNull(cache.get("/two"));
+        Assert.assertNotNull(cache.get("/three"));
+        Assert.assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    public void evictWhenTooManyBytes() throws Exception {
+        DefaultResponseCache cache = new DefaultResponseCache(100, 10);
+        cache.put("/one", Resource.NODES, new byte[6], 60000);
+        cache.put("/two", Resource.NODES, new byte[6], 60000);
+        Assert.assertNull(cache.get("/one"));
+        Assert.assertEquals(6, cache.getSizeInBytes());
+
+        // too big to be cached
+        cache.put("/three", Resource.NODES, new byte[11], 60000);
+        Assert.assertNull(cache.get("/three"));
+        Assert.assertEquals(1, cache.getSize());
+    }
+
+    @Test
+    public void invalidate() throws Exception {
+        DefaultResponseCache cache = new DefaultResponseCache();
+        cache.put("/jobs", Resource.JOBS, new byte[] { 1 }, 60000);
+        cache.put("/projects", Resource.PROJECTS, new byte[] { 2 }, 60000);
+        cache.invalidate(Resource.JOBS);
+
+        Assert.assertNull(cache.get("/jobs"));
+        Assert.assertNotNull(cache.get("/projects"));
+        Assert.assertEquals(1, cache.getSizeInBytes());
+    }
+
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright 2011 Vincent Behar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rundeck.api;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.rundeck.api.domain.RundeckExecution;
+import org.rundeck.api.domain.RundeckExecution.ExecutionStatus;
+
+/**
+ * Test the {@link ExecutionWatcher}, with a fake {@link RundeckClient} (no HTTP calls)
+ * 
+ * @author Vincent Behar
+ */
+public class ExecutionWatcherTest {
+
+    private FakeClient client;
+
+    @Test
+    public void alreadyFinished() throws Exception {
+        Future<RundeckExecution> future = client.getExecutionWatcher().watch(execution(1L, ExecutionStatus.SUCCEEDED));
+        Assert.assertTrue(future.isDone());
+        Assert.assertEquals(ExecutionStatus.SUCCEEDED, future.get().getStatus());
+        Assert.assertEquals(0, client.calls.get());
+    }
+
+    @Test
+    public void watchSingleExecution() throws Exception {
+        client.finishAfter(1L, 3, ExecutionStatus.FAILED);
+
+        Future<RundeckExecution> future = client.getExecutionWatcher().watch("test",
+                                                                             execution(1L, ExecutionStatus.RUNNING),
+                                                                             10,
+                                                                             TimeUnit.MILLISECONDS,
+                                                                             null);
+
+        Assert.assertEquals(ExecutionStatus.FAILED, future.get(5, TimeUnit.SECONDS).getStatus());
+        // a single execution is checked directly
+        Assert.assertEquals(0, client.runningCalls.get());
+    }
+
+    @Test
+    public void watchWithPollingStrategy() throws Exception {
+        client.finishAfter(1L, 3, ExecutionStatus.SUCCEEDED);
+        final List<Long> elapsed = Collections.synchronizedList(new ArrayList<Long>());
+        PollingStrategy strategy = new PollingStrategy() {
+
+            @Override
+            public long getNextDelay(long elapsedInMillis) {
+                elapsed.add(elapsedInMillis);
+                return 10;
+            }
+        };
+
+        Future<RundeckExecution> future = client.getExecutionWatcher().watch("test",
+                                                                             execution(1L, ExecutionStatus.RUNNING),
+                                                                             strategy,
+                                                                             null);
+
+        Assert.assertEquals(ExecutionStatus.SUCCEEDED, future.get(5, TimeUnit.SECONDS).getStatus());
+        // one delay before the first check, and one after each check of the running execution
+        Assert.assertEquals(4, elapsed.size());
+        Assert.assertTrue(elapsed.get(3) >= elapsed.get(0));
+    }
+
+    @Test
+    public void watchExecutionsOfTheSameProject() throws Exception {
+        List<Future<RundeckExecution>> futures = new ArrayList<Future<RundeckExecution>>();
+        for (long id = 1; id <= 10; id++) {
+            client.finishAfter(id, 5, ExecutionStatus.SUCCEEDED);
+            futures.add(client.getExecutionWatcher().watch("test",
+                                                           execution(id, ExecutionStatus.RUNNING),
+                                                           10,
+                                                           TimeUnit.MILLISECONDS,
+                                                           null));
+        }
+
+        for (Future<RundeckExecution> future : futures) {
+            Assert.assertEquals(ExecutionStatus.SUCCEEDED, future.get(5, TimeUnit.SECONDS).getStatus());
+        }
+        // we listed the running executions, instead of getting each execution at each check
+        Assert.assertTrue(client.runningCalls.get() > 0);
+        Assert.assertTrue("calls : " + client.calls.get(), client.calls.get() < 10 * 5);
+        Assert.assertEquals(0, client.getExecutionWatcher().getWatchedCount());
+    }
+
+    @Test
+    public void callback() throws Exception {
+        client.finishAfter(1L, 2, ExecutionStatus.ABORTED);
+        final AtomicReference<RundeckExecution> result = new AtomicReference<RundeckExecution>();
+        final CountDownLatch latch = new CountDownLatch(1);
+
+        client.getExecutionWatcher().watch(null,
+                                           execution(1L, ExecutionStatus.RUNNING),
+                                           10,
+                                           TimeUnit.MILLISECONDS,
+                                           new RundeckCallback<RundeckExecution>() {
+
+                                               @Override
+                                               public void onSuccess(RundeckExecution execution) {
+                                                   result.set(execution);
+                                                   latch.countDown();
+                                               }
+
+                                               @Override
+                                               public void onFailure(RundeckApiException error) {
+                                                   latch.countDown();
+                                               }
+                                           });
+
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(ExecutionStatus.ABORTED, result.get().getStatus());
+    }
+
+    @Test
+    public void failure() throws Exception {
+        Future<RundeckExecution> future = client.getExecutionWatcher().watch(null,
+                                                                             execution(42L, ExecutionStatus.RUNNING),
+                                                                             10,
+                                                                             TimeUnit.MILLISECONDS,
+                                                                             null);
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            Assert.fail("should have thrown an exception !");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof RundeckApiException);
+            Assert.assertEquals("no execution 42", e.getCause().getMessage());
+        }
+    }
+
+    @Test
+    public void closeClient() throws Exception {
+        client.finishAfter(1L, Integer.MAX_VALUE, ExecutionStatus.SUCCEEDED);
+        Future<RundeckExecution> future = client.getExecutionWatcher().watch(null,
+                                                                             execution(1L, ExecutionStatus.RUNNING),
+                                                                             10,
+                                                                             TimeUnit.MILLISECONDS,
+                                                                             null);
+        client.close();
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            Assert.fail("should have thrown an exception !");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof RundeckApiException);
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        client = new FakeClient();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        client.close();
+    }
+
+    private static RundeckExecution execution(Long id, ExecutionStatus status) {
+        RundeckExecution execution = new RundeckExecution();
+        execution.setId(id);
+        execution.setStatus(status);
+        return execution;
+    }
+
+    /**
+     * Fake client : executions are running until they have been checked a number of times
+     */
+    private static class FakeClient extends RundeckClient {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Map<Long, Integer> remainingChecks = Collections.synchronizedMap(new HashMap<Long, Integer>());
+
+        private final Map<Long, ExecutionStatus> finalStatus = new HashMap<Long, ExecutionStatus>();
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        private final AtomicInteger runningCalls = new AtomicInteger();
+
+        public FakeClient() {
+            super("http://rundeck.local:4440", "token");
+        }
+
+        public synchronized void finishAfter(Long id, int checks, ExecutionStatus status) {
+            remainingChecks.put(id, checks);
+            finalStatus.put(id, status);
+        }
+
+        private synchronized boolean isRunning(Long id) {
+            int remaining = remainingChecks.get(id);
+            if (remaining > 0) {
+                remainingChecks.put(id, remaining - 1);
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public List<RundeckExecution> getRunningExecutions(String project) {
+            calls.incrementAndGet();
+            runningCalls.incrementAndGet();
+            List<RundeckExecution> executions = new ArrayList<RundeckExecution>();
+            for (Long id : new ArrayList<Long>(remainingChecks.keySet())) {
+                if (isRunning(id)) {
+                    executions.add(execution(id, ExecutionStatus.RUNNING));
+                }
+            }
+            return executions;
+        }
+
+        @Override
+        public RundeckExecution getExecution(Long executionId) {
+            calls.incrementAndGet();
+            if (!remainingChecks.containsKey(executionId)) {
+                throw new RundeckApiException("no execution " + executionId);
+            }
+            if (isRunning(executionId)) {
+                return execution(executionId, ExecutionStatus.RUNNING);
+            }
+            synchronized (this) {
+                return execution(executionId, finalStatus.get(executionId));
+            }
+        }
+    }
+
+}
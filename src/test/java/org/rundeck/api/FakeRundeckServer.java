@@ -0,0 +1,691 @@
+/*
+ * Copyright 2011 Vincent Behar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rundeck.api;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringEscapeUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.math.NumberUtils;
+import org.apache.commons.lang.time.DateFormatUtils;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A fake RunDeck server, running in-process (and listening on the loopback interface only), for testing the client
+ * without a real RunDeck instance : load tests, latency tests, and so on. <br>
+ * It serves the API endpoints used by the client (projects, jobs, nodes, history, executions, ad-hoc commands and
+ * scripts, jobs import) with synthetic data of configurable size, and can inject some latency and errors. Only the
+ * token-based authentication is supported. The triggered executions are running for a configurable duration, and then
+ * succeed. The events of the history are dated before the creation of the server, one every minute. Note that the node
+ * filters and most of the jobs/history filters are ignored (only the begin/end dates of the history are applied). <br>
+ * Usage :
+ * 
+ * <pre>
+ * FakeRundeckServer server = new FakeRundeckServer().projects(2).nodesPerProject(1000).latency(5, 20).start();
+ * RundeckClient client = new RundeckClient(server.getUrl(), server.getToken());
+ * ...
+ * server.close();
+ * </pre>
+ * 
+ * @author Vincent Behar
+ */
+public class FakeRundeckServer implements Closeable {
+
+    private static final transient String API_RESULT = "<result success='true' apiversion='"
+                                                       + RundeckClient.API_VERSION + "'>";
+
+    private static final transient Pattern JOB_NAME_PATTERN = Pattern.compile("<job>.*?<name>(.*?)</name>",
+                                                                              Pattern.DOTALL);
+
+    private final String token = "fake-token";
+
+    private int projects = 1;
+
+    private int jobsPerProject = 10;
+
+    private int nodesPerProject = 10;
+
+    private int eventsPerProject = 100;
+
+    private long executionDuration = 1000;
+
+    private volatile long minLatency = 0;
+
+    private volatile long maxLatency = 0;
+
+    private volatile double errorRate = 0;
+
+    private int threads = 50;
+
+    private final Random random = new Random();
+
+    private final AtomicLong executionIds = new AtomicLong();
+
+    private final Map<Long, FakeExecution> executions = new ConcurrentHashMap<Long, FakeExecution>();
+
+    private final AtomicInteger requests = new AtomicInteger();
+
+    private final AtomicInteger injectedErrors = new AtomicInteger();
+
+    private volatile long lastContentLength = -1;
+
+    /** End date of the most recent event of the history */
+    private final long historyEnd = System.currentTimeMillis();
+
+    private HttpServer server;
+
+    private ExecutorService executor;
+
+    /**
+     * @param projects number of projects (named "project-0", "project-1", ...)
+     * @return this, for method chaining
+     */
+    public FakeRundeckServer projects(int projects) {
+        this.projects = projects;
+        return this;
+    }
+
+    /**
+     * @param jobsPerProject number of jobs in each project
+     * @return this, for method chaining
+     */
+    public FakeRundeckServer jobsPerProject(int jobsPerProject) {
+        this.jobsPerProject = jobsPerProject;
+        return this;
+    }
+
+    /**
+     * @param nodesPerProject number of nodes in each project
+     * @return this, for method chaining
+     */
+    public FakeRundeckServer nodesPerProject(int nodesPerProject) {
+        this.nodesPerProject = nodesPerProject;
+        return this;
+    }
+
+    /**
+     * @param eventsPerProject number of events in the history of each project
+     * @return this, for method chaining
+     */
+    public FakeRundeckServer eventsPerProject(int eventsPerProject) {
+        this.eventsPerProject = eventsPerProject;
+        return this;
+    }
+
+    /**
+     * @param executionDuration how long (in milli-seconds) the triggered executions are running
+     * @return this, for method chaining
+     */
+    public FakeRundeckServer executionDuration(long executionDuration) {
+        this.executionDuration = executionDuration;
+        return this;
+    }
+
+    /**
+     * @param minLatency minimum delay (in milli-seconds) before responding to a request
+     * @param maxLatency maximum delay (in milli-seconds) before responding to a request
+     * @return this, for method chaining
+     */
+    public FakeRundeckServer latency(long minLatency, long maxLatency) {
+        this.minLatency = minLatency;
+        this.maxLatency = Math.max(minLatency, maxLatency);
+        return this;
+    }
+
+    /**
+     * @param errorRate ratio (between 0 and 1) of the requests that will fail with an HTTP 500 error
+     * @return this, for method chaining
+     */
+    public FakeRundeckServer errorRate(double errorRate) {
+        this.errorRate = errorRate;
+        return this;
+    }
+
+    /**
+     * @param threads number of threads handling the requests
+     * @return this, for method chaining
+     */
+    public FakeRundeckServer threads(int threads) {
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * Start the server, on a random port of the loopback interface
+     * 
+     * @return this, for method chaining
+     * @throws IOException if we fail to start the server
+     */
+    public FakeRundeckServer start() throws IOException {
+        // without TCP_NODELAY, small responses are delayed by ~40ms (Nagle + delayed ACK), hiding the real latency
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getByName("127.0.0.1"), 0), threads);
+        executor = Executors.newFixedThreadPool(threads, new DaemonThreadFactory("fake-rundeck-"));
+        server.setExecutor(executor);
+        server.createContext("/", new HttpHandler() {
+
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    FakeRundeckServer.this.handle(exchange);
+                } finally {
+                    exchange.close();
+                }
+            }
+        });
+        server.start();
+        return this;
+    }
+
+    /**
+     * Stop the server
+     */
+    @Override
+    public void close() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+            server = null;
+        }
+    }
+
+    /**
+     * @return the URL of the server (for a {@link RundeckClient})
+     */
+    public String getUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /**
+     * @return the (only) valid token
+     */
+    public String getToken() {
+        return token;
+    }
+
+    /**
+     * @return the number of requests received (including the failed ones)
+     */
+    public int getRequestCount() {
+        return requests.get();
+    }
+
+    /**
+     * @return the Content-Length of the last request received - -1 if it had none (no body, or chunked body)
+     */
+    public long getLastContentLength() {
+        return lastContentLength;
+    }
+
+    /**
+     * @return the number of requests that failed because of the error rate
+     */
+    public int getInjectedErrorCount() {
+        return injectedErrors.get();
+    }
+
+    /**
+     * @param project name of the project
+     * @param index of the job in the project
+     * @return the ID of the job
+     */
+    public String getJobId(String project, int index) {
+        return project + "-job-" + index;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        lastContentLength = NumberUtils.toLong(exchange.getRequestHeaders().getFirst("Content-Length"), -1);
+        String body = IOUtils.toString(exchange.getRequestBody(), "UTF-8");
+
+        long latency = minLatency + (long) (random.nextDouble() * (maxLatency - minLatency));
+        if (latency > 0) {
+            try {
+                Thread.sleep(latency);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+
+        if (!token.equals(exchange.getRequestHeaders().getFirst("X-RunDeck-Auth-Token"))) {
+            respond(exchange, 403, "<html><body>Forbidden</body></html>");
+            return;
+        }
+        if (errorRate > 0 && random.nextDouble() < errorRate) {
+            injectedErrors.incrementAndGet();
+            respond(exchange, 500, error("Injected error"));
+            return;
+        }
+
+        String path = StringUtils.removeStart(exchange.getRequestURI().getRawPath(), RundeckClient.API_ENDPOINT);
+        Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+        String response = dispatch(exchange.getRequestMethod(), path, params, body);
+        if (response == null) {
+            respond(exchange, 404, "<html><body>Not Found</body></html>");
+        } else {
+            respond(exchange, 200, response);
+        }
+    }
+
+    /**
+     * @return the XML response, or null if the path does not exist
+     */
+    private String dispatch(String method, String path, Map<String, String> params, String body) {
+        String[] parts = StringUtils.split(path, '/');
+        if (parts.length == 0) {
+            return null;
+        }
+        String resource = parts[0];
+        String id = parts.length > 1 ? urlDecode(parts[1]) : null;
+        String action = parts.length > 2 ? parts[2] : null;
+
+        if ("system".equals(resource) && "info".equals(id)) {
+            return systemInfo();
+        } else if ("projects".equals(resource)) {
+            return projects();
+        } else if ("project".equals(resource) && id != null) {
+            return isProject(id) ? API_RESULT + "<projects count='1'>" + project(id) + "</projects></result>"
+                                 : error("project does not exist: " + id);
+        } else if ("jobs".equals(resource) && "import".equals(id)) {
+            return importJobs(body);
+        } else if ("jobs".equals(resource) && "export".equals(id)) {
+            return exportJobs(params.get("project"), params.get("format"));
+        } else if ("jobs".equals(resource)) {
+            return jobs(params.get("project"));
+        } else if ("job".equals(resource) && id != null && "run".equals(action)) {
+            return isJob(id) ? executions(run(projectOfJob(id), id, "job run")) : error("job not found: " + id);
+        } else if ("job".equals(resource) && id != null && "executions".equals(action)) {
+            return jobExecutions(id, params);
+        } else if ("job".equals(resource) && id != null && "DELETE".equals(method)) {
+            return isJob(id) ? API_RESULT + "<success><message>Job was successfully deleted: " + id
+                               + "</message></success></result>" : error("job not found: " + id);
+        } else if ("run".equals(resource) && ("command".equals(id) || "script".equals(id))) {
+            return runAdhoc(params.get("project"), id);
+        } else if ("executions".equals(resource) && "running".equals(id)) {
+            return runningExecutions(params.get("project"));
+        } else if ("execution".equals(resource) && id != null && "abort".equals(action)) {
+            return abort(NumberUtils.toLong(id, -1));
+        } else if ("execution".equals(resource) && id != null) {
+            FakeExecution execution = executions.get(NumberUtils.toLong(id, -1));
+            return execution != null ? executions(execution) : error("execution not found: " + id);
+        } else if ("history".equals(resource)) {
+            return history(params);
+        } else if ("resources".equals(resource)) {
+            return nodes(params.get("project"), null);
+        } else if ("resource".equals(resource) && id != null) {
+            return nodes(params.get("project"), id);
+        }
+        return null;
+    }
+
+    private String systemInfo() {
+        long now = System.currentTimeMillis();
+        return API_RESULT + "<success><message>System Stats for RunDeck 1.4.0 on node fake</message></success>"
+               + "<system><timestamp epoch='" + now + "' unit='ms'><datetime>" + date(now) + "</datetime></timestamp>"
+               + "<rundeck><version>1.4.0</version><build>1.4.0-1</build><node>fake</node><base>/tmp</base>"
+               + "</rundeck><os><arch>" + System.getProperty("os.arch") + "</arch><name>"
+               + System.getProperty("os.name") + "</name><version>" + System.getProperty("os.version")
+               + "</version></os><jvm><name>fake</name><vendor>fake</vendor><version>1</version></jvm>"
+               + "<stats><uptime duration='0' unit='ms'><since epoch='" + now + "' unit='ms'><datetime>"
+               + date(now) + "</datetime></since></uptime><cpu><loadAverage unit='percent'>0.0</loadAverage>"
+               + "<processors>1</processors></cpu><memory unit='byte'><max>0</max><free>0</free><total>0</total>"
+               + "</memory><scheduler><running>" + countRunning(null) + "</running></scheduler>"
+               + "<threads><active>" + threads + "</active></threads></stats></system></result>";
+    }
+
+    private String projects() {
+        StringBuilder xml = new StringBuilder(API_RESULT).append("<projects count='").append(projects).append("'>");
+        for (int i = 0; i < projects; i++) {
+            xml.append(project("project-" + i));
+        }
+        return xml.append("</projects></result>").toString();
+    }
+
+    private String project(String name) {
+        return "<project><name>" + name + "</name><description>fake project " + name + "</description></project>";
+    }
+
+    private String jobs(String project) {
+        if (!isProject(project)) {
+            return error("project does not exist: " + project);
+        }
+        StringBuilder xml = new StringBuilder(API_RESULT).append("<jobs count='").append(jobsPerProject).append("'>");
+        for (int i = 0; i < jobsPerProject; i++) {
+            xml.append("<job id='").append(getJobId(project, i)).append("'><name>job-").append(i);
+            xml.append("</name><group>group-").append(i % 10).append("</group><project>").append(project);
+            xml.append("</project><description>fake job ").append(i).append("</description></job>");
+        }
+        return xml.append("</jobs></result>").toString();
+    }
+
+    private String exportJobs(String project, String format) {
+        if (!isProject(project)) {
+            return error("project does not exist: " + project);
+        }
+        boolean yaml = "yaml".equals(format);
+        StringBuilder export = new StringBuilder(yaml ? "" : "<joblist>");
+        for (int i = 0; i < jobsPerProject; i++) {
+            if (yaml) {
+                export.append("- id: ").append(getJobId(project, i)).append("\n  name: job-").append(i);
+                export.append("\n  group: group-").append(i % 10).append("\n  project: ").append(project);
+                export.append("\n  sequence:\n    commands:\n    - exec: echo ").append(i).append('\n');
+            } else {
+                export.append("<job><id>").append(getJobId(project, i)).append("</id><name>job-").append(i);
+                export.append("</name><group>group-").append(i % 10).append("</group><context><project>");
+                export.append(project).append("</project></context><sequence><command><exec>echo ").append(i);
+                export.append("</exec></command></sequence></job>");
+            }
+        }
+        return export.append(yaml ? "" : "</joblist>").toString();
+    }
+
+    private String importJobs(String body) {
+        // the jobs definitions are somewhere in the multipart body : we only need their names
+        List<String> names = new ArrayList<String>();
+        Matcher matcher = JOB_NAME_PATTERN.matcher(body);
+        while (matcher.find()) {
+            names.add(matcher.group(1));
+        }
+        StringBuilder xml = new StringBuilder(API_RESULT).append("<succeeded count='").append(names.size());
+        xml.append("'>");
+        for (int i = 0; i < names.size(); i++) {
+            xml.append("<job index='").append(i + 1).append("'><id>imported-").append(i).append("</id><name>");
+            xml.append(names.get(i)).append("</name><group>import</group>");
+            xml.append("<project>project-0</project><url>/job/show/imported-").append(i).append("</url></job>");
+        }
+        return xml.append("</succeeded><failed count='0'></failed><skipped count='0'></skipped></result>").toString();
+    }
+
+    private String jobExecutions(String jobId, Map<String, String> params) {
+        List<FakeExecution> jobExecutions = new ArrayList<FakeExecution>();
+        for (FakeExecution execution : executions.values()) {
+            if (jobId.equals(execution.jobId)
+                && (params.get("status") == null || params.get("status").equals(execution.getStatus()))) {
+                jobExecutions.add(execution);
+            }
+        }
+        int offset = Math.min(jobExecutions.size(), NumberUtils.toInt(params.get("offset"), 0));
+        int max = NumberUtils.toInt(params.get("max"), jobExecutions.size());
+        return executions(jobExecutions.subList(offset, Math.min(jobExecutions.size(), offset + max)));
+    }
+
+    private String runAdhoc(String project, String type) {
+        if (!isProject(project)) {
+            return error("project does not exist: " + project);
+        }
+        FakeExecution execution = run(project, null, "adhoc " + type);
+        return API_RESULT + "<success><message>Immediate execution scheduled (" + execution.id
+               + ")</message></success><execution id='" + execution.id + "'/></result>";
+    }
+
+    private FakeExecution run(String project, String jobId, String description) {
+        FakeExecution execution = new FakeExecution(executionIds.incrementAndGet(), project, jobId, description);
+        executions.put(execution.id, execution);
+        return execution;
+    }
+
+    private String runningExecutions(String project) {
+        List<FakeExecution> running = new ArrayList<FakeExecution>();
+        for (FakeExecution execution : executions.values()) {
+            if (execution.project.equals(project) && "running".equals(execution.getStatus())) {
+                running.add(execution);
+            }
+        }
+        return executions(running);
+    }
+
+    private int countRunning(String project) {
+        int count = 0;
+        for (FakeExecution execution : executions.values()) {
+            if ((project == null || execution.project.equals(project)) && "running".equals(execution.getStatus())) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private String abort(long executionId) {
+        FakeExecution execution = executions.get(executionId);
+        if (execution == null) {
+            return error("execution not found: " + executionId);
+        }
+        String status = execution.getStatus();
+        String abortStatus = "failed";
+        if ("running".equals(status)) {
+            execution.abortedAt = System.currentTimeMillis();
+            abortStatus = "aborted";
+        }
+        return API_RESULT + "<success><message>Execution status: " + status + "</message></success><abort status='"
+               + abortStatus + "'><execution id='" + executionId + "' status='" + execution.getStatus()
+               + "'/></abort></result>";
+    }
+
+    private String history(Map<String, String> params) {
+        String project = params.get("project");
+        if (!isProject(project)) {
+            return error("project does not exist: " + project);
+        }
+        // most recent events first, one every minute
+        long begin = NumberUtils.toLong(params.get("begin"), Long.MIN_VALUE);
+        long end = NumberUtils.toLong(params.get("end"), Long.MAX_VALUE);
+        List<Integer> events = new ArrayList<Integer>();
+        for (int i = 0; i < eventsPerProject; i++) {
+            long endTime = historyEnd - i * 60000L;
+            if (endTime >= begin && endTime <= end) {
+                events.add(i);
+            }
+        }
+        int max = NumberUtils.toInt(params.get("max"), 20);
+        int offset = NumberUtils.toInt(params.get("offset"), 0);
+        int first = Math.min(offset, events.size());
+        int last = Math.min(events.size(), first + max);
+
+        StringBuilder xml = new StringBuilder(API_RESULT).append("<events count='").append(last - first);
+        xml.append("' total='").append(events.size()).append("' max='").append(max).append("' offset='");
+        xml.append(offset).append("'>");
+        for (int i : events.subList(first, last)) {
+            long endTime = historyEnd - i * 60000L;
+            long startTime = endTime - 1000 - (i % 30) * 1000;
+            boolean failed = i % 10 == 9;
+            boolean adhoc = i % 4 == 0 || jobsPerProject == 0;
+            xml.append("<event starttime='").append(startTime).append("' endtime='").append(endTime).append("'>");
+            xml.append("<title>").append(adhoc ? "adhoc" : "job-" + (i % jobsPerProject)).append("</title>");
+            xml.append("<status>").append(failed ? "failed" : "succeeded").append("</status>");
+            xml.append("<summary>fake event ").append(i).append("</summary>");
+            xml.append("<node-summary succeeded='").append(failed ? 1 : 2).append("' failed='");
+            xml.append(failed ? 1 : 0).append("' total='2'/><user>user-").append(i % 5).append("</user>");
+            xml.append("<project>").append(project).append("</project><date-started>").append(date(startTime));
+            xml.append("</date-started><date-ended>").append(date(endTime)).append("</date-ended>");
+            if (!adhoc) {
+                xml.append("<job id='").append(getJobId(project, i % jobsPerProject)).append("'/>");
+            }
+            xml.append("<execution id='").append(1000000L + eventsPerProject - i).append("'/></event>");
+        }
+        return xml.append("</events></result>").toString();
+    }
+
+    private String nodes(String project, String name) {
+        if (!isProject(project)) {
+            return error("project does not exist: " + project);
+        }
+        StringBuilder xml = new StringBuilder("<project>");
+        for (int i = 0; i < nodesPerProject; i++) {
+            String nodeName = "node-" + i;
+            if (name != null && !name.equals(nodeName)) {
+                continue;
+            }
+            xml.append("<node name='").append(nodeName).append("' type='Node' description='fake node ").append(i);
+            xml.append("' tags='tag-").append(i % 10).append(",env-").append(i % 3).append("' hostname='");
+            xml.append(nodeName).append(".local' osArch='x86_64' osFamily='unix' osName='Linux' ");
+            xml.append("osVersion='3.0' username='rundeck' editUrl='' remoteUrl=''/>");
+        }
+        return xml.append("</project>").toString();
+    }
+
+    private String executions(FakeExecution execution) {
+        List<FakeExecution> list = new ArrayList<FakeExecution>();
+        list.add(execution);
+        return executions(list);
+    }
+
+    private String executions(List<FakeExecution> list) {
+        StringBuilder xml = new StringBuilder(API_RESULT).append("<executions count='").append(list.size());
+        xml.append("'>");
+        for (FakeExecution execution : list) {
+            String status = execution.getStatus();
+            xml.append("<execution id='").append(execution.id).append("' href='").append(getUrl());
+            xml.append("/execution/follow/").append(execution.id).append("' status='").append(status).append("'>");
+            xml.append("<user>admin</user><date-started unixtime='").append(execution.startedAt).append("'>");
+            xml.append(date(execution.startedAt)).append("</date-started>");
+            if (!"running".equals(status)) {
+                long endedAt = execution.getEndedAt();
+                xml.append("<date-ended unixtime='").append(endedAt).append("'>").append(date(endedAt));
+                xml.append("</date-ended>");
+            }
+            if ("aborted".equals(status)) {
+                xml.append("<abortedby>admin</abortedby>");
+            }
+            if (execution.jobId != null) {
+                xml.append("<job id='").append(execution.jobId).append("'><name>job-");
+                xml.append(StringUtils.substringAfterLast(execution.jobId, "-")).append("</name><group>group");
+                xml.append("</group><project>").append(execution.project).append("</project><description>");
+                xml.append("fake job</description></job>");
+            }
+            xml.append("<description>").append(escape(execution.description)).append("</description></execution>");
+        }
+        return xml.append("</executions></result>").toString();
+    }
+
+    private boolean isProject(String project) {
+        if (project == null || !project.startsWith("project-")) {
+            return false;
+        }
+        int index = NumberUtils.toInt(StringUtils.substringAfter(project, "project-"), -1);
+        return index >= 0 && index < projects;
+    }
+
+    private boolean isJob(String jobId) {
+        String project = projectOfJob(jobId);
+        int index = NumberUtils.toInt(StringUtils.substringAfterLast(jobId, "-job-"), -1);
+        return isProject(project) && index >= 0 && index < jobsPerProject;
+    }
+
+    private String projectOfJob(String jobId) {
+        return StringUtils.substringBeforeLast(jobId, "-job-");
+    }
+
+    private String error(String message) {
+        return "<result error='true' apiversion='" + RundeckClient.API_VERSION + "'><error><message>"
+               + escape(message) + "</message></error></result>";
+    }
+
+    private void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes("UTF-8");
+        exchange.getResponseHeaders().set("Content-Type", "text/xml; charset=UTF-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        OutputStream output = exchange.getResponseBody();
+        output.write(bytes);
+        output.flush();
+    }
+
+    private static String date(long time) {
+        return DateFormatUtils.formatUTC(time, "yyyy-MM-dd'T'HH:mm:ss'Z'");
+    }
+
+    private static String escape(String value) {
+        return StringEscapeUtils.escapeXml(value);
+    }
+
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> params = new HashMap<String, String>();
+        for (String param : StringUtils.split(StringUtils.defaultString(query), '&')) {
+            params.put(urlDecode(StringUtils.substringBefore(param, "=")),
+                       urlDecode(StringUtils.substringAfter(param, "=")));
+        }
+        return params;
+    }
+
+    private static String urlDecode(String value) {
+        try {
+            return URLDecoder.decode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * An execution triggered on the fake server : running during the "executionDuration", and then succeeded
+     */
+    private class FakeExecution {
+
+        private final long id;
+
+        private final String project;
+
+        private final String jobId;
+
+        private final String description;
+
+        private final long startedAt = System.currentTimeMillis();
+
+        private final long duration = executionDuration;
+
+        private volatile long abortedAt = 0;
+
+        public FakeExecution(long id, String project, String jobId, String description) {
+            this.id = id;
+            this.project = project;
+            this.jobId = jobId;
+            this.description = description;
+        }
+
+        public String getStatus() {
+            if (abortedAt > 0) {
+                return "aborted";
+            }
+            return System.currentTimeMillis() < startedAt + duration ? "running" : "succeeded";
+        }
+
+        public long getEndedAt() {
+            return abortedAt > 0 ? abortedAt : startedAt + duration;
+        }
+    }
+
+}
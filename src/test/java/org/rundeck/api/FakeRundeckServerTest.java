@@ -0,0 +1,508 @@
+/*
+ * Copyright 2011 Vincent Behar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rundeck.api;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.rundeck.api.ResponseCache.Resource;
+import org.rundeck.api.RundeckApiException.RundeckApiPartialFailureException;
+import org.rundeck.api.RundeckApiException.RundeckApiTokenException;
+import org.rundeck.api.domain.EventTable;
+import org.rundeck.api.domain.RundeckAbort;
+import org.rundeck.api.domain.RundeckAbort.AbortStatus;
+import org.rundeck.api.domain.RundeckEvent;
+import org.rundeck.api.domain.RundeckExecution;
+import org.rundeck.api.domain.RundeckExecution.ExecutionStatus;
+import org.rundeck.api.domain.RundeckHistory;
+import org.rundeck.api.domain.RundeckJob;
+import org.rundeck.api.domain.RundeckJobsImportMethod;
+import org.rundeck.api.domain.RundeckJobsImportResult;
+import org.rundeck.api.domain.RundeckJobsSyncResult;
+import org.rundeck.api.domain.RundeckNode;
+import org.rundeck.api.domain.RundeckProject;
+import org.rundeck.api.util.CloseableIterator;
+
+/**
+ * Test the {@link RundeckClient} against a {@link FakeRundeckServer}, and the {@link LoadTestHarness}
+ * 
+ * @author Vincent Behar
+ */
+public class FakeRundeckServerTest {
+
+    private FakeRundeckServer server;
+
+    private RundeckClient client;
+
+    @Test
+    public void projectsAndJobs() throws Exception {
+        List<RundeckProject> projects = client.getProjects();
+        Assert.assertEquals(3, projects.size());
+        Assert.assertEquals("project-2", projects.get(2).getName());
+
+        List<RundeckJob> jobs = client.getJobs();
+        Assert.assertEquals(3 * 5, jobs.size());
+        Assert.assertEquals(server.getJobId("project-0", 0), jobs.get(0).getId());
+        Assert.assertEquals("project-1", jobs.get(5).getProject());
+    }
+
+    @Test
+    public void nodesAndHistory() throws Exception {
+        List<RundeckNode> nodes = client.getNodes("project-0");
+        Assert.assertEquals(50, nodes.size());
+        Assert.assertEquals("node-49.local", nodes.get(49).getHostname());
+
+        RundeckHistory history = client.getHistory("project-1", 20L, 90L);
+        Assert.assertEquals(10, history.getCount());
+        Assert.assertEquals(100, history.getTotal());
+        Assert.assertEquals(10, history.getEvents().size());
+    }
+
+    @Test
+    public void historyIterator() throws Exception {
+        CloseableIterator<RundeckEvent> events = client.historyIterator(new HistoryQuery("project-1"), 15, 2);
+        int count = 0;
+        while (events.hasNext()) {
+            Assert.assertEquals("fake event " + count, events.next().getSummary());
+            count++;
+        }
+        Assert.assertEquals(100, count);
+
+        try {
+            client.historyIterator(new HistoryQuery("unknown-project"));
+            Assert.fail("the unknown project should fail");
+        } catch (RundeckApiException e) {
+            Assert.assertFalse(e instanceof RundeckApiPartialFailureException);
+        }
+    }
+
+    @Test
+    public void historyTable() throws Exception {
+        // streamed even if the client parses the responses as DOM documents
+        Assert.assertFalse(client.isStreamingParsers());
+        EventTable table = client.getHistoryTable(new HistoryQuery("project-1"));
+        Assert.assertEquals(100, table.size());
+
+        CloseableIterator<RundeckEvent> events = client.historyIterator(new HistoryQuery("project-1"));
+        for (RundeckEvent event : table) {
+            Assert.assertEquals(events.next(), event);
+        }
+        Assert.assertFalse(events.hasNext());
+    }
+
+    @Test
+    public void historyStore() throws Exception {
+        File directory = new File("target/test-history-sync");
+        FileUtils.deleteDirectory(directory);
+        HistoryStore store = new HistoryStore(directory);
+        try {
+            Assert.assertEquals(100, store.sync(client, "project-1"));
+            Assert.assertEquals(0, store.sync(client, "project-1"));
+        } finally {
+            store.close();
+        }
+
+        store = new HistoryStore(directory);
+        try {
+            Assert.assertEquals(0, store.sync(client, "project-1"));
+            Iterator<RundeckEvent> events = store.select("project-1", null, "user-3", null, null);
+            int count = 0;
+            for (; events.hasNext(); count++) {
+                Assert.assertEquals("user-3", events.next().getUser());
+            }
+            Assert.assertEquals(20, count);
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    public void runExecutions() throws Exception {
+        RundeckExecution execution = client.runAdhocCommand("project-0", "uptime", 10, TimeUnit.MILLISECONDS);
+        Assert.assertEquals(ExecutionStatus.SUCCEEDED, execution.getStatus());
+
+        execution = client.triggerJob(server.getJobId("project-2", 3));
+        Assert.assertEquals(ExecutionStatus.RUNNING, execution.getStatus());
+        Assert.assertEquals(1, client.getRunningExecutions("project-2").size());
+        client.abortExecution(execution.getId());
+        Assert.assertEquals(ExecutionStatus.ABORTED, client.getExecution(execution.getId()).getStatus());
+    }
+
+    @Test
+    public void importJobs() throws Exception {
+        String jobs = "<joblist><job><name>one</name></job><job><name>two</name></job></joblist>";
+        RundeckJobsImportResult result = client.importJobs(new ByteArrayInputStream(jobs.getBytes("UTF-8")), "xml");
+        Assert.assertEquals(2, result.getSucceededJobs().size());
+        Assert.assertEquals("two", result.getSucceededJobs().get(1).getName());
+    }
+
+    @Test
+    public void importJobsInChunks() throws Exception {
+        StringBuilder jobs = new StringBuilder("<joblist>");
+        for (int i = 0; i < 25; i++) {
+            jobs.append("<job><name>job-").append(i).append("</name></job>");
+        }
+        jobs.append("</joblist>");
+        int requests = server.getRequestCount();
+
+        RundeckJobsImportResult result = client.importJobs(new ByteArrayInputStream(jobs.toString()
+                                                                                        .getBytes("UTF-8")),
+                                                           FileType.XML,
+                                                           RundeckJobsImportMethod.UPDATE,
+                                                           10);
+        Assert.assertEquals(25, result.getSucceededJobs().size());
+        Assert.assertEquals("job-24", result.getSucceededJobs().get(24).getName());
+        Assert.assertEquals(requests + 3, server.getRequestCount());
+    }
+
+    @Test
+    public void syncJobs() throws Exception {
+        String export = IOUtils.toString(client.exportJobs(FileType.XML, "project-0"), "UTF-8");
+        // modify the first job, and remove the last one
+        String definitions = export.replace("echo 0", "echo zero");
+        definitions = definitions.replaceAll("<job><id>project-0-job-4</id>.*?</job>", "");
+
+        RundeckJobsSyncResult result = client.syncJobs("project-0",
+                                                       new ByteArrayInputStream(definitions.getBytes("UTF-8")),
+                                                       true);
+        Assert.assertEquals(0, result.getCreatedJobs().size());
+        Assert.assertEquals("job-0", result.getUpdatedJobs().get(0).getName());
+        Assert.assertEquals(3, result.getUnchangedJobs().size());
+        Assert.assertEquals("project-0-job-4", result.getRemovedJobs().get(0).getId());
+        Assert.assertTrue(result.getFailedDeletions().isEmpty());
+        Assert.assertEquals(1, result.getImportResult().getSucceededJobs().size());
+    }
+
+    @Test
+    public void triggerJobs() throws Exception {
+        // identical triggers must not be coalesced
+        client.setRequestCoalescing(true);
+        List<JobTrigger> triggers = new ArrayList<JobTrigger>();
+        for (int i = 0; i < 20; i++) {
+            triggers.add(new JobTrigger(server.getJobId("project-1", i % 2)));
+        }
+        triggers.add(new JobTrigger("unknown-job"));
+
+        try {
+            client.triggerJobs(triggers, 4, 0);
+            Assert.fail("the unknown job should fail");
+        } catch (RundeckApiPartialFailureException e) {
+            Assert.assertEquals(Arrays.asList("trigger 21 (job unknown-job)"),
+                                new ArrayList<String>(e.getFailures().keySet()));
+            Set<Long> executionIds = new HashSet<Long>();
+            for (int i = 0; i < 20; i++) {
+                RundeckExecution execution = (RundeckExecution) e.getResults().get(i);
+                Assert.assertEquals(server.getJobId("project-1", i % 2), execution.getJob().getId());
+                executionIds.add(execution.getId());
+            }
+            Assert.assertEquals(20, executionIds.size());
+        }
+    }
+
+    @Test
+    public void abortExecutions() throws Exception {
+        // the executions must still be running once they are all triggered
+        stopServer();
+        server = new FakeRundeckServer().projects(3).jobsPerProject(5).executionDuration(60000).start();
+        client = new RundeckClient(server.getUrl(), server.getToken());
+
+        String jobId = server.getJobId("project-1", 0);
+        long first = client.triggerJob(jobId).getId();
+        long second = client.triggerJob(jobId).getId();
+        long otherJob = client.triggerJob(server.getJobId("project-1", 1)).getId();
+        long otherProject = client.triggerJob(server.getJobId("project-2", 0)).getId();
+
+        ExecutionSelector selector = new ExecutionSelector().project("project-1").jobId(jobId).user("admin");
+        Map<Long, RundeckAbort> aborts = client.abortExecutions(selector, true);
+        Assert.assertEquals(new HashSet<Long>(Arrays.asList(first, second)), aborts.keySet());
+        for (RundeckAbort abort : aborts.values()) {
+            Assert.assertEquals(AbortStatus.ABORTED, abort.getStatus());
+            Assert.assertEquals(ExecutionStatus.ABORTED, abort.getExecution().getStatus());
+        }
+        Assert.assertFalse(ExecutionStatus.ABORTED.equals(client.getExecution(otherJob).getStatus()));
+        Assert.assertFalse(ExecutionStatus.ABORTED.equals(client.getExecution(otherProject).getStatus()));
+
+        // nothing started before the epoch
+        Assert.assertTrue(client.abortExecutions(new ExecutionSelector().startedBefore(new Date(0))).isEmpty());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void abortExecutionsInterrupted() throws Exception {
+        String jobId = server.getJobId("project-1", 0);
+        long execution = client.triggerJob(jobId).getId();
+
+        Thread.currentThread().interrupt();
+        try {
+            client.abortExecutions(new ExecutionSelector().project("project-1").jobId(jobId), true);
+            Assert.fail("should have thrown an exception !");
+        } catch (RundeckApiPartialFailureException e) {
+            Assert.assertTrue(Thread.interrupted());
+            Assert.assertEquals(Arrays.asList("wait for abortion"), new ArrayList<String>(e.getFailures().keySet()));
+            Map<Long, RundeckAbort> aborts = (Map<Long, RundeckAbort>) e.getResult();
+            Assert.assertEquals(Collections.singleton(execution), aborts.keySet());
+            Assert.assertEquals(AbortStatus.ABORTED, aborts.get(execution).getStatus());
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+    @Test
+    public void importJobsFromFile() throws Exception {
+        File file = new File("target/test-imports/jobs.xml");
+        FileUtils.writeStringToFile(file, "<joblist><job><name>from-file</name></job></joblist>", "UTF-8");
+
+        RundeckJobsImportResult result = client.importJobs(file.getPath(), FileType.XML);
+        Assert.assertEquals("from-file", result.getSucceededJobs().get(0).getName());
+        Assert.assertTrue(server.getLastContentLength() > file.length());
+    }
+
+    @Test
+    public void triggerAdhocScriptFromFile() throws Exception {
+        File file = new File("target/test-imports/script.sh");
+        FileUtils.writeStringToFile(file, "#!/bin/sh\necho hello\n", "UTF-8");
+
+        RundeckExecution execution = client.triggerAdhocScript("project-0", file.getPath());
+        Assert.assertEquals(ExecutionStatus.RUNNING, execution.getStatus());
+    }
+
+    @Test(expected = FileNotFoundException.class)
+    public void importJobsFromMissingFile() throws Exception {
+        client.importJobs("target/test-imports/missing.xml", FileType.XML);
+    }
+
+    @Test
+    public void responseCache() throws Exception {
+        DefaultResponseCache cache = new DefaultResponseCache();
+        client.setResponseCache(cache);
+        client.setCacheTtl(Resource.NODES, 0, TimeUnit.SECONDS);
+
+        client.getProjects();
+        client.getJobs("project-0");
+        int requests = server.getRequestCount();
+        Assert.assertEquals(3, client.getProjects().size());
+        Assert.assertEquals(5, client.getJobs("project-0").size());
+        Assert.assertEquals(requests, server.getRequestCount());
+        Assert.assertEquals(2, cache.getHitCount());
+
+        // nodes are not cached
+        client.getNodes("project-0");
+        client.getNodes("project-0");
+        Assert.assertEquals(requests + 2, server.getRequestCount());
+
+        // the jobs are invalidated by an import
+        client.importJobs(new ByteArrayInputStream("<joblist/>".getBytes("UTF-8")), "xml");
+        client.getJobs("project-0");
+        client.getProjects();
+        Assert.assertEquals(requests + 4, server.getRequestCount());
+    }
+
+    @Test
+    public void invalidationDuringRead() throws Exception {
+        final byte[] jobs = "<joblist/>".getBytes("UTF-8");
+        DefaultResponseCache cache = new DefaultResponseCache() {
+
+            private boolean imported = false;
+
+            @Override
+            public synchronized byte[] get(String key) {
+                byte[] response = super.get(key);
+                if (response == null && !imported) {
+                    // the jobs are imported while the response is fetched
+                    imported = true;
+                    client.importJobs(new ByteArrayInputStream(jobs), "xml");
+                }
+                return response;
+            }
+        };
+        client.setResponseCache(cache);
+
+        client.getJobs("project-0");
+        Assert.assertEquals(0, cache.getSize());
+        int requests = server.getRequestCount();
+        client.getJobs("project-0");
+        client.getJobs("project-0");
+        Assert.assertEquals(requests + 1, server.getRequestCount());
+    }
+
+    @Test
+    public void errorsAreNotCached() throws Exception {
+        client.setResponseCache(new DefaultResponseCache());
+        for (int i = 0; i < 2; i++) {
+            try {
+                client.getProject("unknown");
+                Assert.fail("the project should not exist");
+            } catch (RundeckApiException e) {
+                // expected
+            }
+        }
+        Assert.assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void requestCoalescing() throws Exception {
+        client.setRequestCoalescing(true);
+        server.latency(200, 200);
+        final RundeckExecution execution = client.triggerAdhocCommand("project-0", "uptime");
+        int requests = server.getRequestCount();
+        long coalescable = client.getCoalescableCallsCount();
+
+        LoadTestHarness harness = new LoadTestHarness(client, 8, 1);
+        LoadTestHarness.Report report = harness.run("getExecution", new LoadTestHarness.Scenario() {
+
+            @Override
+            public void call(RundeckClient client) {
+                Assert.assertEquals(execution.getId(), client.getExecution(execution.getId()).getId());
+            }
+        });
+
+        Assert.assertEquals(0, report.getErrors());
+        Assert.assertTrue(server.getRequestCount() - requests < 8);
+        Assert.assertEquals(8 - (server.getRequestCount() - requests), client.getCoalescedCallsCount());
+        Assert.assertEquals(8, client.getCoalescableCallsCount() - coalescable);
+    }
+
+    @Test(expected = RundeckApiTokenException.class)
+    public void invalidToken() throws Exception {
+        new RundeckClient(server.getUrl(), "invalid-token").getProjects();
+    }
+
+    @Test
+    public void streamingParsers() throws Exception {
+        client.setStreamingParsers(true);
+        Assert.assertEquals(50, client.getNodes("project-1").size());
+        Assert.assertEquals(10, client.getHistory("project-1", 10L, 0L).getEvents().size());
+        client.setStreamingParsers(false);
+    }
+
+    @Test
+    public void streamingResponses() throws Exception {
+        client.setStreamingResponses(true);
+        Assert.assertEquals(50, client.getNodes("project-1").size());
+        Assert.assertEquals(5, client.getJobs("project-1").size());
+        Assert.assertEquals(10, client.getHistory("project-1", 10L, 0L).getEvents().size());
+        try {
+            client.getJobs("missing-project");
+            Assert.fail("an error response should throw an exception");
+        } catch (RundeckApiException e) {
+            Assert.assertEquals("project does not exist: missing-project", e.getMessage());
+        }
+
+        server.jobsPerProject(200);
+        InputStream export = client.exportJobs(FileType.YAML, "project-0");
+        try {
+            Assert.assertTrue(IOUtils.toString(export).endsWith("- exec: echo 199\n"));
+        } finally {
+            export.close();
+        }
+        try {
+            client.exportJobs(FileType.XML, "missing-project");
+            Assert.fail("an error response should throw an exception");
+        } catch (RundeckApiException e) {
+            Assert.assertEquals("project does not exist: missing-project", e.getMessage());
+        }
+
+        // the connections of the partially-read streams are released on close
+        for (int i = 0; i < 2 * client.getMaxConnectionsPerRoute(); i++) {
+            export = client.exportJobs(FileType.XML, "project-0");
+            Assert.assertEquals('<', export.read());
+            export.close();
+        }
+        Assert.assertEquals(3, client.getProjects().size());
+    }
+
+    @Test
+    public void exportYamlJobs() throws Exception {
+        Assert.assertTrue(IOUtils.toString(client.exportJobs(FileType.YAML, "project-2")).startsWith("- id: "));
+    }
+
+    @Test
+    public void exportJobsToFile() throws Exception {
+        File directory = new File("target/test-exports");
+        FileUtils.deleteQuietly(directory);
+        File file = new File(directory, "jobs.xml");
+
+        server.jobsPerProject(1000);
+        client.exportJobsToFile(file.getPath(), FileType.XML, "project-1");
+        String export = FileUtils.readFileToString(file);
+        Assert.assertTrue(export.startsWith("<joblist><job><id>project-1-job-0</id>"));
+        Assert.assertTrue(export.endsWith("<exec>echo 999</exec></command></sequence></job></joblist>"));
+
+        // a failed export leaves the previous file untouched, and no temporary file
+        try {
+            client.exportJobsToFile(file.getPath(), FileType.XML, "missing-project");
+            Assert.fail("an error response should throw an exception");
+        } catch (RundeckApiException e) {
+            Assert.assertEquals("project does not exist: missing-project", e.getMessage());
+        }
+        Assert.assertEquals(export, FileUtils.readFileToString(file));
+        Assert.assertEquals(1, directory.list().length);
+    }
+
+    @Test
+    public void loadTest() throws Exception {
+        server.errorRate(0.2);
+        LoadTestHarness harness = new LoadTestHarness(client, 4, 25);
+        LoadTestHarness.Report report = harness.run("getProjects", new LoadTestHarness.Scenario() {
+
+            @Override
+            public void call(RundeckClient client) {
+                client.getProjects();
+            }
+        });
+
+        Assert.assertEquals(100, report.getCalls());
+        Assert.assertEquals(server.getInjectedErrorCount(), report.getErrors());
+        Assert.assertTrue(report.getErrors() > 0 && report.getErrors() < 100);
+        Assert.assertTrue(report.getThroughput() > 0);
+        Assert.assertTrue(report.getLatency(50) <= report.getLatency(99));
+    }
+
+    @Before
+    public void startServer() throws Exception {
+        server = new FakeRundeckServer().projects(3)
+                                        .jobsPerProject(5)
+                                        .nodesPerProject(50)
+                                        .eventsPerProject(100)
+                                        .executionDuration(200)
+                                        .start();
+        client = new RundeckClient(server.getUrl(), server.getToken());
+    }
+
+    @After
+    public void stopServer() throws Exception {
+        client.close();
+        server.close();
+    }
+
+}
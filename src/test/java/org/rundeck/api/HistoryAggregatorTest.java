@@ -0,0 +1,164 @@
+/*
+ * Copyright 2011 Vincent Behar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rundeck.api;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.rundeck.api.HistoryAggregator.Dimension;
+import org.rundeck.api.domain.EventGroup;
+import org.rundeck.api.domain.EventStats;
+import org.rundeck.api.domain.EventTable;
+import org.rundeck.api.domain.RundeckEvent;
+import org.rundeck.api.domain.RundeckEvent.EventStatus;
+import org.rundeck.api.domain.RundeckEvent.NodeSummary;
+
+/**
+ * Test the {@link HistoryAggregator}
+ * 
+ * @author Vincent Behar
+ */
+public class HistoryAggregatorTest {
+
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    private ExecutorService executor;
+
+    @Test
+    public void groupByJob() throws Exception {
+        List<RundeckEvent> events = Arrays.asList(event("p", "job-1", "alice", EventStatus.SUCCEEDED, 0, 100, 2, 0),
+                                                  event("p", "job-1", "bob", EventStatus.FAILED, 10, 300, 1, 1),
+                                                  event("p", "job-2", "alice", EventStatus.SUCCEEDED, 20, 50, 3, 0),
+                                                  event("p", "job-1", "alice", EventStatus.ABORTED, 30, 200, 0, 0));
+
+        Map<EventGroup, EventStats> stats = new HistoryAggregator(Dimension.JOB).aggregate(events.iterator());
+
+        Assert.assertEquals(Arrays.asList(new EventGroup(null, "job-1", null, null, null),
+                                          new EventGroup(null, "job-2", null, null, null)),
+                            new ArrayList<EventGroup>(stats.keySet()));
+        EventStats job1 = stats.get(new EventGroup(null, "job-1", null, null, null));
+        Assert.assertEquals(3, job1.getCount());
+        Assert.assertEquals(1, job1.getSucceeded());
+        Assert.assertEquals(1, job1.getFailed());
+        Assert.assertEquals(1, job1.getAborted());
+        Assert.assertEquals(1.0 / 3, job1.getSuccessRate(), 0.0001);
+        Assert.assertEquals(3, job1.getNodesSucceeded());
+        Assert.assertEquals(1, job1.getNodesFailed());
+        Assert.assertEquals(100, job1.getMinDuration());
+        Assert.assertEquals(300, job1.getMaxDuration());
+        Assert.assertEquals(200, job1.getMeanDuration(), 0.0001);
+    }
+
+    @Test
+    public void durationPercentiles() throws Exception {
+        EventTable table = new EventTable();
+        for (int i = 1; i <= 1000; i++) {
+            table.addEvent(event("p", null, "alice", EventStatus.SUCCEEDED, i, i, 1, 0));
+        }
+
+        EventStats stats = new HistoryAggregator().aggregate(table).values().iterator().next();
+
+        Assert.assertEquals(1000, stats.getCount());
+        Assert.assertEquals(500.5, stats.getMeanDuration(), 0.0001);
+        Assert.assertEquals(950, stats.getDurationPercentile(95), 950 * 0.02);
+        Assert.assertEquals(500, stats.getDurationPercentile(50), 500 * 0.02);
+        Assert.assertEquals(1, stats.getDurationPercentile(0));
+        Assert.assertEquals(1000, stats.getDurationPercentile(100));
+    }
+
+    @Test
+    public void timeBuckets() throws Exception {
+        List<RundeckEvent> events = Arrays.asList(event("p", null, "alice", EventStatus.SUCCEEDED, DAY + 5, 1, 1, 0),
+                                                  event("p", null, "bob", EventStatus.FAILED, 2 * DAY - 1, 1, 1, 0),
+                                                  event("p", null, "alice", EventStatus.FAILED, 3 * DAY, 1, 1, 0));
+
+        Map<EventGroup, EventStats> stats = new HistoryAggregator(Dimension.USER).timeBuckets(1, TimeUnit.DAYS)
+                                                                                 .aggregate(events.iterator());
+
+        Assert.assertEquals(3, stats.size());
+        Assert.assertEquals(1, stats.get(new EventGroup(null, null, "bob", null, new Date(DAY))).getFailed());
+        Assert.assertEquals(1, stats.get(new EventGroup(null, null, "alice", null, new Date(3 * DAY))).getCount());
+    }
+
+    @Test
+    public void parallelAggregation() throws Exception {
+        Random random = new Random(42);
+        EventTable table = new EventTable();
+        for (int i = 0; i < 50000; i++) {
+            table.addEvent(event("project-" + random.nextInt(3),
+                                 random.nextInt(10) == 0 ? null : "job-" + random.nextInt(20),
+                                 "user-" + random.nextInt(7),
+                                 EventStatus.values()[random.nextInt(3)],
+                                 random.nextInt(30) * DAY + random.nextInt(1000000),
+                                 random.nextInt(100000),
+                                 random.nextInt(10),
+                                 random.nextInt(3)));
+        }
+        HistoryAggregator aggregator = new HistoryAggregator(Dimension.PROJECT, Dimension.JOB, Dimension.STATUS);
+        aggregator.timeBuckets(7, TimeUnit.DAYS);
+
+        Map<EventGroup, EventStats> sequential = aggregator.aggregate(table);
+        Map<EventGroup, EventStats> parallel = aggregator.aggregate(table, executor, 4);
+        Map<EventGroup, EventStats> streamed = aggregator.aggregate(table.iterator());
+
+        Assert.assertEquals(new ArrayList<Object>(sequential.entrySet()), new ArrayList<Object>(parallel.entrySet()));
+        Assert.assertEquals(new ArrayList<Object>(sequential.entrySet()), new ArrayList<Object>(streamed.entrySet()));
+        long count = 0;
+        for (EventStats stats : parallel.values()) {
+            count += stats.getCount();
+        }
+        Assert.assertEquals(50000, count);
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executor.shutdownNow();
+    }
+
+    private static RundeckEvent event(String project, String jobId, String user, EventStatus status, long startedAt,
+            long duration, int nodesSucceeded, int nodesFailed) {
+        RundeckEvent event = new RundeckEvent();
+        event.setProject(project);
+        event.setJobId(jobId);
+        event.setTitle(jobId != null ? jobId : "adhoc");
+        event.setUser(user);
+        event.setStatus(status);
+        event.setStartedAt(new Date(startedAt));
+        event.setEndedAt(new Date(startedAt + duration));
+        NodeSummary nodeSummary = new NodeSummary();
+        nodeSummary.setSucceeded(nodesSucceeded);
+        nodeSummary.setFailed(nodesFailed);
+        nodeSummary.setTotal(nodesSucceeded + nodesFailed);
+        event.setNodeSummary(nodeSummary);
+        return event;
+    }
+
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2011 Vincent Behar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rundeck.api;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.rundeck.api.domain.RundeckEvent;
+import org.rundeck.api.domain.RundeckHistory;
+
+/**
+ * Test the {@link HistoryIterator}
+ * 
+ * @author Vincent Behar
+ */
+public class HistoryIteratorTest {
+
+    /** Executor that never runs the tasks : the pages are fetched by the consumer, when it needs them */
+    private List<Runnable> scheduled;
+
+    private Executor executor;
+
+    @Test
+    public void allPages() throws Exception {
+        TestHistory history = new TestHistory(25, 25, 10, 2);
+
+        Assert.assertEquals(range(0, 25), history.consume(25));
+        Assert.assertEquals(Arrays.asList(0L, 10L, 20L), history.offsets);
+    }
+
+    @Test
+    public void prefetchNextPages() throws Exception {
+        TestHistory history = new TestHistory(100, 100, 10, 2);
+
+        Assert.assertEquals(range(0, 1), history.consume(1));
+        // the first page, and the 2 next ones
+        Assert.assertEquals(3, scheduled.size());
+        history.consume(10);
+        Assert.assertEquals(4, scheduled.size());
+    }
+
+    @Test
+    public void noPrefetch() throws Exception {
+        TestHistory history = new TestHistory(100, 100, 10, 0);
+
+        history.consume(10);
+        Assert.assertEquals(1, scheduled.size());
+        history.consume(1);
+        Assert.assertEquals(2, scheduled.size());
+    }
+
+    @Test
+    public void cappedPageSize() throws Exception {
+        // the server returns at most 7 events per page
+        TestHistory history = new TestHistory(30, 7, 10, 3);
+
+        Assert.assertEquals(range(0, 30), history.consume(30));
+    }
+
+    @Test
+    public void emptyHistory() throws Exception {
+        TestHistory history = new TestHistory(0, 10, 10, 2);
+
+        Assert.assertFalse(history.iterator.hasNext());
+        Assert.assertEquals(Arrays.asList(0L), history.offsets);
+    }
+
+    @Test
+    public void failureOnNextPage() throws Exception {
+        TestHistory history = new TestHistory(30, 30, 10, 1);
+        history.failAt = 10;
+
+        history.consume(10);
+        try {
+            history.iterator.hasNext();
+            Assert.fail("should have thrown an exception !");
+        } catch (RundeckApiException e) {
+            Assert.assertEquals("failed at 10", e.getMessage());
+        }
+        Assert.assertFalse(history.iterator.hasNext());
+    }
+
+    @Test
+    public void closeDiscardsPrefetchedPages() throws Exception {
+        TestHistory history = new TestHistory(100, 100, 10, 3);
+
+        history.consume(1);
+        history.iterator.close();
+        for (Runnable task : scheduled) {
+            task.run();
+        }
+        Assert.assertEquals(Arrays.asList(0L), history.offsets);
+        Assert.assertFalse(history.iterator.hasNext());
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        scheduled = new ArrayList<Runnable>();
+        executor = new Executor() {
+
+            @Override
+            public void execute(Runnable command) {
+                scheduled.add(command);
+            }
+        };
+    }
+
+    private static List<String> range(int from, int to) {
+        List<String> summaries = new ArrayList<String>();
+        for (int i = from; i < to; i++) {
+            summaries.add("event " + i);
+        }
+        return summaries;
+    }
+
+    /**
+     * A history of "total" events, with a page size capped by the "server"
+     */
+    private class TestHistory {
+
+        private final List<Long> offsets = new ArrayList<Long>();
+
+        private final HistoryIterator iterator;
+
+        private long failAt = -1;
+
+        public TestHistory(final int total, final int serverMax, long pageSize, int prefetch) {
+            iterator = new HistoryIterator(executor, pageSize, prefetch) {
+
+                @Override
+                protected RundeckHistory fetch(long offset, long max) {
+                    offsets.add(offset);
+                    if (offset == failAt) {
+                        throw new RundeckApiException("failed at " + offset);
+                    }
+                    RundeckHistory history = new RundeckHistory();
+                    history.setTotal(total);
+                    history.setOffset((int) offset);
+                    history.setMax((int) max);
+                    long end = Math.min(total, offset + Math.min(max, serverMax));
+                    for (long i = offset; i < end; i++) {
+                        RundeckEvent event = new RundeckEvent();
+                        event.setSummary("event " + i);
+                        history.addEvent(event);
+                    }
+                    history.setCount((int) Math.max(0, end - offset));
+                    return history;
+                }
+            };
+        }
+
+        public List<String> consume(int count) {
+            List<String> summaries = new ArrayList<String>();
+            for (int i = 0; i < count && iterator.hasNext(); i++) {
+                summaries.add(iterator.next().getSummary());
+            }
+            return summaries;
+        }
+    }
+
+}
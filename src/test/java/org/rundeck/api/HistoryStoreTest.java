@@ -0,0 +1,275 @@
+/*
+ * Copyright 2011 Vincent Behar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rundeck.api;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.rundeck.api.domain.RundeckEvent;
+import org.rundeck.api.domain.RundeckEvent.EventStatus;
+import org.rundeck.api.domain.RundeckEvent.NodeSummary;
+import org.rundeck.api.util.CloseableIterator;
+
+/**
+ * Test the {@link HistoryStore}
+ * 
+ * @author Vincent Behar
+ */
+public class HistoryStoreTest {
+
+    private final File directory = new File("target/test-history-store");
+
+    /** Small regions, so that the records span many regions */
+    private HistoryStore store;
+
+    private List<RundeckEvent> events;
+
+    @Test
+    public void reopenStore() throws Exception {
+        appendAll();
+        store.close();
+
+        store = new HistoryStore(directory, 512);
+        Assert.assertEquals(events.size(), store.size());
+        Assert.assertEquals(events, toList(store.select(null, null, null, null, null)));
+    }
+
+    @Test
+    public void resumeSyncAfterCrash() throws Exception {
+        // 2 events completed at each date
+        final List<RundeckEvent> history = new ArrayList<RundeckEvent>();
+        Set<Long> executionIds = new HashSet<Long>();
+        for (int i = 0; i < 20; i++) {
+            RundeckEvent event = event(i, (i / 2) * 1000);
+            event.setProject(null);
+            history.add(event);
+            executionIds.add(event.getExecutionId());
+        }
+        RundeckClient client = new RundeckClient("http://localhost:4440", "token") {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public CloseableIterator<RundeckEvent> historyIterator(HistoryQuery query) {
+                // most recent events first, in the range of the query
+                List<RundeckEvent> events = new ArrayList<RundeckEvent>();
+                for (RundeckEvent event : history) {
+                    if (query.getBegin() == null || !event.getEndedAt().before(query.getBegin())) {
+                        events.add(0, event);
+                    }
+                }
+                final Iterator<RundeckEvent> iterator = events.iterator();
+                return new CloseableIterator<RundeckEvent>() {
+
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public RundeckEvent next() {
+                        return iterator.next();
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+
+                    @Override
+                    public void close() {
+                    }
+                };
+            }
+        };
+
+        // crash between 2 events completed at the same date
+        store.close();
+        store = new HistoryStore(directory, 512) {
+
+            @Override
+            public synchronized void append(RundeckEvent event) {
+                if (size() == 11) {
+                    throw new RundeckApiException("crash");
+                }
+                super.append(event);
+            }
+        };
+        try {
+            store.sync(client, "test");
+            Assert.fail("should have thrown an exception !");
+        } catch (RundeckApiException e) {
+            Assert.assertEquals(11, store.size());
+        }
+        store.close();
+
+        store = new HistoryStore(directory, 512);
+        Assert.assertEquals(9, store.sync(client, "test"));
+        Assert.assertEquals(0, store.sync(client, "test"));
+        Set<Long> stored = new HashSet<Long>();
+        for (RundeckEvent event : toList(store.select("test", null, null, null, null))) {
+            stored.add(event.getExecutionId());
+        }
+        Assert.assertEquals(history.size(), store.size());
+        Assert.assertEquals(executionIds, stored);
+    }
+
+    @Test
+    public void tornRecordIgnored() throws Exception {
+        appendAll();
+        store.close();
+
+        // the end of the data was written to the disk, but not the last record
+        RandomAccessFile file = new RandomAccessFile(new File(directory, "events.log"), "rw");
+        try {
+            file.seek(8);
+            long end = file.readLong();
+            file.seek(end - 1);
+            int last = file.read();
+            file.seek(end - 1);
+            file.write(last ^ 0xFF);
+        } finally {
+            file.close();
+        }
+
+        store = new HistoryStore(directory, 512);
+        Assert.assertEquals(events.size() - 1, store.size());
+        Assert.assertEquals(events.subList(0, events.size() - 1), toList(store.select(null, null, null, null, null)));
+        store.append(events.get(events.size() - 1));
+        store.close();
+        store = new HistoryStore(directory, 512);
+        Assert.assertEquals(events, toList(store.select(null, null, null, null, null)));
+    }
+
+    @Test
+    public void indexedQueries() throws Exception {
+        appendAll();
+
+        Assert.assertEquals(filter("project-1", null, null, -1, -1),
+                            toList(store.select("project-1", null, null, null, null)));
+        Assert.assertEquals(filter(null, "job-2", "user-1", -1, -1),
+                            toList(store.select(null, "job-2", "user-1", null, null)));
+        Assert.assertEquals(filter(null, null, null, 10000, 20000),
+                            toList(store.select(null, null, null, new Date(10000), new Date(20000))));
+        Assert.assertEquals(filter("project-0", null, null, -1, 30000),
+                            toList(store.select("project-0", null, null, null, new Date(30000))));
+        Assert.assertTrue(store.select("unknown", null, null, null, null).hasNext() == false);
+    }
+
+    @Test
+    public void eventTooLarge() throws Exception {
+        RundeckEvent event = event(0, 0);
+        event.setSummary(new String(new char[1000]).replace('\0', 'x'));
+        try {
+            store.append(event);
+            Assert.fail("should have thrown an exception !");
+        } catch (RundeckApiException e) {
+            Assert.assertEquals(0, store.size());
+        }
+    }
+
+    @Test
+    public void notAStore() throws Exception {
+        store.close();
+        FileUtils.writeStringToFile(new File(directory, "events.log"), "not a store", "UTF-8");
+        try {
+            store = new HistoryStore(directory, 512);
+            Assert.fail("should have thrown an exception !");
+        } catch (RundeckApiException e) {
+            store = null;
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        FileUtils.deleteDirectory(directory);
+        store = new HistoryStore(directory, 512);
+        events = new ArrayList<RundeckEvent>();
+        for (int i = 0; i < 60; i++) {
+            // mostly chronological, with some late events
+            events.add(event(i, i % 7 == 6 ? (i - 5) * 1000 : i * 1000));
+        }
+        events.get(3).setStartedAt(null);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (store != null) {
+            store.close();
+        }
+    }
+
+    private void appendAll() {
+        for (RundeckEvent event : events) {
+            store.append(event);
+        }
+    }
+
+    private List<RundeckEvent> filter(String project, String jobId, String user, long begin, long end) {
+        List<RundeckEvent> matching = new ArrayList<RundeckEvent>();
+        for (RundeckEvent event : events) {
+            if ((project == null || project.equals(event.getProject()))
+                && (jobId == null || jobId.equals(event.getJobId()))
+                && (user == null || user.equals(event.getUser()))
+                && (begin < 0 || (event.getStartedAt() != null && event.getStartedAt().getTime() >= begin))
+                && (end < 0 || (event.getStartedAt() != null && event.getStartedAt().getTime() <= end))) {
+                matching.add(event);
+            }
+        }
+        Assert.assertFalse(matching.isEmpty());
+        return matching;
+    }
+
+    private static List<RundeckEvent> toList(Iterator<RundeckEvent> iterator) {
+        List<RundeckEvent> list = new ArrayList<RundeckEvent>();
+        while (iterator.hasNext()) {
+            list.add(iterator.next());
+        }
+        return list;
+    }
+
+    private static RundeckEvent event(int i, long startedAt) {
+        RundeckEvent event = new RundeckEvent();
+        event.setExecutionId(1000L + i);
+        event.setStartedAt(new Date(startedAt));
+        event.setEndedAt(new Date(startedAt + 500));
+        event.setProject("project-" + (i % 3));
+        event.setUser("user-" + (i % 4));
+        event.setTitle(i % 5 == 0 ? "adhoc" : "job-" + (i % 5));
+        event.setJobId(i % 5 == 0 ? null : "job-" + (i % 5));
+        event.setSummary("événement " + i);
+        event.setStatus(EventStatus.values()[i % 3]);
+        if (i % 2 == 0) {
+            NodeSummary nodeSummary = new NodeSummary();
+            nodeSummary.setSucceeded(i);
+            nodeSummary.setTotal(i + 1);
+            nodeSummary.setFailed(1);
+            event.setNodeSummary(nodeSummary);
+        }
+        return event;
+    }
+
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2011 Vincent Behar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rundeck.api;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.rundeck.api.domain.RundeckEvent;
+import org.rundeck.api.util.CloseableIterator;
+
+/**
+ * Test the {@link HistoryTailer}, against an in-memory history
+ * 
+ * @author Vincent Behar
+ */
+public class HistoryTailerTest {
+
+    /** Events of the history, oldest first */
+    private List<RundeckEvent> history;
+
+    /** Queries received by the client */
+    private List<HistoryQuery> queries;
+
+    private RundeckClient client;
+
+    private Listener listener;
+
+    @Test
+    public void firstPollDeliversAllEventsOldestFirst() throws Exception {
+        HistoryTailer tailer = new HistoryTailer(client, listener);
+
+        Assert.assertEquals(5, tailer.poll("test"));
+        Assert.assertEquals(Arrays.asList(1L, 2L, 3L, 4L, 5L), listener.executionIds);
+        Assert.assertNull(queries.get(0).getBegin());
+        Assert.assertEquals(new Date(5000), tailer.getLastEventDate("test"));
+    }
+
+    @Test
+    public void incrementalPollDeduplicatesBoundaryEvents() throws Exception {
+        HistoryTailer tailer = new HistoryTailer(client, listener);
+        tailer.poll("test");
+        // a new event completed at the same milli-second as the last delivered one
+        history.add(event(6, 5000));
+        history.add(event(7, 6000));
+
+        Assert.assertEquals(2, tailer.poll("test"));
+        Assert.assertEquals(Arrays.asList(1L, 2L, 3L, 4L, 5L, 6L, 7L), listener.executionIds);
+        Assert.assertEquals(new Date(5000), queries.get(1).getBegin());
+        Assert.assertEquals(0, tailer.poll("test"));
+    }
+
+    @Test
+    public void cursorsSavedToFile() throws Exception {
+        File file = new File("target/test-history/cursors.properties");
+        FileUtils.deleteQuietly(file);
+        file.getParentFile().mkdirs();
+        new HistoryTailer(client, listener, file).poll("test");
+        history.add(event(6, 5000));
+
+        HistoryTailer tailer = new HistoryTailer(client, listener, file);
+        Assert.assertEquals(new Date(5000), tailer.getLastEventDate("test"));
+        Assert.assertEquals(1, tailer.poll("test"));
+        Assert.assertEquals(Arrays.asList(1L, 2L, 3L, 4L, 5L, 6L), listener.executionIds);
+    }
+
+    @Test
+    public void listenerFailureKeepsTheCursorOnTheLastDeliveredEvent() throws Exception {
+        HistoryTailer tailer = new HistoryTailer(client, listener);
+        listener.failOn = 3L;
+        try {
+            tailer.poll("test");
+            Assert.fail("should have thrown an exception !");
+        } catch (IllegalStateException e) {
+            Assert.assertEquals(new Date(2000), tailer.getLastEventDate("test"));
+        }
+
+        listener.failOn = null;
+        Assert.assertEquals(3, tailer.poll("test"));
+        Assert.assertEquals(Arrays.asList(1L, 2L, 3L, 4L, 5L), listener.executionIds);
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        history = new ArrayList<RundeckEvent>();
+        for (long i = 1; i <= 5; i++) {
+            history.add(event(i, i * 1000));
+        }
+        queries = new ArrayList<HistoryQuery>();
+        listener = new Listener();
+        client = new RundeckClient("http://localhost:4440", "token") {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public CloseableIterator<RundeckEvent> historyIterator(HistoryQuery query) {
+                queries.add(query);
+                // most recent events first, in the range of the query
+                List<RundeckEvent> events = new ArrayList<RundeckEvent>();
+                for (RundeckEvent event : history) {
+                    if ((query.getBegin() == null || !event.getEndedAt().before(query.getBegin()))
+                        && (query.getEnd() == null || !event.getEndedAt().after(query.getEnd()))) {
+                        events.add(0, event);
+                    }
+                }
+                final Iterator<RundeckEvent> iterator = events.iterator();
+                return new CloseableIterator<RundeckEvent>() {
+
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public RundeckEvent next() {
+                        return iterator.next();
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+
+                    @Override
+                    public void close() {
+                    }
+                };
+            }
+        };
+    }
+
+    private static RundeckEvent event(long executionId, long endedAt) {
+        RundeckEvent event = new RundeckEvent();
+        event.setExecutionId(executionId);
+        event.setStartedAt(new Date(endedAt - 500));
+        event.setEndedAt(new Date(endedAt));
+        return event;
+    }
+
+    /**
+     * Records the IDs of the delivered events, and fails on a given execution
+     */
+    private static class Listener implements RundeckCallback<RundeckEvent> {
+
+        private final List<Long> executionIds = new ArrayList<Long>();
+
+        private Long failOn;
+
+        @Override
+        public void onSuccess(RundeckEvent event) {
+            if (event.getExecutionId().equals(failOn)) {
+                throw new IllegalStateException("failed on " + failOn);
+            }
+            executionIds.add(event.getExecutionId());
+        }
+
+        @Override
+        public void onFailure(RundeckApiException error) {
+            Assert.fail(error.getMessage());
+        }
+    }
+
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2011 Vincent Behar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rundeck.api;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.dom4j.DocumentHelper;
+import org.junit.Assert;
+import org.junit.Test;
+import org.rundeck.api.domain.RundeckJob;
+import org.rundeck.api.domain.RundeckJobsImportResult;
+import org.rundeck.api.domain.RundeckJobsSyncResult;
+
+/**
+ * Test the {@link JobsSynchronizer}
+ * 
+ * @author Vincent Behar
+ */
+public class JobsSynchronizerTest {
+
+    private static final String EXISTING = "<joblist>"
+                                           + job("id-a", "a", "g", "echo a") + job("id-b", "b", "g", "echo b")
+                                           + job("id-c", "c", null, "echo c") + "</joblist>";
+
+    @Test
+    public void fingerprintIgnoresFormattingCommentsAndIds() throws Exception {
+        String job = "<job><name>a</name><sequence keepgoing='false' strategy='node-first'><command>"
+                     + "<exec>echo a</exec></command></sequence></job>";
+        String formatted = "<job>\n  <id>some-id</id>\n  <!-- comment -->\n  <name> a </name>\n"
+                           + "  <sequence strategy=\"node-first\" keepgoing=\"false\">\n    <command>\n"
+                           + "      <exec><![CDATA[echo a]]></exec>\n    </command>\n  </sequence>\n</job>";
+        String modified = job.replace("echo a", "echo b");
+
+        Assert.assertEquals(fingerprint(job), fingerprint(formatted));
+        Assert.assertFalse(fingerprint(job).equals(fingerprint(modified)));
+    }
+
+    @Test
+    public void sync() throws Exception {
+        // "a" is matched by its name, "b" by its ID, "c" has been removed, and "d" is new
+        String definitions = "<joblist>" + job(null, "a", "g", "echo a") + job("id-b", "renamed-b", "g", "echo b")
+                             + job(null, "d", null, "echo d") + "</joblist>";
+        TestSynchronizer synchronizer = new TestSynchronizer();
+        RundeckJobsSyncResult result = synchronizer.sync(new ByteArrayInputStream(definitions.getBytes("UTF-8")),
+                                                         true);
+
+        Assert.assertEquals(Arrays.asList("d"), names(result.getCreatedJobs()));
+        Assert.assertEquals(Arrays.asList("renamed-b"), names(result.getUpdatedJobs()));
+        Assert.assertEquals(Arrays.asList("a"), names(result.getUnchangedJobs()));
+        Assert.assertEquals(Arrays.asList("c"), names(result.getRemovedJobs()));
+        Assert.assertTrue(result.getFailedDeletions().isEmpty());
+
+        Assert.assertTrue(synchronizer.imported.contains("<name>renamed-b</name>"));
+        Assert.assertTrue(synchronizer.imported.contains("<name>d</name>"));
+        Assert.assertFalse(synchronizer.imported.contains("<name>a</name>"));
+        Assert.assertEquals(Arrays.asList("id-c"), synchronizer.deleted);
+    }
+
+    @Test
+    public void syncWithUnknownIds() throws Exception {
+        // definitions copied from another instance : "a" and "b" are matched by their names
+        String definitions = "<joblist>" + job("other-a", "a", "g", "echo a") + job("other-b", "b", "g", "echo b2")
+                             + job("id-c", "c", null, "echo c") + "</joblist>";
+        TestSynchronizer synchronizer = new TestSynchronizer();
+        RundeckJobsSyncResult result = synchronizer.sync(new ByteArrayInputStream(definitions.getBytes("UTF-8")),
+                                                         true);
+
+        Assert.assertTrue(result.getCreatedJobs().isEmpty());
+        Assert.assertEquals(Arrays.asList("b"), names(result.getUpdatedJobs()));
+        Assert.assertEquals(Arrays.asList("a", "c"), names(result.getUnchangedJobs()));
+        Assert.assertTrue(result.getRemovedJobs().isEmpty());
+        Assert.assertTrue(synchronizer.deleted.isEmpty());
+    }
+
+    @Test
+    public void syncWithTwoDefinitionsOfTheSameJob() throws Exception {
+        // "b" is matched by its ID, so the second definition named "b" is a new job
+        String definitions = "<joblist>" + job("id-b", "renamed-b", "g", "echo b") + job(null, "b", "g", "echo b")
+                             + "</joblist>";
+        TestSynchronizer synchronizer = new TestSynchronizer();
+        RundeckJobsSyncResult result = synchronizer.sync(new ByteArrayInputStream(definitions.getBytes("UTF-8")),
+                                                         true);
+
+        Assert.assertEquals(Arrays.asList("b"), names(result.getCreatedJobs()));
+        Assert.assertEquals(Arrays.asList("renamed-b"), names(result.getUpdatedJobs()));
+        Assert.assertEquals(Arrays.asList("a", "c"), names(result.getRemovedJobs()));
+        Assert.assertEquals(Arrays.asList("id-a", "id-c"), synchronizer.deleted);
+    }
+
+    @Test
+    public void syncWithoutChanges() throws Exception {
+        TestSynchronizer synchronizer = new TestSynchronizer();
+        RundeckJobsSyncResult result = synchronizer.sync(new ByteArrayInputStream(EXISTING.getBytes("UTF-8")), false);
+
+        Assert.assertEquals(3, result.getUnchangedJobs().size());
+        Assert.assertNull(result.getImportResult());
+        Assert.assertNull(synchronizer.imported);
+    }
+
+    @Test
+    public void syncWithoutDeletions() throws Exception {
+        TestSynchronizer synchronizer = new TestSynchronizer();
+        RundeckJobsSyncResult result = synchronizer.sync(new ByteArrayInputStream("<joblist/>".getBytes("UTF-8")),
+                                                         false);
+
+        Assert.assertEquals(Arrays.asList("a", "b", "c"), names(result.getRemovedJobs()));
+        Assert.assertTrue(synchronizer.deleted.isEmpty());
+    }
+
+    private static class TestSynchronizer extends JobsSynchronizer {
+
+        private String imported;
+
+        private final List<String> deleted = new ArrayList<String>();
+
+        @Override
+        protected InputStream exportJobs() {
+            try {
+                return new ByteArrayInputStream(EXISTING.getBytes("UTF-8"));
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        protected RundeckJobsImportResult importJobs(byte[] definitions) {
+            try {
+                imported = new String(definitions, "UTF-8");
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            return new RundeckJobsImportResult();
+        }
+
+        @Override
+        protected void deleteJob(String jobId) {
+            deleted.add(jobId);
+        }
+    }
+
+    private static String job(String id, String name, String group, String command) {
+        return "<job>" + (id != null ? "<id>" + id + "</id>" : "") + "<name>" + name + "</name>"
+               + (group != null ? "<group>" + group + "</group>" : "") + "<context><project>test</project></context>"
+               + "<sequence><command><exec>" + command + "</exec></command></sequence></job>";
+    }
+
+    private static String fingerprint(String job) throws Exception {
+        return JobsSynchronizer.fingerprint(DocumentHelper.parseText(job).getRootElement());
+    }
+
+    private static List<String> names(List<RundeckJob> jobs) {
+        List<String> names = new ArrayList<String>();
+        for (RundeckJob job : jobs) {
+            names.add(job.getName());
+        }
+        return names;
+    }
+
+}
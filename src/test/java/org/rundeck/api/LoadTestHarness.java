@@ -0,0 +1,260 @@
+/*
+ * Copyright 2011 Vincent Behar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rundeck.api;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Load-test harness : drives a {@link RundeckClient} with N concurrent threads, and reports the throughput and the
+ * latency percentiles. Use it with a {@link FakeRundeckServer} to measure the scaling limits of the client offline :
+ * 
+ * <pre>
+ * java org.rundeck.api.LoadTestHarness [threads] [callsPerThread] [minLatencyMs] [maxLatencyMs] [errorRate]
+ * </pre>
+ * 
+ * @author Vincent Behar
+ */
+public class LoadTestHarness {
+
+    /**
+     * An operation (usually a single API call) executed by the harness
+     */
+    public static interface Scenario {
+
+        /**
+         * @param client to use - not null
+         * @throws Exception in case of error (will be counted as an error)
+         */
+        void call(RundeckClient client) throws Exception;
+    }
+
+    private final RundeckClient client;
+
+    private final int threads;
+
+    private final int callsPerThread;
+
+    /**
+     * @param client to use for all the calls
+     * @param threads number of concurrent threads
+     * @param callsPerThread number of calls made by each thread
+     */
+    public LoadTestHarness(RundeckClient client, int threads, int callsPerThread) {
+        super();
+        this.client = client;
+        this.threads = threads;
+        this.callsPerThread = callsPerThread;
+    }
+
+    /**
+     * Run the given scenario : all the threads start at the same time, and make their calls one after the other
+     * 
+     * @param name of the scenario, for the report
+     * @param scenario to run
+     * @return a {@link Report} of the run
+     * @throws Exception if the run is interrupted
+     */
+    public Report run(String name, final Scenario scenario) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new DaemonThreadFactory("load-test-"));
+        try {
+            final CountDownLatch start = new CountDownLatch(1);
+            List<Future<long[]>> futures = new ArrayList<Future<long[]>>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(new Callable<long[]>() {
+
+                    @Override
+                    public long[] call() throws Exception {
+                        // latencies of the calls, negative for an error
+                        long[] latencies = new long[callsPerThread];
+                        start.await();
+                        for (int j = 0; j < callsPerThread; j++) {
+                            long begin = System.nanoTime();
+                            try {
+                                scenario.call(client);
+                                latencies[j] = System.nanoTime() - begin;
+                            } catch (Exception e) {
+                                latencies[j] = -(System.nanoTime() - begin);
+                            }
+                        }
+                        return latencies;
+                    }
+                }));
+            }
+
+            long begin = System.nanoTime();
+            start.countDown();
+            long[] latencies = new long[threads * callsPerThread];
+            int errors = 0;
+            int index = 0;
+            for (Future<long[]> future : futures) {
+                for (long latency : future.get()) {
+                    if (latency < 0) {
+                        errors++;
+                    }
+                    latencies[index++] = Math.abs(latency);
+                }
+            }
+            return new Report(name, latencies, errors, System.nanoTime() - begin);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Result of a run
+     */
+    public static class Report {
+
+        private final String name;
+
+        private final long[] latencies;
+
+        private final int errors;
+
+        private final long elapsedInNanos;
+
+        Report(String name, long[] latencies, int errors, long elapsedInNanos) {
+            this.name = name;
+            this.latencies = latencies.clone();
+            Arrays.sort(this.latencies);
+            this.errors = errors;
+            this.elapsedInNanos = elapsedInNanos;
+        }
+
+        /**
+         * @return the number of calls (including the failed ones)
+         */
+        public int getCalls() {
+            return latencies.length;
+        }
+
+        /**
+         * @return the number of failed calls
+         */
+        public int getErrors() {
+            return errors;
+        }
+
+        /**
+         * @return the number of calls per second
+         */
+        public double getThroughput() {
+            return elapsedInNanos > 0 ? latencies.length * 1e9 / elapsedInNanos : 0;
+        }
+
+        /**
+         * @param percentile between 0 and 100 (50 for the median)
+         * @return the latency (in milli-seconds) of the given percentile
+         */
+        public double getLatency(double percentile) {
+            if (latencies.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile / 100 * latencies.length) - 1;
+            return latencies[Math.min(latencies.length - 1, Math.max(0, index))] / 1e6;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-25s %8d calls %6d errors %10.1f calls/s   p50 %8.2f ms   p99 %8.2f ms",
+                                 name,
+                                 getCalls(),
+                                 errors,
+                                 getThroughput(),
+                                 getLatency(50),
+                                 getLatency(99));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int callsPerThread = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        long minLatency = args.length > 2 ? Long.parseLong(args[2]) : 0;
+        long maxLatency = args.length > 3 ? Long.parseLong(args[3]) : minLatency;
+        double errorRate = args.length > 4 ? Double.parseDouble(args[4]) : 0;
+
+        FakeRundeckServer server = new FakeRundeckServer().projects(5)
+                                                          .jobsPerProject(100)
+                                                          .nodesPerProject(1000)
+                                                          .eventsPerProject(1000)
+                                                          .executionDuration(100)
+                                                          .latency(minLatency, maxLatency)
+                                                          .errorRate(errorRate)
+                                                          .threads(Math.max(threads, 10))
+                                                          .start();
+        RundeckClient client = new RundeckClient(server.getUrl(), server.getToken());
+        client.setMaxConnections(threads);
+        client.setMaxConnectionsPerRoute(threads);
+        try {
+            LoadTestHarness harness = new LoadTestHarness(client, threads, callsPerThread);
+            System.out.println("Load test : " + threads + " threads x " + callsPerThread + " calls, latency "
+                               + minLatency + "-" + maxLatency + " ms, error rate " + errorRate);
+            System.out.println(harness.run("getProjects", new Scenario() {
+
+                @Override
+                public void call(RundeckClient client) {
+                    client.getProjects();
+                }
+            }));
+            System.out.println(harness.run("getJobs(project)", new Scenario() {
+
+                @Override
+                public void call(RundeckClient client) {
+                    client.getJobs("project-0");
+                }
+            }));
+            System.out.println(harness.run("getNodes(project)", new Scenario() {
+
+                @Override
+                public void call(RundeckClient client) {
+                    client.getNodes("project-0");
+                }
+            }));
+            System.out.println(harness.run("getHistory(project)", new Scenario() {
+
+                @Override
+                public void call(RundeckClient client) {
+                    client.getHistory("project-0", 100L, 0L);
+                }
+            }));
+            System.out.println(harness.run("triggerAdhocCommand", new Scenario() {
+
+                @Override
+                public void call(RundeckClient client) {
+                    client.triggerAdhocCommand("project-0", "uptime");
+                }
+            }));
+            System.out.println(harness.run("getRunningExecutions", new Scenario() {
+
+                @Override
+                public void call(RundeckClient client) {
+                    client.getRunningExecutions("project-0");
+                }
+            }));
+        } finally {
+            client.close();
+            server.close();
+        }
+    }
+
+}
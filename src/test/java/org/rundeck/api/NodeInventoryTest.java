@@ -0,0 +1,163 @@
+/*
+ * Copyright 2011 Vincent Behar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rundeck.api;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.rundeck.api.domain.RundeckNode;
+
+/**
+ * Test the {@link NodeInventory}, against an in-memory list of nodes
+ * 
+ * @author Vincent Behar
+ */
+public class NodeInventoryTest {
+
+    /** Number of nodes loaded by the client */
+    private int loads;
+
+    private NodeInventory inventory;
+
+    @Test
+    public void nodesLoadedOnFirstLookup() throws Exception {
+        Assert.assertNull(inventory.getLastUpdate());
+        Assert.assertEquals(Arrays.asList("web1", "web2", "db1", "win1"), names(inventory.getNodes(null)));
+        Assert.assertEquals(4, inventory.getNodes().size());
+        Assert.assertEquals(1, loads);
+        Assert.assertNotNull(inventory.getLastUpdate());
+
+        inventory.refresh();
+        Assert.assertEquals(2, loads);
+    }
+
+    @Test
+    public void includeFilters() throws Exception {
+        Assert.assertEquals(Arrays.asList("web1", "db1"),
+                            names(inventory.getNodes(new NodeFiltersBuilder().name("web1, db1").toProperties())));
+        Assert.assertEquals(Arrays.asList("web1", "web2"),
+                            names(inventory.getNodes(new NodeFiltersBuilder().hostname("web.*").toProperties())));
+        Assert.assertEquals(Arrays.asList("web2", "db1"),
+                            names(inventory.getNodes(new NodeFiltersBuilder().tags("prod").toProperties())));
+        Assert.assertEquals(Arrays.asList("web2"),
+                            names(inventory.getNodes(new NodeFiltersBuilder().tags("web+prod").toProperties())));
+        Assert.assertEquals(Arrays.asList("web1", "web2", "db1"),
+                            names(inventory.getNodes(new NodeFiltersBuilder().tags("web,db").toProperties())));
+        Assert.assertEquals(Arrays.asList("win1"),
+                            names(inventory.getNodes(new NodeFiltersBuilder().osFamily("/win.*/").toProperties())));
+        // all the include filters must match
+        Assert.assertEquals(Arrays.asList("db1"),
+                            names(inventory.getNodes(new NodeFiltersBuilder().tags("prod")
+                                                                             .osName("Linux")
+                                                                             .type("Database")
+                                                                             .toProperties())));
+        Assert.assertTrue(inventory.getNodes(new NodeFiltersBuilder().osArch("sparc").toProperties()).isEmpty());
+    }
+
+    @Test
+    public void excludeFilters() throws Exception {
+        // any exclude filter matching excludes the node
+        Assert.assertEquals(Arrays.asList("web1"),
+                            names(inventory.getNodes(new NodeFiltersBuilder().excludeTags("prod")
+                                                                             .excludeOsFamily("windows")
+                                                                             .toProperties())));
+        Assert.assertEquals(Arrays.asList("web2"),
+                            names(inventory.getNodes(new NodeFiltersBuilder().tags("web")
+                                                                             .excludeName("web1")
+                                                                             .toProperties())));
+    }
+
+    @Test
+    public void excludePrecedence() throws Exception {
+        Properties filters = new NodeFiltersBuilder().name("web1,db1").excludeTags("prod").toProperties();
+        Assert.assertEquals(Arrays.asList("web1"), names(inventory.getNodes(filters)));
+
+        filters = new NodeFiltersBuilder().name("web1,db1").excludeTags("prod").excludePrecedence(false).toProperties();
+        Assert.assertEquals(Arrays.asList("web1", "db1", "win1"), names(inventory.getNodes(filters)));
+    }
+
+    @Test
+    public void excludePrecedenceWithoutExcludeFilter() throws Exception {
+        Properties filters = new NodeFiltersBuilder().name("web1").excludePrecedence(false).toProperties();
+        Assert.assertEquals(Arrays.asList("web1"), names(inventory.getNodes(filters)));
+
+        filters = new NodeFiltersBuilder().excludeName("web1").excludePrecedence(false).toProperties();
+        Assert.assertEquals(Arrays.asList("web2", "db1", "win1"), names(inventory.getNodes(filters)));
+    }
+
+    @Test
+    public void nodeMatchingNoFilter() throws Exception {
+        // db1 is neither included nor excluded
+        Properties filters = new NodeFiltersBuilder().name("web2").excludeTags("dev").toProperties();
+        Assert.assertEquals(Arrays.asList("web2"), names(inventory.getNodes(filters)));
+
+        filters = new NodeFiltersBuilder().name("web2").excludeTags("dev").excludePrecedence(false).toProperties();
+        Assert.assertEquals(Arrays.asList("web2", "db1"), names(inventory.getNodes(filters)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unsupportedFilter() throws Exception {
+        Properties filters = new Properties();
+        filters.put("description", "fake");
+        inventory.getNodes(filters);
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        loads = 0;
+        final List<RundeckNode> nodes = Arrays.asList(node("web1", "Node", "unix", "Linux", "web,dev"),
+                                                      node("web2", "Node", "unix", "Linux", "web,prod"),
+                                                      node("db1", "Database", "unix", "Linux", "db,prod"),
+                                                      node("win1", "Node", "windows", "Windows 7", "dev"));
+        RundeckClient client = new RundeckClient("http://localhost:4440", "token") {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public List<RundeckNode> getNodes(String project) {
+                Assert.assertEquals("test", project);
+                loads++;
+                return nodes;
+            }
+        };
+        inventory = new NodeInventory(client, "test");
+    }
+
+    private static RundeckNode node(String name, String type, String osFamily, String osName, String tags) {
+        RundeckNode node = new RundeckNode();
+        node.setName(name);
+        node.setHostname(name + ".local");
+        node.setType(type);
+        node.setOsFamily(osFamily);
+        node.setOsName(osName);
+        node.setOsArch("x86_64");
+        node.setTags(Arrays.asList(tags.split(",")));
+        return node;
+    }
+
+    private static List<String> names(List<RundeckNode> nodes) {
+        List<String> names = new ArrayList<String>();
+        for (RundeckNode node : nodes) {
+            names.add(node.getName());
+        }
+        return names;
+    }
+
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2011 Vincent Behar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rundeck.api;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the {@link ParallelTasks}
+ * 
+ * @author Vincent Behar
+ */
+public class ParallelTasksTest {
+
+    private ExecutorService executor;
+
+    @Test
+    public void processAllItems() throws Exception {
+        Tasks tasks = new Tasks(100, null);
+        tasks.runAll(executor, 4, "testing");
+
+        Collections.sort(tasks.processed);
+        Assert.assertEquals(100, tasks.processed.size());
+        Assert.assertEquals(Integer.valueOf(0), tasks.processed.get(0));
+        Assert.assertEquals(Integer.valueOf(99), tasks.processed.get(99));
+    }
+
+    @Test(timeout = 5000)
+    public void noWaitForWorkersThatNeverStart() throws Exception {
+        // the only thread of the executor runs the current "thread" : the other workers are queued but never start
+        final ExecutorService single = Executors.newSingleThreadExecutor();
+        try {
+            Future<Integer> processed = single.submit(new Callable<Integer>() {
+
+                @Override
+                public Integer call() throws Exception {
+                    Tasks tasks = new Tasks(10, null);
+                    tasks.runAll(single, 4, "testing");
+                    return tasks.processed.size();
+                }
+            });
+            Assert.assertEquals(Integer.valueOf(10), processed.get());
+        } finally {
+            single.shutdownNow();
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void interruptedWhileWaiting() throws Exception {
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        Tasks tasks = new Tasks(10, new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    if (Thread.currentThread().getName().equals("test-caller")) {
+                        // let the other worker take (and block on) an item
+                        blocked.await();
+                    } else {
+                        blocked.countDown();
+                        release.await();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        final Thread caller = Thread.currentThread();
+        String name = caller.getName();
+        caller.setName("test-caller");
+        new Thread() {
+
+            @Override
+            public void run() {
+                try {
+                    blocked.await();
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                caller.interrupt();
+            }
+        }.start();
+        try {
+            tasks.runAll(executor, 2, "testing");
+            Assert.fail("should have thrown an exception !");
+        } catch (RundeckApiException e) {
+            Assert.assertEquals("Interrupted while testing", e.getMessage());
+            Assert.assertTrue(Thread.interrupted());
+        } finally {
+            caller.setName(name);
+            release.countDown();
+        }
+    }
+
+    @Before
+    public void setUp() {
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executor.shutdownNow();
+        executor.awaitTermination(1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Records the processed items, and runs an optional action for each one
+     */
+    private static class Tasks extends ParallelTasks<Integer> {
+
+        private final List<Integer> processed = Collections.synchronizedList(new ArrayList<Integer>());
+
+        private final int count;
+
+        private final Runnable action;
+
+        private int nextItem = 0;
+
+        private Tasks(int count, Runnable action) {
+            super();
+            this.count = count;
+            this.action = action;
+        }
+
+        @Override
+        protected Integer next() {
+            return nextItem < count ? nextItem++ : null;
+        }
+
+        @Override
+        protected void process(Integer item) {
+            if (action != null) {
+                action.run();
+            }
+            processed.add(item);
+        }
+    }
+
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2011 Vincent Behar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rundeck.api;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.rundeck.api.RundeckApiException.RundeckApiPartialFailureException;
+import org.rundeck.api.domain.RundeckProject;
+
+/**
+ * Test the {@link ProjectsAggregator}
+ * 
+ * @author Vincent Behar
+ */
+public class ProjectsAggregatorTest {
+
+    private ExecutorService executor;
+
+    @Test
+    public void aggregateInProjectsOrder() throws Exception {
+        List<String> results = new ProjectsAggregator<String>("things") {
+
+            @Override
+            protected List<String> get(String project) {
+                // the first projects are the slowest
+                sleep(50 - project.length() * 10);
+                return Arrays.asList(project + "-1", project + "-2");
+            }
+        }.aggregate(projects("a", "bb", "ccc"), executor, 3);
+
+        Assert.assertEquals(Arrays.asList("a-1", "a-2", "bb-1", "bb-2", "ccc-1", "ccc-2"), results);
+    }
+
+    @Test
+    public void boundedParallelism() throws Exception {
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        List<String> results = new ProjectsAggregator<String>("things") {
+
+            @Override
+            protected List<String> get(String project) {
+                int current = running.incrementAndGet();
+                synchronized (maxRunning) {
+                    maxRunning.set(Math.max(maxRunning.get(), current));
+                }
+                sleep(20);
+                running.decrementAndGet();
+                return Arrays.asList(project);
+            }
+        }.aggregate(projects("a", "b", "c", "d", "e", "f", "g", "h"), executor, 3);
+
+        Assert.assertEquals(8, results.size());
+        Assert.assertTrue("max running : " + maxRunning.get(), maxRunning.get() <= 3);
+        Assert.assertTrue("max running : " + maxRunning.get(), maxRunning.get() > 1);
+    }
+
+    @Test
+    public void partialFailure() throws Exception {
+        try {
+            new ProjectsAggregator<String>("things") {
+
+                @Override
+                protected List<String> get(String project) {
+                    if (project.startsWith("fail")) {
+                        throw new RundeckApiException("no " + project);
+                    }
+                    return Arrays.asList(project);
+                }
+            }.aggregate(projects("a", "fail-1", "b", "fail-2", "c"), executor, 2);
+            Assert.fail("should have thrown an exception !");
+        } catch (RundeckApiPartialFailureException e) {
+            Assert.assertEquals(Arrays.asList("a", "b", "c"), e.getResults());
+            Assert.assertEquals(Arrays.asList("fail-1", "fail-2"), new ArrayList<String>(e.getFailures().keySet()));
+            Assert.assertEquals("no fail-1", e.getFailures().get("fail-1").getMessage());
+        }
+    }
+
+    @Test
+    public void noProjects() throws Exception {
+        List<String> results = new ProjectsAggregator<String>("things") {
+
+            @Override
+            protected List<String> get(String project) {
+                throw new IllegalStateException("should not be called");
+            }
+        }.aggregate(new ArrayList<RundeckProject>(), executor, 3);
+
+        Assert.assertTrue(results.isEmpty());
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executor.shutdownNow();
+    }
+
+    private static List<RundeckProject> projects(String... names) {
+        List<RundeckProject> projects = new ArrayList<RundeckProject>();
+        for (String name : names) {
+            RundeckProject project = new RundeckProject();
+            project.setName(name);
+            projects.add(project);
+        }
+        return projects;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
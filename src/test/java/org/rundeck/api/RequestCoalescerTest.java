@@ -0,0 +1,101 @@
+/*
+ * Copyright 2011 Vincent Behar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rundeck.api;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test the {@link RequestCoalescer}
+ * 
+ * @author Vincent Behar
+ */
+public class RequestCoalescerTest {
+
+    @Test
+    public void coalesceConcurrentRequests() throws Exception {
+        final RequestCoalescer coalescer = new RequestCoalescer();
+        final AtomicInteger requests = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(1);
+        final Callable<byte[]> request = new Callable<byte[]>() {
+
+            @Override
+            public byte[] call() throws Exception {
+                requests.incrementAndGet();
+                release.await(5, TimeUnit.SECONDS);
+                return new byte[] { 42 };
+            }
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(5);
+        try {
+            List<Future<byte[]>> futures = new ArrayList<Future<byte[]>>();
+            for (int i = 0; i < 5; i++) {
+                futures.add(executor.submit(new Callable<byte[]>() {
+
+                    @Override
+                    public byte[] call() {
+                        return coalescer.execute("/execution/1", request);
+                    }
+                }));
+            }
+            // wait until all the callers are waiting for the first request
+            while (coalescer.getCallsCount() < 5) {
+                Thread.sleep(10);
+            }
+            release.countDown();
+
+            for (Future<byte[]> future : futures) {
+                Assert.assertArrayEquals(new byte[] { 42 }, future.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Assert.assertEquals(1, requests.get());
+        Assert.assertEquals(4, coalescer.getCoalescedCallsCount());
+
+        // the next call makes a new request
+        coalescer.execute("/execution/1", request);
+        Assert.assertEquals(2, requests.get());
+    }
+
+    @Test
+    public void propagateErrors() throws Exception {
+        RequestCoalescer coalescer = new RequestCoalescer();
+        try {
+            coalescer.execute("/projects", new Callable<byte[]>() {
+
+                @Override
+                public byte[] call() {
+                    throw new RundeckApiException("error");
+                }
+            });
+            Assert.fail("the error should be propagated");
+        } catch (RundeckApiException e) {
+            Assert.assertEquals("error", e.getMessage());
+        }
+    }
+
+}
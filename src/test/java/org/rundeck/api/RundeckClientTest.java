@@ -45,6 +45,16 @@ public class RundeckClientTest {
         Assert.assertNull(projects.get(0).getDescription());
     }
 
+    @Test
+    @Betamax(tape = "get_projects")
+    public void getProjectsWithStreamingParsers() throws Exception {
+        client.setStreamingParsers(true);
+        List<RundeckProject> projects = client.getProjects();
+        Assert.assertEquals(1, projects.size());
+        Assert.assertEquals("test", projects.get(0).getName());
+        Assert.assertNull(projects.get(0).getDescription());
+    }
+
     @Before
     public void setUp() throws Exception {
         // not that you can put whatever here, because we don't actually connect to the RunDeck instance
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2011 Vincent Behar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rundeck.api.domain;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import org.rundeck.api.domain.RundeckEvent.EventStatus;
+import org.rundeck.api.domain.RundeckEvent.NodeSummary;
+
+/**
+ * Test the {@link EventTable}
+ * 
+ * @author Vincent Behar
+ */
+public class EventTableTest {
+
+    @Test
+    public void roundTrip() throws Exception {
+        List<RundeckEvent> events = events(100);
+        EventTable table = new EventTable();
+        for (RundeckEvent event : events) {
+            table.addEvent(event);
+        }
+
+        Assert.assertEquals(100, table.size());
+        Assert.assertEquals(events, table.asList());
+        Assert.assertEquals(events.get(42), table.getEvent(42));
+        // the strings are stored only once
+        Assert.assertSame(table.getProject(0), table.getProject(3));
+    }
+
+    @Test
+    public void missingValues() throws Exception {
+        RundeckEvent event = new RundeckEvent();
+        EventTable table = new EventTable();
+        table.addEvent(event);
+
+        Assert.assertEquals(event, table.getEvent(0));
+        Assert.assertEquals(EventTable.NO_VALUE, table.getStartedAt(0));
+        Assert.assertEquals(EventTable.NO_VALUE, table.getExecutionId(0));
+        Assert.assertEquals(EventTable.NO_VALUE, table.getDurationInMillis(0));
+        Assert.assertEquals(-1, table.getNodesTotal(0));
+        Assert.assertNull(table.getStatus(0));
+    }
+
+    @Test
+    public void trimAndGrow() throws Exception {
+        EventTable table = new EventTable();
+        table.trimToSize();
+        for (RundeckEvent event : events(20)) {
+            table.addEvent(event);
+            table.trimToSize();
+        }
+        Assert.assertEquals(events(20), table.asList());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void outOfBounds() throws Exception {
+        EventTable table = new EventTable();
+        table.addEvent(new RundeckEvent());
+        table.getUser(1);
+    }
+
+    @Test
+    public void serialization() throws Exception {
+        EventTable table = new EventTable();
+        for (RundeckEvent event : events(30)) {
+            table.addEvent(event);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream output = new ObjectOutputStream(bytes);
+        output.writeObject(table);
+        output.close();
+
+        ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        EventTable copy = (EventTable) input.readObject();
+        Assert.assertEquals(table.asList(), copy.asList());
+        copy.addEvent(events(31).get(30));
+        Assert.assertEquals(events(31), copy.asList());
+    }
+
+    private static List<RundeckEvent> events(int count) {
+        List<RundeckEvent> events = new ArrayList<RundeckEvent>();
+        for (int i = 0; i < count; i++) {
+            RundeckEvent event = new RundeckEvent();
+            event.setTitle(i % 4 == 0 ? "adhoc" : "job-" + (i % 4));
+            event.setStatus(EventStatus.values()[i % 3]);
+            event.setSummary("event " + i);
+            if (i % 5 != 0) {
+                NodeSummary nodeSummary = new NodeSummary();
+                nodeSummary.setSucceeded(i % 3);
+                nodeSummary.setFailed(1);
+                nodeSummary.setTotal(i % 3 + 1);
+                event.setNodeSummary(nodeSummary);
+            }
+            event.setUser("user-" + (i % 5));
+            event.setProject("project-" + (i % 3));
+            event.setStartedAt(new Date(1000000L + i * 1000));
+            event.setEndedAt(new Date(1000500L + i * 1000));
+            event.setAbortedBy(i % 7 == 0 ? "admin" : null);
+            event.setExecutionId(i + 1L);
+            event.setJobId(i % 4 == 0 ? null : "job-id-" + (i % 4));
+            events.add(event);
+        }
+        return events;
+    }
+
+}
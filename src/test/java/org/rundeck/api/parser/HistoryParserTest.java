@@ -20,6 +20,7 @@ import java.util.Date;
 import org.dom4j.Document;
 import org.junit.Assert;
 import org.junit.Test;
+import org.rundeck.api.domain.EventTable;
 import org.rundeck.api.domain.RundeckEvent;
 import org.rundeck.api.domain.RundeckHistory;
 import org.rundeck.api.domain.RundeckEvent.EventStatus;
@@ -75,4 +76,22 @@ public class HistoryParserTest {
         Assert.assertEquals(new Long(1), event2.getExecutionId());
     }
 
+    @Test
+    public void parseHistoryInTable() throws Exception {
+        EventTable table = new EventTable();
+        RundeckHistory history = ParserHelper.parseStream(getClass().getResourceAsStream("history.xml"),
+                                                          new HistoryParser("result/events", table));
+
+        Assert.assertEquals(4, history.getTotal());
+        Assert.assertNull(history.getEvents());
+        Assert.assertEquals(2, table.size());
+
+        // same events as with the DOM parser
+        Document document = ParserHelper.loadDocument(getClass().getResourceAsStream("history.xml"));
+        Assert.assertEquals(new HistoryParser("result/events").parseXmlNode(document).getEvents(), table.asList());
+        Assert.assertEquals("test", table.getProject(1));
+        Assert.assertEquals(1311945963467L - 1311945953547L, table.getDurationInMillis(1));
+        Assert.assertEquals(1L, table.getExecutionId(1));
+    }
+
 }
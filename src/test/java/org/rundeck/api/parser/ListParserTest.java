@@ -20,6 +20,7 @@ import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 import org.dom4j.Document;
+import org.dom4j.Node;
 import org.junit.Assert;
 import org.junit.Test;
 import org.rundeck.api.domain.RundeckExecution;
@@ -127,6 +128,31 @@ public class ListParserTest {
         Assert.assertEquals(null, node1.getRemoteUrl());
     }
 
+    @Test
+    public void parseNodesStreamWithDomOnlyParser() throws Exception {
+        InputStream input = getClass().getResourceAsStream("resources.xml");
+        XmlNodeParser<RundeckNode> domOnlyParser = new XmlNodeParser<RundeckNode>() {
+
+            @Override
+            public RundeckNode parseXmlNode(Node node) {
+                return new NodeParser().parseXmlNode(node);
+            }
+        };
+
+        List<RundeckNode> nodes = ParserHelper.parseStream(input,
+                                                           new ListParser<RundeckNode>(domOnlyParser, "project/node"));
+        Assert.assertEquals(1, nodes.size());
+
+        RundeckNode node1 = nodes.get(0);
+        Assert.assertEquals("strongbad", node1.getName());
+        Assert.assertEquals("Node", node1.getType());
+        Assert.assertEquals("a development host", node1.getDescription());
+        Assert.assertEquals(Arrays.asList("dev"), node1.getTags());
+        Assert.assertEquals("strongbad.local", node1.getHostname());
+        Assert.assertEquals("2.6.35-30-generic-pae", node1.getOsVersion());
+        Assert.assertEquals("rundeck", node1.getUsername());
+    }
+
     @Test
     public void parseProjects() throws Exception {
         InputStream input = getClass().getResourceAsStream("projects.xml");
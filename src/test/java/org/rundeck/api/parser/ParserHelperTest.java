@@ -42,6 +42,20 @@ public class ParserHelperTest {
         }
     }
 
+    /**
+     * XML with an explicit "error" result should throw an exception, when streaming too
+     */
+    @Test
+    public void loadErrorStream() throws Exception {
+        InputStream input = getClass().getResourceAsStream("error.xml");
+        try {
+            ParserHelper.loadStream(input);
+            Assert.fail("should have thrown an exception !");
+        } catch (RundeckApiException e) {
+            Assert.assertEquals("This is the error message", e.getMessage());
+        }
+    }
+
     /**
      * XML with an explicit "success" result should NOT throw an exception
      */
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2011 Vincent Behar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rundeck.api.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import org.dom4j.Document;
+import org.junit.Assert;
+import org.junit.Test;
+import org.rundeck.api.domain.RundeckNode;
+
+/**
+ * Test the {@link XmlStreamIterator}
+ * 
+ * @author Vincent Behar
+ */
+public class XmlStreamIteratorTest {
+
+    @Test
+    public void iterateNodes() throws Exception {
+        Document document = ParserHelper.loadDocument(getClass().getResourceAsStream("resources.xml"));
+        ListParser<RundeckNode> listParser = new ListParser<RundeckNode>(new NodeParser(), "project/node");
+        List<RundeckNode> expected = listParser.parseXmlNode(document);
+
+        TestIterator iterator = new TestIterator("resources.xml");
+        List<RundeckNode> nodes = new ArrayList<RundeckNode>();
+        while (iterator.hasNext()) {
+            nodes.add(iterator.next());
+        }
+
+        Assert.assertEquals(expected, nodes);
+        Assert.assertEquals(Boolean.TRUE, iterator.released);
+        try {
+            iterator.next();
+            Assert.fail("should have thrown an exception !");
+        } catch (NoSuchElementException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void closeBeforeTheEnd() throws Exception {
+        TestIterator iterator = new TestIterator("resources.xml");
+        Assert.assertTrue(iterator.hasNext());
+        Assert.assertEquals("strongbad", iterator.next().getName());
+        iterator.close();
+
+        Assert.assertEquals(Boolean.FALSE, iterator.released);
+        Assert.assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void iterateEmpty() throws Exception {
+        TestIterator iterator = new TestIterator("empty.xml");
+        Assert.assertFalse(iterator.hasNext());
+        Assert.assertEquals(Boolean.TRUE, iterator.released);
+    }
+
+    /**
+     * Iterator over the nodes of the given file, keeping track of its release
+     */
+    private class TestIterator extends XmlStreamIterator<RundeckNode> {
+
+        private Boolean released;
+
+        public TestIterator(String file) {
+            super(ParserHelper.loadStream(XmlStreamIteratorTest.class.getResourceAsStream(file)), new NodeParser(),
+                  "project/node");
+        }
+
+        @Override
+        protected void release(boolean complete) {
+            Assert.assertNull("released twice !", released);
+            released = complete;
+        }
+    }
+
+}
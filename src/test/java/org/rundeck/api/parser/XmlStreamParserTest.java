@@ -0,0 +1,124 @@
+/*
+ * Copyright 2011 Vincent Behar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rundeck.api.parser;
+
+import java.io.InputStream;
+import java.util.List;
+import org.dom4j.Document;
+import org.junit.Assert;
+import org.junit.Test;
+import org.rundeck.api.domain.RundeckExecution;
+import org.rundeck.api.domain.RundeckJob;
+import org.rundeck.api.domain.RundeckNode;
+import org.rundeck.api.domain.RundeckProject;
+
+/**
+ * Test the {@link XmlStreamParser}s : they should give the same results as the {@link XmlNodeParser}s
+ * 
+ * @author Vincent Behar
+ */
+public class XmlStreamParserTest {
+
+    @Test
+    public void parseAbort() throws Exception {
+        assertSameResult(new AbortParser("result/abort"), "abort-pending.xml");
+        assertSameResult(new AbortParser("result/abort"), "abort-failed.xml");
+    }
+
+    @Test
+    public void parseEvent() throws Exception {
+        assertSameResult(new EventParser("event"), "event-succeeded.xml");
+        assertSameResult(new EventParser("event"), "event-adhoc.xml");
+    }
+
+    @Test
+    public void parseExecution() throws Exception {
+        assertSameResult(new ExecutionParser("result/executions/execution"), "execution-running.xml");
+        assertSameResult(new ExecutionParser("result/executions/execution"), "execution-succeeded.xml");
+        assertSameResult(new ExecutionParser("result/executions/execution"), "execution-adhoc.xml");
+        assertSameResult(new ExecutionParser("result/execution"), "execution-minimalist.xml");
+    }
+
+    @Test
+    public void parseHistory() throws Exception {
+        assertSameResult(new HistoryParser("result/events"), "history.xml");
+    }
+
+    @Test
+    public void parseJob() throws Exception {
+        assertSameResult(new JobParser("joblist/job"), "job.xml");
+    }
+
+    @Test
+    public void parseJobsImportResult() throws Exception {
+        assertSameResult(new JobsImportResultParser("result"), "jobs-import.xml");
+    }
+
+    @Test
+    public void parseList() throws Exception {
+        assertSameResult(new ListParser<RundeckJob>(new JobParser(), "result/jobs/job"), "jobs.xml");
+        assertSameResult(new ListParser<RundeckNode>(new NodeParser(), "project/node"), "resources.xml");
+        assertSameResult(new ListParser<RundeckProject>(new ProjectParser(), "result/projects/project"),
+                         "projects.xml");
+        assertSameResult(new ListParser<RundeckExecution>(new ExecutionParser(), "result/executions/execution"),
+                         "executions.xml");
+    }
+
+    @Test
+    public void parseEmptyList() throws Exception {
+        ListParser<RundeckJob> parser = new ListParser<RundeckJob>(new JobParser(), "result/jobs/job");
+        InputStream input = getClass().getResourceAsStream("empty.xml");
+        List<RundeckJob> jobs = ParserHelper.parseStream(input, parser);
+        Assert.assertTrue(jobs.isEmpty());
+    }
+
+    @Test
+    public void parseNode() throws Exception {
+        assertSameResult(new NodeParser("project/node"), "resources.xml");
+    }
+
+    @Test
+    public void parseProject() throws Exception {
+        assertSameResult(new ProjectParser("result/projects/project"), "project.xml");
+    }
+
+    @Test
+    public void parseString() throws Exception {
+        assertSameResult(new StringParser("result/success/message"), "message.xml");
+    }
+
+    @Test
+    public void parseSystemInfo() throws Exception {
+        assertSameResult(new SystemInfoParser("result/system"), "system-info.xml");
+    }
+
+    /**
+     * Parse the given XML file with both the DOM and the streaming implementations of the given parser, and assert
+     * that the results are equal
+     */
+    private <T, P extends XmlNodeParser<T> & XmlStreamParser<T>> void assertSameResult(P parser, String file)
+            throws Exception {
+        Document document = ParserHelper.loadDocument(getClass().getResourceAsStream(file));
+        T expected = parser.parseXmlNode(document);
+
+        T actual = ParserHelper.parseStream(getClass().getResourceAsStream(file), parser);
+
+        Assert.assertNotNull(actual);
+        Assert.assertEquals(file, expected, actual);
+        Assert.assertEquals(file, expected.toString(), actual.toString());
+    }
+
+}